@@ -36,6 +36,7 @@ import java.util.Formatter;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -48,7 +49,6 @@ public class BuoyTapLayer extends Layer {
     private SeamarkOSM mSeamarkOSM;
     private File mMapFile;
     private MapView mMapView;
-    private ArrayList<SeamarkNode> mSeamarkNodeList;
     private ArrayList<SeamarkWay> mSeamarkWayList;
     private String mSeamarkFilePath = "";
     private XmlRenderTheme mXmlRenderTheme;
@@ -82,11 +82,12 @@ public class BuoyTapLayer extends Layer {
             if (test) Log.i(TAG, "draw with new  " + boundingBox.toString());
             List<TilePosition> tilePositions = LayerUtil.getTilePositions(boundingBox, zoomLevel, topLeftPoint,
                     this.displayModel.getTileSize());
+            List<Tile> aTileList = new ArrayList<Tile>(tilePositions.size());
             for (int i = tilePositions.size() - 1; i >= 0; --i) {
                 TilePosition aTilePosition = tilePositions.get(i);
-                Tile aTile = aTilePosition.tile;
-                readPoisToTile(aTile);
+                aTileList.add(aTilePosition.tile);
             }
+            readPoisToTiles(aTileList);
         } else {
             if (test) Log.i(TAG,"redrawing with same BBox");
         }
@@ -95,32 +96,40 @@ public class BuoyTapLayer extends Layer {
 
     }
 
-    private void readPoisToTile (Tile aTile){
+    private void readPoisToTiles (List<Tile> aTileList){
         try {
             if (mMapDatabase != null) {
-                MapReadResult aMapReadResult = mMapDatabase.readMapData(aTile);
-                List<PointOfInterest> aPOIList = aMapReadResult.pointOfInterests;
+                // read all visible tiles at once, each block of the map file is read only once
+                Map<Tile, MapReadResult> aMapReadResults = mMapDatabase.readMapData(aTileList);
+                if (aMapReadResults == null) {
+                    return;
+                }
                 int countNewPois = 0;
-                for (int index = 0; index < aPOIList.size(); index++) {
-                    PointOfInterest aPoi = aPOIList.get(index);
-                    LatLong aPoiKey = aPoi.position;
-                    if (!mPOIList.containsKey(aPoiKey)) {
-                        countNewPois++;
-                        mPOIList.put(aPoiKey, aPoi);
+                for (MapReadResult aMapReadResult : aMapReadResults.values()) {
+                    if (aMapReadResult == null) {
+                        continue;
+                    }
+                    List<PointOfInterest> aPOIList = aMapReadResult.pointOfInterests;
+                    for (int index = 0; index < aPOIList.size(); index++) {
+                        PointOfInterest aPoi = aPOIList.get(index);
+                        LatLong aPoiKey = aPoi.position;
+                        if (!mPOIList.containsKey(aPoiKey)) {
+                            countNewPois++;
+                            mPOIList.put(aPoiKey, aPoi);
+                        }
                     }
                 }
                 // Log.i(TAG,"new pois in tap Layer " + countNewPois);
             }
 
         } catch (Exception e) {
-           Log.i(TAG,"error in readPoisToTile "+ e.toString()) ;
+           Log.i(TAG,"error in readPoisToTiles "+ e.toString()) ;
         }
 
     }
 
     @Override
     public boolean onTap(LatLong tapLatLong, Point layerXY, Point tapXY) {
-        //return onTapWithSeamarksFile(tapLatLong, layerXY, tapXY);
         return onTapWithTiles(tapLatLong,layerXY,tapXY);
         //return super.onTap(tapLatLong, layerXY, tapXY);
 
@@ -261,129 +270,6 @@ public class BuoyTapLayer extends Layer {
         aDialog.show();
     }
 
-    private boolean onTapWithSeamarksFile(LatLong tapLatLong, Point layerXY, Point tapXY) {
-        if (test) Log.i(SamplesApplication.TAG, "Tap Coordinates " + tapLatLong.toString());
-        double lon = tapLatLong.longitude;
-        double lat = tapLatLong.latitude;
-        byte zoomLevel = mMapView.getModel().mapViewPosition.getZoomLevel();
-        // maybe there are some seamarks in the boundingbox to test
-        // we handle only the first one
-        double rad = 0.005d;
-        if (zoomLevel > 14) {
-            rad = 0.0005d;
-        }
-        if (zoomLevel > 15) {
-            rad = 0.0001d;
-        }
-        double minLon = lon - rad;
-        double maxLon = lon + rad;
-        double minLat = lat -rad;
-        double maxLat= lat + rad;
-
-
-        BoundingBox aBoundingBox = new BoundingBox(minLat, minLon,maxLat,maxLon);
-        if (mSeamarkOSM.getSeamarkFileReadComplete()){
-            if (mSeamarkNodeList != null) {
-                if (test) Log.i(SamplesApplication.TAG,"rad = " + rad );
-                ArrayList<SeamarkNode> listOfNodesInBB = new ArrayList<SeamarkNode>();
-                Log.i(TAG," nodes in list  " + mSeamarkNodeList.size());
-                for (int index = 0; index < mSeamarkNodeList.size(); index++){
-                    SeamarkNode aSeamarkNode = mSeamarkNodeList.get(index);
-                    LatLong aNodePoint = aSeamarkNode.getLatLong();
-                    if (aBoundingBox.contains(aNodePoint)) {
-                        listOfNodesInBB.add(aSeamarkNode);
-                    }
-                }
-
-                Log.i(TAG," nodes in bb tapped " + listOfNodesInBB.size());
-                if (listOfNodesInBB.size() > 0) {
-                    showSeamarkListInfoDialog(listOfNodesInBB,aBoundingBox);
-                }
-            } else {
-                Log.i(TAG,"mNodeList " + mSeamarkNodeList.toString());
-            }
-        }
-
-        return true;
-        //return super.onTap(tapLatLong, layerXY, tapXY);
-    }
-
-
-
-
-
-
-
-    private void showSeamarkListInfoDialog(ArrayList<SeamarkNode> pNodesList, BoundingBox pBoundingBox) {
-        int count = pNodesList.size();
-        double latSpan = pBoundingBox.getLatitudeSpan();
-        StringBuilder sb = new StringBuilder();
-        Formatter formatter = new Formatter(sb);
-        formatter.format("%d nodes in BoundingBox span %f", count, latSpan);
-        if (test) Log.d(SamplesApplication.TAG, formatter.toString());
-        if (count == 1) {
-            int index = 0;
-            SeamarkNode aSeamarkNode = pNodesList.get(index);
-            showSeamarkInfoDialog(aSeamarkNode);
-        } else {
-            AlertDialog aDialog = new AlertDialog.Builder(this.mContext)
-                    .setTitle("Seamrks " )
-                    .setMessage(" there are "+ count + " seamarks selectet, increase the zoom level")
-                    .setPositiveButton("OK", null)
-                    .create();
-            aDialog.show();
-        }
-    }
-
-    private void showSeamarkInfoDialog(SeamarkNode pSeamarkNode){
-        SeamarkNode aSeamarkNode = pSeamarkNode;
-        String info = aSeamarkNode.getId() + " " + aSeamarkNode.tagsToString();
-        if (test) Log.d(SamplesApplication.TAG,info);
-
-        String renderDirectory = mXmlRenderTheme.getRelativePathPrefix();
-        String shortShapeIdStr = aSeamarkNode.getValueToKey("seamark:short_shape_id");
-        String shapePath = renderDirectory + "/seamark_symbols/"+shortShapeIdStr+".png";
-        if (test) Log.d(SamplesApplication.TAG,shapePath);
-        File aShapeFile = new File (shapePath);
-        android.graphics.Bitmap aBitmap = null;
-        if (aShapeFile.exists()){
-         if (test) Log.d(SamplesApplication.TAG,"file exists : " + shapePath);
-          aBitmap =  BitmapFactory.decodeFile(shapePath);
-        } else {
-            if (test) Log.d(SamplesApplication.TAG,"file not found : " + shapePath);
-        }
-        AlertDialog aDialog  = new AlertDialog.Builder(this.mContext)
-                .setTitle("Seamark Info Node " + aSeamarkNode.getId())
-                .setMessage(aSeamarkNode.tagsToString())
-                .setPositiveButton("OK",null)
-                .create();
-        if (aBitmap != null) {
-            // the Seamark Symbol bitmap will be scaled,with factor 4
-            if (test)Log.d(SamplesApplication.TAG,"bitmap exists : " + shapePath);
-            int height = aBitmap.getHeight() * 4;
-            int width = aBitmap.getWidth() *4;
-            android.graphics.Bitmap.Config aBitmapConfig =  android.graphics.Bitmap.Config.ARGB_8888;
-            android.graphics.Bitmap aBiggerBitmap  = android.graphics.Bitmap.createBitmap (width, height,aBitmapConfig);
-            android.graphics.Canvas aCanvas = new android.graphics.Canvas(aBiggerBitmap);
-            RectF aRectF = new RectF(1,1,width-1,height-1);
-            if (test)Log.d(SamplesApplication.TAG,"rHeight " + aRectF.height() + " rWidth  "+ aRectF.width());
-            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            paint.setColor(Color.WHITE);
-            paint.setStyle(Paint.Style.FILL);
-            aCanvas.drawRect(aRectF,paint);
-            paint.setColor(Color.RED);
-            paint.setStrokeWidth(2);
-            paint.setStyle(Paint.Style.STROKE);
-            aCanvas.drawBitmap(aBitmap, null, aRectF, paint);
-            //aCanvas.drawCircle(width/2, height/2,30,paint);
-            Drawable aDrawable = new BitmapDrawable(aBiggerBitmap);
-            aDialog.setIcon(aDrawable);
-        } else {
-            Log.d(SamplesApplication.TAG,"no bitmap exists : " + shapePath);
-        }
-        aDialog.show();
-    }
-
     public void updateSeamarkFile() {
         if (mMapFile!= null) {
             File currentMapFile = mMapFile;
@@ -398,7 +284,6 @@ public class BuoyTapLayer extends Layer {
     private Runnable readPoisAndWays = new Runnable() {
         public void run() {
             if (mSeamarkOSM.getSeamarkFileReadComplete()) {
-                mSeamarkNodeList = mSeamarkOSM.getSeamarksAsArrayList();
                 mSeamarkWayList = mSeamarkOSM.getSeamarkWaysAsArrayList();
             } else {
                 mReadPoisAndWaysHandler.postDelayed(this,1000);
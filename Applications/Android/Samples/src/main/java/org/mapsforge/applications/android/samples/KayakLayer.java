@@ -13,11 +13,10 @@ import org.mapsforge.core.graphics.Style;
 import org.mapsforge.core.model.BoundingBox;
 import org.mapsforge.core.model.LatLong;
 import org.mapsforge.core.model.Point;
-import org.mapsforge.core.util.MercatorProjection;
 import org.mapsforge.map.android.graphics.AndroidGraphicFactory;
-import org.mapsforge.map.layer.Layer;
 import org.mapsforge.map.layer.overlay.Circle;
 import org.mapsforge.map.layer.overlay.Marker;
+import org.mapsforge.map.layer.overlay.MarkerLayer;
 import org.mapsforge.map.model.MapViewPosition;
 import org.mapsforge.map.view.MapView;
 
@@ -30,9 +29,11 @@ import android.graphics.Color;
 import android.graphics.RectF;
 import android.util.Log;
 
-public class KayakLayer extends Layer {
+public class KayakLayer extends MarkerLayer<KayakInfoItem> {
 	
 	private static final GraphicFactory GRAPHIC_FACTORY = AndroidGraphicFactory.INSTANCE;
+	private static final int ITEM_RADIUS = 20;
+	private static final int ITEM_STROKE_WIDTH = 5;
 	private static final int UPDATE_DISTANCE = 0;
 	private static final int UPDATE_INTERVAL = 1000;
 	
@@ -62,7 +63,6 @@ public class KayakLayer extends Layer {
     private MapView mMapView;
     private GraphicFactory mGraphicFactory ;
 
-	private ArrayList<KayakInfoItem> mKayakInfoItemList = null;
 	
 	
 	private String mShortCurrentInfoTableName = DEFAULT_TABLE_NAME;
@@ -71,6 +71,7 @@ public class KayakLayer extends Layer {
 
     private String mBBoxkey="";
     private int mCountRedrawsWithSameBBox = 0;
+    private final Paint mItemPaint = getPaint(Color.BLUE, ITEM_STROKE_WIDTH, Style.STROKE);
 
     @Override
     public boolean onTap(LatLong tapLatLong, Point layerXY, Point tapXY) {
@@ -92,16 +93,8 @@ public class KayakLayer extends Layer {
         double minLat = lat -rad;
         double maxLat= lat + rad;
         BoundingBox aBoundingBox = new BoundingBox(minLat, minLon,maxLat,maxLon);
-        ArrayList<KayakInfoItem> listOfNodesInBB = new ArrayList<KayakInfoItem>();
-        if ( mKayakInfoItemList != null){
-            for (int index = 0; index <  mKayakInfoItemList.size(); index++){
-                KayakInfoItem aKayakInfoItem =  mKayakInfoItemList.get(index);
-                LatLong aNodePoint = aKayakInfoItem.getLatLong();
-                if (aBoundingBox.contains(aNodePoint)) {
-                    listOfNodesInBB.add(aKayakInfoItem);
-                }
-            }
-        }
+        // the spatial index of the layer only visits the items near the tap
+        ArrayList<KayakInfoItem> listOfNodesInBB = new ArrayList<KayakInfoItem>(getItems(aBoundingBox));
         Log.i(TAG," items in bb tapped " + listOfNodesInBB.size());
         if (listOfNodesInBB.size() > 0) {
             showWhitewaterInfoItemListInfoDialog(listOfNodesInBB, aBoundingBox);
@@ -142,14 +135,16 @@ public class KayakLayer extends Layer {
 
 	 */
 	public KayakLayer(KayakBasicActivity context,GraphicFactory pGraphicFactory, MapView pMapView) {
-		super();
+		// the items are drawn as circles, not as bitmaps, and are not clustered
+		super(null, 0, 0);
+		// the circles around the items must not be cut off at the edges of the visible area
+		setMargin(ITEM_RADIUS + ITEM_STROKE_WIDTH);
 		this.mContext = context;
         this.mMapView = pMapView;
         this.mGraphicFactory = pGraphicFactory;
         this.mBBoxkey="";
         this.mCountRedrawsWithSameBBox = 0;
 		this.mCurrentInfoTableName = getCurrentInfoTableName ();
-		this.mKayakInfoItemList = new ArrayList<KayakInfoItem>();
 		
 		mTrackDbAdapter = new TrackDbAdapter(context);
 	    mTrackDbAdapter.open();
@@ -247,7 +242,7 @@ public class KayakLayer extends Layer {
                     double lon = Double.parseDouble(aLONStr);
                     LatLong aLatLong = new LatLong(lat, lon);
                     KayakInfoItem aKayakInfoItem = new KayakInfoItem (aLatLong,aNumber,aType,aName, aDescription, aUTC);
-                    mKayakInfoItemList.add(aKayakInfoItem);
+                    add(aLatLong, aKayakInfoItem);
 					while (cursor.moveToNext()) {
 						aRowId = cursor.getString(cursor.getColumnIndexOrThrow(TrackDbAdapter.KEY_ROWID));
 						aNumberStr= cursor.getString(cursor.getColumnIndexOrThrow(TrackDbAdapter.KEY_WW_NUMBER));
@@ -268,7 +263,7 @@ public class KayakLayer extends Layer {
                             Log.i(TAG, "restore next item id= "+ aRowId + " number " + aNumber + " type " + aType);
                         }
 						aKayakInfoItem = new KayakInfoItem (aLatLong,aNumber,aType,aName, aDescription, aUTC);
-						mKayakInfoItemList.add(aKayakInfoItem);
+						add(aLatLong, aKayakInfoItem);
 
 					} // while
 				} // cursor!= null && cursor.getCount>0
@@ -276,6 +271,7 @@ public class KayakLayer extends Layer {
 					cursor.close();
 				
 				 Log.d(TAG, "End restore kayak info with thread for " + theTableName); 
+				 requestRedraw();
 			} // end of run
 		}).start();
 		Log.d(TAG, "Thread started to restore track with thread for " + theTableName); 
@@ -295,7 +291,8 @@ public class KayakLayer extends Layer {
             canvas.drawCircle(aWidth / 2, aHeight / 2, 5, aPaint);
 
         }
-        drawWhitewaterInfosOnLayer(boundingBox,zoomLevel, canvas, topLeftPoint);
+        // only the items in the visible area are drawn
+        super.draw(boundingBox, zoomLevel, canvas, topLeftPoint);
         // we check if we have a new bounding box of the display
         String aBBoxkey = boundingBox.toString();
         if (!aBBoxkey.equals(mBBoxkey)) {
@@ -312,50 +309,14 @@ public class KayakLayer extends Layer {
 
     }
 
-    private void drawWhitewaterInfosOnLayer(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint){
-        if (mKayakInfoItemList != null){
-            int count = mKayakInfoItemList.size();
-            if (test) {
-                Log.i(TAG,"number if items in list " + count);
-                for (int index=0;index < count;index++){
-                    KayakInfoItem aKayakInfoItem = mKayakInfoItemList.get(index);
-                    Log.i(TAG,"node "+index +" " + aKayakInfoItem.getType() + ", " + aKayakInfoItem.getName() +", " + aKayakInfoItem.getDescription());
-                }
-            }
-            for (int index=0;index < count;index++){
-                KayakInfoItem aKayakInfoItem = mKayakInfoItemList.get(index);
-                drawWhitewaterItemOnlayer(aKayakInfoItem,boundingBox,zoomLevel, canvas, topLeftPoint);
-
-            }
-        }
-    }
-
-    private void drawWhitewaterItemOnlayer(KayakInfoItem pKayakInfoItem, BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint){
-        int tileSize =this.displayModel.getTileSize();
-        long mapSize = MercatorProjection.getMapSize(zoomLevel, tileSize);
-        Paint aPaint = getPaint(Color.BLUE,5,Style.STROKE);
-
-        double aLat = pKayakInfoItem.getLAT();
-        double aLon = pKayakInfoItem.getLON();
-        if (test) {
-            Log.i(TAG,"paint circle with lon= " + aLon + " lat= " +aLat);
-        }
-        double x  = MercatorProjection.longitudeToPixelX(aLon,mapSize);
-        double y = MercatorProjection.latitudeToPixelY(aLat,zoomLevel, tileSize);
-        x = x - topLeftPoint.x;
-        y = y - topLeftPoint.y;
-        int aCircleX = (int)x;
-        int aCircleY = (int)y;
-        if (test) {
-            Log.i(TAG,"paint circle with x= " + aCircleX + " y= " +aCircleY);
-        }
-        canvas.drawCircle(aCircleX,aCircleY,20,aPaint);
-
+    @Override
+    protected void drawItem(KayakInfoItem pKayakInfoItem, Canvas canvas, int x, int y) {
+        canvas.drawCircle(x, y, ITEM_RADIUS, mItemPaint);
     }
 
 
     public void deleteCurrentWhitewaterTable(){
-        mKayakInfoItemList.clear();
+        clear();
         mTrackDbAdapter.deleteFixedWhiteWaterTable(getCurrentInfoTableName());
     }
 
@@ -372,7 +333,7 @@ public class KayakLayer extends Layer {
                     Double.toString(pKayakInfoItem.getLAT()),
                     Double.toString(pKayakInfoItem.getLON()));
             pKayakInfoItem.setId(aItemId);
-            mKayakInfoItemList.add(pKayakInfoItem);
+            add(pKayakInfoItem.getLatLong(), pKayakInfoItem);
         }
     }
 
@@ -388,6 +349,9 @@ public class KayakLayer extends Layer {
                     Double.toString(pKayakInfoItem.getUTC()),
                     Double.toString(pKayakInfoItem.getLAT()),
                     Double.toString(pKayakInfoItem.getLON()));
+            // the position may have changed, the item is indexed again
+            remove(pKayakInfoItem);
+            add(pKayakInfoItem.getLatLong(), pKayakInfoItem);
         }
     }
   
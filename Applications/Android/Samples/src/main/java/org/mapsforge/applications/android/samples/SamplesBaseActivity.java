@@ -32,10 +32,11 @@ import android.widget.TextView;
 
 import org.mapsforge.core.model.LatLong;
 import org.mapsforge.core.model.MapPosition;
+import org.mapsforge.map.android.graphics.AndroidGraphicFactory;
 import org.mapsforge.map.android.graphics.AndroidSvgBitmapStore;
 import org.mapsforge.map.android.util.AndroidUtil;
 import org.mapsforge.map.android.util.MapViewerTemplate;
-import org.mapsforge.map.layer.renderer.MapWorker;
+import org.mapsforge.map.layer.debug.RenderingMetricsLayer;
 import org.mapsforge.map.layer.renderer.TileRendererLayer;
 import org.mapsforge.map.model.DisplayModel;
 import org.mapsforge.map.model.MapViewPosition;
@@ -80,6 +81,12 @@ public abstract class SamplesBaseActivity extends MapViewerTemplate implements S
 				mapView.getModel().mapViewPosition, getMapFile(), getRenderTheme(), false, true);
 		this.mapView.getLayerManager().getLayers().add(tileRendererLayer);
 
+		if (this.sharedPreferences.getBoolean(SamplesApplication.SETTING_DEBUG_TIMING, false)) {
+			this.mapView.getLayerManager().getLayers().add(new RenderingMetricsLayer(AndroidGraphicFactory.INSTANCE,
+					this.mapView.getModel().displayModel, this.mapView.getModel().mapViewDimension,
+					tileRendererLayer.getRenderingMetrics()));
+		}
+
 		// needed only for samples to hook into Settings.
 		setMaxTextWidthFactor();
 	}
@@ -244,7 +251,7 @@ public abstract class SamplesBaseActivity extends MapViewerTemplate implements S
 			setMapScaleBar();
 		}
 		if (SamplesApplication.SETTING_DEBUG_TIMING.equals(key)) {
-			MapWorker.DEBUG_TIMING = preferences.getBoolean(SamplesApplication.SETTING_DEBUG_TIMING, false);
+			AndroidUtil.restartActivity(this);
 		}
 		if (SamplesApplication.SETTING_WAYFILTERING_DISTANCE.equals(key) ||
 				SamplesApplication.SETTING_WAYFILTERING.equals(key)) {
@@ -91,14 +91,11 @@ public final class MapViewer {
 		Layers layers = mapView.getLayerManager().getLayers();
 
 		// layers.add(createTileDownloadLayer(tileCache, mapView.getModel().mapViewPosition));
-		BoundingBox result = null;
-		for (File mapFile : mapFiles) {
-			TileRendererLayer tileRendererLayer = createTileRendererLayer(tileCache,
-					mapView.getModel().mapViewPosition, true, true, mapFile);
-			BoundingBox boundingBox = tileRendererLayer.getMapDatabase().getMapFileInfo().boundingBox;
-			result = result == null ? boundingBox : result.extend(boundingBox);
-			layers.add(tileRendererLayer);
-		}
+		// all map files are rendered by one layer, so adjacent regions are rendered in a single pass
+		TileRendererLayer tileRendererLayer = createTileRendererLayer(tileCache, mapView.getModel().mapViewPosition,
+				false, true, mapFiles);
+		BoundingBox result = tileRendererLayer.getMapDatabase().getBoundingBox();
+		layers.add(tileRendererLayer);
 		if (SHOW_DEBUG_LAYERS) {
 			layers.add(new TileGridLayer(GRAPHIC_FACTORY, mapView.getModel().displayModel));
 			layers.add(new TileCoordinatesLayer(GRAPHIC_FACTORY, mapView.getModel().displayModel));
@@ -140,10 +137,10 @@ public final class MapViewer {
 
 	private static TileRendererLayer createTileRendererLayer(
 			TileCache tileCache,
-			MapViewPosition mapViewPosition, boolean isTransparent, boolean renderLabels, File mapFile) {
+			MapViewPosition mapViewPosition, boolean isTransparent, boolean renderLabels, List<File> mapFiles) {
 		TileRendererLayer tileRendererLayer = new TileRendererLayer(tileCache, mapViewPosition, isTransparent,
-				renderLabels, GRAPHIC_FACTORY);
-		tileRendererLayer.setMapFile(mapFile);
+				renderLabels, GRAPHIC_FACTORY, Runtime.getRuntime().availableProcessors());
+		tileRendererLayer.setMapFiles(mapFiles);
 		tileRendererLayer.setXmlRenderTheme(InternalRenderTheme.OSMARENDER);
 		return tileRendererLayer;
 	}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.swing;
+
+import java.io.File;
+
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.map.awt.AwtGraphicFactory;
+import org.mapsforge.map.layer.cache.PackedTileCache;
+import org.mapsforge.map.layer.cache.TileCache;
+import org.mapsforge.map.layer.cache.WritableTileStore;
+import org.mapsforge.map.layer.renderer.TileSeeder;
+import org.mapsforge.map.rendertheme.InternalRenderTheme;
+
+/**
+ * Renders the tiles of an area into a tile store or pack files without a window, with one worker per processor.
+ * Running it again with the same arguments continues an interrupted run.
+ */
+public final class TileSeederTool {
+	private static final String USAGE = "usage: <mapFile> <outputDirectory> <minLat,minLon,maxLat,maxLon> "
+			+ "<zoomLevelMin> <zoomLevelMax> [pack]";
+
+	/**
+	 * Starts the {@code TileSeederTool}.
+	 * 
+	 * @param args
+	 *            command line args: the map file, the output directory, the bounding box, the zoom levels and
+	 *            optionally "pack" to store the tiles in pack files instead of a zoom/x/y.png directory layout.
+	 * @throws InterruptedException
+	 *             if the seeding was interrupted.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length != 5 && !(args.length == 6 && "pack".equals(args[5]))) {
+			throw new IllegalArgumentException(USAGE);
+		}
+		System.setProperty("java.awt.headless", "true");
+
+		File mapFile = new File(args[0]);
+		File outputDirectory = new File(args[1]);
+		BoundingBox boundingBox = BoundingBox.fromString(args[2]);
+		byte zoomLevelMin = Byte.parseByte(args[3]);
+		byte zoomLevelMax = Byte.parseByte(args[4]);
+		long numberOfTiles = TileSeeder.getNumberOfTiles(boundingBox, zoomLevelMin, zoomLevelMax);
+
+		GraphicFactory graphicFactory = AwtGraphicFactory.INSTANCE;
+		TileCache tileCache;
+		if (args.length == 6) {
+			// the pack files must hold all tiles, otherwise the first tiles would be evicted again
+			tileCache = new PackedTileCache((int) Math.min(numberOfTiles, Integer.MAX_VALUE), outputDirectory,
+					graphicFactory, true);
+		} else {
+			if (!outputDirectory.mkdirs() && !outputDirectory.isDirectory()) {
+				throw new IllegalArgumentException("cannot create directory: " + outputDirectory);
+			}
+			tileCache = new WritableTileStore(outputDirectory, ".png", graphicFactory);
+		}
+
+		TileSeeder tileSeeder = new TileSeeder(mapFile, InternalRenderTheme.OSMARENDER, tileCache, graphicFactory,
+				Runtime.getRuntime().availableProcessors());
+		try {
+			tileSeeder.seed(boundingBox, zoomLevelMin, zoomLevelMax);
+		} finally {
+			tileSeeder.destroy();
+			tileCache.destroy();
+		}
+	}
+
+	private TileSeederTool() {
+		throw new IllegalStateException();
+	}
+}
@@ -37,6 +37,16 @@ public interface GraphicFactory {
 
 	Paint createPaint();
 
+	/**
+	 * Creates an independent copy of the given paint, so that the copy can be modified without affecting the
+	 * original, e.g. to derive a differently scaled paint that is shared between rendering threads.
+	 *
+	 * @param paint
+	 *            the paint to copy.
+	 * @return a new paint with the same properties.
+	 */
+	Paint createPaint(Paint paint);
+
 	Path createPath();
 
 	PointTextContainer createPointTextContainer(Point xy, int priority, String text, Paint paintFront, Paint paintBack,
@@ -48,6 +58,11 @@ public interface GraphicFactory {
 
 	TileBitmap createTileBitmap(int tileSize, boolean isTransparent);
 
+	/**
+	 * @return the cache of text sizes and rasterized labels which is shared by all paints and canvases of this factory.
+	 */
+	TextCache getTextCache();
+
 	InputStream platformSpecificSources(String relativePathPrefix, String src) throws IOException;
 
 	ResourceBitmap renderSvg(InputStream inputStream, float scaleFactor, int width, int height, int percent, int hash) throws IOException;
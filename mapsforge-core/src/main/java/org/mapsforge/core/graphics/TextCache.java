@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.core.graphics;
+
+import java.util.Map;
+
+import org.mapsforge.core.model.Dimension;
+import org.mapsforge.core.util.LRUCache;
+
+/**
+ * A bounded cache for the sizes of measured texts and for rasterized labels, which is shared by all paints and canvases
+ * of a {@link GraphicFactory}.
+ * <p>
+ * The same names are measured and drawn in every tile which they cross. Entries are identified by the text and a
+ * platform specific key of the paint. A paint key must have value semantics and must contain all properties of the
+ * paint which affect the result, e.g. the font for a text size or also the color and the stroke for a label. The text
+ * scale is part of the font size, so differently scaled paints have different keys. Rasterized labels are released
+ * with {@link Bitmap#decrementRefCount()} when they are removed from the cache.
+ * <p>
+ * This class is thread-safe.
+ */
+public class TextCache {
+	/**
+	 * A rasterized text and the position of the text origin in the bitmap.
+	 */
+	public static final class Label {
+		/**
+		 * The bitmap which contains the text.
+		 */
+		public final Bitmap bitmap;
+
+		/**
+		 * The horizontal position of the text origin in the bitmap.
+		 */
+		public final int originX;
+
+		/**
+		 * The vertical position of the text baseline in the bitmap.
+		 */
+		public final int originY;
+
+		/**
+		 * @param bitmap
+		 *            the bitmap which contains the text.
+		 * @param originX
+		 *            the horizontal position of the text origin in the bitmap.
+		 * @param originY
+		 *            the vertical position of the text baseline in the bitmap.
+		 */
+		public Label(Bitmap bitmap, int originX, int originY) {
+			this.bitmap = bitmap;
+			this.originX = originX;
+			this.originY = originY;
+		}
+	}
+
+	private static final class Key {
+		private final int hashCodeValue;
+		private final Object paintKey;
+		private final String text;
+
+		Key(Object paintKey, String text) {
+			this.paintKey = paintKey;
+			this.text = text;
+			this.hashCodeValue = 31 * paintKey.hashCode() + text.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.hashCodeValue == other.hashCodeValue && this.text.equals(other.text)
+					&& this.paintKey.equals(other.paintKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCodeValue;
+		}
+	}
+
+	private static final class LabelCache extends LRUCache<Key, Label> {
+		private static final long serialVersionUID = 1L;
+
+		LabelCache(int capacity) {
+			super(capacity);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Label> eldest) {
+			if (size() > this.capacity) {
+				eldest.getValue().bitmap.decrementRefCount();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Default maximum number of rasterized labels.
+	 */
+	public static final int DEFAULT_LABEL_CAPACITY = 512;
+
+	/**
+	 * Default maximum number of text sizes.
+	 */
+	public static final int DEFAULT_SIZE_CAPACITY = 8192;
+
+	private final LabelCache labels;
+	private final LRUCache<Key, Dimension> sizes;
+
+	/**
+	 * Creates a cache with the default capacities.
+	 */
+	public TextCache() {
+		this(DEFAULT_SIZE_CAPACITY, DEFAULT_LABEL_CAPACITY);
+	}
+
+	/**
+	 * @param sizeCapacity
+	 *            the maximum number of text sizes.
+	 * @param labelCapacity
+	 *            the maximum number of rasterized labels, zero disables the rasterized labels.
+	 * @throws IllegalArgumentException
+	 *             if a capacity is negative.
+	 */
+	public TextCache(int sizeCapacity, int labelCapacity) {
+		this.sizes = new LRUCache<Key, Dimension>(sizeCapacity);
+		this.labels = new LabelCache(labelCapacity);
+	}
+
+	/**
+	 * Removes all entries and releases the bitmaps of the rasterized labels.
+	 */
+	public synchronized void clear() {
+		for (Label label : this.labels.values()) {
+			label.bitmap.decrementRefCount();
+		}
+		this.labels.clear();
+		this.sizes.clear();
+	}
+
+	/**
+	 * Returns the rasterized label for the given text, the reference count of its bitmap is incremented and must be
+	 * decremented by the caller after drawing.
+	 * 
+	 * @param paintKey
+	 *            the key of the paint with which the label has been drawn.
+	 * @param text
+	 *            the text of the label.
+	 * @return the label or null, if it is not in the cache.
+	 */
+	public synchronized Label getLabel(Object paintKey, String text) {
+		Label label = this.labels.get(new Key(paintKey, text));
+		if (label != null) {
+			label.bitmap.incrementRefCount();
+		}
+		return label;
+	}
+
+	/**
+	 * @return the maximum number of rasterized labels, zero if labels are not cached.
+	 */
+	public int getLabelCapacity() {
+		return this.labels.capacity;
+	}
+
+	/**
+	 * @param paintKey
+	 *            the key of the paint with which the text has been measured.
+	 * @param text
+	 *            the measured text.
+	 * @return the size of the text or null, if it is not in the cache.
+	 */
+	public synchronized Dimension getSize(Object paintKey, String text) {
+		return this.sizes.get(new Key(paintKey, text));
+	}
+
+	/**
+	 * Adds a rasterized label to the cache, the reference count of its bitmap is incremented for the cache.
+	 * 
+	 * @param paintKey
+	 *            the key of the paint with which the label has been drawn.
+	 * @param text
+	 *            the text of the label.
+	 * @param label
+	 *            the rasterized label.
+	 */
+	public synchronized void putLabel(Object paintKey, String text, Label label) {
+		if (this.labels.capacity == 0) {
+			return;
+		}
+		label.bitmap.incrementRefCount();
+		Label previous = this.labels.put(new Key(paintKey, text), label);
+		if (previous != null) {
+			previous.bitmap.decrementRefCount();
+		}
+	}
+
+	/**
+	 * @param paintKey
+	 *            the key of the paint with which the text has been measured.
+	 * @param text
+	 *            the measured text.
+	 * @param size
+	 *            the size of the text.
+	 */
+	public synchronized void putSize(Object paintKey, String text, Dimension size) {
+		this.sizes.put(new Key(paintKey, text), size);
+	}
+}
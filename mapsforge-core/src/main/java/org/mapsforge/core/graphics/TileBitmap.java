@@ -15,5 +15,19 @@
 package org.mapsforge.core.graphics;
 
 public interface TileBitmap extends Bitmap {
-	// only different behaviour
+	/**
+	 * Copies the pixels of this bitmap row by row into the given array, each pixel as a non-premultiplied ARGB value.
+	 *
+	 * @param pixels
+	 *            the array to fill, it must hold at least width * height pixels.
+	 */
+	void getPixels(int[] pixels);
+
+	/**
+	 * Replaces the pixels of this bitmap row by row with the given non-premultiplied ARGB values.
+	 *
+	 * @param pixels
+	 *            the new pixels, at least width * height values.
+	 */
+	void setPixels(int[] pixels);
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.core.mapelements;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mapsforge.core.model.Rectangle;
+
+/**
+ * A uniform grid over absolute pixel coordinates which finds clashes between {@link MapElementContainer
+ * MapElementContainers} without testing every pair of elements.
+ * <p>
+ * Each element is stored in all grid cells which its clash area overlaps, a query only tests the elements in the cells
+ * of the queried element. Elements can be added at any time, so the labels of neighbouring tiles can be added to the
+ * same grid one after another. The result of {@link #clashesWith(MapElementContainer)} is the same as testing the
+ * element against every added element.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class CollisionGrid {
+	/**
+	 * Default size of a grid cell in pixels.
+	 */
+	public static final int DEFAULT_CELL_SIZE = 256;
+
+	/**
+	 * Elements which cover more cells are not stored in the grid cells but tested with every query, queries which cover
+	 * more cells test all elements.
+	 */
+	private static final int MAXIMUM_CELLS = 64;
+
+	private static boolean clashesWith(List<MapElementContainer> candidates, MapElementContainer element,
+			Rectangle clashArea) {
+		for (int i = 0, n = candidates.size(); i < n; ++i) {
+			MapElementContainer candidate = candidates.get(i);
+			if (candidate.getClashArea().intersects(clashArea) && candidate.clashesWith(element)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static long getKey(int cellX, int cellY) {
+		return ((long) cellX << 32) | (cellY & 0xffffffffL);
+	}
+
+	private final double cellSize;
+	private final Map<Long, List<MapElementContainer>> cells;
+	private final List<MapElementContainer> elements;
+	private final List<MapElementContainer> largeElements;
+
+	/**
+	 * Creates a grid with the default cell size.
+	 */
+	public CollisionGrid() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * @param cellSize
+	 *            the size of a grid cell in pixels.
+	 * @throws IllegalArgumentException
+	 *             if the cell size is not positive.
+	 */
+	public CollisionGrid(double cellSize) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+		}
+		this.cellSize = cellSize;
+		this.cells = new HashMap<Long, List<MapElementContainer>>();
+		this.elements = new ArrayList<MapElementContainer>();
+		this.largeElements = new ArrayList<MapElementContainer>();
+	}
+
+	/**
+	 * Adds the given element to this grid. The element is added even if it clashes with another element.
+	 *
+	 * @param element
+	 *            the element to add.
+	 */
+	public void add(MapElementContainer element) {
+		Rectangle clashArea = element.getClashArea();
+		int left = getCell(clashArea.left);
+		int top = getCell(clashArea.top);
+		int right = getCell(clashArea.right);
+		int bottom = getCell(clashArea.bottom);
+		this.elements.add(element);
+
+		if ((long) (right - left + 1) * (bottom - top + 1) > MAXIMUM_CELLS) {
+			this.largeElements.add(element);
+			return;
+		}
+
+		for (int cellY = top; cellY <= bottom; ++cellY) {
+			for (int cellX = left; cellX <= right; ++cellX) {
+				Long key = getKey(cellX, cellY);
+				List<MapElementContainer> cell = this.cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<MapElementContainer>(4);
+					this.cells.put(key, cell);
+				}
+				cell.add(element);
+			}
+		}
+	}
+
+	/**
+	 * Adds all given elements to this grid.
+	 *
+	 * @param elements
+	 *            the elements to add.
+	 */
+	public void addAll(Collection<? extends MapElementContainer> elements) {
+		for (MapElementContainer element : elements) {
+			add(element);
+		}
+	}
+
+	/**
+	 * Returns if the given element clashes with any element in this grid.
+	 *
+	 * @param element
+	 *            the element to test.
+	 * @return true if the element clashes with an element of this grid, false otherwise.
+	 */
+	public boolean clashesWith(MapElementContainer element) {
+		Rectangle clashArea = element.getClashArea();
+		int left = getCell(clashArea.left);
+		int top = getCell(clashArea.top);
+		int right = getCell(clashArea.right);
+		int bottom = getCell(clashArea.bottom);
+
+		if ((long) (right - left + 1) * (bottom - top + 1) > MAXIMUM_CELLS) {
+			return clashesWith(this.elements, element, clashArea);
+		} else if (clashesWith(this.largeElements, element, clashArea)) {
+			return true;
+		}
+
+		for (int cellY = top; cellY <= bottom; ++cellY) {
+			for (int cellX = left; cellX <= right; ++cellX) {
+				List<MapElementContainer> cell = this.cells.get(getKey(cellX, cellY));
+				if (cell != null && clashesWith(cell, element, clashArea)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of elements in this grid.
+	 */
+	public int size() {
+		return this.elements.size();
+	}
+
+	private int getCell(double coordinate) {
+		return (int) Math.floor(coordinate / this.cellSize);
+	}
+}
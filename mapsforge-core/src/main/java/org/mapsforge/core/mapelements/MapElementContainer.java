@@ -89,6 +89,16 @@ public abstract class MapElementContainer implements Comparable<MapElementContai
 	 */
 	public abstract void draw(Canvas canvas, Point origin, Matrix matrix);
 
+	/**
+	 * Gets the pixel absolute area in which this element can clash with other elements. Two elements can only clash
+	 * if their clash areas intersect, see {@link CollisionGrid}. By default this is the boundary of the element.
+	 *
+	 * @return Rectangle with absolute pixel coordinates.
+	 */
+	protected Rectangle getClashArea() {
+		return getBoundaryAbsolute();
+	}
+
 	/**
 	 * Gets the pixel absolute boundary for this element.
 	 *
@@ -18,8 +18,13 @@ package org.mapsforge.core.mapelements;
 import org.mapsforge.core.graphics.Paint;
 import org.mapsforge.core.graphics.Position;
 import org.mapsforge.core.model.Point;
+import org.mapsforge.core.model.Rectangle;
 
 public abstract class PointTextContainer extends MapElementContainer {
+	/**
+	 * Minimum distance in pixels between two labels with the same text.
+	 */
+	private static final int SAME_TEXT_DISTANCE = 200;
 
 	public final boolean isVisible;
 	public final int maxTextWidth;
@@ -30,6 +35,7 @@ public abstract class PointTextContainer extends MapElementContainer {
 	public final String text;
 	public final int textHeight;
 	public final int textWidth;
+	private Rectangle clashArea;
 
 	/**
 	 * Create a new point container, that holds the x-y coordinates of a point, a text variable, two paint objects, and
@@ -64,7 +70,7 @@ public abstract class PointTextContainer extends MapElementContainer {
 			return false;
 		}
 		PointTextContainer ptc = (PointTextContainer) other;
-		if (this.text.equals(ptc.text) && this.xy.distance(ptc.xy) < 200) {
+		if (this.text.equals(ptc.text) && this.xy.distance(ptc.xy) < SAME_TEXT_DISTANCE) {
 			return true;
 		}
 		return false;
@@ -85,6 +91,20 @@ public abstract class PointTextContainer extends MapElementContainer {
 		return true;
 	}
 
+	@Override
+	protected Rectangle getClashArea() {
+		// two labels with the same text clash if their points are closer than SAME_TEXT_DISTANCE, so the
+		// clash areas of both must intersect in that case
+		if (this.clashArea == null) {
+			Rectangle boundaryAbsolute = getBoundaryAbsolute();
+			double margin = SAME_TEXT_DISTANCE / 2d;
+			this.clashArea = new Rectangle(Math.min(boundaryAbsolute.left, this.xy.x - margin), Math.min(
+					boundaryAbsolute.top, this.xy.y - margin), Math.max(boundaryAbsolute.right, this.xy.x + margin),
+					Math.max(boundaryAbsolute.bottom, this.xy.y + margin));
+		}
+		return this.clashArea;
+	}
+
 	@Override
 	public int hashCode() {
 		int result = super.hashCode();
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.core.graphics;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.Dimension;
+
+public class TextCacheTest {
+	private static class DummyBitmap implements Bitmap {
+		int refCount = 1;
+
+		@Override
+		public void compress(OutputStream outputStream) {
+			// no-op
+		}
+
+		@Override
+		public void decrementRefCount() {
+			--this.refCount;
+		}
+
+		@Override
+		public int getHeight() {
+			return 1;
+		}
+
+		@Override
+		public int getWidth() {
+			return 1;
+		}
+
+		@Override
+		public void incrementRefCount() {
+			++this.refCount;
+		}
+
+		@Override
+		public void scaleTo(int width, int height) {
+			// no-op
+		}
+
+		@Override
+		public void setBackgroundColor(int color) {
+			// no-op
+		}
+	}
+
+	private static final String TEXT1 = "Hauptstraße";
+	private static final String TEXT2 = "Kirchweg";
+
+	@Test
+	public void labelTest() {
+		TextCache textCache = new TextCache(10, 1);
+		Assert.assertEquals(1, textCache.getLabelCapacity());
+		Object paintKey = Arrays.asList("font", Integer.valueOf(0xff000000));
+
+		DummyBitmap bitmap1 = new DummyBitmap();
+		textCache.putLabel(paintKey, TEXT1, new TextCache.Label(bitmap1, 2, 10));
+		bitmap1.decrementRefCount();
+		Assert.assertEquals(1, bitmap1.refCount);
+
+		TextCache.Label label = textCache.getLabel(paintKey, TEXT1);
+		Assert.assertSame(bitmap1, label.bitmap);
+		Assert.assertEquals(2, label.originX);
+		Assert.assertEquals(10, label.originY);
+		Assert.assertEquals(2, bitmap1.refCount);
+		label.bitmap.decrementRefCount();
+		Assert.assertNull(textCache.getLabel(Arrays.asList("font", Integer.valueOf(0xffffffff)), TEXT1));
+
+		// the eldest label is evicted and released
+		DummyBitmap bitmap2 = new DummyBitmap();
+		textCache.putLabel(paintKey, TEXT2, new TextCache.Label(bitmap2, 0, 0));
+		bitmap2.decrementRefCount();
+		Assert.assertEquals(0, bitmap1.refCount);
+		Assert.assertNull(textCache.getLabel(paintKey, TEXT1));
+		Assert.assertEquals(1, bitmap2.refCount);
+
+		textCache.clear();
+		Assert.assertEquals(0, bitmap2.refCount);
+		Assert.assertNull(textCache.getLabel(paintKey, TEXT2));
+	}
+
+	@Test
+	public void labelCapacityZeroTest() {
+		TextCache textCache = new TextCache(10, 0);
+		DummyBitmap bitmap = new DummyBitmap();
+		textCache.putLabel("paint", TEXT1, new TextCache.Label(bitmap, 0, 0));
+		Assert.assertEquals(1, bitmap.refCount);
+		Assert.assertNull(textCache.getLabel("paint", TEXT1));
+	}
+
+	@Test
+	public void sizeTest() {
+		TextCache textCache = new TextCache(2, 0);
+		Dimension dimension = new Dimension(50, 12);
+		textCache.putSize(Arrays.asList("font", Float.valueOf(12)), TEXT1, dimension);
+		Assert.assertSame(dimension, textCache.getSize(Arrays.asList("font", Float.valueOf(12)), TEXT1));
+		Assert.assertNull(textCache.getSize(Arrays.asList("font", Float.valueOf(24)), TEXT1));
+		Assert.assertNull(textCache.getSize(Arrays.asList("font", Float.valueOf(12)), TEXT2));
+
+		textCache.putSize("paint", TEXT1, new Dimension(1, 1));
+		textCache.putSize("paint", TEXT2, new Dimension(2, 2));
+		Assert.assertNull(textCache.getSize(Arrays.asList("font", Float.valueOf(12)), TEXT1));
+
+		try {
+			new TextCache(-1, 0);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+	}
+}
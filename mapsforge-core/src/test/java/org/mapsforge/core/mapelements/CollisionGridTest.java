@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.core.mapelements;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.graphics.Canvas;
+import org.mapsforge.core.graphics.Matrix;
+import org.mapsforge.core.model.Point;
+import org.mapsforge.core.model.Rectangle;
+
+public class CollisionGridTest {
+	private static class DummyContainer extends MapElementContainer {
+		DummyContainer(Point xy, double width, double height) {
+			super(xy, 0);
+			this.boundary = new Rectangle(-width / 2, -height / 2, width / 2, height / 2);
+		}
+
+		@Override
+		public void draw(Canvas canvas, Point origin, Matrix matrix) {
+			// nothing to draw
+		}
+	}
+
+	private static final int ELEMENTS = 2000;
+
+	private static boolean clashesWithAny(List<MapElementContainer> elements, MapElementContainer element) {
+		for (MapElementContainer other : elements) {
+			if (other.clashesWith(element)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void clashesWithTest() {
+		CollisionGrid collisionGrid = new CollisionGrid();
+		Assert.assertEquals(0, collisionGrid.size());
+
+		MapElementContainer element1 = new DummyContainer(new Point(100, 100), 20, 20);
+		MapElementContainer element2 = new DummyContainer(new Point(115, 100), 20, 20);
+		MapElementContainer element3 = new DummyContainer(new Point(-300, -300), 20, 20);
+		MapElementContainer large = new DummyContainer(new Point(0, 0), 10000, 10);
+
+		Assert.assertFalse(collisionGrid.clashesWith(element1));
+		collisionGrid.add(element1);
+		Assert.assertTrue(collisionGrid.clashesWith(element2));
+		Assert.assertFalse(collisionGrid.clashesWith(element3));
+		Assert.assertFalse(collisionGrid.clashesWith(large));
+
+		collisionGrid.add(large);
+		Assert.assertEquals(2, collisionGrid.size());
+		Assert.assertTrue(collisionGrid.clashesWith(new DummyContainer(new Point(4000, 0), 10, 10)));
+		Assert.assertFalse(collisionGrid.clashesWith(element3));
+	}
+
+	@Test
+	public void randomElementsTest() {
+		Random random = new Random(42);
+		CollisionGrid collisionGrid = new CollisionGrid(64);
+		List<MapElementContainer> placed = new ArrayList<MapElementContainer>();
+
+		for (int i = 0; i < ELEMENTS; ++i) {
+			Point xy = new Point(random.nextDouble() * 4000 - 2000, random.nextDouble() * 4000 - 2000);
+			double width = random.nextInt(10) == 0 ? random.nextDouble() * 2000 : random.nextDouble() * 100;
+			MapElementContainer element = new DummyContainer(xy, width, random.nextDouble() * 40);
+
+			boolean clashes = clashesWithAny(placed, element);
+			Assert.assertEquals(clashes, collisionGrid.clashesWith(element));
+			if (!clashes) {
+				placed.add(element);
+				collisionGrid.add(element);
+			}
+		}
+		Assert.assertEquals(placed.size(), collisionGrid.size());
+	}
+}
@@ -32,6 +32,7 @@ import org.mapsforge.core.graphics.Path;
 import org.mapsforge.core.mapelements.PointTextContainer;
 import org.mapsforge.core.graphics.Position;
 import org.mapsforge.core.graphics.ResourceBitmap;
+import org.mapsforge.core.graphics.TextCache;
 import org.mapsforge.core.mapelements.SymbolContainer;
 import org.mapsforge.core.graphics.TileBitmap;
 import org.mapsforge.core.model.Point;
@@ -151,6 +152,7 @@ public final class AndroidGraphicFactory implements GraphicFactory {
 	}
 
 	private final Application application;
+	private final TextCache textCache = new TextCache(TextCache.DEFAULT_SIZE_CAPACITY, 0);
 
 	private AndroidGraphicFactory(Application app) {
 		this.application = app;
@@ -198,6 +200,11 @@ public final class AndroidGraphicFactory implements GraphicFactory {
 		return new AndroidPaint();
 	}
 
+	@Override
+	public Paint createPaint(Paint paint) {
+		return new AndroidPaint((AndroidPaint) paint);
+	}
+
 	@Override
 	public Path createPath() {
 		return new AndroidPath();
@@ -224,6 +231,11 @@ public final class AndroidGraphicFactory implements GraphicFactory {
 		return new AndroidTileBitmap(tileSize, isTransparent);
 	}
 
+	@Override
+	public TextCache getTextCache() {
+		return this.textCache;
+	}
+
 
 	/*
 	 * Android method accessible only via Context.
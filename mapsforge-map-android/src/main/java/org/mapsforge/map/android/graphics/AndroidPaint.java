@@ -15,6 +15,8 @@
  */
 package org.mapsforge.map.android.graphics;
 
+import java.util.Arrays;
+
 import org.mapsforge.core.graphics.Align;
 import org.mapsforge.core.graphics.Cap;
 import org.mapsforge.core.graphics.Color;
@@ -23,6 +25,8 @@ import org.mapsforge.core.graphics.FontStyle;
 import org.mapsforge.core.graphics.Join;
 import org.mapsforge.core.graphics.Paint;
 import org.mapsforge.core.graphics.Style;
+import org.mapsforge.core.graphics.TextCache;
+import org.mapsforge.core.model.Dimension;
 import org.mapsforge.core.model.Point;
 
 import android.graphics.BitmapShader;
@@ -41,6 +45,8 @@ class AndroidPaint implements Paint {
 	// needed to record size of bitmap shader to compute the shift
 	private int shaderWidth;
 	private int shaderHeight;
+	// needed to give a copy of this paint its own shader
+	private android.graphics.Bitmap shaderBitmap;
 
 	private static android.graphics.Paint.Align getAndroidAlign(Align align) {
 		switch (align) {
@@ -132,18 +138,25 @@ class AndroidPaint implements Paint {
 		this.paint.setStyle(getAndroidStyle(Style.FILL));
 	}
 
+	AndroidPaint(AndroidPaint androidPaint) {
+		this.paint.set(androidPaint.paint);
+		this.shaderBitmap = androidPaint.shaderBitmap;
+		this.shaderWidth = androidPaint.shaderWidth;
+		this.shaderHeight = androidPaint.shaderHeight;
+		if (this.shaderBitmap != null) {
+			// the local matrix of a shader is mutable, so the copy needs a shader of its own
+			this.paint.setShader(new BitmapShader(this.shaderBitmap, TileMode.REPEAT, TileMode.REPEAT));
+		}
+	}
+
 	@Override
 	public int getTextHeight(String text) {
-		Rect rect = new Rect();
-		this.paint.getTextBounds(text, 0, text.length(), rect);
-		return rect.height();
+		return getTextSize(text).height;
 	}
 
 	@Override
 	public int getTextWidth(String text) {
-		Rect rect = new Rect();
-		this.paint.getTextBounds(text, 0, text.length(), rect);
-		return rect.width();
+		return getTextSize(text).width;
 	}
 
 	@Override
@@ -166,8 +179,8 @@ class AndroidPaint implements Paint {
 			bitmap.incrementRefCount();
 		}
 		this.paint.setColor(AndroidGraphicFactory.getColor(Color.WHITE));
-		this.paint
-				.setShader(new BitmapShader(AndroidGraphicFactory.getBitmap(bitmap), TileMode.REPEAT, TileMode.REPEAT));
+		this.shaderBitmap = AndroidGraphicFactory.getBitmap(bitmap);
+		this.paint.setShader(new BitmapShader(this.shaderBitmap, TileMode.REPEAT, TileMode.REPEAT));
 
 	}
 
@@ -240,4 +253,18 @@ class AndroidPaint implements Paint {
 	public void setTypeface(FontFamily fontFamily, FontStyle fontStyle) {
 		this.paint.setTypeface(Typeface.create(getTypeface(fontFamily), getFontStyle(fontStyle)));
 	}
+
+	private Dimension getTextSize(String text) {
+		// the same names are measured again for every tile, the bounds only depend on the typeface and the text size
+		TextCache textCache = AndroidGraphicFactory.INSTANCE.getTextCache();
+		Object fontKey = Arrays.asList(this.paint.getTypeface(), Float.valueOf(this.paint.getTextSize()));
+		Dimension dimension = textCache.getSize(fontKey, text);
+		if (dimension == null) {
+			Rect rect = new Rect();
+			this.paint.getTextBounds(text, 0, text.length(), rect);
+			dimension = new Dimension(rect.width(), rect.height());
+			textCache.putSize(fontKey, text, dimension);
+		}
+		return dimension;
+	}
 }
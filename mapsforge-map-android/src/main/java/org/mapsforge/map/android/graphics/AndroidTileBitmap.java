@@ -178,6 +178,18 @@ public class AndroidTileBitmap extends AndroidBitmap implements TileBitmap {
 		}
 	}
 
+	@Override
+	public void getPixels(int[] pixels) {
+		int width = this.bitmap.getWidth();
+		this.bitmap.getPixels(pixels, 0, width, 0, 0, width, this.bitmap.getHeight());
+	}
+
+	@Override
+	public void setPixels(int[] pixels) {
+		int width = this.bitmap.getWidth();
+		this.bitmap.setPixels(pixels, 0, width, 0, 0, width, this.bitmap.getHeight());
+	}
+
 	@TargetApi(11)
 	private BitmapFactory.Options createTileBitmapFactoryOptions(int tileSize, boolean isTransparent) {
 		BitmapFactory.Options bitmapFactoryOptions = new BitmapFactory.Options();
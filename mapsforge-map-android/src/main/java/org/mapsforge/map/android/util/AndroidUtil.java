@@ -54,6 +54,21 @@ public final class AndroidUtil {
 	 * @return a new cache created on the external storage
 	 */
 	public static TileCache createExternalStorageTileCache(Context c, String id, int firstLevelSize, int tileSize, boolean threaded, int queueSize) {
+		return createExternalStorageTileCache(c, id, firstLevelSize, tileSize, threaded, queueSize, false);
+	}
+
+	/**
+	 * @param c              the Android context
+	 * @param id             name for the directory
+	 * @param firstLevelSize size of the first level cache
+	 * @param tileSize       tile size
+	 * @param threaded       if a background thread is employed to store tile data
+	 * @param queueSize      maximum length of queue before the put operation blocks
+	 * @param persistent     if the cached tiles survive a restart of the application
+	 * @return a new cache created on the external storage
+	 */
+	public static TileCache createExternalStorageTileCache(Context c, String id, int firstLevelSize, int tileSize,
+			boolean threaded, int queueSize, boolean persistent) {
 		Log.d("TILECACHE INMEMORY SIZE", Integer.toString(firstLevelSize));
 		TileCache firstLevelTileCache = new InMemoryTileCache(firstLevelSize);
 		File cacheDir = c.getExternalCacheDir();
@@ -68,7 +83,8 @@ public final class AndroidUtil {
 						Log.d("TILECACHE FILECACHE SIZE", Integer.toString(tileCacheFiles));
 
 						TileCache secondLevelTileCache = new FileSystemTileCache(tileCacheFiles, cacheDirectory,
-								org.mapsforge.map.android.graphics.AndroidGraphicFactory.INSTANCE, threaded, queueSize);
+								org.mapsforge.map.android.graphics.AndroidGraphicFactory.INSTANCE, threaded, queueSize,
+								persistent);
 						return new TwoLevelTileCache(firstLevelTileCache, secondLevelTileCache);
 					} catch (IllegalArgumentException e) {
 						Log.w("TILECACHE", e.toString());
@@ -94,8 +110,28 @@ public final class AndroidUtil {
 	 */
 
 	public static TileCache createTileCache(Context c, String id, int tileSize, float screenRatio, double overdraw, boolean threaded, int queueSize) {
+		return createTileCache(c, id, tileSize, screenRatio, overdraw, threaded, queueSize, false);
+	}
+
+	/**
+	 * Utility function to create a two-level tile cache with the right size, whose file system cache is kept across
+	 * restarts if persistent is true. The file system cache writes its index when it is destroyed, applications
+	 * should destroy the cache in onDestroy.
+	 *
+	 * @param c           the Android context
+	 * @param id          name for the storage directory
+	 * @param tileSize    tile size
+	 * @param screenRatio part of the screen the view takes up
+	 * @param overdraw    overdraw allowance
+	 * @param threaded    if a background thread is employed to store tile data
+	 * @param queueSize   maximum length of queue before the put operation blocks
+	 * @param persistent  if the cached tiles survive a restart of the application
+	 * @return a new cache created on the external storage
+	 */
+	public static TileCache createTileCache(Context c, String id, int tileSize, float screenRatio, double overdraw,
+			boolean threaded, int queueSize, boolean persistent) {
 		int cacheSize = Math.round(getMinimumCacheSize(c, tileSize, overdraw, screenRatio));
-		return createExternalStorageTileCache(c, id, cacheSize, tileSize, threaded, queueSize);
+		return createExternalStorageTileCache(c, id, cacheSize, tileSize, threaded, queueSize, persistent);
 	}
 
 	/**
@@ -129,8 +165,27 @@ public final class AndroidUtil {
 	public static TileRendererLayer createTileRendererLayer(TileCache tileCache,
 	                                                        MapViewPosition mapViewPosition, File mapFile,
 	                                                        XmlRenderTheme renderTheme, boolean hasAlpha, boolean renderLabels) {
+		return createTileRendererLayer(tileCache, mapViewPosition, mapFile, renderTheme, hasAlpha, renderLabels, 1);
+	}
+
+	/**
+	 * Utility method to create a tile renderer layer that renders with several threads.
+	 *
+	 * @param tileCache       the cache
+	 * @param mapViewPosition the position
+	 * @param mapFile         the map file
+	 * @param renderTheme     the render theme to use
+	 * @param hasAlpha        if the layer is transparent (more memory)
+	 * @param renderLabels    should usually be true
+	 * @param numberOfWorkers the number of rendering threads, each with its own copy of the render theme
+	 * @return the layer
+	 */
+	public static TileRendererLayer createTileRendererLayer(TileCache tileCache,
+	                                                        MapViewPosition mapViewPosition, File mapFile,
+	                                                        XmlRenderTheme renderTheme, boolean hasAlpha, boolean renderLabels,
+	                                                        int numberOfWorkers) {
 		TileRendererLayer tileRendererLayer = new TileRendererLayer(tileCache,
-				mapViewPosition, hasAlpha, renderLabels, AndroidGraphicFactory.INSTANCE);
+				mapViewPosition, hasAlpha, renderLabels, AndroidGraphicFactory.INSTANCE, numberOfWorkers);
 		tileRendererLayer.setMapFile(mapFile);
 		tileRendererLayer.setXmlRenderTheme(renderTheme);
 		return tileRendererLayer;
@@ -18,6 +18,7 @@ package org.mapsforge.map.awt;
 import java.awt.AlphaComposite;
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
@@ -30,9 +31,14 @@ import org.mapsforge.core.graphics.Matrix;
 import org.mapsforge.core.graphics.Paint;
 import org.mapsforge.core.graphics.Path;
 import org.mapsforge.core.graphics.Style;
+import org.mapsforge.core.graphics.TextCache;
 import org.mapsforge.core.model.Dimension;
 
 class AwtCanvas implements Canvas {
+	/**
+	 * Maximum width and height in pixels of a text which is drawn from the {@link TextCache}.
+	 */
+	private static final int MAXIMUM_LABEL_SIZE = 1024;
 	private static final String UNKNOWN_STYLE = "unknown style: ";
 
 	private BufferedImage bufferedImage;
@@ -132,17 +138,25 @@ class AwtCanvas implements Canvas {
 
 		AwtPaint awtPaint = AwtGraphicFactory.getAwtPaint(paint);
 
-		if (awtPaint.stroke == null) {
-			this.graphics2D.setColor(awtPaint.color);
-			this.graphics2D.setFont(awtPaint.font);
-			this.graphics2D.drawString(text, x, y);
-		} else {
-			setColorAndStroke(awtPaint);
-			TextLayout textLayout = new TextLayout(text, awtPaint.font, this.graphics2D.getFontRenderContext());
-			AffineTransform affineTransform = new AffineTransform();
-			affineTransform.translate(x, y);
-			this.graphics2D.draw(textLayout.getOutline(affineTransform));
+		// rotated texts and texts on the screen are drawn directly, the raster only matches an identical transform
+		if (this.bufferedImage == null || !this.graphics2D.getTransform().isIdentity()) {
+			drawTextDirect(text, x, y, awtPaint);
+			return;
+		}
+
+		TextCache textCache = AwtGraphicFactory.INSTANCE.getTextCache();
+		Object labelKey = awtPaint.getLabelKey();
+		TextCache.Label label = textCache.getLabel(labelKey, text);
+		if (label == null) {
+			label = createLabel(text, awtPaint);
+			if (label == null) {
+				drawTextDirect(text, x, y, awtPaint);
+				return;
+			}
+			textCache.putLabel(labelKey, text, label);
 		}
+		drawBitmap(label.bitmap, x - label.originX, y - label.originY);
+		label.bitmap.decrementRefCount();
 	}
 
 	@Override
@@ -218,6 +232,53 @@ class AwtCanvas implements Canvas {
 		this.graphics2D.setClip(left, top, width, height);
 	}
 
+	/**
+	 * Draws the given text into a new bitmap.
+	 * 
+	 * @return the label or null, if the text is empty or too large to be cached.
+	 */
+	private TextCache.Label createLabel(String text, AwtPaint awtPaint) {
+		if (text.isEmpty()) {
+			return null;
+		}
+		TextLayout textLayout = new TextLayout(text, awtPaint.font, this.graphics2D.getFontRenderContext());
+		Rectangle bounds;
+		if (awtPaint.stroke == null) {
+			bounds = textLayout.getPixelBounds(this.graphics2D.getFontRenderContext(), 0, 0);
+		} else {
+			bounds = awtPaint.stroke.createStrokedShape(textLayout.getOutline(null)).getBounds();
+		}
+		// one additional pixel on each side for the anti-aliased edges
+		int width = bounds.width + 2;
+		int height = bounds.height + 2;
+		if (bounds.isEmpty() || width > MAXIMUM_LABEL_SIZE || height > MAXIMUM_LABEL_SIZE) {
+			return null;
+		}
+
+		AwtBitmap bitmap = new AwtBitmap(width, height);
+		AwtCanvas canvas = new AwtCanvas();
+		canvas.setBitmap(bitmap);
+		int originX = 1 - bounds.x;
+		int originY = 1 - bounds.y;
+		canvas.drawTextDirect(text, originX, originY, awtPaint);
+		canvas.graphics2D.dispose();
+		return new TextCache.Label(bitmap, originX, originY);
+	}
+
+	private void drawTextDirect(String text, int x, int y, AwtPaint awtPaint) {
+		if (awtPaint.stroke == null) {
+			this.graphics2D.setColor(awtPaint.color);
+			this.graphics2D.setFont(awtPaint.font);
+			this.graphics2D.drawString(text, x, y);
+		} else {
+			setColorAndStroke(awtPaint);
+			TextLayout textLayout = new TextLayout(text, awtPaint.font, this.graphics2D.getFontRenderContext());
+			AffineTransform affineTransform = new AffineTransform();
+			affineTransform.translate(x, y);
+			this.graphics2D.draw(textLayout.getOutline(affineTransform));
+		}
+	}
+
 	private void enableAntiAliasing() {
 		this.graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		this.graphics2D.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
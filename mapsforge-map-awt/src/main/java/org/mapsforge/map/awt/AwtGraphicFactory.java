@@ -35,6 +35,7 @@ import org.mapsforge.core.graphics.Path;
 import org.mapsforge.core.mapelements.PointTextContainer;
 import org.mapsforge.core.graphics.Position;
 import org.mapsforge.core.graphics.ResourceBitmap;
+import org.mapsforge.core.graphics.TextCache;
 import org.mapsforge.core.mapelements.SymbolContainer;
 import org.mapsforge.core.graphics.TileBitmap;
 import org.mapsforge.core.model.Point;
@@ -82,6 +83,8 @@ public final class AwtGraphicFactory implements GraphicFactory {
 		throw new IllegalArgumentException("unknown color: " + color);
 	}
 
+	private final TextCache textCache = new TextCache();
+
 	private AwtGraphicFactory() {
 	}
 
@@ -133,6 +136,11 @@ public final class AwtGraphicFactory implements GraphicFactory {
 		return new AwtPaint();
 	}
 
+	@Override
+	public Paint createPaint(Paint paint) {
+		return new AwtPaint((AwtPaint) paint);
+	}
+
 	@Override
 	public Path createPath() {
 		return new AwtPath();
@@ -159,6 +167,11 @@ public final class AwtGraphicFactory implements GraphicFactory {
 		return new AwtTileBitmap(tileSize);
 	}
 
+	@Override
+	public TextCache getTextCache() {
+		return this.textCache;
+	}
+
 	@Override
 	public InputStream platformSpecificSources(String relativePathPrefix, String src) throws FileNotFoundException {
 		return null;
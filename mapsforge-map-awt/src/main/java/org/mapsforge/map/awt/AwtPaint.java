@@ -22,7 +22,9 @@ import java.awt.FontMetrics;
 import java.awt.Rectangle;
 import java.awt.Stroke;
 import java.awt.TexturePaint;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 import org.mapsforge.core.graphics.Align;
 import org.mapsforge.core.graphics.Bitmap;
@@ -33,6 +35,8 @@ import org.mapsforge.core.graphics.FontStyle;
 import org.mapsforge.core.graphics.Join;
 import org.mapsforge.core.graphics.Paint;
 import org.mapsforge.core.graphics.Style;
+import org.mapsforge.core.graphics.TextCache;
+import org.mapsforge.core.model.Dimension;
 import org.mapsforge.core.model.Point;
 
 class AwtPaint implements Paint {
@@ -117,18 +121,32 @@ class AwtPaint implements Paint {
 		this.join = getJoin(Join.ROUND);
 	}
 
+	AwtPaint(AwtPaint paint) {
+		// all referenced AWT objects are immutable, so they can be shared with the copy
+		this.color = paint.color;
+		this.font = paint.font;
+		this.stroke = paint.stroke;
+		this.style = paint.style;
+		this.texturePaint = paint.texturePaint;
+		this.cap = paint.cap;
+		this.fontName = paint.fontName;
+		this.fontStyle = paint.fontStyle;
+		this.join = paint.join;
+		this.strokeDasharray = paint.strokeDasharray;
+		this.strokeWidth = paint.strokeWidth;
+		this.textSize = paint.textSize;
+		this.shaderWidth = paint.shaderWidth;
+		this.shaderHeight = paint.shaderHeight;
+	}
+
 	@Override
 	public int getTextHeight(String text) {
-		BufferedImage bufferedImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-		FontMetrics fontMetrics = bufferedImage.getGraphics().getFontMetrics(this.font);
-		return (int) this.font.createGlyphVector(fontMetrics.getFontRenderContext(), text).getVisualBounds().getHeight();
+		return getTextSize(text).height;
 	}
 
 	@Override
 	public int getTextWidth(String text) {
-		BufferedImage bufferedImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-		FontMetrics fontMetrics = bufferedImage.getGraphics().getFontMetrics(this.font);
-		return (int) this.font.createGlyphVector(fontMetrics.getFontRenderContext(), text).getVisualBounds().getWidth();
+		return getTextSize(text).width;
 	}
 
 	@Override
@@ -221,6 +239,13 @@ class AwtPaint implements Paint {
 		createFont();
 	}
 
+	/**
+	 * @return a key for the {@link TextCache} which is equal for all paints that draw a text the same way.
+	 */
+	Object getLabelKey() {
+		return Arrays.asList(this.font, this.color, this.stroke);
+	}
+
 	private void createFont() {
 		if (this.textSize > 0) {
 			this.font = new Font(this.fontName, this.fontStyle, (int) this.textSize);
@@ -235,4 +260,18 @@ class AwtPaint implements Paint {
 		}
 		this.stroke = new BasicStroke(this.strokeWidth, this.cap, this.join, this.join == BasicStroke.JOIN_MITER ? 1.0f : 0, this.strokeDasharray, 0);
 	}
+
+	private Dimension getTextSize(String text) {
+		// the same names are measured again for every tile, the size only depends on the font
+		TextCache textCache = AwtGraphicFactory.INSTANCE.getTextCache();
+		Dimension dimension = textCache.getSize(this.font, text);
+		if (dimension == null) {
+			BufferedImage bufferedImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+			FontMetrics fontMetrics = bufferedImage.getGraphics().getFontMetrics(this.font);
+			Rectangle2D bounds = this.font.createGlyphVector(fontMetrics.getFontRenderContext(), text).getVisualBounds();
+			dimension = new Dimension((int) bounds.getWidth(), (int) bounds.getHeight());
+			textCache.putSize(this.font, text, dimension);
+		}
+		return dimension;
+	}
 }
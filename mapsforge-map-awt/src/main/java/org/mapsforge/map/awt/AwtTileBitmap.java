@@ -15,6 +15,7 @@
  */
 package org.mapsforge.map.awt;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -30,4 +31,26 @@ public class AwtTileBitmap extends AwtBitmap implements TileBitmap {
 		super(tileSize, tileSize);
 	}
 
+	@Override
+	public void getPixels(int[] pixels) {
+		int width = this.bufferedImage.getWidth();
+		int height = this.bufferedImage.getHeight();
+		if (this.bufferedImage.getType() == BufferedImage.TYPE_INT_ARGB) {
+			// the raster stores ARGB values already, this avoids the color model conversion of getRGB
+			this.bufferedImage.getRaster().getDataElements(0, 0, width, height, pixels);
+		} else {
+			this.bufferedImage.getRGB(0, 0, width, height, pixels, 0, width);
+		}
+	}
+
+	@Override
+	public void setPixels(int[] pixels) {
+		int width = this.bufferedImage.getWidth();
+		int height = this.bufferedImage.getHeight();
+		if (this.bufferedImage.getType() == BufferedImage.TYPE_INT_ARGB) {
+			this.bufferedImage.getRaster().setDataElements(0, 0, width, height, pixels);
+		} else {
+			this.bufferedImage.setRGB(0, 0, width, height, pixels, 0, width);
+		}
+	}
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.awt;
+
+import java.awt.Graphics2D;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.graphics.Color;
+import org.mapsforge.core.graphics.FontFamily;
+import org.mapsforge.core.graphics.FontStyle;
+import org.mapsforge.core.graphics.Style;
+import org.mapsforge.core.graphics.TextCache;
+
+public class AwtCanvasTest {
+	private static final int HEIGHT = 64;
+	private static final String TEXT = "Hauptstraße";
+	private static final int WIDTH = 256;
+
+	private static void assertSimilar(BufferedImage expected, BufferedImage actual) {
+		for (int y = 0; y < HEIGHT; ++y) {
+			for (int x = 0; x < WIDTH; ++x) {
+				int expectedPixel = expected.getRGB(x, y);
+				int actualPixel = actual.getRGB(x, y);
+				for (int shift = 0; shift < 32; shift += 8) {
+					int difference = Math.abs(((expectedPixel >>> shift) & 0xff) - ((actualPixel >>> shift) & 0xff));
+					Assert.assertTrue("pixel " + x + ", " + y, difference <= 2);
+				}
+			}
+		}
+	}
+
+	private static AwtCanvas createCanvas(AwtBitmap bitmap) {
+		AwtCanvas canvas = new AwtCanvas();
+		canvas.setBitmap(bitmap);
+		canvas.fillColor(Color.WHITE);
+		return canvas;
+	}
+
+	private static AwtPaint createPaint(Style style) {
+		AwtPaint paint = new AwtPaint();
+		paint.setColor(Color.BLACK);
+		paint.setStyle(style);
+		paint.setTextSize(23);
+		paint.setTypeface(FontFamily.SANS_SERIF, FontStyle.BOLD);
+		if (style == Style.STROKE) {
+			paint.setStrokeWidth(3);
+		}
+		return paint;
+	}
+
+	private static void verifyDrawText(AwtPaint paint) {
+		AwtBitmap expected = new AwtBitmap(WIDTH, HEIGHT);
+		Graphics2D graphics2D = createCanvas(expected).getGraphicObject();
+		graphics2D.setColor(paint.color);
+		if (paint.stroke == null) {
+			graphics2D.setFont(paint.font);
+			graphics2D.drawString(TEXT, 20, 40);
+		} else {
+			graphics2D.setStroke(paint.stroke);
+			TextLayout textLayout = new TextLayout(TEXT, paint.font, graphics2D.getFontRenderContext());
+			graphics2D.draw(textLayout.getOutline(AffineTransform.getTranslateInstance(20, 40)));
+		}
+
+		// the first text is rasterized, the second one is drawn from the cache
+		AwtBitmap actual = new AwtBitmap(WIDTH, HEIGHT);
+		createCanvas(actual).drawText(TEXT, 20, 40, paint);
+		assertSimilar(expected.bufferedImage, actual.bufferedImage);
+		TextCache.Label label = AwtGraphicFactory.INSTANCE.getTextCache().getLabel(paint.getLabelKey(), TEXT);
+		Assert.assertNotNull(label);
+
+		actual = new AwtBitmap(WIDTH, HEIGHT);
+		createCanvas(actual).drawText(TEXT, 20, 40, paint);
+		assertSimilar(expected.bufferedImage, actual.bufferedImage);
+		Assert.assertSame(label, AwtGraphicFactory.INSTANCE.getTextCache().getLabel(paint.getLabelKey(), TEXT));
+	}
+
+	@Test
+	public void drawTextTest() {
+		verifyDrawText(createPaint(Style.FILL));
+		verifyDrawText(createPaint(Style.STROKE));
+	}
+
+	@Test
+	public void textSizeTest() {
+		AwtPaint paint = createPaint(Style.FILL);
+		int textWidth = paint.getTextWidth(TEXT);
+		int textHeight = paint.getTextHeight(TEXT);
+		Assert.assertTrue(textWidth > 0);
+		Assert.assertTrue(textHeight > 0);
+
+		AwtPaint copy = new AwtPaint(paint);
+		Assert.assertEquals(textWidth, copy.getTextWidth(TEXT));
+		Assert.assertEquals(textHeight, copy.getTextHeight(TEXT));
+		copy.setTextSize(46);
+		Assert.assertTrue(copy.getTextWidth(TEXT) > textWidth);
+		Assert.assertEquals(textWidth, paint.getTextWidth(TEXT));
+	}
+}
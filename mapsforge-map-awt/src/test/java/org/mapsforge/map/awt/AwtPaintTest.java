@@ -21,6 +21,24 @@ import org.mapsforge.core.graphics.Color;
 import org.mapsforge.core.graphics.Paint;
 
 public class AwtPaintTest {
+	@Test
+	public void copyTest() {
+		Paint paint = AwtGraphicFactory.INSTANCE.createPaint();
+		paint.setColor(Color.TRANSPARENT);
+		paint.setTextSize(10);
+		int textWidth = paint.getTextWidth("mapsforge");
+
+		Paint copy = AwtGraphicFactory.INSTANCE.createPaint(paint);
+		Assert.assertTrue(copy.isTransparent());
+		Assert.assertEquals(textWidth, copy.getTextWidth("mapsforge"));
+
+		copy.setColor(Color.RED);
+		copy.setTextSize(20);
+		Assert.assertTrue(paint.isTransparent());
+		Assert.assertEquals(textWidth, paint.getTextWidth("mapsforge"));
+		Assert.assertTrue(copy.getTextWidth("mapsforge") > textWidth);
+	}
+
 	@Test
 	public void isTransparentTest() {
 		Paint paint = new AwtPaint();
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache for decoded blocks with LRU policy, its size is limited by the estimated memory of the cached blocks.
+ * <p>
+ * Neighbouring tiles are often read from the same blocks, with this cache each block is only decoded once and then
+ * filtered for every tile. The cache may be shared by several threads: it is divided into segments by the hash code of
+ * the keys, each with its own lock and LRU order, so that threads which read different blocks rarely wait for each
+ * other. The maximum size applies to the whole cache, a block is evicted from the segment whose least recently used
+ * block has been accessed first.
+ */
+class BlockCache {
+	private static final class Entry {
+		long lastAccess;
+		final PoiWayBundle poiWayBundle;
+		final long size;
+
+		Entry(PoiWayBundle poiWayBundle, long size) {
+			this.lastAccess = System.nanoTime();
+			this.poiWayBundle = poiWayBundle;
+			this.size = size;
+		}
+	}
+
+	private static final class Segment {
+		private long hits;
+		private final Map<BlockCacheEntryKey, Entry> map;
+		private long misses;
+
+		Segment() {
+			this.map = new LinkedHashMap<BlockCacheEntryKey, Entry>(16, 0.75f, true);
+		}
+
+		/**
+		 * @return the estimated memory of the removed blocks in bytes.
+		 */
+		synchronized long destroy() {
+			long size = 0;
+			for (Entry entry : this.map.values()) {
+				size += entry.size;
+			}
+			this.map.clear();
+			return size;
+		}
+
+		synchronized PoiWayBundle get(BlockCacheEntryKey key) {
+			Entry entry = this.map.get(key);
+			if (entry == null) {
+				++this.misses;
+				return null;
+			}
+			++this.hits;
+			entry.lastAccess = System.nanoTime();
+			return entry.poiWayBundle;
+		}
+
+		/**
+		 * @return the time of the last access to the least recently used block, null if the segment is empty.
+		 */
+		synchronized Long getEldestAccess() {
+			if (this.map.isEmpty()) {
+				return null;
+			}
+			return Long.valueOf(this.map.values().iterator().next().lastAccess);
+		}
+
+		synchronized long getHits() {
+			return this.hits;
+		}
+
+		synchronized long getMisses() {
+			return this.misses;
+		}
+
+		/**
+		 * @return the estimated memory of the replaced block in bytes.
+		 */
+		synchronized long put(BlockCacheEntryKey key, Entry entry) {
+			Entry previous = this.map.put(key, entry);
+			return previous == null ? 0 : previous.size;
+		}
+
+		/**
+		 * @return the estimated memory of the removed block in bytes.
+		 */
+		synchronized long removeEldest() {
+			if (this.map.isEmpty()) {
+				return 0;
+			}
+			Iterator<Entry> iterator = this.map.values().iterator();
+			long size = iterator.next().size;
+			iterator.remove();
+			return size;
+		}
+	}
+
+	/**
+	 * Default number of segments, a power of two.
+	 */
+	private static final int SEGMENTS = 16;
+
+	private final long maximumSize;
+	private final Segment[] segments;
+	private final AtomicLong size = new AtomicLong();
+
+	/**
+	 * @param maximumSize
+	 *            the maximum estimated memory of the cached blocks in bytes.
+	 * @throws IllegalArgumentException
+	 *             if the maximum size is negative.
+	 */
+	BlockCache(long maximumSize) {
+		this(maximumSize, SEGMENTS);
+	}
+
+	/**
+	 * @param maximumSize
+	 *            the maximum estimated memory of the cached blocks in bytes.
+	 * @param numberOfSegments
+	 *            the number of independently locked segments, a power of two.
+	 * @throws IllegalArgumentException
+	 *             if the maximum size is negative or the number of segments is not a power of two.
+	 */
+	BlockCache(long maximumSize, int numberOfSegments) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+		} else if (numberOfSegments <= 0 || Integer.bitCount(numberOfSegments) != 1) {
+			throw new IllegalArgumentException("numberOfSegments must be a power of two: " + numberOfSegments);
+		}
+		this.maximumSize = maximumSize;
+		this.segments = new Segment[numberOfSegments];
+		for (int i = 0; i < numberOfSegments; ++i) {
+			this.segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * Destroy the cache at the end of its lifetime.
+	 */
+	void destroy() {
+		for (Segment segment : this.segments) {
+			this.size.addAndGet(-segment.destroy());
+		}
+	}
+
+	/**
+	 * @return the decoded block for the given key or null, if the block is not cached.
+	 */
+	PoiWayBundle get(BlockCacheEntryKey key) {
+		return getSegment(key).get(key);
+	}
+
+	/**
+	 * @return the number of requested blocks which were in the cache.
+	 */
+	long getHits() {
+		long hits = 0;
+		for (Segment segment : this.segments) {
+			hits += segment.getHits();
+		}
+		return hits;
+	}
+
+	/**
+	 * @return the number of requested blocks which were not in the cache.
+	 */
+	long getMisses() {
+		long misses = 0;
+		for (Segment segment : this.segments) {
+			misses += segment.getMisses();
+		}
+		return misses;
+	}
+
+	/**
+	 * @return the estimated memory of the cached blocks in bytes.
+	 */
+	long getSize() {
+		return this.size.get();
+	}
+
+	/**
+	 * Stores a decoded block and removes the least recently used blocks if the cache has become too large. A block
+	 * which is larger than the whole cache is not stored.
+	 */
+	void put(BlockCacheEntryKey key, PoiWayBundle poiWayBundle) {
+		long blockSize = poiWayBundle.getSize();
+		if (blockSize > this.maximumSize) {
+			return;
+		}
+
+		long previousSize = getSegment(key).put(key, new Entry(poiWayBundle, blockSize));
+		if (this.size.addAndGet(blockSize - previousSize) > this.maximumSize) {
+			evict();
+		}
+	}
+
+	/**
+	 * Removes the least recently used blocks of all segments until the cache is small enough. Only one thread evicts at
+	 * a time, the segments are locked one after the other.
+	 */
+	private synchronized void evict() {
+		while (this.size.get() > this.maximumSize) {
+			Segment eldestSegment = null;
+			long eldestAccess = Long.MAX_VALUE;
+			for (Segment segment : this.segments) {
+				Long access = segment.getEldestAccess();
+				if (access != null && (eldestSegment == null || access.longValue() - eldestAccess < 0)) {
+					eldestSegment = segment;
+					eldestAccess = access.longValue();
+				}
+			}
+			if (eldestSegment == null) {
+				return;
+			}
+			this.size.addAndGet(-eldestSegment.removeEldest());
+		}
+	}
+
+	private Segment getSegment(BlockCacheEntryKey key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return this.segments[hash & (this.segments.length - 1)];
+	}
+}
@@ -0,0 +1,628 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.LatLong;
+import org.mapsforge.core.model.Tag;
+import org.mapsforge.core.util.LatLongUtils;
+import org.mapsforge.map.reader.header.MapFileInfo;
+import org.mapsforge.map.reader.header.SubFileParameter;
+
+/**
+ * Decodes the POIs and ways of a single block from a {@link ReadBuffer}.
+ * <p>
+ * All state that changes while a block is decoded lives in this class, so every thread that reads from a
+ * {@link MapDatabase} concurrently needs its own instance.
+ */
+class BlockDecoder {
+	/**
+	 * Debug message prefix for the block signature.
+	 */
+	private static final String DEBUG_SIGNATURE_BLOCK = "block signature: ";
+
+	/**
+	 * Debug message prefix for the POI signature.
+	 */
+	private static final String DEBUG_SIGNATURE_POI = "POI signature: ";
+
+	/**
+	 * Debug message prefix for the way signature.
+	 */
+	private static final String DEBUG_SIGNATURE_WAY = "way signature: ";
+
+	/**
+	 * Error message for an invalid first way offset.
+	 */
+	private static final String INVALID_FIRST_WAY_OFFSET = "invalid first way offset: ";
+
+	private static final Logger LOGGER = Logger.getLogger(BlockDecoder.class.getName());
+
+	/**
+	 * Bitmask for the optional POI feature "elevation".
+	 */
+	private static final int POI_FEATURE_ELEVATION = 0x20;
+
+	/**
+	 * Bitmask for the optional POI feature "house number".
+	 */
+	private static final int POI_FEATURE_HOUSE_NUMBER = 0x40;
+
+	/**
+	 * Bitmask for the optional POI feature "name".
+	 */
+	private static final int POI_FEATURE_NAME = 0x80;
+
+	/**
+	 * Bitmask for the POI layer.
+	 */
+	private static final int POI_LAYER_BITMASK = 0xf0;
+
+	/**
+	 * Bit shift for calculating the POI layer.
+	 */
+	private static final int POI_LAYER_SHIFT = 4;
+
+	/**
+	 * Bitmask for the number of POI tags.
+	 */
+	private static final int POI_NUMBER_OF_TAGS_BITMASK = 0x0f;
+
+	/**
+	 * Length of the debug signature at the beginning of each block.
+	 */
+	private static final byte SIGNATURE_LENGTH_BLOCK = 32;
+
+	/**
+	 * Length of the debug signature at the beginning of each POI.
+	 */
+	private static final byte SIGNATURE_LENGTH_POI = 32;
+
+	/**
+	 * Length of the debug signature at the beginning of each way.
+	 */
+	private static final byte SIGNATURE_LENGTH_WAY = 32;
+
+	/**
+	 * The key of the elevation OpenStreetMap tag.
+	 */
+	private static final String TAG_KEY_ELE = "ele";
+
+	/**
+	 * The key of the house number OpenStreetMap tag.
+	 */
+	private static final String TAG_KEY_HOUSE_NUMBER = "addr:housenumber";
+
+	/**
+	 * The key of the name OpenStreetMap tag.
+	 */
+	private static final String TAG_KEY_NAME = "name";
+
+	/**
+	 * The key of the reference OpenStreetMap tag.
+	 */
+	private static final String TAG_KEY_REF = "ref";
+
+	/**
+	 * Bitmask for the optional way data blocks byte.
+	 */
+	private static final int WAY_FEATURE_DATA_BLOCKS_BYTE = 0x08;
+
+	/**
+	 * Bitmask for the optional way double delta encoding.
+	 */
+	private static final int WAY_FEATURE_DOUBLE_DELTA_ENCODING = 0x04;
+
+	/**
+	 * Bitmask for the optional way feature "house number".
+	 */
+	private static final int WAY_FEATURE_HOUSE_NUMBER = 0x40;
+
+	/**
+	 * Bitmask for the optional way feature "label position".
+	 */
+	private static final int WAY_FEATURE_LABEL_POSITION = 0x10;
+
+	/**
+	 * Bitmask for the optional way feature "name".
+	 */
+	private static final int WAY_FEATURE_NAME = 0x80;
+
+	/**
+	 * Bitmask for the optional way feature "reference".
+	 */
+	private static final int WAY_FEATURE_REF = 0x20;
+
+	/**
+	 * Bitmask for the way layer.
+	 */
+	private static final int WAY_LAYER_BITMASK = 0xf0;
+
+	/**
+	 * Bit shift for calculating the way layer.
+	 */
+	private static final int WAY_LAYER_SHIFT = 4;
+
+	/**
+	 * Bitmask for the number of way tags.
+	 */
+	private static final int WAY_NUMBER_OF_TAGS_BITMASK = 0x0f;
+
+	final ReadBuffer readBuffer;
+	private final MapFileInfo mapFileInfo;
+	private String signatureBlock;
+	private String signaturePoi;
+	private String signatureWay;
+	private final int[] tagIds = new int[Math.max(POI_NUMBER_OF_TAGS_BITMASK, WAY_NUMBER_OF_TAGS_BITMASK)];
+	private final TagPool tagPool;
+	private double tileLatitude;
+	private double tileLongitude;
+	private int[] wayTileBitmasks = new int[64];
+
+	BlockDecoder(ReadBuffer readBuffer, MapFileInfo mapFileInfo, TagPool tagPool) {
+		this.readBuffer = readBuffer;
+		this.mapFileInfo = mapFileInfo;
+		this.tagPool = tagPool;
+	}
+
+	/**
+	 * Decodes all POIs and ways of the given zoom level from the block which has been read into the read buffer. The
+	 * result does not depend on the requested tile, it must be filtered with
+	 * {@link PoiWayBundle#filter(QueryParameters, BoundingBox, boolean)}.
+	 * 
+	 * @param queryZoomLevel
+	 *            the zoom level of the current query.
+	 * @param subFileParameter
+	 *            the parameters of the sub-file the block belongs to.
+	 * @param tileLatitude
+	 *            the latitude of the top-left corner of the block's base tile.
+	 * @param tileLongitude
+	 *            the longitude of the top-left corner of the block's base tile.
+	 * @return the decoded POIs and ways or null, if the block is invalid.
+	 */
+	PoiWayBundle decodeBlock(int queryZoomLevel, SubFileParameter subFileParameter, double tileLatitude,
+	                         double tileLongitude) {
+		this.tileLatitude = tileLatitude;
+		this.tileLongitude = tileLongitude;
+
+		if (!processBlockSignature()) {
+			return null;
+		}
+
+		int[][] zoomTable = readZoomTable(subFileParameter);
+		int zoomTableRow = queryZoomLevel - subFileParameter.zoomLevelMin;
+		int poisOnQueryZoomLevel = zoomTable[zoomTableRow][0];
+		int waysOnQueryZoomLevel = zoomTable[zoomTableRow][1];
+
+		// get the relative offset to the first stored way in the block
+		int firstWayOffset = this.readBuffer.readUnsignedInt();
+		if (firstWayOffset < 0) {
+			LOGGER.warning(INVALID_FIRST_WAY_OFFSET + firstWayOffset);
+			if (this.mapFileInfo.debugFile) {
+				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+			}
+			return null;
+		}
+
+		// add the current buffer position to the relative first way offset
+		firstWayOffset += this.readBuffer.getBufferPosition();
+		if (firstWayOffset > this.readBuffer.getBufferSize()) {
+			LOGGER.warning(INVALID_FIRST_WAY_OFFSET + firstWayOffset);
+			if (this.mapFileInfo.debugFile) {
+				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+			}
+			return null;
+		}
+
+		List<PointOfInterest> pois = processPOIs(poisOnQueryZoomLevel);
+		if (pois == null) {
+			return null;
+		}
+
+		// finished reading POIs, check if the current buffer position is valid
+		if (this.readBuffer.getBufferPosition() > firstWayOffset) {
+			LOGGER.warning("invalid buffer position: " + this.readBuffer.getBufferPosition());
+			if (this.mapFileInfo.debugFile) {
+				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+			}
+			return null;
+		}
+
+		// move the pointer to the first way
+		this.readBuffer.setBufferPosition(firstWayOffset);
+
+		List<Way> ways = new ArrayList<Way>();
+		if (!processWays(waysOnQueryZoomLevel, ways)) {
+			return null;
+		}
+
+		return new PoiWayBundle(pois, ways, Arrays.copyOf(this.wayTileBitmasks, ways.size()));
+	}
+
+	/**
+	 * Creates a modifiable list with the tags of the current tag IDs and room for the optional tags.
+	 */
+	private List<Tag> createTags(Tag[] tagTable, int numberOfTags) {
+		List<Tag> tags = new ArrayList<Tag>(numberOfTags + 3);
+		for (int i = 0; i < numberOfTags; ++i) {
+			tags.add(tagTable[this.tagIds[i]]);
+		}
+		return tags;
+	}
+
+	private void decodeWayNodesDoubleDelta(double[] waySegment) {
+		// get the first way node latitude offset (VBE-S)
+		double wayNodeLatitude = this.tileLatitude
+				+ LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+		// get the first way node longitude offset (VBE-S)
+		double wayNodeLongitude = this.tileLongitude
+				+ LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+		// store the first way node
+		waySegment[0] = wayNodeLatitude;
+		waySegment[1] = wayNodeLongitude;
+
+		double previousSingleDeltaLatitude = 0;
+		double previousSingleDeltaLongitude = 0;
+
+		for (int wayNodesIndex = 2; wayNodesIndex < waySegment.length; wayNodesIndex += 2) {
+			// get the way node latitude double-delta offset (VBE-S)
+			double doubleDeltaLatitude = LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+			// get the way node longitude double-delta offset (VBE-S)
+			double doubleDeltaLongitude = LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+			double singleDeltaLatitude = doubleDeltaLatitude + previousSingleDeltaLatitude;
+			double singleDeltaLongitude = doubleDeltaLongitude + previousSingleDeltaLongitude;
+
+			wayNodeLatitude = wayNodeLatitude + singleDeltaLatitude;
+			wayNodeLongitude = wayNodeLongitude + singleDeltaLongitude;
+
+			waySegment[wayNodesIndex] = wayNodeLatitude;
+			waySegment[wayNodesIndex + 1] = wayNodeLongitude;
+
+			previousSingleDeltaLatitude = singleDeltaLatitude;
+			previousSingleDeltaLongitude = singleDeltaLongitude;
+		}
+	}
+
+	private void decodeWayNodesSingleDelta(double[] waySegment) {
+		// get the first way node latitude single-delta offset (VBE-S)
+		double wayNodeLatitude = this.tileLatitude
+				+ LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+		// get the first way node longitude single-delta offset (VBE-S)
+		double wayNodeLongitude = this.tileLongitude
+				+ LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+		// store the first way node
+		waySegment[0] = wayNodeLatitude;
+		waySegment[1] = wayNodeLongitude;
+
+		for (int wayNodesIndex = 2; wayNodesIndex < waySegment.length; wayNodesIndex += 2) {
+			// get the way node latitude offset (VBE-S)
+			wayNodeLatitude = wayNodeLatitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+			// get the way node longitude offset (VBE-S)
+			wayNodeLongitude = wayNodeLongitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+			waySegment[wayNodesIndex] = wayNodeLatitude;
+			waySegment[wayNodesIndex + 1] = wayNodeLongitude;
+		}
+	}
+
+	/**
+	 * Logs the debug signatures of the current way and block.
+	 */
+	private void logDebugSignatures() {
+		if (this.mapFileInfo.debugFile) {
+			LOGGER.warning(DEBUG_SIGNATURE_WAY + this.signatureWay);
+			LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+		}
+	}
+
+	/**
+	 * Processes the block signature, if present.
+	 * 
+	 * @return true if the block signature could be processed successfully, false otherwise.
+	 */
+	private boolean processBlockSignature() {
+		if (this.mapFileInfo.debugFile) {
+			// get and check the block signature
+			this.signatureBlock = this.readBuffer.readUTF8EncodedString(SIGNATURE_LENGTH_BLOCK);
+			if (!this.signatureBlock.startsWith("###TileStart")) {
+				LOGGER.warning("invalid block signature: " + this.signatureBlock);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private List<PointOfInterest> processPOIs(int numberOfPois) {
+		List<PointOfInterest> pois = new ArrayList<PointOfInterest>();
+		Tag[] poiTags = this.mapFileInfo.poiTags;
+
+		for (int elementCounter = numberOfPois; elementCounter != 0; --elementCounter) {
+			if (this.mapFileInfo.debugFile) {
+				// get and check the POI signature
+				this.signaturePoi = this.readBuffer.readUTF8EncodedString(SIGNATURE_LENGTH_POI);
+				if (!this.signaturePoi.startsWith("***POIStart")) {
+					LOGGER.warning("invalid POI signature: " + this.signaturePoi);
+					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+					return null;
+				}
+			}
+
+			// get the POI latitude offset (VBE-S)
+			double latitude = this.tileLatitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+			// get the POI longitude offset (VBE-S)
+			double longitude = this.tileLongitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+			// get the special byte which encodes multiple flags
+			byte specialByte = this.readBuffer.readByte();
+
+			// bit 1-4 represent the layer
+			byte layer = (byte) ((specialByte & POI_LAYER_BITMASK) >>> POI_LAYER_SHIFT);
+			// bit 5-8 represent the number of tag IDs
+			byte numberOfTags = (byte) (specialByte & POI_NUMBER_OF_TAGS_BITMASK);
+
+			// get the tag IDs (VBE-U)
+			for (byte tagIndex = 0; tagIndex < numberOfTags; ++tagIndex) {
+				int tagId = this.readBuffer.readUnsignedInt();
+				if (tagId < 0 || tagId >= poiTags.length) {
+					LOGGER.warning("invalid POI tag ID: " + tagId);
+					if (this.mapFileInfo.debugFile) {
+						LOGGER.warning(DEBUG_SIGNATURE_POI + this.signaturePoi);
+						LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+					}
+					return null;
+				}
+				this.tagIds[tagIndex] = tagId;
+			}
+
+			// get the feature bitmask (1 byte)
+			byte featureByte = this.readBuffer.readByte();
+
+			// bit 1-3 enable optional features
+			boolean featureName = (featureByte & POI_FEATURE_NAME) != 0;
+			boolean featureHouseNumber = (featureByte & POI_FEATURE_HOUSE_NUMBER) != 0;
+			boolean featureElevation = (featureByte & POI_FEATURE_ELEVATION) != 0;
+
+			List<Tag> tags;
+			if (!featureName && !featureHouseNumber && !featureElevation) {
+				// without optional features all POIs with the same tag IDs share one immutable list
+				tags = this.tagPool.getTags(poiTags, this.tagIds, numberOfTags);
+			} else {
+				tags = createTags(poiTags, numberOfTags);
+
+				// check if the POI has a name
+				if (featureName) {
+					tags.add(this.readBuffer.readUTF8EncodedTag(TAG_KEY_NAME, this.tagPool));
+				}
+
+				// check if the POI has a house number
+				if (featureHouseNumber) {
+					tags.add(this.readBuffer.readUTF8EncodedTag(TAG_KEY_HOUSE_NUMBER, this.tagPool));
+				}
+
+				// check if the POI has an elevation
+				if (featureElevation) {
+					tags.add(this.tagPool.getTag(TAG_KEY_ELE, this.readBuffer.readSignedInt()));
+				}
+			}
+
+			pois.add(new PointOfInterest(layer, tags, new LatLong(latitude, longitude)));
+		}
+
+		return pois;
+	}
+
+	private double[][] processWayDataBlock(boolean doubleDeltaEncoding) {
+		// get and check the number of way coordinate blocks (VBE-U)
+		int numberOfWayCoordinateBlocks = this.readBuffer.readUnsignedInt();
+		if (numberOfWayCoordinateBlocks < 1 || numberOfWayCoordinateBlocks > Short.MAX_VALUE) {
+			LOGGER.warning("invalid number of way coordinate blocks: " + numberOfWayCoordinateBlocks);
+			logDebugSignatures();
+			return null;
+		}
+
+		// create the array which will store the different way coordinate blocks
+		double[][] wayCoordinates = new double[numberOfWayCoordinateBlocks][];
+
+		// read the way coordinate blocks
+		for (int coordinateBlock = 0; coordinateBlock < numberOfWayCoordinateBlocks; ++coordinateBlock) {
+			// get and check the number of way nodes (VBE-U)
+			int numberOfWayNodes = this.readBuffer.readUnsignedInt();
+			if (numberOfWayNodes < 2 || numberOfWayNodes > Short.MAX_VALUE) {
+				LOGGER.warning("invalid number of way nodes: " + numberOfWayNodes);
+				logDebugSignatures();
+				// returning null here will actually leave the tile blank as the
+				// position on the ReadBuffer will not be advanced correctly. However,
+				// it will not crash the app.
+				return null;
+			}
+
+			// create the array which will store the current way segment as latitude/longitude pairs
+			double[] waySegment = new double[numberOfWayNodes * 2];
+
+			if (doubleDeltaEncoding) {
+				decodeWayNodesDoubleDelta(waySegment);
+			} else {
+				decodeWayNodesSingleDelta(waySegment);
+			}
+
+			wayCoordinates[coordinateBlock] = waySegment;
+		}
+
+		return wayCoordinates;
+	}
+
+	/**
+	 * Decodes the given number of ways and adds them to the given list, their tile bitmasks are stored in
+	 * {@link #wayTileBitmasks}.
+	 * 
+	 * @return true if the ways could be decoded successfully, false otherwise.
+	 */
+	private boolean processWays(int numberOfWays, List<Way> ways) {
+		Tag[] wayTags = this.mapFileInfo.wayTags;
+
+		for (int elementCounter = numberOfWays; elementCounter != 0; --elementCounter) {
+			if (this.mapFileInfo.debugFile) {
+				// get and check the way signature
+				this.signatureWay = this.readBuffer.readUTF8EncodedString(SIGNATURE_LENGTH_WAY);
+				if (!this.signatureWay.startsWith("---WayStart")) {
+					LOGGER.warning("invalid way signature: " + this.signatureWay);
+					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+					return false;
+				}
+			}
+
+			// get the size of the way (VBE-U)
+			int wayDataSize = this.readBuffer.readUnsignedInt();
+			if (wayDataSize < 0) {
+				LOGGER.warning("invalid way data size: " + wayDataSize);
+				if (this.mapFileInfo.debugFile) {
+					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+				}
+				return false;
+			}
+
+			// get the way tile bitmask (2 bytes), the ways are filtered per requested tile later
+			int tileBitmask = this.readBuffer.readShort();
+
+			// get the special byte which encodes multiple flags
+			byte specialByte = this.readBuffer.readByte();
+
+			// bit 1-4 represent the layer
+			byte layer = (byte) ((specialByte & WAY_LAYER_BITMASK) >>> WAY_LAYER_SHIFT);
+			// bit 5-8 represent the number of tag IDs
+			byte numberOfTags = (byte) (specialByte & WAY_NUMBER_OF_TAGS_BITMASK);
+
+			for (byte tagIndex = 0; tagIndex < numberOfTags; ++tagIndex) {
+				int tagId = this.readBuffer.readUnsignedInt();
+				if (tagId < 0 || tagId >= wayTags.length) {
+					LOGGER.warning("invalid way tag ID: " + tagId);
+					logDebugSignatures();
+					return false;
+				}
+				this.tagIds[tagIndex] = tagId;
+			}
+
+			// get the feature bitmask (1 byte)
+			byte featureByte = this.readBuffer.readByte();
+
+			// bit 1-6 enable optional features
+			boolean featureName = (featureByte & WAY_FEATURE_NAME) != 0;
+			boolean featureHouseNumber = (featureByte & WAY_FEATURE_HOUSE_NUMBER) != 0;
+			boolean featureRef = (featureByte & WAY_FEATURE_REF) != 0;
+			boolean featureLabelPosition = (featureByte & WAY_FEATURE_LABEL_POSITION) != 0;
+			boolean featureWayDataBlocksByte = (featureByte & WAY_FEATURE_DATA_BLOCKS_BYTE) != 0;
+			boolean featureWayDoubleDeltaEncoding = (featureByte & WAY_FEATURE_DOUBLE_DELTA_ENCODING) != 0;
+
+			List<Tag> tags;
+			if (!featureName && !featureHouseNumber && !featureRef) {
+				// without optional features all ways with the same tag IDs share one immutable list
+				tags = this.tagPool.getTags(wayTags, this.tagIds, numberOfTags);
+			} else {
+				tags = createTags(wayTags, numberOfTags);
+
+				// check if the way has a name
+				if (featureName) {
+					tags.add(this.readBuffer.readUTF8EncodedTag(TAG_KEY_NAME, this.tagPool));
+				}
+
+				// check if the way has a house number
+				if (featureHouseNumber) {
+					tags.add(this.readBuffer.readUTF8EncodedTag(TAG_KEY_HOUSE_NUMBER, this.tagPool));
+				}
+
+				// check if the way has a reference
+				if (featureRef) {
+					tags.add(this.readBuffer.readUTF8EncodedTag(TAG_KEY_REF, this.tagPool));
+				}
+			}
+
+			LatLong labelPosition = readOptionalLabelPosition(featureLabelPosition);
+
+			int wayDataBlocks = readOptionalWayDataBlocksByte(featureWayDataBlocksByte);
+			if (wayDataBlocks < 1) {
+				LOGGER.warning("invalid number of way data blocks: " + wayDataBlocks);
+				logDebugSignatures();
+				return false;
+			}
+
+			for (int wayDataBlock = 0; wayDataBlock < wayDataBlocks; ++wayDataBlock) {
+				double[][] wayNodes = processWayDataBlock(featureWayDoubleDeltaEncoding);
+				if (wayNodes != null) {
+					if (ways.size() == this.wayTileBitmasks.length) {
+						this.wayTileBitmasks = Arrays.copyOf(this.wayTileBitmasks, ways.size() * 2);
+					}
+					this.wayTileBitmasks[ways.size()] = tileBitmask;
+					ways.add(new Way(layer, tags, wayNodes, labelPosition));
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private LatLong readOptionalLabelPosition(boolean featureLabelPosition) {
+		if (featureLabelPosition) {
+			// get the label position latitude offset (VBE-S)
+			double latitude = this.tileLatitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+			// get the label position longitude offset (VBE-S)
+			double longitude = this.tileLongitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
+
+			return new LatLong(latitude, longitude);
+		}
+
+		return null;
+	}
+
+	private int readOptionalWayDataBlocksByte(boolean featureWayDataBlocksByte) {
+		if (featureWayDataBlocksByte) {
+			// get and check the number of way data blocks (VBE-U)
+			return this.readBuffer.readUnsignedInt();
+		}
+		// only one way data block exists
+		return 1;
+	}
+
+	private int[][] readZoomTable(SubFileParameter subFileParameter) {
+		int rows = subFileParameter.zoomLevelMax - subFileParameter.zoomLevelMin + 1;
+		int[][] zoomTable = new int[rows][2];
+
+		int cumulatedNumberOfPois = 0;
+		int cumulatedNumberOfWays = 0;
+
+		for (int row = 0; row < rows; ++row) {
+			cumulatedNumberOfPois += this.readBuffer.readUnsignedInt();
+			cumulatedNumberOfWays += this.readBuffer.readUnsignedInt();
+
+			zoomTable[row][0] = cumulatedNumberOfPois;
+			zoomTable[row][1] = cumulatedNumberOfWays;
+		}
+
+		return zoomTable;
+	}
+}
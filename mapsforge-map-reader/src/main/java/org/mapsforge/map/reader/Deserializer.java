@@ -15,7 +15,7 @@
 package org.mapsforge.map.reader;
 
 /**
- * An utility class to convert byte arrays to numbers.
+ * An utility class to convert byte arrays to numbers and characters.
  */
 final class Deserializer {
 	/**
@@ -82,6 +82,67 @@ final class Deserializer {
 		return buffer[offset] << 8 | (buffer[offset + 1] & 0xff);
 	}
 
+	/**
+	 * Decodes UTF-8 encoded bytes of a byte array into a char array without creating any objects.
+	 * 
+	 * @param buffer
+	 *            the byte array.
+	 * @param offset
+	 *            the offset in the array.
+	 * @param length
+	 *            the number of bytes to decode.
+	 * @param chars
+	 *            the array for the decoded chars, it must be at least as long as the number of bytes.
+	 * @return the number of decoded chars or -1, if the bytes are not well-formed UTF-8.
+	 */
+	static int getUTF8Chars(byte[] buffer, int offset, int length, char[] chars) {
+		int count = 0;
+		int position = offset;
+		int end = offset + length;
+		while (position < end) {
+			int byte1 = buffer[position++];
+			if (byte1 >= 0) {
+				chars[count++] = (char) byte1;
+			} else if ((byte1 & 0xe0) == 0xc0) {
+				if (position >= end || (buffer[position] & 0xc0) != 0x80) {
+					return -1;
+				}
+				int codePoint = (byte1 & 0x1f) << 6 | (buffer[position++] & 0x3f);
+				if (codePoint < 0x80) {
+					return -1;
+				}
+				chars[count++] = (char) codePoint;
+			} else if ((byte1 & 0xf0) == 0xe0) {
+				if (position + 1 >= end || (buffer[position] & 0xc0) != 0x80 || (buffer[position + 1] & 0xc0) != 0x80) {
+					return -1;
+				}
+				int codePoint = (byte1 & 0x0f) << 12 | (buffer[position] & 0x3f) << 6 | (buffer[position + 1] & 0x3f);
+				position += 2;
+				if (codePoint < 0x800 || (codePoint >= 0xd800 && codePoint <= 0xdfff)) {
+					return -1;
+				}
+				chars[count++] = (char) codePoint;
+			} else if ((byte1 & 0xf8) == 0xf0) {
+				if (position + 2 >= end || (buffer[position] & 0xc0) != 0x80 || (buffer[position + 1] & 0xc0) != 0x80
+						|| (buffer[position + 2] & 0xc0) != 0x80) {
+					return -1;
+				}
+				int codePoint = (byte1 & 0x07) << 18 | (buffer[position] & 0x3f) << 12
+						| (buffer[position + 1] & 0x3f) << 6 | (buffer[position + 2] & 0x3f);
+				position += 3;
+				if (codePoint < 0x10000 || codePoint > 0x10ffff) {
+					return -1;
+				}
+				// a supplementary character is stored as a surrogate pair
+				chars[count++] = (char) ((codePoint >>> 10) + 0xd7c0);
+				chars[count++] = (char) ((codePoint & 0x3ff) + 0xdc00);
+			} else {
+				return -1;
+			}
+		}
+		return count;
+	}
+
 	private Deserializer() {
 		throw new IllegalStateException();
 	}
@@ -17,6 +17,7 @@ package org.mapsforge.map.reader;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.mapsforge.core.util.LRUCache;
 import org.mapsforge.map.reader.header.SubFileParameter;
@@ -35,7 +36,9 @@ class IndexCache {
 	 */
 	private static final int SIZE_OF_INDEX_BLOCK = INDEX_ENTRIES_PER_BLOCK * SubFileParameter.BYTES_PER_INDEX_ENTRY;
 
+	private final AtomicLong hits = new AtomicLong();
 	private final Map<IndexCacheEntryKey, byte[]> map;
+	private final AtomicLong misses = new AtomicLong();
 	private final RandomAccessFile randomAccessFile;
 
 	/**
@@ -58,6 +61,13 @@ class IndexCache {
 		this.map.clear();
 	}
 
+	/**
+	 * @return the number of index lookups whose index block was in the cache.
+	 */
+	long getHits() {
+		return this.hits.get();
+	}
+
 	/**
 	 * Returns the index entry of a block in the given map file. If the required index entry is not cached, it will be
 	 * read from the map file index and put in the cache.
@@ -85,6 +95,7 @@ class IndexCache {
 		// check for cached index block
 		byte[] indexBlock = this.map.get(indexCacheEntryKey);
 		if (indexBlock == null) {
+			this.misses.incrementAndGet();
 			// cache miss, seek to the correct index block in the file and read it
 			long indexBlockPosition = subFileParameter.indexStartAddress + indexBlockNumber * SIZE_OF_INDEX_BLOCK;
 
@@ -99,6 +110,8 @@ class IndexCache {
 
 			// put the index block in the map
 			this.map.put(indexCacheEntryKey, indexBlock);
+		} else {
+			this.hits.incrementAndGet();
 		}
 
 		// calculate the address of the index entry inside the index block
@@ -108,4 +121,11 @@ class IndexCache {
 		// return the real index entry
 		return Deserializer.getFiveBytesLong(indexBlock, addressInIndexBlock);
 	}
+
+	/**
+	 * @return the number of index lookups whose index block had to be read from the map file.
+	 */
+	long getMisses() {
+		return this.misses.get();
+	}
 }
@@ -17,16 +17,21 @@ package org.mapsforge.map.reader;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.mapsforge.core.model.BoundingBox;
-import org.mapsforge.core.model.LatLong;
-import org.mapsforge.core.model.Tag;
 import org.mapsforge.core.model.Tile;
-import org.mapsforge.core.util.LatLongUtils;
 import org.mapsforge.core.util.MercatorProjection;
 import org.mapsforge.map.reader.header.FileOpenResult;
 import org.mapsforge.map.reader.header.MapFileHeader;
@@ -36,170 +41,107 @@ import org.mapsforge.map.reader.header.SubFileParameter;
 /**
  * A class for reading binary map files.
  * <p>
- * This class is not thread-safe. Each thread should use its own instance.
+ * In the default mode all reads go through a single {@link RandomAccessFile} and are serialized, so one instance
+ * may be shared between threads but only one tile is read at a time. In memory-mapped mode every sub-file is mapped
+ * into memory once and each thread decodes blocks into its own buffer, so tiles can be read concurrently. In both
+ * modes opening and closing a file must not overlap with reads.
  * 
  * @see <a href="https://code.google.com/p/mapsforge/wiki/SpecificationBinaryMapFile">Specification</a>
  */
 public class MapDatabase {
 	/**
-	 * Bitmask to extract the block offset from an index entry.
+	 * A block which is needed by one or more tiles of a batch query.
 	 */
-	private static final long BITMASK_INDEX_OFFSET = 0x7FFFFFFFFFL;
+	private static final class BatchBlock {
+		final long blockNumber;
+		final long indexEntry;
+		final int queryZoomLevel;
+		final SubFileParameter subFileParameter;
+		final List<BatchTile> tiles = new ArrayList<BatchTile>(4);
 
-	/**
-	 * Bitmask to extract the water information from an index entry.
-	 */
-	private static final long BITMASK_INDEX_WATER = 0x8000000000L;
+		BatchBlock(SubFileParameter subFileParameter, long blockNumber, int queryZoomLevel, long indexEntry) {
+			this.subFileParameter = subFileParameter;
+			this.blockNumber = blockNumber;
+			this.queryZoomLevel = queryZoomLevel;
+			this.indexEntry = indexEntry;
+		}
 
-	/**
-	 * Debug message prefix for the block signature.
-	 */
-	private static final String DEBUG_SIGNATURE_BLOCK = "block signature: ";
+		long getFilePosition() {
+			return this.subFileParameter.startAddress + (this.indexEntry & BITMASK_INDEX_OFFSET);
+		}
+	}
 
 	/**
-	 * Debug message prefix for the POI signature.
+	 * A tile of a batch query and the data which has been read for it so far.
 	 */
-	private static final String DEBUG_SIGNATURE_POI = "POI signature: ";
+	private static final class BatchTile {
+		boolean failed;
+		boolean isWater = true;
+		final MapReadResultBuilder mapReadResultBuilder = new MapReadResultBuilder();
+		final QueryParameters queryParameters = new QueryParameters();
+		boolean readWaterInfo;
+		final Tile tile;
 
-	/**
-	 * Debug message prefix for the way signature.
-	 */
-	private static final String DEBUG_SIGNATURE_WAY = "way signature: ";
+		BatchTile(Tile tile) {
+			this.tile = tile;
+		}
 
-	/**
-	 * Amount of cache blocks that the index cache should store.
-	 */
-	private static final int INDEX_CACHE_SIZE = 64;
+		MapReadResult build() {
+			if (this.failed) {
+				return null;
+			}
+			this.mapReadResultBuilder.isWater = this.isWater && this.readWaterInfo;
+			return this.mapReadResultBuilder.build();
+		}
+	}
 
 	/**
-	 * Error message for an invalid first way offset.
+	 * Orders the blocks of a batch query by their position in the map file.
 	 */
-	private static final String INVALID_FIRST_WAY_OFFSET = "invalid first way offset: ";
-
-	private static final Logger LOGGER = Logger.getLogger(MapDatabase.class.getName());
+	private static final Comparator<BatchBlock> BATCH_BLOCK_COMPARATOR = new Comparator<BatchBlock>() {
+		@Override
+		public int compare(BatchBlock batchBlock1, BatchBlock batchBlock2) {
+			long filePosition1 = batchBlock1.getFilePosition();
+			long filePosition2 = batchBlock2.getFilePosition();
+			return filePosition1 < filePosition2 ? -1 : (filePosition1 == filePosition2 ? 0 : 1);
+		}
+	};
 
 	/**
-	 * Bitmask for the optional POI feature "elevation".
+	 * Bitmask to extract the block offset from an index entry.
 	 */
-	private static final int POI_FEATURE_ELEVATION = 0x20;
+	private static final long BITMASK_INDEX_OFFSET = 0x7FFFFFFFFFL;
 
 	/**
-	 * Bitmask for the optional POI feature "house number".
+	 * Bitmask to extract the water information from an index entry.
 	 */
-	private static final int POI_FEATURE_HOUSE_NUMBER = 0x40;
+	private static final long BITMASK_INDEX_WATER = 0x8000000000L;
 
 	/**
-	 * Bitmask for the optional POI feature "name".
+	 * Maximum estimated memory of the decoded blocks in the block cache, in bytes.
 	 */
-	private static final int POI_FEATURE_NAME = 0x80;
+	private static final long BLOCK_CACHE_SIZE = 8 * 1024 * 1024;
 
 	/**
-	 * Bitmask for the POI layer.
+	 * Result of a block which has been skipped.
 	 */
-	private static final int POI_LAYER_BITMASK = 0xf0;
+	private static final PoiWayBundle EMPTY_BUNDLE = new PoiWayBundle(Collections.<PointOfInterest> emptyList(),
+			Collections.<Way> emptyList());
 
 	/**
-	 * Bit shift for calculating the POI layer.
+	 * Amount of cache blocks that the index cache should store.
 	 */
-	private static final int POI_LAYER_SHIFT = 4;
+	private static final int INDEX_CACHE_SIZE = 64;
 
-	/**
-	 * Bitmask for the number of POI tags.
-	 */
-	private static final int POI_NUMBER_OF_TAGS_BITMASK = 0x0f;
+	private static final Logger LOGGER = Logger.getLogger(MapDatabase.class.getName());
 
 	private static final String READ_ONLY_MODE = "r";
 
-	/**
-	 * Length of the debug signature at the beginning of each block.
-	 */
-	private static final byte SIGNATURE_LENGTH_BLOCK = 32;
-
-	/**
-	 * Length of the debug signature at the beginning of each POI.
-	 */
-	private static final byte SIGNATURE_LENGTH_POI = 32;
-
-	/**
-	 * Length of the debug signature at the beginning of each way.
-	 */
-	private static final byte SIGNATURE_LENGTH_WAY = 32;
-
-	/**
-	 * The key of the elevation OpenStreetMap tag.
-	 */
-	private static final String TAG_KEY_ELE = "ele";
-
-	/**
-	 * The key of the house number OpenStreetMap tag.
-	 */
-	private static final String TAG_KEY_HOUSE_NUMBER = "addr:housenumber";
-
-	/**
-	 * The key of the name OpenStreetMap tag.
-	 */
-	private static final String TAG_KEY_NAME = "name";
-
-	/**
-	 * The key of the reference OpenStreetMap tag.
-	 */
-	private static final String TAG_KEY_REF = "ref";
-
-	/**
-	 * Bitmask for the optional way data blocks byte.
-	 */
-	private static final int WAY_FEATURE_DATA_BLOCKS_BYTE = 0x08;
-
-	/**
-	 * Bitmask for the optional way double delta encoding.
-	 */
-	private static final int WAY_FEATURE_DOUBLE_DELTA_ENCODING = 0x04;
-
-	/**
-	 * Bitmask for the optional way feature "house number".
-	 */
-	private static final int WAY_FEATURE_HOUSE_NUMBER = 0x40;
-
-	/**
-	 * Bitmask for the optional way feature "label position".
-	 */
-	private static final int WAY_FEATURE_LABEL_POSITION = 0x10;
-
-	/**
-	 * Bitmask for the optional way feature "name".
-	 */
-	private static final int WAY_FEATURE_NAME = 0x80;
-
-	/**
-	 * Bitmask for the optional way feature "reference".
-	 */
-	private static final int WAY_FEATURE_REF = 0x20;
-
-	/**
-	 * Bitmask for the way layer.
-	 */
-	private static final int WAY_LAYER_BITMASK = 0xf0;
-
-	/**
-	 * Bit shift for calculating the way layer.
-	 */
-	private static final int WAY_LAYER_SHIFT = 4;
-
-	/**
-	 * Bitmask for the number of way tags.
-	 */
-	private static final int WAY_NUMBER_OF_TAGS_BITMASK = 0x0f;
-
-	private IndexCache databaseIndexCache;
-	private long fileSize;
-	private RandomAccessFile inputFile;
-	private MapFileHeader mapFileHeader;
-	private ReadBuffer readBuffer;
-	private String signatureBlock;
-	private String signaturePoi;
-	private String signatureWay;
-	private double tileLatitude;
-	private double tileLongitude;
+	private static long getFiveBytesLong(ByteBuffer buffer, int offset) {
+		return (buffer.get(offset) & 0xffL) << 32 | (buffer.get(offset + 1) & 0xffL) << 24
+				| (buffer.get(offset + 2) & 0xffL) << 16 | (buffer.get(offset + 3) & 0xffL) << 8
+				| (buffer.get(offset + 4) & 0xffL);
+	}
 
 	/**
 	 * Way filtering reduces the number of ways returned to only those that are
@@ -213,12 +155,46 @@ public class MapDatabase {
 	public static boolean wayFilterEnabled = true;
 	public static int wayFilterDistance = 20;
 
+	private volatile BlockCache blockCache;
+	private volatile IndexCache databaseIndexCache;
+	private volatile ThreadLocal<BlockDecoder> decoders;
+	private BlockDecoder fileDecoder;
+	private long fileSize;
+	private RandomAccessFile inputFile;
+	private volatile Map<SubFileParameter, ByteBuffer> mappedSubFiles;
+	private volatile MapFileHeader mapFileHeader;
+	private final boolean memoryMapped;
+
+	/**
+	 * Creates a map database which reads all blocks through a {@link RandomAccessFile}.
+	 */
+	public MapDatabase() {
+		this(false);
+	}
+
+	/**
+	 * @param memoryMapped
+	 *            true if the sub-files of the map file should be memory-mapped, which allows concurrent reads from
+	 *            several threads.
+	 */
+	public MapDatabase(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+
 	/**
 	 * Closes the map file and destroys all internal caches. Has no effect if no map file is currently opened.
 	 */
-	public void closeFile() {
+	public synchronized void closeFile() {
 		try {
 			this.mapFileHeader = null;
+			this.mappedSubFiles = null;
+			this.decoders = null;
+			this.fileDecoder = null;
+
+			if (this.blockCache != null) {
+				this.blockCache.destroy();
+				this.blockCache = null;
+			}
 
 			if (this.databaseIndexCache != null) {
 				this.databaseIndexCache.destroy();
@@ -229,32 +205,71 @@ public class MapDatabase {
 				this.inputFile.close();
 				this.inputFile = null;
 			}
-
-			this.readBuffer = null;
 		} catch (IOException e) {
 			LOGGER.log(Level.SEVERE, null, e);
 		}
 	}
 
+	/**
+	 * @return the number of decoded blocks which were reused from the block cache since the map file was opened.
+	 */
+	public long getBlockCacheHits() {
+		BlockCache cache = this.blockCache;
+		return cache == null ? 0 : cache.getHits();
+	}
+
+	/**
+	 * @return the number of blocks which had to be decoded since the map file was opened.
+	 */
+	public long getBlockCacheMisses() {
+		BlockCache cache = this.blockCache;
+		return cache == null ? 0 : cache.getMisses();
+	}
+
+	/**
+	 * @return the number of index lookups which were served from the index cache since the map file was opened, a
+	 *         memory-mapped map file does not use the index cache.
+	 */
+	public long getIndexCacheHits() {
+		IndexCache cache = this.databaseIndexCache;
+		return cache == null ? 0 : cache.getHits();
+	}
+
+	/**
+	 * @return the number of index lookups which had to read the map file since the map file was opened.
+	 */
+	public long getIndexCacheMisses() {
+		IndexCache cache = this.databaseIndexCache;
+		return cache == null ? 0 : cache.getMisses();
+	}
+
 	/**
 	 * @return the metadata for the current map file.
 	 * @throws IllegalStateException
 	 *             if no map is currently opened.
 	 */
 	public MapFileInfo getMapFileInfo() {
-		if (this.mapFileHeader == null) {
+		MapFileHeader header = this.mapFileHeader;
+		if (header == null) {
 			throw new IllegalStateException("no map file is currently opened");
 		}
-		return this.mapFileHeader.getMapFileInfo();
+		return header.getMapFileInfo();
 	}
 
 	/**
 	 * @return true if a map file is currently opened, false otherwise.
 	 */
-	public boolean hasOpenFile() {
+	public synchronized boolean hasOpenFile() {
 		return this.inputFile != null;
 	}
 
+	/**
+	 * @return true if this map database reads memory-mapped sub-files, false otherwise.
+	 */
+	public boolean isMemoryMapped() {
+		return this.memoryMapped;
+	}
+
 	/**
 	 * Opens the given map file, reads its header data and validates them.
 	 * 
@@ -264,7 +279,7 @@ public class MapDatabase {
 	 * @throws IllegalArgumentException
 	 *             if the given map file is null.
 	 */
-	public FileOpenResult openFile(File mapFile) {
+	public synchronized FileOpenResult openFile(File mapFile) {
 		try {
 			if (mapFile == null) {
 				throw new IllegalArgumentException("mapFile must not be null");
@@ -286,14 +301,29 @@ public class MapDatabase {
 			this.inputFile = new RandomAccessFile(mapFile, READ_ONLY_MODE);
 			this.fileSize = this.inputFile.length();
 
-			this.readBuffer = new ReadBuffer(this.inputFile);
-			this.mapFileHeader = new MapFileHeader();
-			FileOpenResult fileOpenResult = this.mapFileHeader.readHeader(this.readBuffer, this.fileSize);
+			ReadBuffer readBuffer = new ReadBuffer(this.inputFile);
+			MapFileHeader header = new MapFileHeader();
+			FileOpenResult fileOpenResult = header.readHeader(readBuffer, this.fileSize);
 			if (!fileOpenResult.isSuccess()) {
 				closeFile();
 				return fileOpenResult;
 			}
 
+			final MapFileInfo mapFileInfo = header.getMapFileInfo();
+			final TagPool tagPool = new TagPool();
+			this.fileDecoder = new BlockDecoder(readBuffer, mapFileInfo, tagPool);
+			this.blockCache = new BlockCache(BLOCK_CACHE_SIZE);
+			if (this.memoryMapped) {
+				this.mappedSubFiles = mapSubFiles(header);
+				this.decoders = new ThreadLocal<BlockDecoder>() {
+					@Override
+					protected BlockDecoder initialValue() {
+						return new BlockDecoder(new ReadBuffer(null), mapFileInfo, tagPool);
+					}
+				};
+			}
+			this.mapFileHeader = header;
+
 			return FileOpenResult.SUCCESS;
 		} catch (IOException e) {
 			LOGGER.log(Level.SEVERE, null, e);
@@ -311,166 +341,72 @@ public class MapDatabase {
 	 * @return the read map data.
 	 */
 	public MapReadResult readMapData(Tile tile) {
-		try {
-			prepareExecution();
-			QueryParameters queryParameters = new QueryParameters();
-			queryParameters.queryZoomLevel = this.mapFileHeader.getQueryZoomLevel(tile.zoomLevel);
-
-			// get and check the sub-file for the query zoom level
-			SubFileParameter subFileParameter = this.mapFileHeader.getSubFileParameter(queryParameters.queryZoomLevel);
-			if (subFileParameter == null) {
-				LOGGER.warning("no sub-file for zoom level: " + queryParameters.queryZoomLevel);
-				return null;
-			}
-
-			QueryCalculations.calculateBaseTiles(queryParameters, tile, subFileParameter);
-			QueryCalculations.calculateBlocks(queryParameters, subFileParameter);
-
-			// we enlarge the bounding box for the tile slightly in order to retain any data that
-			// lies right on the border, some of this data needs to be drawn as the graphics will
-			// overlap onto this tile.
-			return processBlocks(queryParameters, subFileParameter, tile.getBoundingBox());
-		} catch (IOException e) {
-			LOGGER.log(Level.SEVERE, null, e);
-			return null;
+		Map<SubFileParameter, ByteBuffer> subFiles = this.mappedSubFiles;
+		ThreadLocal<BlockDecoder> threadDecoders = this.decoders;
+		if (subFiles != null && threadDecoders != null) {
+			return readMapData(tile, threadDecoders.get(), subFiles);
 		}
-	}
-
-	private void decodeWayNodesDoubleDelta(LatLong[] waySegment) {
-		// get the first way node latitude offset (VBE-S)
-		double wayNodeLatitude = this.tileLatitude
-				+ LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-		// get the first way node longitude offset (VBE-S)
-		double wayNodeLongitude = this.tileLongitude
-				+ LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
 
-		// store the first way node
-		waySegment[0] = new LatLong(wayNodeLatitude, wayNodeLongitude);
-
-		double previousSingleDeltaLatitude = 0;
-		double previousSingleDeltaLongitude = 0;
-
-		for (int wayNodesIndex = 1; wayNodesIndex < waySegment.length; ++wayNodesIndex) {
-			// get the way node latitude double-delta offset (VBE-S)
-			double doubleDeltaLatitude = LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-			// get the way node longitude double-delta offset (VBE-S)
-			double doubleDeltaLongitude = LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-			double singleDeltaLatitude = doubleDeltaLatitude + previousSingleDeltaLatitude;
-			double singleDeltaLongitude = doubleDeltaLongitude + previousSingleDeltaLongitude;
-
-			wayNodeLatitude = wayNodeLatitude + singleDeltaLatitude;
-			wayNodeLongitude = wayNodeLongitude + singleDeltaLongitude;
-
-			waySegment[wayNodesIndex] = new LatLong(wayNodeLatitude, wayNodeLongitude);
-
-			previousSingleDeltaLatitude = singleDeltaLatitude;
-			previousSingleDeltaLongitude = singleDeltaLongitude;
-		}
-	}
-
-	private void decodeWayNodesSingleDelta(LatLong[] waySegment) {
-		// get the first way node latitude single-delta offset (VBE-S)
-		double wayNodeLatitude = this.tileLatitude
-				+ LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-		// get the first way node longitude single-delta offset (VBE-S)
-		double wayNodeLongitude = this.tileLongitude
-				+ LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-		// store the first way node
-		waySegment[0] = new LatLong(wayNodeLatitude, wayNodeLongitude);
-
-		for (int wayNodesIndex = 1; wayNodesIndex < waySegment.length; ++wayNodesIndex) {
-			// get the way node latitude offset (VBE-S)
-			wayNodeLatitude = wayNodeLatitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-			// get the way node longitude offset (VBE-S)
-			wayNodeLongitude = wayNodeLongitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-			waySegment[wayNodesIndex] = new LatLong(wayNodeLatitude, wayNodeLongitude);
+		synchronized (this) {
+			prepareExecution();
+			return readMapData(tile, this.fileDecoder, null);
 		}
 	}
 
 	/**
-	 * Logs the debug signatures of the current way and block.
-	 */
-	private void logDebugSignatures() {
-		if (this.mapFileHeader.getMapFileInfo().debugFile) {
-			LOGGER.warning(DEBUG_SIGNATURE_WAY + this.signatureWay);
-			LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+	 * Reads all map data for the areas covered by the given tiles at their tile zoom levels.
+	 * <p>
+	 * Rendering a screen needs many adjacent tiles which are mostly stored in the same blocks. Compared to reading every
+	 * tile on its own, each block is read and decoded only once, the blocks are read in the order of their position in
+	 * the map file and the index is only accessed once per block.
+	 * 
+	 * @param tiles
+	 *            defines areas and zoom levels of read map data.
+	 * @return the read map data for every distinct tile in the order of the given tiles, a tile is mapped to null if
+	 *         its data could not be read. The map is null if the map file could not be read at all.
+	 */
+	public Map<Tile, MapReadResult> readMapData(Collection<Tile> tiles) {
+		Map<SubFileParameter, ByteBuffer> subFiles = this.mappedSubFiles;
+		ThreadLocal<BlockDecoder> threadDecoders = this.decoders;
+		if (subFiles != null && threadDecoders != null) {
+			return readMapData(tiles, threadDecoders.get(), subFiles);
 		}
-	}
 
-	private void prepareExecution() {
-		if (this.databaseIndexCache == null) {
-			this.databaseIndexCache = new IndexCache(this.inputFile, INDEX_CACHE_SIZE);
+		synchronized (this) {
+			prepareExecution();
+			return readMapData(tiles, this.fileDecoder, null);
 		}
 	}
 
-	private PoiWayBundle processBlock(QueryParameters queryParameters, SubFileParameter subFileParameter,
-	                                  BoundingBox boundingBox) {
-		if (!processBlockSignature()) {
-			return null;
-		}
-
-		int[][] zoomTable = readZoomTable(subFileParameter);
-		int zoomTableRow = queryParameters.queryZoomLevel - subFileParameter.zoomLevelMin;
-		int poisOnQueryZoomLevel = zoomTable[zoomTableRow][0];
-		int waysOnQueryZoomLevel = zoomTable[zoomTableRow][1];
-
-		// get the relative offset to the first stored way in the block
-		int firstWayOffset = this.readBuffer.readUnsignedInt();
-		if (firstWayOffset < 0) {
-			LOGGER.warning(INVALID_FIRST_WAY_OFFSET + firstWayOffset);
-			if (this.mapFileHeader.getMapFileInfo().debugFile) {
-				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
-			}
-			return null;
-		}
-
-		// add the current buffer position to the relative first way offset
-		firstWayOffset += this.readBuffer.getBufferPosition();
-		if (firstWayOffset > this.readBuffer.getBufferSize()) {
-			LOGGER.warning(INVALID_FIRST_WAY_OFFSET + firstWayOffset);
-			if (this.mapFileHeader.getMapFileInfo().debugFile) {
-				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+	private Map<SubFileParameter, ByteBuffer> mapSubFiles(MapFileHeader header) throws IOException {
+		Map<SubFileParameter, ByteBuffer> subFiles = new HashMap<SubFileParameter, ByteBuffer>();
+		FileChannel fileChannel = this.inputFile.getChannel();
+		for (int zoomLevel = 0; zoomLevel <= Byte.MAX_VALUE; ++zoomLevel) {
+			SubFileParameter subFileParameter = header.getSubFileParameter(header.getQueryZoomLevel((byte) zoomLevel));
+			if (subFileParameter == null || subFiles.containsKey(subFileParameter)) {
+				continue;
 			}
-			return null;
-		}
-
-		boolean filterRequired = queryParameters.queryZoomLevel > subFileParameter.baseZoomLevel;
-
-		List<PointOfInterest> pois = processPOIs(poisOnQueryZoomLevel, boundingBox, filterRequired);
-		if (pois == null) {
-			return null;
-		}
-
-		// finished reading POIs, check if the current buffer position is valid
-		if (this.readBuffer.getBufferPosition() > firstWayOffset) {
-			LOGGER.warning("invalid buffer position: " + this.readBuffer.getBufferPosition());
-			if (this.mapFileHeader.getMapFileInfo().debugFile) {
-				LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
+			if (subFileParameter.subFileSize > Integer.MAX_VALUE) {
+				// a single mapping is limited to 2 GB, fall back to reading the file
+				LOGGER.warning("sub-file too large to be memory-mapped: " + subFileParameter.subFileSize);
+				return null;
 			}
-			return null;
+			subFiles.put(subFileParameter, fileChannel.map(FileChannel.MapMode.READ_ONLY,
+					subFileParameter.startAddress, subFileParameter.subFileSize));
 		}
+		return subFiles;
+	}
 
-		// move the pointer to the first way
-		this.readBuffer.setBufferPosition(firstWayOffset);
-
-		List<Way> ways = processWays(queryParameters, waysOnQueryZoomLevel, boundingBox, filterRequired);
-		if (ways == null) {
-			return null;
+	private void prepareExecution() {
+		if (this.databaseIndexCache == null) {
+			this.databaseIndexCache = new IndexCache(this.inputFile, INDEX_CACHE_SIZE);
 		}
-
-		return new PoiWayBundle(pois, ways);
 	}
 
 	private MapReadResult processBlocks(QueryParameters queryParameters, SubFileParameter subFileParameter,
-	                                    BoundingBox boundingBox)
+	                                    BoundingBox boundingBox, BlockDecoder blockDecoder, ByteBuffer subFile)
 			throws IOException {
+		boolean filterRequired = queryParameters.queryZoomLevel > subFileParameter.baseZoomLevel;
 		boolean queryIsWater = true;
 		boolean queryReadWaterInfo = false;
 
@@ -483,7 +419,7 @@ public class MapDatabase {
 				long blockNumber = row * subFileParameter.blocksWidth + column;
 
 				// get the current index entry
-				long currentBlockIndexEntry = this.databaseIndexCache.getIndexEntry(subFileParameter, blockNumber);
+				long currentBlockIndexEntry = readIndexEntry(subFileParameter, blockNumber, subFile);
 
 				// check if the current query would still return a water tile
 				if (queryIsWater) {
@@ -492,71 +428,12 @@ public class MapDatabase {
 					queryReadWaterInfo = true;
 				}
 
-				// get and check the current block pointer
-				long currentBlockPointer = currentBlockIndexEntry & BITMASK_INDEX_OFFSET;
-				if (currentBlockPointer < 1 || currentBlockPointer > subFileParameter.subFileSize) {
-					LOGGER.warning("invalid current block pointer: " + currentBlockPointer);
-					LOGGER.warning("subFileSize: " + subFileParameter.subFileSize);
-					return null;
-				}
-
-				long nextBlockPointer;
-				// check if the current block is the last block in the file
-				if (blockNumber + 1 == subFileParameter.numberOfBlocks) {
-					// set the next block pointer to the end of the file
-					nextBlockPointer = subFileParameter.subFileSize;
-				} else {
-					// get and check the next block pointer
-					nextBlockPointer = this.databaseIndexCache.getIndexEntry(subFileParameter, blockNumber + 1)
-							& BITMASK_INDEX_OFFSET;
-					if (nextBlockPointer > subFileParameter.subFileSize) {
-						LOGGER.warning("invalid next block pointer: " + nextBlockPointer);
-						LOGGER.warning("sub-file size: " + subFileParameter.subFileSize);
-						return null;
-					}
-				}
-
-				// calculate the size of the current block
-				int currentBlockSize = (int) (nextBlockPointer - currentBlockPointer);
-				if (currentBlockSize < 0) {
-					LOGGER.warning("current block size must not be negative: " + currentBlockSize);
-					return null;
-				} else if (currentBlockSize == 0) {
-					// the current block is empty, continue with the next block
-					continue;
-				} else if (currentBlockSize > ReadBuffer.MAXIMUM_BUFFER_SIZE) {
-					// the current block is too large, continue with the next block
-					LOGGER.warning("current block size too large: " + currentBlockSize);
-					continue;
-				} else if (currentBlockPointer + currentBlockSize > this.fileSize) {
-					LOGGER.warning("current block largher than file size: " + currentBlockSize);
+				PoiWayBundle poiWayBundle = processBlock(queryParameters.queryZoomLevel, subFileParameter,
+						blockNumber, currentBlockIndexEntry, blockDecoder, subFile);
+				if (poiWayBundle == null) {
 					return null;
 				}
-
-				// seek to the current block in the map file
-				this.inputFile.seek(subFileParameter.startAddress + currentBlockPointer);
-
-				// read the current block into the buffer
-				if (!this.readBuffer.readFromFile(currentBlockSize)) {
-					// skip the current block
-					LOGGER.warning("reading current block has failed: " + currentBlockSize);
-					return null;
-				}
-
-				// calculate the top-left coordinates of the underlying tile
-				this.tileLatitude = MercatorProjection.tileYToLatitude(subFileParameter.boundaryTileTop + row,
-						subFileParameter.baseZoomLevel);
-				this.tileLongitude = MercatorProjection.tileXToLongitude(subFileParameter.boundaryTileLeft + column,
-						subFileParameter.baseZoomLevel);
-
-				try {
-					PoiWayBundle poiWayBundle = processBlock(queryParameters, subFileParameter, boundingBox);
-					if (poiWayBundle != null) {
-						mapReadResultBuilder.add(poiWayBundle);
-					}
-				} catch (ArrayIndexOutOfBoundsException e) {
-					LOGGER.log(Level.SEVERE, null, e);
-				}
+				mapReadResultBuilder.add(poiWayBundle.filter(queryParameters, boundingBox, filterRequired));
 			}
 		}
 
@@ -569,290 +446,227 @@ public class MapDatabase {
 	}
 
 	/**
-	 * Processes the block signature, if present.
+	 * Reads and decodes a single block or gets it from the block cache.
 	 * 
-	 * @return true if the block signature could be processed successfully, false otherwise.
+	 * @return the decoded block, an empty bundle if the block has been skipped or null, if the block is invalid.
 	 */
-	private boolean processBlockSignature() {
-		if (this.mapFileHeader.getMapFileInfo().debugFile) {
-			// get and check the block signature
-			this.signatureBlock = this.readBuffer.readUTF8EncodedString(SIGNATURE_LENGTH_BLOCK);
-			if (!this.signatureBlock.startsWith("###TileStart")) {
-				LOGGER.warning("invalid block signature: " + this.signatureBlock);
-				return false;
-			}
+	private PoiWayBundle processBlock(int queryZoomLevel, SubFileParameter subFileParameter, long blockNumber,
+	                                  long currentBlockIndexEntry, BlockDecoder blockDecoder, ByteBuffer subFile)
+			throws IOException {
+		// adjacent tiles are mostly read from the same blocks, decode each block only once
+		BlockCache cache = this.blockCache;
+		BlockCacheEntryKey blockCacheEntryKey = new BlockCacheEntryKey(subFileParameter, blockNumber,
+				queryZoomLevel);
+		PoiWayBundle poiWayBundle = cache == null ? null : cache.get(blockCacheEntryKey);
+		if (poiWayBundle != null) {
+			return poiWayBundle;
 		}
-		return true;
-	}
-
-	private List<PointOfInterest> processPOIs(int numberOfPois, BoundingBox boundingBox, boolean filterRequired) {
-		List<PointOfInterest> pois = new ArrayList<PointOfInterest>();
-		Tag[] poiTags = this.mapFileHeader.getMapFileInfo().poiTags;
-
-		for (int elementCounter = numberOfPois; elementCounter != 0; --elementCounter) {
-			if (this.mapFileHeader.getMapFileInfo().debugFile) {
-				// get and check the POI signature
-				this.signaturePoi = this.readBuffer.readUTF8EncodedString(SIGNATURE_LENGTH_POI);
-				if (!this.signaturePoi.startsWith("***POIStart")) {
-					LOGGER.warning("invalid POI signature: " + this.signaturePoi);
-					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
-					return null;
-				}
-			}
-
-			// get the POI latitude offset (VBE-S)
-			double latitude = this.tileLatitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-			// get the POI longitude offset (VBE-S)
-			double longitude = this.tileLongitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-			// get the special byte which encodes multiple flags
-			byte specialByte = this.readBuffer.readByte();
-
-			// bit 1-4 represent the layer
-			byte layer = (byte) ((specialByte & POI_LAYER_BITMASK) >>> POI_LAYER_SHIFT);
-			// bit 5-8 represent the number of tag IDs
-			byte numberOfTags = (byte) (specialByte & POI_NUMBER_OF_TAGS_BITMASK);
 
-			List<Tag> tags = new ArrayList<Tag>();
+		// get and check the current block pointer
+		long currentBlockPointer = currentBlockIndexEntry & BITMASK_INDEX_OFFSET;
+		if (currentBlockPointer < 1 || currentBlockPointer > subFileParameter.subFileSize) {
+			LOGGER.warning("invalid current block pointer: " + currentBlockPointer);
+			LOGGER.warning("subFileSize: " + subFileParameter.subFileSize);
+			return null;
+		}
 
-			// get the tag IDs (VBE-U)
-			for (byte tagIndex = numberOfTags; tagIndex != 0; --tagIndex) {
-				int tagId = this.readBuffer.readUnsignedInt();
-				if (tagId < 0 || tagId >= poiTags.length) {
-					LOGGER.warning("invalid POI tag ID: " + tagId);
-					if (this.mapFileHeader.getMapFileInfo().debugFile) {
-						LOGGER.warning(DEBUG_SIGNATURE_POI + this.signaturePoi);
-						LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
-					}
-					return null;
-				}
-				tags.add(poiTags[tagId]);
+		long nextBlockPointer;
+		// check if the current block is the last block in the file
+		if (blockNumber + 1 == subFileParameter.numberOfBlocks) {
+			// set the next block pointer to the end of the file
+			nextBlockPointer = subFileParameter.subFileSize;
+		} else {
+			// get and check the next block pointer
+			nextBlockPointer = readIndexEntry(subFileParameter, blockNumber + 1, subFile) & BITMASK_INDEX_OFFSET;
+			if (nextBlockPointer > subFileParameter.subFileSize) {
+				LOGGER.warning("invalid next block pointer: " + nextBlockPointer);
+				LOGGER.warning("sub-file size: " + subFileParameter.subFileSize);
+				return null;
 			}
+		}
 
-			// get the feature bitmask (1 byte)
-			byte featureByte = this.readBuffer.readByte();
+		// calculate the size of the current block
+		int currentBlockSize = (int) (nextBlockPointer - currentBlockPointer);
+		if (currentBlockSize < 0) {
+			LOGGER.warning("current block size must not be negative: " + currentBlockSize);
+			return null;
+		} else if (currentBlockSize == 0) {
+			// the current block is empty, continue with the next block
+			return EMPTY_BUNDLE;
+		} else if (currentBlockSize > ReadBuffer.MAXIMUM_BUFFER_SIZE) {
+			// the current block is too large, continue with the next block
+			LOGGER.warning("current block size too large: " + currentBlockSize);
+			return EMPTY_BUNDLE;
+		} else if (currentBlockPointer + currentBlockSize > this.fileSize) {
+			LOGGER.warning("current block largher than file size: " + currentBlockSize);
+			return null;
+		}
 
-			// bit 1-3 enable optional features
-			boolean featureName = (featureByte & POI_FEATURE_NAME) != 0;
-			boolean featureHouseNumber = (featureByte & POI_FEATURE_HOUSE_NUMBER) != 0;
-			boolean featureElevation = (featureByte & POI_FEATURE_ELEVATION) != 0;
+		// read the current block into the buffer
+		if (!readBlock(blockDecoder.readBuffer, subFileParameter, currentBlockPointer, currentBlockSize, subFile)) {
+			// skip the current block
+			LOGGER.warning("reading current block has failed: " + currentBlockSize);
+			return null;
+		}
 
-			// check if the POI has a name
-			if (featureName) {
-				tags.add(new Tag(TAG_KEY_NAME, this.readBuffer.readUTF8EncodedString()));
-			}
+		// calculate the top-left coordinates of the underlying tile
+		long row = blockNumber / subFileParameter.blocksWidth;
+		long column = blockNumber % subFileParameter.blocksWidth;
+		double tileLatitude = MercatorProjection.tileYToLatitude(subFileParameter.boundaryTileTop + row,
+				subFileParameter.baseZoomLevel);
+		double tileLongitude = MercatorProjection.tileXToLongitude(subFileParameter.boundaryTileLeft + column,
+				subFileParameter.baseZoomLevel);
 
-			// check if the POI has a house number
-			if (featureHouseNumber) {
-				tags.add(new Tag(TAG_KEY_HOUSE_NUMBER, this.readBuffer.readUTF8EncodedString()));
+		try {
+			poiWayBundle = blockDecoder.decodeBlock(queryZoomLevel, subFileParameter, tileLatitude, tileLongitude);
+			if (poiWayBundle == null) {
+				return EMPTY_BUNDLE;
 			}
-
-			// check if the POI has an elevation
-			if (featureElevation) {
-				tags.add(new Tag(TAG_KEY_ELE, Integer.toString(this.readBuffer.readSignedInt())));
+			if (cache != null) {
+				cache.put(blockCacheEntryKey, poiWayBundle);
 			}
+			return poiWayBundle;
+		} catch (ArrayIndexOutOfBoundsException e) {
+			LOGGER.log(Level.SEVERE, null, e);
+			return EMPTY_BUNDLE;
+		}
+	}
 
-			LatLong position = new LatLong(latitude, longitude);
-			// depending on the zoom level configuration the poi can lie outside
-			// the tile requested, we filter them out here
-			if (!filterRequired || boundingBox.contains(position)) {
-				pois.add(new PointOfInterest(layer, tags, position));
-			}
+	private boolean readBlock(ReadBuffer readBuffer, SubFileParameter subFileParameter, long blockPointer,
+	                          int blockSize, ByteBuffer subFile) throws IOException {
+		if (subFile != null) {
+			// the block pointer is relative to the start of the mapped sub-file
+			return readBuffer.readFromBuffer(subFile, (int) blockPointer, blockSize);
 		}
 
-		return pois;
+		// seek to the current block in the map file
+		this.inputFile.seek(subFileParameter.startAddress + blockPointer);
+		return readBuffer.readFromFile(blockSize);
 	}
 
-	private LatLong[][] processWayDataBlock(boolean doubleDeltaEncoding) {
-		// get and check the number of way coordinate blocks (VBE-U)
-		int numberOfWayCoordinateBlocks = this.readBuffer.readUnsignedInt();
-		if (numberOfWayCoordinateBlocks < 1 || numberOfWayCoordinateBlocks > Short.MAX_VALUE) {
-			LOGGER.warning("invalid number of way coordinate blocks: " + numberOfWayCoordinateBlocks);
-			logDebugSignatures();
-			return null;
+	private long readIndexEntry(SubFileParameter subFileParameter, long blockNumber, ByteBuffer subFile)
+			throws IOException {
+		if (subFile != null) {
+			// the index is part of the mapped sub-file, no cache is needed
+			if (blockNumber >= subFileParameter.numberOfBlocks) {
+				throw new IOException("invalid block number: " + blockNumber);
+			}
+			long indexEntryPosition = subFileParameter.indexStartAddress - subFileParameter.startAddress
+					+ blockNumber * SubFileParameter.BYTES_PER_INDEX_ENTRY;
+			return getFiveBytesLong(subFile, (int) indexEntryPosition);
 		}
+		return this.databaseIndexCache.getIndexEntry(subFileParameter, blockNumber);
+	}
 
-		// create the array which will store the different way coordinate blocks
-		LatLong[][] wayCoordinates = new LatLong[numberOfWayCoordinateBlocks][];
-
-		// read the way coordinate blocks
-		for (int coordinateBlock = 0; coordinateBlock < numberOfWayCoordinateBlocks; ++coordinateBlock) {
-			// get and check the number of way nodes (VBE-U)
-			int numberOfWayNodes = this.readBuffer.readUnsignedInt();
-			if (numberOfWayNodes < 2 || numberOfWayNodes > Short.MAX_VALUE) {
-				LOGGER.warning("invalid number of way nodes: " + numberOfWayNodes);
-				logDebugSignatures();
-				// returning null here will actually leave the tile blank as the
-				// position on the ReadBuffer will not be advanced correctly. However,
-				// it will not crash the app.
+	private MapReadResult readMapData(Tile tile, BlockDecoder blockDecoder,
+	                                  Map<SubFileParameter, ByteBuffer> subFiles) {
+		try {
+			MapFileHeader header = this.mapFileHeader;
+			QueryParameters queryParameters = new QueryParameters();
+			queryParameters.queryZoomLevel = header.getQueryZoomLevel(tile.zoomLevel);
+
+			// get and check the sub-file for the query zoom level
+			SubFileParameter subFileParameter = header.getSubFileParameter(queryParameters.queryZoomLevel);
+			if (subFileParameter == null) {
+				LOGGER.warning("no sub-file for zoom level: " + queryParameters.queryZoomLevel);
 				return null;
 			}
 
-			// create the array which will store the current way segment
-			LatLong[] waySegment = new LatLong[numberOfWayNodes];
+			QueryCalculations.calculateBaseTiles(queryParameters, tile, subFileParameter);
+			QueryCalculations.calculateBlocks(queryParameters, subFileParameter);
 
-			if (doubleDeltaEncoding) {
-				decodeWayNodesDoubleDelta(waySegment);
-			} else {
-				decodeWayNodesSingleDelta(waySegment);
-			}
+			ByteBuffer subFile = subFiles == null ? null : subFiles.get(subFileParameter);
 
-			wayCoordinates[coordinateBlock] = waySegment;
+			// we enlarge the bounding box for the tile slightly in order to retain any data that
+			// lies right on the border, some of this data needs to be drawn as the graphics will
+			// overlap onto this tile.
+			return processBlocks(queryParameters, subFileParameter, tile.getBoundingBox(), blockDecoder, subFile);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, null, e);
+			return null;
 		}
-
-		return wayCoordinates;
 	}
 
-	private List<Way> processWays(QueryParameters queryParameters, int numberOfWays,
-	                              BoundingBox boundingBox, boolean filterRequired) {
-		List<Way> ways = new ArrayList<Way>();
-		Tag[] wayTags = this.mapFileHeader.getMapFileInfo().wayTags;
-
-		BoundingBox wayFilterBbox = boundingBox.extend(wayFilterDistance);
+	private Map<Tile, MapReadResult> readMapData(Collection<Tile> tiles, BlockDecoder blockDecoder,
+	                                             Map<SubFileParameter, ByteBuffer> subFiles) {
+		try {
+			MapFileHeader header = this.mapFileHeader;
+			Map<Tile, BatchTile> batchTiles = new LinkedHashMap<Tile, BatchTile>();
+			Map<BlockCacheEntryKey, BatchBlock> batchBlocks = new HashMap<BlockCacheEntryKey, BatchBlock>();
 
-		for (int elementCounter = numberOfWays; elementCounter != 0; --elementCounter) {
-			if (this.mapFileHeader.getMapFileInfo().debugFile) {
-				// get and check the way signature
-				this.signatureWay = this.readBuffer.readUTF8EncodedString(SIGNATURE_LENGTH_WAY);
-				if (!this.signatureWay.startsWith("---WayStart")) {
-					LOGGER.warning("invalid way signature: " + this.signatureWay);
-					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
-					return null;
+			// collect the union of all blocks which are needed by the tiles
+			for (Tile tile : tiles) {
+				if (batchTiles.containsKey(tile)) {
+					continue;
 				}
-			}
+				BatchTile batchTile = new BatchTile(tile);
+				batchTiles.put(tile, batchTile);
 
-			// get the size of the way (VBE-U)
-			int wayDataSize = this.readBuffer.readUnsignedInt();
-			if (wayDataSize < 0) {
-				LOGGER.warning("invalid way data size: " + wayDataSize);
-				if (this.mapFileHeader.getMapFileInfo().debugFile) {
-					LOGGER.warning(DEBUG_SIGNATURE_BLOCK + this.signatureBlock);
-				}
-				return null;
-			}
+				QueryParameters queryParameters = batchTile.queryParameters;
+				queryParameters.queryZoomLevel = header.getQueryZoomLevel(tile.zoomLevel);
 
-			if (queryParameters.useTileBitmask) {
-				// get the way tile bitmask (2 bytes)
-				int tileBitmask = this.readBuffer.readShort();
-				// check if the way is inside the requested tile
-				if ((queryParameters.queryTileBitmask & tileBitmask) == 0) {
-					// skip the rest of the way and continue with the next way
-					this.readBuffer.skipBytes(wayDataSize - 2);
+				// get and check the sub-file for the query zoom level
+				SubFileParameter subFileParameter = header.getSubFileParameter(queryParameters.queryZoomLevel);
+				if (subFileParameter == null) {
+					LOGGER.warning("no sub-file for zoom level: " + queryParameters.queryZoomLevel);
+					batchTile.failed = true;
 					continue;
 				}
-			} else {
-				// ignore the way tile bitmask (2 bytes)
-				this.readBuffer.skipBytes(2);
-			}
-
-			// get the special byte which encodes multiple flags
-			byte specialByte = this.readBuffer.readByte();
-
-			// bit 1-4 represent the layer
-			byte layer = (byte) ((specialByte & WAY_LAYER_BITMASK) >>> WAY_LAYER_SHIFT);
-			// bit 5-8 represent the number of tag IDs
-			byte numberOfTags = (byte) (specialByte & WAY_NUMBER_OF_TAGS_BITMASK);
 
-			List<Tag> tags = new ArrayList<Tag>();
-
-			for (byte tagIndex = numberOfTags; tagIndex != 0; --tagIndex) {
-				int tagId = this.readBuffer.readUnsignedInt();
-				if (tagId < 0 || tagId >= wayTags.length) {
-					LOGGER.warning("invalid way tag ID: " + tagId);
-					logDebugSignatures();
-					return null;
+				QueryCalculations.calculateBaseTiles(queryParameters, tile, subFileParameter);
+				QueryCalculations.calculateBlocks(queryParameters, subFileParameter);
+
+				ByteBuffer subFile = subFiles == null ? null : subFiles.get(subFileParameter);
+				for (long row = queryParameters.fromBlockY; row <= queryParameters.toBlockY; ++row) {
+					for (long column = queryParameters.fromBlockX; column <= queryParameters.toBlockX; ++column) {
+						long blockNumber = row * subFileParameter.blocksWidth + column;
+						BlockCacheEntryKey key = new BlockCacheEntryKey(subFileParameter, blockNumber,
+								queryParameters.queryZoomLevel);
+						BatchBlock batchBlock = batchBlocks.get(key);
+						if (batchBlock == null) {
+							long indexEntry = readIndexEntry(subFileParameter, blockNumber, subFile);
+							batchBlock = new BatchBlock(subFileParameter, blockNumber, queryParameters.queryZoomLevel,
+									indexEntry);
+							batchBlocks.put(key, batchBlock);
+						}
+						batchBlock.tiles.add(batchTile);
+
+						// check the water flag of the block in its index entry
+						batchTile.isWater &= (batchBlock.indexEntry & BITMASK_INDEX_WATER) != 0;
+						batchTile.readWaterInfo = true;
+					}
 				}
-				tags.add(wayTags[tagId]);
-			}
-
-			// get the feature bitmask (1 byte)
-			byte featureByte = this.readBuffer.readByte();
-
-			// bit 1-6 enable optional features
-			boolean featureName = (featureByte & WAY_FEATURE_NAME) != 0;
-			boolean featureHouseNumber = (featureByte & WAY_FEATURE_HOUSE_NUMBER) != 0;
-			boolean featureRef = (featureByte & WAY_FEATURE_REF) != 0;
-			boolean featureLabelPosition = (featureByte & WAY_FEATURE_LABEL_POSITION) != 0;
-			boolean featureWayDataBlocksByte = (featureByte & WAY_FEATURE_DATA_BLOCKS_BYTE) != 0;
-			boolean featureWayDoubleDeltaEncoding = (featureByte & WAY_FEATURE_DOUBLE_DELTA_ENCODING) != 0;
-
-			// check if the way has a name
-			if (featureName) {
-				tags.add(new Tag(TAG_KEY_NAME, this.readBuffer.readUTF8EncodedString()));
 			}
 
-			// check if the way has a house number
-			if (featureHouseNumber) {
-				tags.add(new Tag(TAG_KEY_HOUSE_NUMBER, this.readBuffer.readUTF8EncodedString()));
-			}
-
-			// check if the way has a reference
-			if (featureRef) {
-				tags.add(new Tag(TAG_KEY_REF, this.readBuffer.readUTF8EncodedString()));
-			}
-
-			LatLong labelPosition = readOptionalLabelPosition(featureLabelPosition);
-
-			int wayDataBlocks = readOptionalWayDataBlocksByte(featureWayDataBlocksByte);
-			if (wayDataBlocks < 1) {
-				LOGGER.warning("invalid number of way data blocks: " + wayDataBlocks);
-				logDebugSignatures();
-				return null;
-			}
-
-			for (int wayDataBlock = 0; wayDataBlock < wayDataBlocks; ++wayDataBlock) {
-				LatLong[][] wayNodes = processWayDataBlock(featureWayDoubleDeltaEncoding);
-				if (wayNodes != null) {
-					if (filterRequired && wayFilterEnabled && !wayFilterBbox.intersectsArea(wayNodes)) {
-						continue;
+			// read each block once, sequentially in the order of the map file
+			List<BatchBlock> sortedBlocks = new ArrayList<BatchBlock>(batchBlocks.values());
+			Collections.sort(sortedBlocks, BATCH_BLOCK_COMPARATOR);
+			for (BatchBlock batchBlock : sortedBlocks) {
+				SubFileParameter subFileParameter = batchBlock.subFileParameter;
+				ByteBuffer subFile = subFiles == null ? null : subFiles.get(subFileParameter);
+				PoiWayBundle poiWayBundle = processBlock(batchBlock.queryZoomLevel, subFileParameter,
+						batchBlock.blockNumber, batchBlock.indexEntry, blockDecoder, subFile);
+
+				// split the decoded elements to the tiles which they intersect
+				boolean filterRequired = batchBlock.queryZoomLevel > subFileParameter.baseZoomLevel;
+				for (BatchTile batchTile : batchBlock.tiles) {
+					if (poiWayBundle == null) {
+						batchTile.failed = true;
+					} else if (!batchTile.failed) {
+						batchTile.mapReadResultBuilder.add(poiWayBundle.filter(batchTile.queryParameters,
+								batchTile.tile.getBoundingBox(), filterRequired));
 					}
-					ways.add(new Way(layer, tags, wayNodes, labelPosition));
 				}
 			}
-		}
 
-		return ways;
-	}
-
-	private LatLong readOptionalLabelPosition(boolean featureLabelPosition) {
-		if (featureLabelPosition) {
-			// get the label position latitude offset (VBE-S)
-			double latitude = this.tileLatitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-			// get the label position longitude offset (VBE-S)
-			double longitude = this.tileLongitude + LatLongUtils.microdegreesToDegrees(this.readBuffer.readSignedInt());
-
-			return new LatLong(latitude, longitude);
-		}
-
-		return null;
-	}
-
-	private int readOptionalWayDataBlocksByte(boolean featureWayDataBlocksByte) {
-		if (featureWayDataBlocksByte) {
-			// get and check the number of way data blocks (VBE-U)
-			return this.readBuffer.readUnsignedInt();
-		}
-		// only one way data block exists
-		return 1;
-	}
-
-	private int[][] readZoomTable(SubFileParameter subFileParameter) {
-		int rows = subFileParameter.zoomLevelMax - subFileParameter.zoomLevelMin + 1;
-		int[][] zoomTable = new int[rows][2];
-
-		int cumulatedNumberOfPois = 0;
-		int cumulatedNumberOfWays = 0;
-
-		for (int row = 0; row < rows; ++row) {
-			cumulatedNumberOfPois += this.readBuffer.readUnsignedInt();
-			cumulatedNumberOfWays += this.readBuffer.readUnsignedInt();
-
-			zoomTable[row][0] = cumulatedNumberOfPois;
-			zoomTable[row][1] = cumulatedNumberOfWays;
+			Map<Tile, MapReadResult> mapReadResults = new LinkedHashMap<Tile, MapReadResult>();
+			for (BatchTile batchTile : batchTiles.values()) {
+				mapReadResults.put(batchTile.tile, batchTile.build());
+			}
+			return mapReadResults;
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, null, e);
+			return null;
 		}
-
-		return zoomTable;
 	}
 }
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.map.reader.header.FileOpenResult;
+import org.mapsforge.map.reader.header.MapFileInfo;
+
+/**
+ * A map database which reads several map files as one, e.g. adjacent regions which have been written to separate
+ * files.
+ * <p>
+ * Every call of {@link #openFile(File)} adds another map file. A tile is only read from the map files whose bounding
+ * box intersects the tile, the results of several files are merged into a single {@link MapReadResult}. Map files
+ * usually overlap at their borders and the map writer clips ways at the same tile boundaries, so elements which are
+ * contained in more than one file are identical and only returned once. A tile outside of all map files is empty and
+ * not water. With a single map file all reads are passed to its map database unchanged. The metadata of the composite
+ * database are the ones of the first opened map file, see {@link #getBoundingBox()} for the area of all map files.
+ * <p>
+ * Like the {@link MapDatabase}, opening and closing files must not overlap with reads.
+ */
+public class MultiMapDatabase extends MapDatabase {
+	private static final class PoiKey {
+		private final int hashCodeValue;
+		private final PointOfInterest pointOfInterest;
+
+		PoiKey(PointOfInterest pointOfInterest) {
+			this.pointOfInterest = pointOfInterest;
+			int result = pointOfInterest.layer;
+			result = 31 * result + pointOfInterest.position.hashCode();
+			result = 31 * result + pointOfInterest.tags.hashCode();
+			this.hashCodeValue = result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof PoiKey)) {
+				return false;
+			}
+			PointOfInterest other = ((PoiKey) obj).pointOfInterest;
+			return this.pointOfInterest.layer == other.layer && this.pointOfInterest.position.equals(other.position)
+					&& this.pointOfInterest.tags.equals(other.tags);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCodeValue;
+		}
+	}
+
+	private static final class WayKey {
+		private final int hashCodeValue;
+		private final Way way;
+
+		WayKey(Way way) {
+			this.way = way;
+			int result = way.layer;
+			result = 31 * result + Arrays.deepHashCode(way.coordinates);
+			result = 31 * result + way.tags.hashCode();
+			this.hashCodeValue = result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof WayKey)) {
+				return false;
+			}
+			Way other = ((WayKey) obj).way;
+			return this.way.layer == other.layer && Arrays.deepEquals(this.way.coordinates, other.coordinates)
+					&& this.way.tags.equals(other.tags);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCodeValue;
+		}
+	}
+
+	/**
+	 * Merges the results of several map files for the same tile.
+	 * 
+	 * @param mapReadResults
+	 *            the results of all map files which intersect the tile, null if one of them could not be read.
+	 * @return the merged result, null if any result is null.
+	 */
+	static MapReadResult merge(List<MapReadResult> mapReadResults) {
+		if (mapReadResults.size() == 1) {
+			return mapReadResults.get(0);
+		}
+
+		MapReadResultBuilder mapReadResultBuilder = new MapReadResultBuilder();
+		mapReadResultBuilder.isWater = !mapReadResults.isEmpty();
+		Set<PoiKey> pois = new HashSet<PoiKey>();
+		Set<WayKey> ways = new HashSet<WayKey>();
+		for (MapReadResult mapReadResult : mapReadResults) {
+			if (mapReadResult == null) {
+				return null;
+			}
+
+			// the tile is only water if no map file has land in it
+			mapReadResultBuilder.isWater &= mapReadResult.isWater;
+			for (PointOfInterest pointOfInterest : mapReadResult.pointOfInterests) {
+				if (pois.add(new PoiKey(pointOfInterest))) {
+					mapReadResultBuilder.pointOfInterests.add(pointOfInterest);
+				}
+			}
+			for (Way way : mapReadResult.ways) {
+				if (ways.add(new WayKey(way))) {
+					mapReadResultBuilder.ways.add(way);
+				}
+			}
+		}
+		return mapReadResultBuilder.build();
+	}
+
+	private volatile MapDatabase[] mapDatabases;
+
+	/**
+	 * Creates a map database which reads all blocks through a {@link java.io.RandomAccessFile} per map file.
+	 */
+	public MultiMapDatabase() {
+		this(false);
+	}
+
+	/**
+	 * @param memoryMapped
+	 *            true if the sub-files of the map files should be memory-mapped, which allows concurrent reads from
+	 *            several threads.
+	 */
+	public MultiMapDatabase(boolean memoryMapped) {
+		super(memoryMapped);
+		this.mapDatabases = new MapDatabase[0];
+	}
+
+	/**
+	 * Closes all map files and destroys all internal caches. Has no effect if no map file is currently opened.
+	 */
+	@Override
+	public synchronized void closeFile() {
+		for (MapDatabase mapDatabase : this.mapDatabases) {
+			mapDatabase.closeFile();
+		}
+		this.mapDatabases = new MapDatabase[0];
+	}
+
+	@Override
+	public long getBlockCacheHits() {
+		long result = 0;
+		for (MapDatabase mapDatabase : this.mapDatabases) {
+			result += mapDatabase.getBlockCacheHits();
+		}
+		return result;
+	}
+
+	@Override
+	public long getBlockCacheMisses() {
+		long result = 0;
+		for (MapDatabase mapDatabase : this.mapDatabases) {
+			result += mapDatabase.getBlockCacheMisses();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the bounding box which covers all opened map files.
+	 * @throws IllegalStateException
+	 *             if no map is currently opened.
+	 */
+	public BoundingBox getBoundingBox() {
+		MapDatabase[] databases = this.mapDatabases;
+		if (databases.length == 0) {
+			throw new IllegalStateException("no map file is currently opened");
+		}
+		BoundingBox result = databases[0].getMapFileInfo().boundingBox;
+		for (int i = 1; i < databases.length; ++i) {
+			result = result.extend(databases[i].getMapFileInfo().boundingBox);
+		}
+		return result;
+	}
+
+	@Override
+	public long getIndexCacheHits() {
+		long result = 0;
+		for (MapDatabase mapDatabase : this.mapDatabases) {
+			result += mapDatabase.getIndexCacheHits();
+		}
+		return result;
+	}
+
+	@Override
+	public long getIndexCacheMisses() {
+		long result = 0;
+		for (MapDatabase mapDatabase : this.mapDatabases) {
+			result += mapDatabase.getIndexCacheMisses();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the metadata of the first opened map file.
+	 * @throws IllegalStateException
+	 *             if no map is currently opened.
+	 */
+	@Override
+	public MapFileInfo getMapFileInfo() {
+		MapDatabase[] databases = this.mapDatabases;
+		if (databases.length == 0) {
+			throw new IllegalStateException("no map file is currently opened");
+		}
+		return databases[0].getMapFileInfo();
+	}
+
+	/**
+	 * @return the number of currently opened map files.
+	 */
+	public int getNumberOfFiles() {
+		return this.mapDatabases.length;
+	}
+
+	@Override
+	public synchronized boolean hasOpenFile() {
+		return this.mapDatabases.length > 0;
+	}
+
+	/**
+	 * Opens the given map file in addition to the already opened map files, reads its header data and validates them.
+	 * 
+	 * @param mapFile
+	 *            the map file.
+	 * @return a FileOpenResult containing an error message in case of a failure, the other map files stay opened.
+	 * @throws IllegalArgumentException
+	 *             if the given map file is null.
+	 */
+	@Override
+	public synchronized FileOpenResult openFile(File mapFile) {
+		MapDatabase mapDatabase = new MapDatabase(isMemoryMapped());
+		FileOpenResult fileOpenResult = mapDatabase.openFile(mapFile);
+		if (fileOpenResult.isSuccess()) {
+			MapDatabase[] databases = Arrays.copyOf(this.mapDatabases, this.mapDatabases.length + 1);
+			databases[databases.length - 1] = mapDatabase;
+			this.mapDatabases = databases;
+		}
+		return fileOpenResult;
+	}
+
+	/**
+	 * Replaces the opened map files with the given map files. The current map files are only closed after all given
+	 * map files have been opened successfully.
+	 * 
+	 * @param mapFiles
+	 *            the map files, must not be empty.
+	 * @return a FileOpenResult containing the error message of the first map file which could not be opened, the
+	 *         current map files then stay opened.
+	 * @throws IllegalArgumentException
+	 *             if the list is empty or contains null.
+	 */
+	public synchronized FileOpenResult openFiles(List<File> mapFiles) {
+		if (mapFiles.isEmpty()) {
+			throw new IllegalArgumentException("mapFiles must not be empty");
+		} else if (mapFiles.contains(null)) {
+			throw new IllegalArgumentException("mapFiles must not contain null");
+		}
+
+		MapDatabase[] databases = new MapDatabase[mapFiles.size()];
+		for (int i = 0; i < databases.length; ++i) {
+			databases[i] = new MapDatabase(isMemoryMapped());
+			FileOpenResult fileOpenResult = databases[i].openFile(mapFiles.get(i));
+			if (!fileOpenResult.isSuccess()) {
+				for (int j = 0; j < i; ++j) {
+					databases[j].closeFile();
+				}
+				return fileOpenResult;
+			}
+		}
+
+		for (MapDatabase mapDatabase : this.mapDatabases) {
+			mapDatabase.closeFile();
+		}
+		this.mapDatabases = databases;
+		return FileOpenResult.SUCCESS;
+	}
+
+	/**
+	 * Reads all map data for the area covered by the given tile at the tile zoom level from all map files which
+	 * intersect the tile.
+	 * 
+	 * @param tile
+	 *            defines area and zoom level of read map data.
+	 * @return the read map data, null if one of the map files could not be read.
+	 */
+	@Override
+	public MapReadResult readMapData(Tile tile) {
+		MapDatabase[] databases = this.mapDatabases;
+		if (databases.length == 1) {
+			return databases[0].readMapData(tile);
+		}
+
+		BoundingBox boundingBox = tile.getBoundingBox();
+		List<MapReadResult> mapReadResults = new ArrayList<MapReadResult>(databases.length);
+		for (MapDatabase mapDatabase : databases) {
+			if (mapDatabase.getMapFileInfo().boundingBox.intersects(boundingBox)) {
+				mapReadResults.add(mapDatabase.readMapData(tile));
+			}
+		}
+		return merge(mapReadResults);
+	}
+
+	/**
+	 * Reads all map data for the areas covered by the given tiles at their tile zoom levels. Each map file is read with
+	 * a single batch of the tiles which intersect it.
+	 * 
+	 * @param tiles
+	 *            defines areas and zoom levels of read map data.
+	 * @return the read map data for every distinct tile in the order of the given tiles, a tile is mapped to null if
+	 *         its data could not be read from one of the map files. The map is null if a map file could not be read at
+	 *         all.
+	 */
+	@Override
+	public Map<Tile, MapReadResult> readMapData(Collection<Tile> tiles) {
+		MapDatabase[] databases = this.mapDatabases;
+		if (databases.length == 1) {
+			return databases[0].readMapData(tiles);
+		}
+
+		Map<Tile, List<MapReadResult>> mapReadResults = new LinkedHashMap<Tile, List<MapReadResult>>();
+		for (Tile tile : tiles) {
+			mapReadResults.put(tile, new ArrayList<MapReadResult>(databases.length));
+		}
+
+		for (MapDatabase mapDatabase : databases) {
+			BoundingBox fileBoundingBox = mapDatabase.getMapFileInfo().boundingBox;
+			List<Tile> fileTiles = new ArrayList<Tile>();
+			for (Tile tile : mapReadResults.keySet()) {
+				if (fileBoundingBox.intersects(tile.getBoundingBox())) {
+					fileTiles.add(tile);
+				}
+			}
+			if (fileTiles.isEmpty()) {
+				continue;
+			}
+
+			Map<Tile, MapReadResult> fileResults = mapDatabase.readMapData(fileTiles);
+			if (fileResults == null) {
+				return null;
+			}
+			for (Tile tile : fileTiles) {
+				mapReadResults.get(tile).add(fileResults.get(tile));
+			}
+		}
+
+		Map<Tile, MapReadResult> result = new LinkedHashMap<Tile, MapReadResult>();
+		for (Map.Entry<Tile, List<MapReadResult>> entry : mapReadResults.entrySet()) {
+			result.put(entry.getKey(), merge(entry.getValue()));
+		}
+		return result;
+	}
+}
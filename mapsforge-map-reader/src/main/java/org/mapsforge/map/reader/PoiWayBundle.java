@@ -14,14 +14,100 @@
  */
 package org.mapsforge.map.reader;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.mapsforge.core.model.BoundingBox;
+
 class PoiWayBundle {
+	/**
+	 * Estimated heap size of an array header, in bytes.
+	 */
+	private static final int ARRAY_SIZE = 16;
+
+	/**
+	 * Estimated heap size of a POI or way object including its position, in bytes.
+	 */
+	private static final int ELEMENT_SIZE = 64;
+
 	final List<PointOfInterest> pois;
 	final List<Way> ways;
 
+	/**
+	 * The tile bitmask of each way, null if the ways have already been filtered.
+	 */
+	final int[] wayTileBitmasks;
+
 	PoiWayBundle(List<PointOfInterest> pois, List<Way> ways) {
+		this(pois, ways, null);
+	}
+
+	PoiWayBundle(List<PointOfInterest> pois, List<Way> ways, int[] wayTileBitmasks) {
 		this.pois = pois;
 		this.ways = ways;
+		this.wayTileBitmasks = wayTileBitmasks;
+	}
+
+	/**
+	 * Returns the POIs and ways of this bundle which are relevant for the given query. This bundle is not modified, so
+	 * it can be filtered for several queries.
+	 * 
+	 * @param queryParameters
+	 *            the parameters of the current query.
+	 * @param boundingBox
+	 *            the area for which the map data was requested.
+	 * @param filterRequired
+	 *            true if the elements must be filtered by the bounding box, because the block covers a larger area.
+	 * @return the filtered POIs and ways.
+	 */
+	PoiWayBundle filter(QueryParameters queryParameters, BoundingBox boundingBox, boolean filterRequired) {
+		List<PointOfInterest> filteredPois = this.pois;
+		if (filterRequired) {
+			// depending on the zoom level configuration the poi can lie outside
+			// the tile requested, we filter them out here
+			filteredPois = new ArrayList<PointOfInterest>();
+			for (PointOfInterest poi : this.pois) {
+				if (boundingBox.contains(poi.position)) {
+					filteredPois.add(poi);
+				}
+			}
+		}
+
+		boolean filterWays = filterRequired && MapDatabase.wayFilterEnabled;
+		if (!queryParameters.useTileBitmask && !filterWays) {
+			return new PoiWayBundle(filteredPois, this.ways);
+		}
+
+		BoundingBox wayFilterBbox = boundingBox.extend(MapDatabase.wayFilterDistance);
+		List<Way> filteredWays = new ArrayList<Way>();
+		for (int i = 0; i < this.ways.size(); ++i) {
+			// check if the way is inside the requested tile
+			if (queryParameters.useTileBitmask && (queryParameters.queryTileBitmask & this.wayTileBitmasks[i]) == 0) {
+				continue;
+			}
+			Way way = this.ways.get(i);
+			if (filterWays && !wayFilterBbox.intersectsArea(way.coordinates)) {
+				continue;
+			}
+			filteredWays.add(way);
+		}
+		return new PoiWayBundle(filteredPois, filteredWays);
+	}
+
+	/**
+	 * @return the estimated heap size of the POIs and ways in this bundle, in bytes.
+	 */
+	long getSize() {
+		long size = ELEMENT_SIZE + (long) (this.pois.size() + this.ways.size()) * (ELEMENT_SIZE + 8);
+		for (PointOfInterest poi : this.pois) {
+			size += ARRAY_SIZE + poi.tags.size() * 8;
+		}
+		for (Way way : this.ways) {
+			size += ARRAY_SIZE * 2 + way.tags.size() * 8 + way.coordinates.length * 8;
+			for (double[] segment : way.coordinates) {
+				size += ARRAY_SIZE + segment.length * 8;
+			}
+		}
+		return size;
 	}
 }
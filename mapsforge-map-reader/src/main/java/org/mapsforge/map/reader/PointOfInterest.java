@@ -34,7 +34,7 @@ public class PointOfInterest {
 	public final LatLong position;
 
 	/**
-	 * The tags of this POI.
+	 * The tags of this POI, the list may be shared with other POIs and must not be modified.
 	 */
 	public final List<Tag> tags;
 
@@ -16,22 +16,26 @@ package org.mapsforge.map.reader;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.logging.Logger;
 
+import org.mapsforge.core.model.Tag;
+
 /**
- * Reads from a {@link RandomAccessFile} into a buffer and decodes the data.
+ * Reads from a {@link RandomAccessFile} or a memory-mapped {@link ByteBuffer} into a buffer and decodes the data.
  */
 public class ReadBuffer {
 	/**
 	 * Maximum buffer size which is supported by this implementation.
 	 */
 	static final int MAXIMUM_BUFFER_SIZE = 2500000;
-	private static final String CHARSET_UTF8 = "UTF-8";
+	private static final Charset CHARSET_UTF8 = Charset.forName("UTF-8");
 	private static final Logger LOGGER = Logger.getLogger(ReadBuffer.class.getName());
 
 	private byte[] bufferData;
 	private int bufferPosition;
+	private char[] charData;
 	private final RandomAccessFile inputFile;
 
 	ReadBuffer(RandomAccessFile inputFile) {
@@ -47,6 +51,36 @@ public class ReadBuffer {
 		return this.bufferData[this.bufferPosition++];
 	}
 
+	/**
+	 * Copies the given amount of bytes from a (memory-mapped) byte buffer into the read buffer and resets the internal
+	 * buffer position. If the capacity of the read buffer is too small, a larger one is created automatically.
+	 * <p>
+	 * The position and limit of the source buffer are not modified, so it may be shared between threads.
+	 * 
+	 * @param source
+	 *            the byte buffer to copy from.
+	 * @param offset
+	 *            the absolute position in the source buffer of the first byte to copy.
+	 * @param length
+	 *            the amount of bytes to copy.
+	 * @return true if the whole data was copied successfully, false otherwise.
+	 */
+	public boolean readFromBuffer(ByteBuffer source, int offset, int length) {
+		if (!ensureCapacity(length)) {
+			return false;
+		}
+		if (offset < 0 || offset + length > source.limit()) {
+			LOGGER.warning("invalid read offset: " + offset);
+			return false;
+		}
+
+		ByteBuffer view = source.duplicate();
+		view.position(offset);
+		view.get(this.bufferData, 0, length);
+		this.bufferPosition = 0;
+		return true;
+	}
+
 	/**
 	 * Reads the given amount of bytes from the file into the read buffer and resets the internal buffer position. If
 	 * the capacity of the read buffer is too small, a larger one is created automatically.
@@ -58,14 +92,8 @@ public class ReadBuffer {
 	 *             if an error occurs while reading the file.
 	 */
 	public boolean readFromFile(int length) throws IOException {
-		// ensure that the read buffer is large enough
-		if (this.bufferData == null || this.bufferData.length < length) {
-			// ensure that the read buffer is not too large
-			if (length > MAXIMUM_BUFFER_SIZE) {
-				LOGGER.warning("invalid read length: " + length);
-				return false;
-			}
-			this.bufferData = new byte[length];
+		if (!ensureCapacity(length)) {
+			return false;
 		}
 
 		// reset the buffer position and read the data into the buffer
@@ -157,6 +185,26 @@ public class ReadBuffer {
 		return variableByteDecode | (this.bufferData[this.bufferPosition++] << variableByteShift);
 	}
 
+	/**
+	 * Decodes a variable amount of bytes from the read buffer to the value of a tag. The tag is taken from the given
+	 * pool, so the string is only decoded if the pool does not contain the tag yet.
+	 * 
+	 * @param key
+	 *            the key of the tag.
+	 * @param tagPool
+	 *            the pool of the tags of the map file.
+	 * @return the tag with the UTF-8 decoded value (may be null).
+	 */
+	Tag readUTF8EncodedTag(String key, TagPool tagPool) {
+		int stringLength = readUnsignedInt();
+		if (stringLength > 0 && this.bufferPosition + stringLength <= this.bufferData.length) {
+			this.bufferPosition += stringLength;
+			return tagPool.getTag(key, this.bufferData, this.bufferPosition - stringLength, stringLength);
+		}
+		LOGGER.warning("invalid string length: " + stringLength);
+		return new Tag(key, (String) null);
+	}
+
 	/**
 	 * Decodes a variable amount of bytes from the read buffer to a string.
 	 * 
@@ -176,11 +224,16 @@ public class ReadBuffer {
 	public String readUTF8EncodedString(int stringLength) {
 		if (stringLength > 0 && this.bufferPosition + stringLength <= this.bufferData.length) {
 			this.bufferPosition += stringLength;
-			try {
-				return new String(this.bufferData, this.bufferPosition - stringLength, stringLength, CHARSET_UTF8);
-			} catch (UnsupportedEncodingException e) {
-				throw new IllegalStateException(e);
+			if (this.charData == null || this.charData.length < stringLength) {
+				this.charData = new char[stringLength];
 			}
+			int offset = this.bufferPosition - stringLength;
+			int length = Deserializer.getUTF8Chars(this.bufferData, offset, stringLength, this.charData);
+			if (length < 0) {
+				// malformed input, let the charset decoder replace the invalid bytes
+				return new String(this.bufferData, offset, stringLength, CHARSET_UTF8);
+			}
+			return new String(this.charData, 0, length);
 		}
 		LOGGER.warning("invalid string length: " + stringLength);
 		return null;
@@ -210,6 +263,19 @@ public class ReadBuffer {
 		this.bufferPosition = bufferPosition;
 	}
 
+	private boolean ensureCapacity(int length) {
+		// ensure that the read buffer is large enough
+		if (this.bufferData == null || this.bufferData.length < length) {
+			// ensure that the read buffer is not too large
+			if (length > MAXIMUM_BUFFER_SIZE) {
+				LOGGER.warning("invalid read length: " + length);
+				return false;
+			}
+			this.bufferData = new byte[length];
+		}
+		return true;
+	}
+
 	/**
 	 * Skips the given number of bytes in the read buffer.
 	 * 
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.mapsforge.core.model.Tag;
+
+/**
+ * An intern pool for the tags which are decoded from a single map file.
+ * <p>
+ * The same street name is stored in many way segments and the same combination of tag IDs is shared by many elements,
+ * so decoded name, house number, reference and elevation tags as well as the tag lists of elements without optional
+ * tags are reused. A pooled tag is found by the encoded bytes, no string is created for a tag which is already in the
+ * pool. The pool is bounded and simply starts over once it is full.
+ * <p>
+ * One pool is shared by all decoders of a map file, so equal tags decoded by different threads are the same object.
+ * The pool is backed by concurrent maps and takes no lock for a lookup, each thread looks up with a reusable probe key
+ * of its own.
+ */
+final class TagPool {
+	private static final class NumberEntry {
+		final Tag tag;
+		final int value;
+
+		NumberEntry(Tag tag, int value) {
+			this.tag = tag;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The reusable keys and the decoding buffer of a thread.
+	 */
+	private static final class Probe {
+		char[] chars = new char[64];
+		final StringKey stringKey = new StringKey();
+		final TagsKey tagsKey = new TagsKey();
+	}
+
+	/**
+	 * The key of a tag with an encoded string value, a probe key refers to the read buffer instead of a copy.
+	 */
+	private static final class StringKey {
+		byte[] bytes;
+		int hash;
+		String key;
+		int length;
+		int offset;
+
+		StringKey() {
+			// the fields are set by set
+		}
+
+		StringKey(StringKey probe) {
+			this.bytes = Arrays.copyOfRange(probe.bytes, probe.offset, probe.offset + probe.length);
+			this.hash = probe.hash;
+			this.key = probe.key;
+			this.length = probe.length;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof StringKey)) {
+				return false;
+			}
+			StringKey other = (StringKey) obj;
+			if (this.hash != other.hash || this.length != other.length || !this.key.equals(other.key)) {
+				return false;
+			}
+			for (int i = 0; i < this.length; ++i) {
+				if (this.bytes[this.offset + i] != other.bytes[other.offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		void set(String key, byte[] bytes, int offset, int length) {
+			this.bytes = bytes;
+			this.key = key;
+			this.length = length;
+			this.offset = offset;
+			int hash = key.hashCode();
+			for (int i = offset, end = offset + length; i < end; ++i) {
+				hash = 31 * hash + bytes[i];
+			}
+			this.hash = hash ^ (hash >>> 16);
+		}
+	}
+
+	/**
+	 * The key of a tag list, a probe key refers to the ID array of the decoder instead of a copy.
+	 */
+	private static final class TagsKey {
+		int count;
+		int hash;
+		int[] ids;
+		Tag[] tagTable;
+
+		TagsKey() {
+			// the fields are set by set
+		}
+
+		TagsKey(TagsKey probe) {
+			this.count = probe.count;
+			this.hash = probe.hash;
+			this.ids = Arrays.copyOf(probe.ids, probe.count);
+			this.tagTable = probe.tagTable;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof TagsKey)) {
+				return false;
+			}
+			TagsKey other = (TagsKey) obj;
+			if (this.hash != other.hash || this.count != other.count || this.tagTable != other.tagTable) {
+				return false;
+			}
+			for (int i = 0; i < this.count; ++i) {
+				if (this.ids[i] != other.ids[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		void set(Tag[] tagTable, int[] ids, int count) {
+			this.count = count;
+			this.ids = ids;
+			this.tagTable = tagTable;
+			int hash = System.identityHashCode(tagTable);
+			for (int i = 0; i < count; ++i) {
+				hash = 31 * hash + ids[i];
+			}
+			this.hash = hash ^ (hash >>> 16);
+		}
+	}
+
+	private static final Charset CHARSET_UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Number of cached numeric tags, must be a power of two.
+	 */
+	private static final int NUMBER_CACHE_SIZE = 1024;
+
+	/**
+	 * Maximum number of pooled strings.
+	 */
+	private static final int STRINGS_MAXIMUM = 8192;
+
+	/**
+	 * Maximum number of pooled tag lists.
+	 */
+	private static final int TAGS_MAXIMUM = 2048;
+
+	private static String decode(Probe probe, byte[] buffer, int offset, int length) {
+		if (probe.chars.length < length) {
+			probe.chars = new char[length];
+		}
+		int count = Deserializer.getUTF8Chars(buffer, offset, length, probe.chars);
+		if (count < 0) {
+			// malformed input, let the charset decoder replace the invalid bytes
+			return new String(buffer, offset, length, CHARSET_UTF8);
+		}
+		return new String(probe.chars, 0, count);
+	}
+
+	private static <K, V> V intern(ConcurrentMap<K, V> map, int maximum, K key, V value) {
+		if (map.size() >= maximum) {
+			map.clear();
+		}
+		V previous = map.putIfAbsent(key, value);
+		return previous != null ? previous : value;
+	}
+
+	private final AtomicReferenceArray<NumberEntry> numberEntries = new AtomicReferenceArray<NumberEntry>(
+			NUMBER_CACHE_SIZE);
+	private final ThreadLocal<Probe> probes = new ThreadLocal<Probe>() {
+		@Override
+		protected Probe initialValue() {
+			return new Probe();
+		}
+	};
+	private final ConcurrentMap<StringKey, Tag> strings = new ConcurrentHashMap<StringKey, Tag>();
+	private final ConcurrentMap<TagsKey, List<Tag>> tagLists = new ConcurrentHashMap<TagsKey, List<Tag>>();
+
+	/**
+	 * Returns the tag with the given key and a numeric value.
+	 * 
+	 * @param key
+	 *            the key of the tag.
+	 * @param value
+	 *            the value of the tag.
+	 * @return the pooled tag.
+	 */
+	Tag getTag(String key, int value) {
+		int index = value & (NUMBER_CACHE_SIZE - 1);
+		NumberEntry entry = this.numberEntries.get(index);
+		while (entry == null || entry.value != value || !entry.tag.key.equals(key)) {
+			// a thread which loses the race takes the tag of the winner
+			NumberEntry newEntry = new NumberEntry(new Tag(key, Integer.toString(value)), value);
+			if (this.numberEntries.compareAndSet(index, entry, newEntry)) {
+				return newEntry.tag;
+			}
+			entry = this.numberEntries.get(index);
+		}
+		return entry.tag;
+	}
+
+	/**
+	 * Returns the tag with the given key and the UTF-8 encoded value. The value is only decoded if the tag is not in
+	 * the pool yet.
+	 * 
+	 * @param key
+	 *            the key of the tag.
+	 * @param buffer
+	 *            the byte array which contains the encoded value.
+	 * @param offset
+	 *            the offset of the encoded value in the array.
+	 * @param length
+	 *            the length of the encoded value in bytes.
+	 * @return the pooled tag.
+	 */
+	Tag getTag(String key, byte[] buffer, int offset, int length) {
+		Probe probe = this.probes.get();
+		probe.stringKey.set(key, buffer, offset, length);
+		Tag tag = this.strings.get(probe.stringKey);
+		if (tag != null) {
+			return tag;
+		}
+
+		tag = new Tag(key, decode(probe, buffer, offset, length));
+		return intern(this.strings, STRINGS_MAXIMUM, new StringKey(probe.stringKey), tag);
+	}
+
+	/**
+	 * Returns an unmodifiable list of the tags with the given IDs, the same list is returned for the same IDs.
+	 * 
+	 * @param tagTable
+	 *            the tags of the map file, indexed by their ID.
+	 * @param ids
+	 *            the tag IDs, the array may be longer than the number of IDs.
+	 * @param count
+	 *            the number of tag IDs.
+	 * @return the pooled list of tags.
+	 */
+	List<Tag> getTags(Tag[] tagTable, int[] ids, int count) {
+		Probe probe = this.probes.get();
+		probe.tagsKey.set(tagTable, ids, count);
+		List<Tag> tagList = this.tagLists.get(probe.tagsKey);
+		if (tagList != null) {
+			return tagList;
+		}
+
+		Tag[] tags = new Tag[count];
+		for (int i = 0; i < count; ++i) {
+			tags[i] = tagTable[ids[i]];
+		}
+		tagList = Collections.unmodifiableList(Arrays.asList(tags));
+		return intern(this.tagLists, TAGS_MAXIMUM, new TagsKey(probe.tagsKey), tagList);
+	}
+}
@@ -24,14 +24,15 @@ import org.mapsforge.core.model.Tag;
  */
 public class Way {
 	/**
-	 * The position of the area label (may be null).
+	 * The geographical coordinates of the way nodes as packed latitude/longitude pairs in degrees, one array per way
+	 * segment: {@code {latitude0, longitude0, latitude1, longitude1, ...}}.
 	 */
-	public final LatLong labelPosition;
+	public final double[][] coordinates;
 
 	/**
-	 * The geographical coordinates of the way nodes.
+	 * The position of the area label (may be null).
 	 */
-	public final LatLong[][] latLongs;
+	public final LatLong labelPosition;
 
 	/**
 	 * The layer of this way + 5 (to avoid negative values).
@@ -39,14 +40,38 @@ public class Way {
 	public final byte layer;
 
 	/**
-	 * The tags of this way.
+	 * The tags of this way, the list may be shared with other ways and must not be modified.
 	 */
 	public final List<Tag> tags;
 
-	Way(byte layer, List<Tag> tags, LatLong[][] latLongs, LatLong labelPosition) {
+	private LatLong[][] latLongs;
+
+	Way(byte layer, List<Tag> tags, double[][] coordinates, LatLong labelPosition) {
 		this.layer = layer;
 		this.tags = tags;
-		this.latLongs = latLongs;
+		this.coordinates = coordinates;
 		this.labelPosition = labelPosition;
 	}
+
+	/**
+	 * Returns the geographical coordinates of the way nodes as {@link LatLong} objects. They are only created on the
+	 * first call, the renderer uses the packed {@link #coordinates} instead. This method replaces the former public
+	 * field {@code latLongs}.
+	 * 
+	 * @return the geographical coordinates of the way nodes, one array per way segment.
+	 */
+	public synchronized LatLong[][] getLatLongs() {
+		if (this.latLongs == null) {
+			LatLong[][] result = new LatLong[this.coordinates.length][];
+			for (int i = 0; i < this.coordinates.length; ++i) {
+				double[] segment = this.coordinates[i];
+				result[i] = new LatLong[segment.length / 2];
+				for (int j = 0; j < result[i].length; ++j) {
+					result[i][j] = new LatLong(segment[2 * j], segment[2 * j + 1]);
+				}
+			}
+			this.latLongs = result;
+		}
+		return this.latLongs;
+	}
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.LatLong;
+import org.mapsforge.core.model.Tag;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.reader.header.FileOpenResult;
+
+public class BlockCacheTest {
+	private static final File MAP_FILE = new File("src/test/resources/with_data/output.map");
+
+	private static PoiWayBundle createBundle(int numberOfPois) {
+		List<PointOfInterest> pois = new ArrayList<PointOfInterest>();
+		for (int i = 0; i < numberOfPois; ++i) {
+			pois.add(new PointOfInterest((byte) 0, Collections.<Tag> emptyList(), new LatLong(0, 0)));
+		}
+		return new PoiWayBundle(pois, Collections.<Way> emptyList());
+	}
+
+	@Test
+	public void blockCacheTest() {
+		PoiWayBundle bundle1 = createBundle(10);
+		PoiWayBundle bundle2 = createBundle(10);
+		PoiWayBundle bundle3 = createBundle(10);
+		BlockCacheEntryKey key1 = new BlockCacheEntryKey(null, 1, 10);
+		BlockCacheEntryKey key2 = new BlockCacheEntryKey(null, 2, 10);
+		BlockCacheEntryKey key3 = new BlockCacheEntryKey(null, 3, 10);
+
+		BlockCache blockCache = new BlockCache(bundle1.getSize() * 2, 1);
+		blockCache.put(key1, bundle1);
+		blockCache.put(key2, bundle2);
+		Assert.assertSame(bundle1, blockCache.get(new BlockCacheEntryKey(null, 1, 10)));
+		Assert.assertNull(blockCache.get(new BlockCacheEntryKey(null, 1, 11)));
+
+		// the second block is the least recently used one
+		blockCache.put(key3, bundle3);
+		Assert.assertEquals(bundle1.getSize() * 2, blockCache.getSize());
+		Assert.assertSame(bundle1, blockCache.get(key1));
+		Assert.assertNull(blockCache.get(key2));
+		Assert.assertSame(bundle3, blockCache.get(key3));
+
+		// a block larger than the cache is not stored
+		blockCache.put(key2, createBundle(100));
+		Assert.assertNull(blockCache.get(key2));
+		Assert.assertEquals(3, blockCache.getHits());
+		Assert.assertEquals(3, blockCache.getMisses());
+
+		blockCache.destroy();
+		Assert.assertEquals(0, blockCache.getSize());
+		Assert.assertNull(blockCache.get(key1));
+
+		try {
+			new BlockCache(-1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+		try {
+			new BlockCache(1000, 3);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+	}
+
+	@Test
+	public void largeBlockTest() {
+		PoiWayBundle bundle = createBundle(10);
+		PoiWayBundle largeBundle = createBundle(100);
+		long maximumSize = largeBundle.getSize() * 2;
+		BlockCache blockCache = new BlockCache(maximumSize);
+
+		// a block larger than the share of a segment is cached, the maximum size applies to the whole cache
+		Assert.assertTrue(largeBundle.getSize() > maximumSize / 16);
+		BlockCacheEntryKey largeKey = new BlockCacheEntryKey(null, 0, 10);
+		blockCache.put(largeKey, largeBundle);
+		Assert.assertSame(largeBundle, blockCache.get(largeKey));
+
+		for (int i = 1; i <= 100; ++i) {
+			blockCache.put(new BlockCacheEntryKey(null, i, 10), bundle);
+			Assert.assertTrue(blockCache.getSize() <= maximumSize);
+		}
+		Assert.assertTrue(blockCache.getSize() > maximumSize - bundle.getSize());
+		Assert.assertSame(bundle, blockCache.get(new BlockCacheEntryKey(null, 100, 10)));
+
+		blockCache.destroy();
+		Assert.assertEquals(0, blockCache.getSize());
+	}
+
+	@Test
+	public void readMapDataTest() {
+		MapDatabase mapDatabase = new MapDatabase();
+		FileOpenResult fileOpenResult = mapDatabase.openFile(MAP_FILE);
+		Assert.assertTrue(fileOpenResult.getErrorMessage(), fileOpenResult.isSuccess());
+
+		int tileX = MercatorProjection.longitudeToTileX(0.04, (byte) 10);
+		int tileY = MercatorProjection.latitudeToTileY(0.04, (byte) 10);
+		Tile tile = new Tile(tileX, tileY, (byte) 10, 256);
+
+		MapReadResult mapReadResult1 = mapDatabase.readMapData(tile);
+		MapReadResult mapReadResult2 = mapDatabase.readMapData(tile);
+		Assert.assertEquals(mapReadResult1.ways.size(), mapReadResult2.ways.size());
+		for (int i = 0; i < mapReadResult1.ways.size(); ++i) {
+			// the second read is served from the block cache
+			Assert.assertSame(mapReadResult1.ways.get(i), mapReadResult2.ways.get(i));
+		}
+		Assert.assertTrue(mapDatabase.getBlockCacheHits() > 0);
+		Assert.assertEquals(mapDatabase.getBlockCacheHits(), mapDatabase.getBlockCacheMisses());
+		Assert.assertTrue(mapDatabase.getIndexCacheHits() > 0);
+		Assert.assertTrue(mapDatabase.getIndexCacheMisses() > 0);
+
+		mapDatabase.closeFile();
+	}
+}
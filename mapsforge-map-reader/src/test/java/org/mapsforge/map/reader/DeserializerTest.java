@@ -14,10 +14,19 @@
  */
 package org.mapsforge.map.reader;
 
+import java.io.UnsupportedEncodingException;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 public class DeserializerTest {
+	private static void verifyUTF8Chars(String string) throws UnsupportedEncodingException {
+		byte[] buffer = string.getBytes("UTF-8");
+		char[] chars = new char[buffer.length];
+		int count = Deserializer.getUTF8Chars(buffer, 0, buffer.length, chars);
+		Assert.assertEquals(string, new String(chars, 0, count));
+	}
+
 	@Test
 	public void getIntTest() {
 		byte[] buffer = new byte[] { 0, 0, 0, 0 };
@@ -83,4 +92,21 @@ public class DeserializerTest {
 		buffer = new byte[] { 1, 1 };
 		Assert.assertEquals(257, Deserializer.getShort(buffer, 0));
 	}
+
+	@Test
+	public void getUTF8CharsTest() throws UnsupportedEncodingException {
+		verifyUTF8Chars("");
+		verifyUTF8Chars("Hauptstraße");
+		verifyUTF8Chars("АБВГДЕЖЗ");
+		verifyUTF8Chars("東京都");
+		verifyUTF8Chars("\ud83d\uddfa map");
+
+		char[] chars = new char[2];
+		// truncated two-byte sequence
+		Assert.assertEquals(-1, Deserializer.getUTF8Chars(new byte[] { (byte) 0xc3 }, 0, 1, chars));
+		// overlong encoding of '/'
+		Assert.assertEquals(-1, Deserializer.getUTF8Chars(new byte[] { (byte) 0xc0, (byte) 0xaf }, 0, 2, chars));
+		// unexpected continuation byte
+		Assert.assertEquals(-1, Deserializer.getUTF8Chars(new byte[] { (byte) 0x80 }, 0, 1, chars));
+	}
 }
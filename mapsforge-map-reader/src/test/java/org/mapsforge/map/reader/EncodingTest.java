@@ -47,7 +47,7 @@ final class EncodingTest {
 		LatLong[][] latLongsExpected = new LatLong[][] { { latLong1, latLong2, latLong3, latLong4, latLong1 } };
 
 		Way way = mapReadResult.ways.get(0);
-		Assert.assertArrayEquals(latLongsExpected, way.latLongs);
+		Assert.assertArrayEquals(latLongsExpected, way.getLatLongs());
 	}
 
 	private EncodingTest() {
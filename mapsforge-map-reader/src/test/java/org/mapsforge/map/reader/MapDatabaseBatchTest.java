@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.reader.header.FileOpenResult;
+
+public class MapDatabaseBatchTest {
+	private static final File MAP_FILE = new File("src/test/resources/with_data/output.map");
+	private static final byte ZOOM_LEVEL_MAX = 14;
+	private static final int ZOOM_LEVEL_MIN = 6;
+
+	private static void assertMapReadResultEquals(MapReadResult expected, MapReadResult actual) {
+		Assert.assertEquals(expected.isWater, actual.isWater);
+		Assert.assertEquals(expected.pointOfInterests.size(), actual.pointOfInterests.size());
+		for (int i = 0; i < expected.pointOfInterests.size(); ++i) {
+			PointOfInterest poi1 = expected.pointOfInterests.get(i);
+			PointOfInterest poi2 = actual.pointOfInterests.get(i);
+			Assert.assertEquals(poi1.position, poi2.position);
+			Assert.assertEquals(poi1.tags, poi2.tags);
+		}
+
+		Assert.assertEquals(expected.ways.size(), actual.ways.size());
+		for (int i = 0; i < expected.ways.size(); ++i) {
+			Way way1 = expected.ways.get(i);
+			Way way2 = actual.ways.get(i);
+			Assert.assertEquals(way1.tags, way2.tags);
+			Assert.assertArrayEquals(way1.getLatLongs(), way2.getLatLongs());
+		}
+	}
+
+	private static List<Tile> getTiles() {
+		List<Tile> tiles = new ArrayList<Tile>();
+		for (byte zoomLevel = ZOOM_LEVEL_MIN; zoomLevel <= ZOOM_LEVEL_MAX; ++zoomLevel) {
+			int tileX = MercatorProjection.longitudeToTileX(0.04, zoomLevel);
+			int tileY = MercatorProjection.latitudeToTileY(0.04, zoomLevel);
+			for (int y = tileY - 1; y <= tileY + 1; ++y) {
+				for (int x = tileX - 1; x <= tileX + 1; ++x) {
+					tiles.add(new Tile(x, y, zoomLevel, 256));
+				}
+			}
+		}
+		return tiles;
+	}
+
+	private static MapDatabase openMapDatabase(boolean memoryMapped) {
+		MapDatabase mapDatabase = new MapDatabase(memoryMapped);
+		FileOpenResult fileOpenResult = mapDatabase.openFile(MAP_FILE);
+		Assert.assertTrue(fileOpenResult.getErrorMessage(), fileOpenResult.isSuccess());
+		return mapDatabase;
+	}
+
+	private static void readMapDataTest(boolean memoryMapped) {
+		List<Tile> tiles = getTiles();
+		// the first tile is requested twice
+		tiles.add(tiles.get(0));
+
+		MapDatabase batchDatabase = openMapDatabase(memoryMapped);
+		Map<Tile, MapReadResult> mapReadResults = batchDatabase.readMapData(tiles);
+		batchDatabase.closeFile();
+		Assert.assertEquals(tiles.size() - 1, mapReadResults.size());
+		Assert.assertEquals(tiles.subList(0, tiles.size() - 1), new ArrayList<Tile>(mapReadResults.keySet()));
+
+		MapDatabase tileDatabase = openMapDatabase(memoryMapped);
+		for (Tile tile : mapReadResults.keySet()) {
+			MapReadResult expected = tileDatabase.readMapData(tile);
+			Assert.assertNotNull(expected);
+			assertMapReadResultEquals(expected, mapReadResults.get(tile));
+		}
+		tileDatabase.closeFile();
+	}
+
+	@Test
+	public void readMapDataTest() {
+		readMapDataTest(false);
+		readMapDataTest(true);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.reader.header.FileOpenResult;
+
+public class MapDatabaseMemoryMappedTest {
+	private static final File MAP_FILE = new File("src/test/resources/with_data/output.map");
+	private static final int NUMBER_OF_THREADS = 4;
+	private static final int ROUNDS = 50;
+	private static final byte ZOOM_LEVEL_MAX = 11;
+	private static final int ZOOM_LEVEL_MIN = 6;
+
+	private static void assertMapReadResultEquals(MapReadResult expected, MapReadResult actual) {
+		Assert.assertEquals(expected.isWater, actual.isWater);
+		Assert.assertEquals(expected.pointOfInterests.size(), actual.pointOfInterests.size());
+		for (int i = 0; i < expected.pointOfInterests.size(); ++i) {
+			PointOfInterest poi1 = expected.pointOfInterests.get(i);
+			PointOfInterest poi2 = actual.pointOfInterests.get(i);
+			Assert.assertEquals(poi1.layer, poi2.layer);
+			Assert.assertEquals(poi1.position, poi2.position);
+			Assert.assertEquals(poi1.tags, poi2.tags);
+		}
+
+		Assert.assertEquals(expected.ways.size(), actual.ways.size());
+		for (int i = 0; i < expected.ways.size(); ++i) {
+			Way way1 = expected.ways.get(i);
+			Way way2 = actual.ways.get(i);
+			Assert.assertEquals(way1.layer, way2.layer);
+			Assert.assertEquals(way1.labelPosition, way2.labelPosition);
+			Assert.assertEquals(way1.tags, way2.tags);
+			Assert.assertArrayEquals(way1.getLatLongs(), way2.getLatLongs());
+		}
+	}
+
+	private static List<Tile> getTiles() {
+		List<Tile> tiles = new ArrayList<Tile>();
+		for (byte zoomLevel = ZOOM_LEVEL_MIN; zoomLevel <= ZOOM_LEVEL_MAX; ++zoomLevel) {
+			int tileX = MercatorProjection.longitudeToTileX(0.04, zoomLevel);
+			int tileY = MercatorProjection.latitudeToTileY(0.04, zoomLevel);
+			tiles.add(new Tile(tileX, tileY, zoomLevel, 256));
+		}
+		return tiles;
+	}
+
+	private static MapDatabase openMapDatabase(boolean memoryMapped) {
+		MapDatabase mapDatabase = new MapDatabase(memoryMapped);
+		FileOpenResult fileOpenResult = mapDatabase.openFile(MAP_FILE);
+		Assert.assertTrue(fileOpenResult.getErrorMessage(), fileOpenResult.isSuccess());
+		Assert.assertEquals(memoryMapped, mapDatabase.isMemoryMapped());
+		return mapDatabase;
+	}
+
+	@Test
+	public void concurrentReadTest() throws Exception {
+		MapDatabase fileDatabase = openMapDatabase(false);
+		final MapDatabase mappedDatabase = openMapDatabase(true);
+
+		final List<Tile> tiles = getTiles();
+		final List<MapReadResult> expected = new ArrayList<MapReadResult>();
+		for (Tile tile : tiles) {
+			expected.add(fileDatabase.readMapData(tile));
+		}
+		fileDatabase.closeFile();
+
+		ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < NUMBER_OF_THREADS; ++i) {
+				futures.add(executorService.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for (int round = 0; round < ROUNDS; ++round) {
+							for (int j = 0; j < tiles.size(); ++j) {
+								assertMapReadResultEquals(expected.get(j), mappedDatabase.readMapData(tiles.get(j)));
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executorService.shutdown();
+		}
+
+		mappedDatabase.closeFile();
+		Assert.assertFalse(mappedDatabase.hasOpenFile());
+	}
+
+	@Test
+	public void executeQueryTest() {
+		MapDatabase fileDatabase = openMapDatabase(false);
+		MapDatabase mappedDatabase = openMapDatabase(true);
+
+		for (Tile tile : getTiles()) {
+			MapReadResult mapReadResult = mappedDatabase.readMapData(tile);
+			Assert.assertEquals(1, mapReadResult.pointOfInterests.size());
+			Assert.assertEquals(1, mapReadResult.ways.size());
+			assertMapReadResultEquals(fileDatabase.readMapData(tile), mapReadResult);
+		}
+
+		fileDatabase.closeFile();
+		mappedDatabase.closeFile();
+	}
+}
@@ -66,7 +66,7 @@ public class MapDatabaseWithDataTest {
 		LatLong latLong3 = new LatLong(0.08, 0.00, true);
 		LatLong[][] latLongsExpected = new LatLong[][] { { latLong1, latLong2, latLong3 } };
 
-		assertLatLongsEquals(latLongsExpected, way.latLongs);
+		assertLatLongsEquals(latLongsExpected, way.getLatLongs());
 		Assert.assertEquals(3, way.tags.size());
 		Assert.assertTrue(way.tags.contains(new Tag("highway=motorway")));
 		Assert.assertTrue(way.tags.contains(new Tag("name=ÄÖÜ")));
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.reader.header.FileOpenResult;
+
+public class MultiMapDatabaseTest {
+	private static final File MAP_FILE = new File("src/test/resources/with_data/output.map");
+	private static final byte ZOOM_LEVEL_MAX = 14;
+	private static final int ZOOM_LEVEL_MIN = 6;
+
+	private static void assertMapReadResultEquals(MapReadResult expected, MapReadResult actual) {
+		Assert.assertEquals(expected.isWater, actual.isWater);
+		Assert.assertEquals(expected.pointOfInterests.size(), actual.pointOfInterests.size());
+		for (int i = 0; i < expected.pointOfInterests.size(); ++i) {
+			PointOfInterest poi1 = expected.pointOfInterests.get(i);
+			PointOfInterest poi2 = actual.pointOfInterests.get(i);
+			Assert.assertEquals(poi1.position, poi2.position);
+			Assert.assertEquals(poi1.tags, poi2.tags);
+		}
+
+		Assert.assertEquals(expected.ways.size(), actual.ways.size());
+		for (int i = 0; i < expected.ways.size(); ++i) {
+			Way way1 = expected.ways.get(i);
+			Way way2 = actual.ways.get(i);
+			Assert.assertEquals(way1.tags, way2.tags);
+			Assert.assertArrayEquals(way1.getLatLongs(), way2.getLatLongs());
+		}
+	}
+
+	private static List<Tile> getTiles() {
+		List<Tile> tiles = new ArrayList<Tile>();
+		for (byte zoomLevel = ZOOM_LEVEL_MIN; zoomLevel <= ZOOM_LEVEL_MAX; ++zoomLevel) {
+			int tileX = MercatorProjection.longitudeToTileX(0.04, zoomLevel);
+			int tileY = MercatorProjection.latitudeToTileY(0.04, zoomLevel);
+			for (int y = tileY - 1; y <= tileY + 1; ++y) {
+				for (int x = tileX - 1; x <= tileX + 1; ++x) {
+					tiles.add(new Tile(x, y, zoomLevel, 256));
+				}
+			}
+		}
+		return tiles;
+	}
+
+	private static void openFile(MapDatabase mapDatabase) {
+		FileOpenResult fileOpenResult = mapDatabase.openFile(MAP_FILE);
+		Assert.assertTrue(fileOpenResult.getErrorMessage(), fileOpenResult.isSuccess());
+	}
+
+	@Test
+	public void openFileTest() {
+		MultiMapDatabase multiMapDatabase = new MultiMapDatabase();
+		Assert.assertFalse(multiMapDatabase.hasOpenFile());
+		try {
+			multiMapDatabase.getMapFileInfo();
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertTrue(true);
+		}
+
+		openFile(multiMapDatabase);
+		openFile(multiMapDatabase);
+		Assert.assertFalse(multiMapDatabase.openFile(new File("does_not_exist.map")).isSuccess());
+		Assert.assertTrue(multiMapDatabase.hasOpenFile());
+		Assert.assertEquals(2, multiMapDatabase.getNumberOfFiles());
+		Assert.assertEquals(multiMapDatabase.getMapFileInfo().boundingBox, multiMapDatabase.getBoundingBox());
+
+		multiMapDatabase.closeFile();
+		Assert.assertFalse(multiMapDatabase.hasOpenFile());
+		Assert.assertEquals(0, multiMapDatabase.getNumberOfFiles());
+	}
+
+	@Test
+	public void openFilesTest() {
+		MultiMapDatabase multiMapDatabase = new MultiMapDatabase();
+		openFile(multiMapDatabase);
+
+		// a map file which cannot be opened leaves the current map files opened
+		List<File> mapFiles = new ArrayList<File>();
+		mapFiles.add(MAP_FILE);
+		mapFiles.add(new File("does_not_exist.map"));
+		Assert.assertFalse(multiMapDatabase.openFiles(mapFiles).isSuccess());
+		Assert.assertEquals(1, multiMapDatabase.getNumberOfFiles());
+
+		mapFiles.set(1, MAP_FILE);
+		FileOpenResult fileOpenResult = multiMapDatabase.openFiles(mapFiles);
+		Assert.assertTrue(fileOpenResult.getErrorMessage(), fileOpenResult.isSuccess());
+		Assert.assertEquals(2, multiMapDatabase.getNumberOfFiles());
+
+		try {
+			multiMapDatabase.openFiles(new ArrayList<File>());
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+		multiMapDatabase.closeFile();
+	}
+
+	@Test
+	public void readMapDataTest() {
+		MapDatabase mapDatabase = new MapDatabase();
+		openFile(mapDatabase);
+		MultiMapDatabase multiMapDatabase = new MultiMapDatabase(true);
+		openFile(multiMapDatabase);
+		openFile(multiMapDatabase);
+
+		// the elements which are contained in both map files are only returned once
+		List<Tile> tiles = getTiles();
+		Map<Tile, MapReadResult> mapReadResults = multiMapDatabase.readMapData(tiles);
+		Assert.assertEquals(tiles, new ArrayList<Tile>(mapReadResults.keySet()));
+		BoundingBox boundingBox = multiMapDatabase.getBoundingBox();
+		for (Tile tile : tiles) {
+			if (!boundingBox.intersects(tile.getBoundingBox())) {
+				continue;
+			}
+			MapReadResult expected = mapDatabase.readMapData(tile);
+			assertMapReadResultEquals(expected, multiMapDatabase.readMapData(tile));
+			assertMapReadResultEquals(expected, mapReadResults.get(tile));
+		}
+
+		// a tile outside of all map files is empty
+		MapReadResult mapReadResult = multiMapDatabase.readMapData(new Tile(0, 0, (byte) 8, 256));
+		Assert.assertFalse(mapReadResult.isWater);
+		Assert.assertTrue(mapReadResult.pointOfInterests.isEmpty());
+		Assert.assertTrue(mapReadResult.ways.isEmpty());
+
+		multiMapDatabase.closeFile();
+		mapDatabase.closeFile();
+	}
+
+	@Test
+	public void singleFileTest() {
+		MapDatabase mapDatabase = new MapDatabase();
+		openFile(mapDatabase);
+		MultiMapDatabase multiMapDatabase = new MultiMapDatabase();
+		openFile(multiMapDatabase);
+
+		// a single map file is read unchanged, also outside of its bounding box
+		List<Tile> tiles = getTiles();
+		Map<Tile, MapReadResult> mapReadResults = multiMapDatabase.readMapData(tiles);
+		for (Tile tile : tiles) {
+			MapReadResult expected = mapDatabase.readMapData(tile);
+			assertMapReadResultEquals(expected, multiMapDatabase.readMapData(tile));
+			assertMapReadResultEquals(expected, mapReadResults.get(tile));
+		}
+
+		multiMapDatabase.closeFile();
+		mapDatabase.closeFile();
+	}
+}
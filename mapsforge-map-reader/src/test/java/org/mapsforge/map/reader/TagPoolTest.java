@@ -0,0 +1,197 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.reader;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.mapsforge.core.model.Tag;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.reader.header.FileOpenResult;
+
+public class TagPoolTest {
+	private static final Logger LOGGER = Logger.getLogger(TagPoolTest.class.getName());
+	private static final File MAP_FILE = new File("src/test/resources/with_data/output.map");
+	private static final int ROUNDS = 10000;
+	private static final String[] STREETS = { "Hauptstraße", "Bahnhofstraße", "Kirchweg", "АБВГДЕЖЗ", "ÄÖÜ" };
+
+	/**
+	 * @return the number of bytes allocated by the current thread or -1, if the JVM cannot count allocations.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+				return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	private static byte[][] getEncodedStreets() throws UnsupportedEncodingException {
+		byte[][] encoded = new byte[STREETS.length][];
+		for (int i = 0; i < STREETS.length; ++i) {
+			encoded[i] = STREETS[i].getBytes("UTF-8");
+		}
+		return encoded;
+	}
+
+	/**
+	 * @return true if the JVM provides {@code com.sun.management.ThreadMXBean} to count allocations.
+	 */
+	private static boolean isAllocationCountingSupported() {
+		try {
+			Class.forName("com.sun.management.ThreadMXBean");
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+		return getAllocatedBytes() >= 0;
+	}
+
+	@Test
+	public void allocationBenchmark() throws UnsupportedEncodingException {
+		Assume.assumeTrue(isAllocationCountingSupported());
+		byte[][] encoded = getEncodedStreets();
+		TagPool tagPool = new TagPool();
+
+		// warm up, this also fills the pool
+		int hashCodes = 0;
+		for (int round = 0; round < ROUNDS; ++round) {
+			for (byte[] bytes : encoded) {
+				hashCodes += tagPool.getTag("name", bytes, 0, bytes.length).hashCode();
+				hashCodes += new Tag("name", new String(bytes, "UTF-8")).hashCode();
+			}
+		}
+
+		long startBytes = getAllocatedBytes();
+		for (int round = 0; round < ROUNDS; ++round) {
+			for (byte[] bytes : encoded) {
+				hashCodes += new Tag("name", new String(bytes, "UTF-8")).hashCode();
+			}
+		}
+		long decodedBytes = getAllocatedBytes() - startBytes;
+
+		startBytes = getAllocatedBytes();
+		for (int round = 0; round < ROUNDS; ++round) {
+			for (byte[] bytes : encoded) {
+				hashCodes += tagPool.getTag("name", bytes, 0, bytes.length).hashCode();
+			}
+		}
+		long pooledBytes = getAllocatedBytes() - startBytes;
+
+		int tags = ROUNDS * encoded.length;
+		LOGGER.info("decoded tags: " + decodedBytes / tags + " bytes per tag, pooled tags: " + pooledBytes / tags
+				+ " bytes per tag (" + hashCodes + ")");
+		Assert.assertTrue(pooledBytes < decodedBytes);
+	}
+
+	@Test
+	public void concurrencyTest() throws InterruptedException, UnsupportedEncodingException {
+		final TagPool tagPool = new TagPool();
+		final byte[][] encoded = getEncodedStreets();
+		final Tag[][] decoded = new Tag[4][];
+		Thread[] threads = new Thread[decoded.length];
+		for (int i = 0; i < threads.length; ++i) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					decoded[index] = new Tag[encoded.length];
+					for (int j = 0; j < encoded.length; ++j) {
+						decoded[index][j] = tagPool.getTag("name", encoded[j].clone(), 0, encoded[j].length);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// equal tags decoded by different threads are the same object
+		for (int i = 1; i < decoded.length; ++i) {
+			for (int j = 0; j < encoded.length; ++j) {
+				Assert.assertSame(decoded[0][j], decoded[i][j]);
+			}
+		}
+	}
+
+	@Test
+	public void readMapDataTest() {
+		MapDatabase mapDatabase = new MapDatabase();
+		FileOpenResult fileOpenResult = mapDatabase.openFile(MAP_FILE);
+		Assert.assertTrue(fileOpenResult.getErrorMessage(), fileOpenResult.isSuccess());
+
+		int tileX = MercatorProjection.longitudeToTileX(0.04, (byte) 10);
+		int tileY = MercatorProjection.latitudeToTileY(0.04, (byte) 10);
+		Tile tile = new Tile(tileX, tileY, (byte) 10, 256);
+
+		MapReadResult mapReadResult1 = mapDatabase.readMapData(tile);
+		MapReadResult mapReadResult2 = mapDatabase.readMapData(tile);
+		List<Tag> tags1 = mapReadResult1.ways.get(0).tags;
+		List<Tag> tags2 = mapReadResult2.ways.get(0).tags;
+		Assert.assertEquals(tags1, tags2);
+		for (int i = 0; i < tags1.size(); ++i) {
+			// the tags of both reads are identical, not only equal
+			Assert.assertSame(tags1.get(i), tags2.get(i));
+		}
+
+		mapDatabase.closeFile();
+	}
+
+	@Test
+	public void tagPoolTest() throws UnsupportedEncodingException {
+		TagPool tagPool = new TagPool();
+		byte[][] encoded = getEncodedStreets();
+		for (int i = 0; i < encoded.length; ++i) {
+			Tag tag = tagPool.getTag("name", encoded[i], 0, encoded[i].length);
+			Assert.assertEquals(new Tag("name", STREETS[i]), tag);
+			Assert.assertSame(tag, tagPool.getTag("name", encoded[i].clone(), 0, encoded[i].length));
+		}
+		Tag ref = tagPool.getTag("ref", encoded[0], 0, encoded[0].length);
+		Assert.assertEquals(new Tag("ref", STREETS[0]), ref);
+
+		Tag elevation = tagPool.getTag("ele", 1024);
+		Assert.assertEquals(new Tag("ele=1024"), elevation);
+		Assert.assertSame(elevation, tagPool.getTag("ele", 1024));
+		Assert.assertEquals(new Tag("ele=0"), tagPool.getTag("ele", 0));
+		Assert.assertEquals(new Tag("ele=-5"), tagPool.getTag("ele", -5));
+
+		Tag[] tagTable = new Tag[] { new Tag("highway=primary"), new Tag("oneway=yes"), new Tag("bridge=yes") };
+		List<Tag> tags = tagPool.getTags(tagTable, new int[] { 0, 2, 5 }, 2);
+		Assert.assertEquals(2, tags.size());
+		Assert.assertSame(tagTable[0], tags.get(0));
+		Assert.assertSame(tagTable[2], tags.get(1));
+		Assert.assertSame(tags, tagPool.getTags(tagTable, new int[] { 0, 2 }, 2));
+		Assert.assertNotSame(tags, tagPool.getTags(tagTable, new int[] { 2, 0 }, 2));
+		Assert.assertTrue(tagPool.getTags(tagTable, new int[0], 0).isEmpty());
+
+		try {
+			tags.add(tagTable[1]);
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			Assert.assertTrue(true);
+		}
+	}
+}
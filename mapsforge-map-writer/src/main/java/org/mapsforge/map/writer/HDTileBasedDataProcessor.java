@@ -209,7 +209,7 @@ public final class HDTileBasedDataProcessor extends BaseTileBasedDataProcessor {
 	}
 
 	@Override
-	public TileData getTile(int baseZoomIndex, int tileCoordinateX, int tileCoordinateY) {
+	public synchronized TileData getTile(int baseZoomIndex, int tileCoordinateX, int tileCoordinateY) {
 		HDTileData hdt = getTileImpl(baseZoomIndex, tileCoordinateX, tileCoordinateY);
 		if (hdt == null) {
 			return null;
@@ -15,14 +15,20 @@
 package org.mapsforge.map.writer;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -85,6 +91,118 @@ public final class MapFileWriter {
 		}
 	}
 
+	/**
+	 * Encodes the rows of a sub file in the order in which they are written. If an executor service is given, the
+	 * following rows are encoded in parallel while the current row is written.
+	 */
+	private static class RowEncoder {
+		private final MapWriterConfiguration configuration;
+		private final TileBasedDataProcessor dataProcessor;
+		private final Deque<Future<byte[][]>> encodedRows = new ArrayDeque<>();
+		private final ExecutorService executorService;
+		private final LoadingCache<TDWay, Geometry> jtsGeometryCache;
+		private final int lengthX;
+		private int nextTileY;
+		private final Queue<TileBuffers> tileBuffersPool = new ConcurrentLinkedQueue<>();
+		private final TileCoordinate upperLeft;
+		private final int zoomIntervalIndex;
+
+		RowEncoder(MapWriterConfiguration configuration, TileBasedDataProcessor dataProcessor,
+				LoadingCache<TDWay, Geometry> jtsGeometryCache, int zoomIntervalIndex, TileCoordinate upperLeft,
+				int lengthX, ExecutorService executorService) {
+			this.configuration = configuration;
+			this.dataProcessor = dataProcessor;
+			this.jtsGeometryCache = jtsGeometryCache;
+			this.zoomIntervalIndex = zoomIntervalIndex;
+			this.upperLeft = upperLeft;
+			this.lengthX = lengthX;
+			this.executorService = executorService;
+			this.nextTileY = upperLeft.getY();
+		}
+
+		/**
+		 * Cancels the rows which are still encoded in the background.
+		 */
+		void cancel() {
+			for (Future<byte[][]> encodedRow : this.encodedRows) {
+				encodedRow.cancel(true);
+			}
+			this.encodedRows.clear();
+		}
+
+		byte[][] encodeRow(int tileY, ExecutorService wayExecutorService) {
+			TileBuffers tileBuffers = this.tileBuffersPool.poll();
+			if (tileBuffers == null) {
+				tileBuffers = new TileBuffers();
+			}
+
+			byte baseZoom = this.dataProcessor.getZoomIntervalConfiguration().getBaseZoom(this.zoomIntervalIndex);
+			byte[][] tiles = new byte[this.lengthX][];
+			for (int i = 0; i < this.lengthX; i++) {
+				TileCoordinate tileCoordinate = new TileCoordinate(this.upperLeft.getX() + i, tileY, baseZoom);
+				processTile(this.configuration, tileCoordinate, this.dataProcessor, this.jtsGeometryCache,
+						this.zoomIntervalIndex, tileBuffers, wayExecutorService);
+				tiles[i] = Arrays.copyOf(tileBuffers.tileBuffer.array(), tileBuffers.tileBuffer.position());
+			}
+
+			this.tileBuffersPool.add(tileBuffers);
+			return tiles;
+		}
+
+		/**
+		 * @param lastTileY
+		 *            the last row of the sub file, no rows after it are encoded
+		 * @return the encoded tiles of the next row
+		 */
+		byte[][] nextRow(int lastTileY) throws IOException {
+			if (this.executorService == null) {
+				// the ways of a tile are preprocessed in parallel instead
+				return encodeRow(this.nextTileY++, EXECUTOR_SERVICE);
+			}
+
+			int maximumRowsInFlight = this.configuration.getThreads() * ROWS_IN_FLIGHT_PER_THREAD;
+			while (this.nextTileY <= lastTileY && this.encodedRows.size() < maximumRowsInFlight) {
+				final int tileY = this.nextTileY++;
+				this.encodedRows.add(this.executorService.submit(new Callable<byte[][]>() {
+					@Override
+					public byte[][] call() {
+						// the other threads are busy with their own rows, so the ways are preprocessed on this thread
+						return encodeRow(tileY, null);
+					}
+				}));
+			}
+
+			try {
+				return this.encodedRows.remove().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while encoding tiles");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IOException(cause);
+			}
+		}
+	}
+
+	/**
+	 * The buffers needed to encode a single tile.
+	 */
+	private static class TileBuffers {
+		final ByteBuffer poiDataBuffer = ByteBuffer.allocate(POI_DATA_BUFFER_SIZE);
+		final ByteBuffer tileBuffer = ByteBuffer.allocate(TILE_BUFFER_SIZE);
+		final ByteBuffer wayBuffer = ByteBuffer.allocate(WAY_BUFFER_SIZE);
+		final ByteBuffer wayDataBuffer = ByteBuffer.allocate(WAY_DATA_BUFFER_SIZE);
+
+		TileBuffers() {
+			// do nothing
+		}
+	}
+
 	private static class WayPreprocessingCallable implements Callable<WayPreprocessingResult> {
 		private final MapWriterConfiguration configuration;
 		private final LoadingCache<TDWay, Geometry> jtsGeometryCache;
@@ -315,6 +433,11 @@ public final class MapFileWriter {
 	private static final String PROJECTION = "Mercator";
 	private static final int SIZE_ZOOMINTERVAL_CONFIGURATION = 19;
 
+	/**
+	 * The number of encoded rows per thread which may wait for the rows before them to be written.
+	 */
+	private static final int ROWS_IN_FLIGHT_PER_THREAD = 2;
+
 	private static final TileInfo TILE_INFO = TileInfo.getInstance();
 
 	private static final int tileSize = 256; // needed for optimal simplification, but set to constant here TODO
@@ -347,17 +470,29 @@ public final class MapFileWriter {
 				.maximumSize(JTS_GEOMETRY_CACHE_SIZE).concurrencyLevel(Runtime.getRuntime().availableProcessors() * 2)
 				.build(new JTSGeometryCacheLoader(dataProcessor));
 
+		// tiles are encoded on the writing thread if only one thread is configured
+		ExecutorService tileExecutorService = null;
+		if (configuration.getThreads() > 1) {
+			tileExecutorService = Executors.newFixedThreadPool(configuration.getThreads());
+		}
+
 		// SUB FILES
 		// for each zoom interval write a sub file
 		long currentFileSize = totalHeaderSize;
-		for (int i = 0; i < amountOfZoomIntervals; i++) {
-			// SUB FILE INDEX AND DATA
-			long subfileSize = writeSubfile(currentFileSize, i, dataProcessor, jtsGeometryCache, randomAccessFile,
-					configuration);
-			// SUB FILE META DATA IN CONTAINER HEADER
-			writeSubfileMetaDataToContainerHeader(dataProcessor.getZoomIntervalConfiguration(), i, currentFileSize,
-					subfileSize, containerHeaderBuffer);
-			currentFileSize += subfileSize;
+		try {
+			for (int i = 0; i < amountOfZoomIntervals; i++) {
+				// SUB FILE INDEX AND DATA
+				long subfileSize = writeSubfile(currentFileSize, i, dataProcessor, jtsGeometryCache, randomAccessFile,
+						configuration, tileExecutorService);
+				// SUB FILE META DATA IN CONTAINER HEADER
+				writeSubfileMetaDataToContainerHeader(dataProcessor.getZoomIntervalConfiguration(), i,
+						currentFileSize, subfileSize, containerHeaderBuffer);
+				currentFileSize += subfileSize;
+			}
+		} finally {
+			if (tileExecutorService != null) {
+				tileExecutorService.shutdownNow();
+			}
 		}
 
 		randomAccessFile.seek(0);
@@ -733,10 +868,45 @@ public final class MapFileWriter {
 		indexBuffer.put(indexBytes);
 	}
 
+	/**
+	 * Runs the given callables in order on the calling thread if no executor service is given.
+	 * 
+	 * @return the results in the order of the callables, null for failed callables
+	 */
+	private static List<WayPreprocessingResult> preprocessWays(List<WayPreprocessingCallable> callables,
+			ExecutorService executorService) throws InterruptedException {
+		List<WayPreprocessingResult> results = new ArrayList<>(callables.size());
+		if (executorService == null) {
+			for (WayPreprocessingCallable callable : callables) {
+				try {
+					results.add(callable.call());
+				} catch (RuntimeException e) {
+					LOGGER.log(Level.WARNING, "error in preprocessing of ways", e);
+					results.add(null);
+				}
+			}
+			return results;
+		}
+
+		for (Future<WayPreprocessingResult> wprFuture : executorService.invokeAll(callables)) {
+			try {
+				results.add(wprFuture.get());
+			} catch (ExecutionException e) {
+				LOGGER.log(Level.WARNING, "error in parallel preprocessing of ways", e);
+				results.add(null);
+			}
+		}
+		return results;
+	}
+
 	private static void processTile(MapWriterConfiguration configuration, TileCoordinate tileCoordinate,
 			TileBasedDataProcessor dataProcessor, LoadingCache<TDWay, Geometry> jtsGeometryCache,
-			int zoomIntervalIndex, ByteBuffer tileBuffer, ByteBuffer poiDataBuffer, ByteBuffer wayDataBuffer,
-			ByteBuffer wayBuffer) {
+			int zoomIntervalIndex, TileBuffers tileBuffers, ExecutorService wayExecutorService) {
+		final ByteBuffer tileBuffer = tileBuffers.tileBuffer;
+		final ByteBuffer poiDataBuffer = tileBuffers.poiDataBuffer;
+		final ByteBuffer wayDataBuffer = tileBuffers.wayDataBuffer;
+		final ByteBuffer wayBuffer = tileBuffers.wayBuffer;
+
 		tileBuffer.clear();
 		poiDataBuffer.clear();
 		wayDataBuffer.clear();
@@ -794,15 +964,7 @@ public final class MapFileWriter {
 						}
 					}
 					try {
-						List<Future<WayPreprocessingResult>> futures = EXECUTOR_SERVICE.invokeAll(callables);
-						for (Future<WayPreprocessingResult> wprFuture : futures) {
-							WayPreprocessingResult wpr;
-							try {
-								wpr = wprFuture.get();
-							} catch (ExecutionException e) {
-								LOGGER.log(Level.WARNING, "error in parallel preprocessing of ways", e);
-								continue;
-							}
+						for (WayPreprocessingResult wpr : preprocessWays(callables, wayExecutorService)) {
 							if (wpr != null) {
 								wayBuffer.clear();
 								// increment count of ways on this zoom level
@@ -843,7 +1005,8 @@ public final class MapFileWriter {
 
 	private static long writeSubfile(final long startPositionSubfile, final int zoomIntervalIndex,
 			final TileBasedDataProcessor dataStore, final LoadingCache<TDWay, Geometry> jtsGeometryCache,
-			final RandomAccessFile randomAccessFile, final MapWriterConfiguration configuration) throws IOException {
+			final RandomAccessFile randomAccessFile, final MapWriterConfiguration configuration,
+			final ExecutorService tileExecutorService) throws IOException {
 		LOGGER.fine("writing data for zoom interval " + zoomIntervalIndex + ", number of tiles: "
 				+ dataStore.getTileGridLayout(zoomIntervalIndex).getAmountTilesHorizontal()
 				* dataStore.getTileGridLayout(zoomIntervalIndex).getAmountTilesVertical());
@@ -868,11 +1031,6 @@ public final class MapFileWriter {
 				+ (configuration.isDebugStrings() ? DEBUG_INDEX_START_STRING.getBytes(UTF8_CHARSET).length : 0);
 
 		final ByteBuffer indexBuffer = ByteBuffer.allocate(indexBufferSize);
-		final ByteBuffer tileBuffer = ByteBuffer.allocate(TILE_BUFFER_SIZE);
-		final ByteBuffer wayDataBuffer = ByteBuffer.allocate(WAY_DATA_BUFFER_SIZE);
-		final ByteBuffer wayBuffer = ByteBuffer.allocate(WAY_BUFFER_SIZE);
-		final ByteBuffer poiDataBuffer = ByteBuffer.allocate(POI_DATA_BUFFER_SIZE);
-
 		final ByteBuffer multipleTilesBuffer = ByteBuffer.allocate(TILES_BUFFER_SIZE);
 
 		// write debug strings for tile index segment if necessary
@@ -883,29 +1041,38 @@ public final class MapFileWriter {
 		long currentSubfileOffset = indexBufferSize;
 		randomAccessFile.seek(startPositionSubfile + indexBufferSize);
 
-		for (int tileY = upperLeft.getY(); tileY < upperLeft.getY() + lengthY; tileY++) {
-			for (int tileX = upperLeft.getX(); tileX < upperLeft.getX() + lengthX; tileX++) {
-				TileCoordinate tileCoordinate = new TileCoordinate(tileX, tileY, baseZoomCurrentInterval);
-
-				processIndexEntry(tileCoordinate, indexBuffer, currentSubfileOffset);
-				processTile(configuration, tileCoordinate, dataStore, jtsGeometryCache, zoomIntervalIndex, tileBuffer,
-						poiDataBuffer, wayDataBuffer, wayBuffer);
-				currentSubfileOffset += tileBuffer.position();
-
-				writeTile(multipleTilesBuffer, tileBuffer, randomAccessFile);
-
-				if (++processedTiles % amountOfTilesInPercentStep == 0) {
-					if (processedTiles == amountTiles) {
-						LOGGER.info("written 100% of sub file for zoom interval index " + zoomIntervalIndex);
-					} else {
-						LOGGER.info("written " + (processedTiles / amountOfTilesInPercentStep) * PROGRESS_PERCENT_STEP
-								+ "% of sub file for zoom interval index " + zoomIntervalIndex);
+		// the rows are encoded in parallel and written in order, so the offsets are the same as in serial encoding
+		final int lastTileY = upperLeft.getY() + lengthY - 1;
+		RowEncoder rowEncoder = new RowEncoder(configuration, dataStore, jtsGeometryCache, zoomIntervalIndex,
+				upperLeft, lengthX, tileExecutorService);
+		try {
+			for (int tileY = upperLeft.getY(); tileY < upperLeft.getY() + lengthY; tileY++) {
+				byte[][] tiles = rowEncoder.nextRow(lastTileY);
+				for (int tileX = upperLeft.getX(); tileX < upperLeft.getX() + lengthX; tileX++) {
+					TileCoordinate tileCoordinate = new TileCoordinate(tileX, tileY, baseZoomCurrentInterval);
+					byte[] tile = tiles[tileX - upperLeft.getX()];
+
+					processIndexEntry(tileCoordinate, indexBuffer, currentSubfileOffset);
+					currentSubfileOffset += tile.length;
+
+					writeTile(multipleTilesBuffer, tile, randomAccessFile);
+
+					if (++processedTiles % amountOfTilesInPercentStep == 0) {
+						if (processedTiles == amountTiles) {
+							LOGGER.info("written 100% of sub file for zoom interval index " + zoomIntervalIndex);
+						} else {
+							LOGGER.info("written " + (processedTiles / amountOfTilesInPercentStep)
+									* PROGRESS_PERCENT_STEP + "% of sub file for zoom interval index "
+									+ zoomIntervalIndex);
+						}
 					}
-				}
 
-				// TODO accounting for progress information
-			} // end for loop over tile columns
-		} // /end for loop over tile rows
+					// TODO accounting for progress information
+				} // end for loop over tile columns
+			} // /end for loop over tile rows
+		} finally {
+			rowEncoder.cancel();
+		}
 
 		// write remaining tiles
 		if (multipleTilesBuffer.position() > 0) {
@@ -934,10 +1101,10 @@ public final class MapFileWriter {
 		buffer.putLong(subfileSize);
 	}
 
-	private static void writeTile(ByteBuffer multipleTilesBuffer, ByteBuffer tileBuffer,
-			RandomAccessFile randomAccessFile) throws IOException {
+	private static void writeTile(ByteBuffer multipleTilesBuffer, byte[] tile, RandomAccessFile randomAccessFile)
+			throws IOException {
 		// add tile to tiles buffer
-		multipleTilesBuffer.put(tileBuffer.array(), 0, tileBuffer.position());
+		multipleTilesBuffer.put(tile);
 
 		// if necessary, allocate new buffer
 		if (multipleTilesBuffer.remaining() < MIN_TILE_BUFFER_SIZE) {
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.writer;
+
+/**
+ * Maps OSM ids to long values. The entries are stored as (id, value) records in a {@link MappedStore} and looked up
+ * by binary search.
+ * <p>
+ * OSM data is usually sorted by id, in that case the records are already in order. Otherwise they are sorted in place
+ * before the first lookup after an unordered add.
+ */
+final class MappedIdTable {
+	private static final int RECORD_SIZE = 16;
+
+	private long lastId = Long.MIN_VALUE;
+	private volatile boolean sorted = true;
+	private final MappedStore store;
+
+	/**
+	 * @param prefix
+	 *            the prefix of the name of the temporary file
+	 */
+	MappedIdTable(String prefix) {
+		this.store = new MappedStore(prefix);
+	}
+
+	void add(long id, long value) {
+		if (id < this.lastId) {
+			this.sorted = false;
+		}
+		this.lastId = Math.max(this.lastId, id);
+		this.store.appendLong(id);
+		this.store.appendLong(value);
+	}
+
+	/**
+	 * @return the index of the entry with the given id, -1 if there is no such entry
+	 */
+	long find(long id) {
+		if (!this.sorted) {
+			sort();
+		}
+
+		long low = 0;
+		long high = size() - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			long middleId = getId(middle);
+			if (middleId < id) {
+				low = middle + 1;
+			} else if (middleId > id) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the value of the entry at the given index, see {@link #find(long)}
+	 */
+	long getValue(long index) {
+		return this.store.getLong(index * RECORD_SIZE + 8);
+	}
+
+	void release() {
+		this.store.release();
+	}
+
+	/**
+	 * @return the number of entries in this table
+	 */
+	long size() {
+		return this.store.size() / RECORD_SIZE;
+	}
+
+	private long getId(long index) {
+		return this.store.getLong(index * RECORD_SIZE);
+	}
+
+	private void siftDown(long root, long end) {
+		long parent = root;
+		while (2 * parent + 1 < end) {
+			long child = 2 * parent + 1;
+			if (child + 1 < end && getId(child) < getId(child + 1)) {
+				++child;
+			}
+			if (getId(parent) >= getId(child)) {
+				return;
+			}
+			swap(parent, child);
+			parent = child;
+		}
+	}
+
+	/**
+	 * Heap sort, it needs no additional memory.
+	 */
+	private synchronized void sort() {
+		if (this.sorted) {
+			return;
+		}
+
+		long n = size();
+		for (long i = n / 2 - 1; i >= 0; --i) {
+			siftDown(i, n);
+		}
+		for (long end = n - 1; end > 0; --end) {
+			swap(0, end);
+			siftDown(0, end);
+		}
+		this.sorted = true;
+	}
+
+	private void swap(long index1, long index2) {
+		long id = getId(index1);
+		long value = getValue(index1);
+		this.store.putLong(index1 * RECORD_SIZE, getId(index2));
+		this.store.putLong(index1 * RECORD_SIZE + 8, getValue(index2));
+		this.store.putLong(index2 * RECORD_SIZE, id);
+		this.store.putLong(index2 * RECORD_SIZE + 8, value);
+	}
+}
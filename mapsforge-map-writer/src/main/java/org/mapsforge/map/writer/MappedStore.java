@@ -0,0 +1,170 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A growable byte store in a memory-mapped temporary file. The data is paged in and out by the operating system and
+ * does not count against the Java heap.
+ * <p>
+ * Data is appended by a single thread, after that it may be read by several threads at the same time.
+ */
+final class MappedStore {
+	/**
+	 * The size of each mapped region, a multiple of all primitive sizes so that aligned values never span two regions.
+	 */
+	private static final int CHUNK_SIZE = 0x4000000; // 64MB
+	private static final Logger LOGGER = Logger.getLogger(MappedStore.class.getName());
+
+	private static int getOffset(long position) {
+		return (int) (position % CHUNK_SIZE);
+	}
+
+	private final List<MappedByteBuffer> chunks = new ArrayList<>();
+	private final File file;
+	private final FileChannel fileChannel;
+	private final RandomAccessFile randomAccessFile;
+	private long size;
+
+	/**
+	 * @param prefix
+	 *            the prefix of the name of the temporary file
+	 */
+	MappedStore(String prefix) {
+		try {
+			this.file = File.createTempFile(prefix, ".tmp");
+			this.file.deleteOnExit();
+			this.randomAccessFile = new RandomAccessFile(this.file, "rw");
+			this.fileChannel = this.randomAccessFile.getChannel();
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot create temporary file", e);
+		}
+	}
+
+	/**
+	 * @return the position of the appended bytes
+	 */
+	long append(byte[] bytes) {
+		long position = this.size;
+		ensureCapacity(position + bytes.length);
+		int offset = 0;
+		while (offset < bytes.length) {
+			MappedByteBuffer chunk = getChunk(position + offset);
+			int length = Math.min(bytes.length - offset, CHUNK_SIZE - getOffset(position + offset));
+			chunk.position(getOffset(position + offset));
+			chunk.put(bytes, offset, length);
+			offset += length;
+		}
+		this.size += bytes.length;
+		return position;
+	}
+
+	/**
+	 * @return the position of the appended value
+	 */
+	long appendLong(long value) {
+		long position = this.size;
+		ensureCapacity(position + 8);
+		this.size += 8;
+		putLong(position, value);
+		return position;
+	}
+
+	/**
+	 * Reads bytes into the given array, the array is filled completely.
+	 */
+	void get(long position, byte[] bytes) {
+		int offset = 0;
+		while (offset < bytes.length) {
+			int length = Math.min(bytes.length - offset, CHUNK_SIZE - getOffset(position + offset));
+			// a duplicate has its own position, so several threads can read at the same time
+			ByteBuffer duplicate = getChunk(position + offset).duplicate();
+			duplicate.position(getOffset(position + offset));
+			duplicate.get(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	int getInt(long position) {
+		int offset = getOffset(position);
+		if (offset <= CHUNK_SIZE - 4) {
+			return getChunk(position).getInt(offset);
+		}
+		byte[] bytes = new byte[4];
+		get(position, bytes);
+		return (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+	}
+
+	long getLong(long position) {
+		return getChunk(position).getLong(getOffset(position));
+	}
+
+	/**
+	 * Overwrites an 8-byte aligned value which has been appended before.
+	 */
+	void putLong(long position, long value) {
+		getChunk(position).putLong(getOffset(position), value);
+	}
+
+	/**
+	 * Unmaps and deletes the temporary file.
+	 */
+	void release() {
+		this.chunks.clear();
+		this.size = 0;
+		try {
+			this.fileChannel.close();
+			this.randomAccessFile.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "cannot close temporary file " + this.file, e);
+		}
+		// the mapped regions are only unmapped when they are garbage collected, the file is then deleted on exit
+		if (!this.file.delete()) {
+			LOGGER.fine("temporary file is deleted on exit: " + this.file);
+		}
+	}
+
+	/**
+	 * @return the number of bytes in this store
+	 */
+	long size() {
+		return this.size;
+	}
+
+	private void ensureCapacity(long capacity) {
+		while ((long) this.chunks.size() * CHUNK_SIZE < capacity) {
+			try {
+				this.chunks.add(this.fileChannel.map(FileChannel.MapMode.READ_WRITE, (long) this.chunks.size()
+						* CHUNK_SIZE, CHUNK_SIZE));
+			} catch (IOException e) {
+				throw new IllegalStateException("cannot map temporary file " + this.file, e);
+			}
+		}
+	}
+
+	private MappedByteBuffer getChunk(long position) {
+		return this.chunks.get((int) (position / CHUNK_SIZE));
+	}
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.writer;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.mapsforge.map.writer.model.MapWriterConfiguration;
+import org.mapsforge.map.writer.model.TDNode;
+import org.mapsforge.map.writer.model.TDRelation;
+import org.mapsforge.map.writer.model.TDWay;
+import org.mapsforge.map.writer.model.TileCoordinate;
+import org.mapsforge.map.writer.model.TileData;
+import org.mapsforge.map.writer.model.TileInfo;
+import org.mapsforge.map.writer.util.GeoUtils;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.store.SimpleObjectStore;
+import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
+
+/**
+ * A TileBasedDataStore that keeps its temporary data structures in memory-mapped files outside of the Java heap.
+ * <p>
+ * The coordinates of all nodes are stored in a sorted id table and the ways are stored as compact records with the
+ * ids of their way nodes, both are resolved to {@link TDNode} and {@link TDWay} objects only when a tile is written.
+ * Only POIs and relations are kept as objects. This is nearly as fast as the {@link RAMTileBasedDataProcessor} and
+ * needs a fraction of its heap memory, the operating system pages the mapped files in and out as needed.
+ * <p>
+ * Like the {@link RAMTileBasedDataProcessor}, the nodes of a way must be added before the way.
+ */
+public final class OffHeapTileBasedDataProcessor extends BaseTileBasedDataProcessor {
+	/**
+	 * Creates a new {@link OffHeapTileBasedDataProcessor}.
+	 * 
+	 * @param configuration
+	 *            the configuration
+	 * @return a new instance of a {@link OffHeapTileBasedDataProcessor}
+	 */
+	public static OffHeapTileBasedDataProcessor newInstance(MapWriterConfiguration configuration) {
+		return new OffHeapTileBasedDataProcessor(configuration);
+	}
+
+	private static String readString(DataInputStream dataInputStream) throws IOException {
+		return dataInputStream.readBoolean() ? dataInputStream.readUTF() : null;
+	}
+
+	private static void writeString(DataOutputStream dataOutputStream, String string) throws IOException {
+		dataOutputStream.writeBoolean(string != null);
+		if (string != null) {
+			dataOutputStream.writeUTF(string);
+		}
+	}
+
+	final TLongObjectMap<List<TDRelation>> additionalRelationTags;
+	final TLongObjectMap<TDWay> virtualWays;
+	private final MappedIdTable nodes;
+	private final TLongObjectMap<TDNode> pois;
+	private final SimpleObjectStore<Relation> relationStore;
+	private final HDTileData[][][] tileData;
+	private final ByteArrayOutputStream wayBuffer;
+	private final MappedIdTable wayIndex;
+	private final MappedStore wayStore;
+
+	private OffHeapTileBasedDataProcessor(MapWriterConfiguration configuration) {
+		super(configuration);
+		this.nodes = new MappedIdTable("offHeapNodes");
+		this.wayIndex = new MappedIdTable("offHeapWayIndex");
+		this.wayStore = new MappedStore("offHeapWays");
+		this.wayBuffer = new ByteArrayOutputStream();
+		this.relationStore = new SimpleObjectStore<>(new SingleClassObjectSerializationFactory(Relation.class),
+				"heapRelations", true);
+
+		this.tileData = new HDTileData[this.zoomIntervalConfiguration.getNumberOfZoomIntervals()][][];
+		for (int i = 0; i < this.zoomIntervalConfiguration.getNumberOfZoomIntervals(); i++) {
+			this.tileData[i] = new HDTileData[this.tileGridLayouts[i].getAmountTilesHorizontal()][this.tileGridLayouts[i]
+					.getAmountTilesVertical()];
+		}
+		this.pois = new TLongObjectHashMap<>();
+		this.virtualWays = new TLongObjectHashMap<>();
+		this.additionalRelationTags = new TLongObjectHashMap<>();
+	}
+
+	@Override
+	public void addNode(Node node) {
+		TDNode tdNode = TDNode.fromNode(node, this.preferredLanguage);
+		this.nodes.add(tdNode.getId(), (long) tdNode.getLatitude() << 32 | tdNode.getLongitude() & 0xffffffffL);
+		if (tdNode.isPOI()) {
+			this.pois.put(tdNode.getId(), tdNode);
+			addPOI(tdNode);
+		}
+	}
+
+	@Override
+	public void addRelation(Relation relation) {
+		this.relationStore.add(relation);
+	}
+
+	@Override
+	public void addWay(Way way) {
+		TDWay tdWay = TDWay.fromWay(way, this, this.preferredLanguage);
+		if (tdWay == null) {
+			return;
+		}
+		this.wayIndex.add(tdWay.getId(), this.wayStore.size());
+		this.wayStore.append(toBytes(tdWay));
+		this.maxWayID = Math.max(this.maxWayID, way.getId());
+
+		if (tdWay.isCoastline()) {
+			// find matching tiles on zoom level 12
+			Set<TileCoordinate> coastLineTiles = GeoUtils.mapWayToTiles(tdWay, TileInfo.TILE_INFO_ZOOMLEVEL, 0);
+			for (TileCoordinate tileCoordinate : coastLineTiles) {
+				TLongHashSet coastlines = this.tilesToCoastlines.get(tileCoordinate);
+				if (coastlines == null) {
+					coastlines = new TLongHashSet();
+					this.tilesToCoastlines.put(tileCoordinate, coastlines);
+				}
+				coastlines.add(tdWay.getId());
+			}
+		}
+	}
+
+	@Override
+	public void complete() {
+		// handle relations
+		ReleasableIterator<Relation> relationReader = this.relationStore.iterate();
+		RelationHandler relationHandler = new RelationHandler();
+		while (relationReader.hasNext()) {
+			Relation entry = relationReader.next();
+			TDRelation tdRelation = TDRelation.fromRelation(entry, this, this.preferredLanguage);
+			relationHandler.execute(tdRelation);
+		}
+		relationReader.release();
+
+		// handle ways in the order in which they have been added
+		WayHandler wayHandler = new WayHandler();
+		long position = 0;
+		while (position < this.wayStore.size()) {
+			int length = this.wayStore.getInt(position);
+			TDWay tdWay = readWay(position);
+			position += 4 + length;
+
+			List<TDRelation> associatedRelations = this.additionalRelationTags.get(tdWay.getId());
+			if (associatedRelations != null) {
+				for (TDRelation tileDataRelation : associatedRelations) {
+					tdWay.mergeRelationInformation(tileDataRelation);
+				}
+			}
+
+			wayHandler.execute(tdWay);
+		}
+
+		OSMTagMapping.getInstance().optimizePoiOrdering(this.histogramPoiTags);
+		OSMTagMapping.getInstance().optimizeWayOrdering(this.histogramWayTags);
+	}
+
+	@Override
+	public Set<TDWay> getCoastLines(TileCoordinate tc) {
+		if (tc.getZoomlevel() <= TileInfo.TILE_INFO_ZOOMLEVEL) {
+			return Collections.emptySet();
+		}
+		TileCoordinate correspondingOceanTile = tc.translateToZoomLevel(TileInfo.TILE_INFO_ZOOMLEVEL).get(0);
+		TLongHashSet coastlines = this.tilesToCoastlines.get(correspondingOceanTile);
+		if (coastlines == null) {
+			return Collections.emptySet();
+		}
+
+		TLongIterator it = coastlines.iterator();
+		Set<TDWay> coastlinesAsTDWay = new HashSet<>(coastlines.size());
+		while (it.hasNext()) {
+			TDWay tdWay = getWay(it.next());
+			if (tdWay != null) {
+				coastlinesAsTDWay.add(tdWay);
+			}
+		}
+		return coastlinesAsTDWay;
+	}
+
+	@Override
+	public List<TDWay> getInnerWaysOfMultipolygon(long outerWayID) {
+		TLongArrayList innerwayIDs = this.outerToInnerMapping.get(outerWayID);
+		if (innerwayIDs == null) {
+			return null;
+		}
+		return getInnerWaysOfMultipolygon(innerwayIDs.toArray());
+	}
+
+	@Override
+	public TDNode getNode(long id) {
+		TDNode poi = this.pois.get(id);
+		if (poi != null) {
+			return poi;
+		}
+
+		long index = this.nodes.find(id);
+		if (index < 0) {
+			LOGGER.finer("node cannot be found: " + id);
+			return null;
+		}
+		long coordinates = this.nodes.getValue(index);
+		return new TDNode(id, (int) (coordinates >> 32), (int) coordinates, (short) 0, (byte) 0, null, null);
+	}
+
+	@Override
+	public synchronized TileData getTile(int baseZoomIndex, int tileCoordinateX, int tileCoordinateY) {
+		HDTileData hdt = getTileImpl(baseZoomIndex, tileCoordinateX, tileCoordinateY);
+		if (hdt == null) {
+			return null;
+		}
+
+		return fromHDTileData(hdt);
+	}
+
+	@Override
+	public TDWay getWay(long id) {
+		long index = this.wayIndex.find(id);
+		if (index < 0) {
+			// is it a virtual way?
+			return this.virtualWays.get(id);
+		}
+		return readWay(this.wayIndex.getValue(index));
+	}
+
+	@Override
+	public void release() {
+		this.nodes.release();
+		this.wayIndex.release();
+		this.wayStore.release();
+		this.relationStore.release();
+	}
+
+	@Override
+	protected HDTileData getTileImpl(int zoom, int tileX, int tileY) {
+		int tileCoordinateXIndex = tileX - this.tileGridLayouts[zoom].getUpperLeft().getX();
+		int tileCoordinateYIndex = tileY - this.tileGridLayouts[zoom].getUpperLeft().getY();
+		// check for valid range
+		if (tileCoordinateXIndex < 0 || tileCoordinateYIndex < 0 || this.tileData[zoom].length <= tileCoordinateXIndex
+				|| this.tileData[zoom][tileCoordinateXIndex].length <= tileCoordinateYIndex) {
+			return null;
+		}
+
+		HDTileData td = this.tileData[zoom][tileCoordinateXIndex][tileCoordinateYIndex];
+		if (td == null) {
+			td = new HDTileData();
+			this.tileData[zoom][tileCoordinateXIndex][tileCoordinateYIndex] = td;
+		}
+
+		return td;
+	}
+
+	@Override
+	protected void handleAdditionalRelationTags(TDWay way, TDRelation relation) {
+		List<TDRelation> associatedRelations = this.additionalRelationTags.get(way.getId());
+		if (associatedRelations == null) {
+			associatedRelations = new ArrayList<>();
+			this.additionalRelationTags.put(way.getId(), associatedRelations);
+		}
+		associatedRelations.add(relation);
+	}
+
+	@Override
+	protected void handleVirtualInnerWay(TDWay virtualWay) {
+		this.virtualWays.put(virtualWay.getId(), virtualWay);
+	}
+
+	@Override
+	protected void handleVirtualOuterWay(TDWay virtualWay) {
+		this.virtualWays.put(virtualWay.getId(), virtualWay);
+	}
+
+	private RAMTileData fromHDTileData(HDTileData hdt) {
+		final RAMTileData td = new RAMTileData();
+		TLongIterator it = hdt.getPois().iterator();
+		while (it.hasNext()) {
+			td.addPOI(this.pois.get(it.next()));
+		}
+
+		it = hdt.getWays().iterator();
+		while (it.hasNext()) {
+			long id = it.next();
+			TDWay way = getWay(id);
+			if (way == null) {
+				LOGGER.finer("referenced way non-existing" + id);
+				continue;
+			}
+			td.addWay(way);
+
+			if (this.outerToInnerMapping.contains(way.getId())) {
+				way.setShape(TDWay.MULTI_POLYGON);
+			}
+
+			List<TDRelation> associatedRelations = this.additionalRelationTags.get(id);
+			if (associatedRelations != null) {
+				for (TDRelation tileDataRelation : associatedRelations) {
+					way.mergeRelationInformation(tileDataRelation);
+				}
+			}
+		}
+
+		return td;
+	}
+
+	private List<TDWay> getInnerWaysOfMultipolygon(long[] innerWayIDs) {
+		if (innerWayIDs == null) {
+			return Collections.emptyList();
+		}
+		List<TDWay> res = new ArrayList<>();
+		for (long id : innerWayIDs) {
+			TDWay current = getWay(id);
+			if (current == null) {
+				continue;
+			}
+			res.add(current);
+		}
+
+		return res;
+	}
+
+	private TDWay readWay(long position) {
+		byte[] bytes = new byte[this.wayStore.getInt(position)];
+		this.wayStore.get(position + 4, bytes);
+
+		try (DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			long id = dataInputStream.readLong();
+			byte layer = dataInputStream.readByte();
+			byte shape = dataInputStream.readByte();
+			String name = readString(dataInputStream);
+			String houseNumber = readString(dataInputStream);
+			String ref = readString(dataInputStream);
+
+			short[] tags = null;
+			int numberOfTags = dataInputStream.readShort();
+			if (numberOfTags >= 0) {
+				tags = new short[numberOfTags];
+				for (int i = 0; i < numberOfTags; i++) {
+					tags[i] = dataInputStream.readShort();
+				}
+			}
+
+			TDNode[] wayNodes = new TDNode[dataInputStream.readInt()];
+			for (int i = 0; i < wayNodes.length; i++) {
+				wayNodes[i] = getNode(dataInputStream.readLong());
+			}
+
+			return new TDWay(id, layer, name, houseNumber, ref, tags, shape, wayNodes);
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot read way at position " + position, e);
+		}
+	}
+
+	/**
+	 * @return the serialized way with its length as prefix
+	 */
+	private byte[] toBytes(TDWay way) {
+		this.wayBuffer.reset();
+		try (DataOutputStream dataOutputStream = new DataOutputStream(this.wayBuffer)) {
+			// placeholder for the length
+			dataOutputStream.writeInt(0);
+			dataOutputStream.writeLong(way.getId());
+			dataOutputStream.writeByte(way.getLayer());
+			dataOutputStream.writeByte(way.getShape());
+			writeString(dataOutputStream, way.getName());
+			writeString(dataOutputStream, way.getHouseNumber());
+			writeString(dataOutputStream, way.getRef());
+
+			short[] tags = way.getTags();
+			dataOutputStream.writeShort(tags == null ? -1 : tags.length);
+			if (tags != null) {
+				for (short tag : tags) {
+					dataOutputStream.writeShort(tag);
+				}
+			}
+
+			dataOutputStream.writeInt(way.getWayNodes().length);
+			for (TDNode wayNode : way.getWayNodes()) {
+				dataOutputStream.writeLong(wayNode.getId());
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot serialize way " + way.getId(), e);
+		}
+
+		byte[] bytes = this.wayBuffer.toByteArray();
+		int length = bytes.length - 4;
+		bytes[0] = (byte) (length >>> 24);
+		bytes[1] = (byte) (length >>> 16);
+		bytes[2] = (byte) (length >>> 8);
+		bytes[3] = (byte) length;
+		return bytes;
+	}
+}
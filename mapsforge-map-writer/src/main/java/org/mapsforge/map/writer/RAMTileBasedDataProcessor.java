@@ -171,7 +171,7 @@ public final class RAMTileBasedDataProcessor extends BaseTileBasedDataProcessor
 	}
 
 	@Override
-	public TileData getTile(int zoom, int tileX, int tileY) {
+	public synchronized TileData getTile(int zoom, int tileX, int tileY) {
 		return getTileImpl(zoom, tileX, tileY);
 	}
 
@@ -49,6 +49,7 @@ public class MapWriterConfiguration {
 	private boolean skipInvalidRelations;
 
 	private OSMTagMapping tagMapping;
+	private int threads = 1;
 	private boolean wayClipping;
 
 	private String writerVersion;
@@ -238,6 +239,13 @@ public class MapWriterConfiguration {
 		return this.tagMapping;
 	}
 
+	/**
+	 * @return the number of threads which encode the tiles of a sub file
+	 */
+	public int getThreads() {
+		return this.threads;
+	}
+
 	/**
 	 * @return the writerVersion
 	 */
@@ -461,6 +469,18 @@ public class MapWriterConfiguration {
 		this.skipInvalidRelations = skipInvalidRelations;
 	}
 
+	/**
+	 * @param threads
+	 *            the number of threads which encode the tiles of a sub file, 1 encodes them on the writing thread
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be >= 1");
+		}
+
+		this.threads = threads;
+	}
+
 	/**
 	 * @param wayClipping
 	 *            the wayClipping to set
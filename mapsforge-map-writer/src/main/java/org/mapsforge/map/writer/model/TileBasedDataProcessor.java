@@ -90,7 +90,8 @@ public interface TileBasedDataProcessor {
 	List<TDWay> getInnerWaysOfMultipolygon(long outerWayID);
 
 	/**
-	 * Retrieves all the data that is associated with a tile.
+	 * Retrieves all the data that is associated with a tile. The tiles of a sub file may be retrieved by several
+	 * threads at the same time.
 	 * 
 	 * @param baseZoomIndex
 	 *            index of the base zoom, as defined in a ZoomIntervalConfiguration
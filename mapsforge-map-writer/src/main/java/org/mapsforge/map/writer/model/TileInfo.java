@@ -16,6 +16,7 @@ package org.mapsforge.map.writer.model;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Level;
@@ -54,8 +55,13 @@ public final class TileInfo {
 	private final BitSet seaTileInfo = new BitSet(N_BITS);
 
 	private TileInfo(String strInputFile) {
+		InputStream inputStream = TileInfo.class.getClassLoader().getResourceAsStream(strInputFile);
+		if (inputStream == null) {
+			LOGGER.log(Level.SEVERE, "tile info file not found, no tiles are marked as water: " + strInputFile);
+			return;
+		}
 		try {
-			DataInputStream dis = new DataInputStream(TileInfo.class.getClassLoader().getResourceAsStream(strInputFile));
+			DataInputStream dis = new DataInputStream(inputStream);
 			byte currentByte;
 
 			long start = System.currentTimeMillis();
@@ -40,6 +40,7 @@ class MapFileWriterFactory extends TaskManagerFactory {
 	private static final String PARAM_SIMPLIFICATION_FACTOR = "simplification-factor";
 	private static final String PARAM_SKIP_INVALID_RELATIONS = "skip-invalid-relations";
 	private static final String PARAM_TAG_MAPPING_FILE = "tag-conf-file";
+	private static final String PARAM_THREADS = "threads";
 	private static final String PARAM_TYPE = "type";
 	private static final String PARAM_WAY_CLIPPING = "way-clipping";
 	private static final String PARAM_ZOOMINTERVAL_CONFIG = "zoom-interval-conf";
@@ -69,6 +70,7 @@ class MapFileWriterFactory extends TaskManagerFactory {
 		configuration.setDataProcessorType(getStringArgument(taskConfig, PARAM_TYPE, Constants.DEFAULT_PARAM_TYPE));
 		configuration.setBboxEnlargement(getIntegerArgument(taskConfig, PARAM_BBOX_ENLARGEMENT,
 				Constants.DEFAULT_PARAM_BBOX_ENLARGEMENT));
+		configuration.setThreads(getIntegerArgument(taskConfig, PARAM_THREADS, Constants.DEFAULT_PARAM_THREADS));
 
 		configuration.setPreferredLanguage(getStringArgument(taskConfig, PARAM_PREFERRED_LANGUAGE, null));
 		configuration
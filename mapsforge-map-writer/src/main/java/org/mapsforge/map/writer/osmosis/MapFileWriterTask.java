@@ -24,6 +24,7 @@ import java.util.logging.Logger;
 import org.mapsforge.core.model.BoundingBox;
 import org.mapsforge.map.writer.HDTileBasedDataProcessor;
 import org.mapsforge.map.writer.MapFileWriter;
+import org.mapsforge.map.writer.OffHeapTileBasedDataProcessor;
 import org.mapsforge.map.writer.RAMTileBasedDataProcessor;
 import org.mapsforge.map.writer.model.MapWriterConfiguration;
 import org.mapsforge.map.writer.model.TileBasedDataProcessor;
@@ -73,6 +74,8 @@ public class MapFileWriterTask implements Sink {
 		if (this.configuration.getBboxConfiguration() != null) {
 			if ("ram".equalsIgnoreCase(configuration.getDataProcessorType())) {
 				this.tileBasedGeoObjectStore = RAMTileBasedDataProcessor.newInstance(configuration);
+			} else if ("offheap".equalsIgnoreCase(configuration.getDataProcessorType())) {
+				this.tileBasedGeoObjectStore = OffHeapTileBasedDataProcessor.newInstance(configuration);
 			} else {
 				this.tileBasedGeoObjectStore = HDTileBasedDataProcessor.newInstance(configuration);
 			}
@@ -134,6 +137,8 @@ public class MapFileWriterTask implements Sink {
 					this.configuration.validate();
 					if ("ram".equals(this.configuration.getDataProcessorType())) {
 						this.tileBasedGeoObjectStore = RAMTileBasedDataProcessor.newInstance(this.configuration);
+					} else if ("offheap".equals(this.configuration.getDataProcessorType())) {
+						this.tileBasedGeoObjectStore = OffHeapTileBasedDataProcessor.newInstance(this.configuration);
 					} else {
 						this.tileBasedGeoObjectStore = HDTileBasedDataProcessor.newInstance(this.configuration);
 					}
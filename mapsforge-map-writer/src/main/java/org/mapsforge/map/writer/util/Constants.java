@@ -37,6 +37,11 @@ public final class Constants {
 	 */
 	public static final String DEFAULT_PARAM_OUTFILE = "mapsforge.map";
 
+	/**
+	 * Default number of threads for encoding tiles.
+	 */
+	public static final int DEFAULT_PARAM_THREADS = Runtime.getRuntime().availableProcessors();
+
 	/**
 	 * Default data processor type.
 	 */
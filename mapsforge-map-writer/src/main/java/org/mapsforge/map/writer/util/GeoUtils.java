@@ -80,7 +80,7 @@ public final class GeoUtils {
 	 *            the tile coordinate
 	 * @param enlargementInMeters
 	 *            the bounding box buffer
-	 * @return the clipped geometry
+	 * @return the clipped geometry, null if it cannot be clipped
 	 */
 	public static Geometry clipToTile(TDWay way, Geometry geometry, TileCoordinate tileCoordinate,
 			int enlargementInMeters) {
@@ -103,13 +103,11 @@ public final class GeoUtils {
 				LOGGER.log(Level.WARNING, "clipped way is not valid, trying to repair it: " + way.getId());
 				ret = JTSUtils.repairInvalidPolygon(ret);
 				if (ret == null) {
-					way.setInvalid(true);
 					LOGGER.log(Level.WARNING, "could not repait invalid polygon: " + way.getId());
 				}
 			}
 		} catch (TopologyException e) {
 			LOGGER.log(Level.WARNING, "JTS cannot clip way, not storing it in data file: " + way.getId(), e);
-			way.setInvalid(true);
 			return null;
 		}
 		return ret;
@@ -261,7 +259,7 @@ public final class GeoUtils {
 	 *            the zoom level
 	 * @param simplificationFactor
 	 *            the simplification factor
-	 * @return the simplified geometry
+	 * @return the simplified geometry, the given geometry if it cannot be simplified
 	 */
 	public static Geometry simplifyGeometry(TDWay way, Geometry geometry, byte zoomlevel, int tileSize,
 			double simplificationFactor) {
@@ -278,7 +276,6 @@ public final class GeoUtils {
 		} catch (TopologyException e) {
 			LOGGER.log(Level.FINE,
 					"JTS cannot simplify way due to an error, not simplifying way with id: " + way.getId(), e);
-			way.setInvalid(true);
 			return geometry;
 		}
 
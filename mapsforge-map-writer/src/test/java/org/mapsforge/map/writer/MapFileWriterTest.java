@@ -14,47 +14,179 @@
  */
 package org.mapsforge.map.writer;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mapsforge.map.writer.model.MapWriterConfiguration;
 import org.mapsforge.map.writer.model.TileBasedDataProcessor;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 
 public class MapFileWriterTest {
-	private MapWriterConfiguration configuration;
+	private static final int NUMBER_OF_POIS = 500;
+	private static final int NUMBER_OF_WAYS = 300;
+	// magic byte, header size, file version and file size
+	private static final int OFFSET_DATE_OF_CREATION = 36;
+
+	// the tag mapping can only be loaded once
+	private static MapWriterConfiguration configuration;
+
+	private static void addRandomData(TileBasedDataProcessor dataProcessor, Random random) {
+		long nodeId = 1;
+		for (int i = 0; i < NUMBER_OF_POIS; i++) {
+			dataProcessor.addNode(new Node(createEntityData(nodeId++, new Tag("amenity", "university"), new Tag(
+					"name", "poi " + i)), snap(52 + random.nextDouble()), snap(13 + random.nextDouble())));
+		}
+
+		for (int i = 0; i < NUMBER_OF_WAYS; i++) {
+			boolean beach = random.nextBoolean();
+			double latitude = 52.05 + random.nextDouble() * 0.9;
+			double longitude = 13.05 + random.nextDouble() * 0.9;
+			double size = 0.001 + random.nextDouble() * 0.05;
+
+			List<WayNode> wayNodes = new ArrayList<>();
+			long firstNodeId = nodeId;
+			int numberOfNodes = 4 + random.nextInt(8);
+			for (int j = 0; j < numberOfNodes; j++) {
+				double angle = 2 * Math.PI * j / numberOfNodes;
+				double radius = size * (0.5 + random.nextDouble() / 2);
+				dataProcessor.addNode(new Node(createEntityData(nodeId), snap(latitude + radius * Math.sin(angle)),
+						snap(longitude + radius * Math.cos(angle))));
+				wayNodes.add(new WayNode(nodeId++));
+			}
+			if (beach) {
+				// closed polygon
+				wayNodes.add(new WayNode(firstNodeId));
+			}
+
+			Tag tag = beach ? new Tag("natural", "beach") : new Tag("natural", "coastline");
+			dataProcessor.addWay(new Way(createEntityData(i + 1, tag, new Tag("name", "way " + i)), wayNodes));
+		}
+	}
+
+	private static CommonEntityData createEntityData(long id, Tag... tags) {
+		Collection<Tag> tagList = new ArrayList<>();
+		for (Tag tag : tags) {
+			tagList.add(tag);
+		}
+		return new CommonEntityData(id, 1, new Date(0), OsmUser.NONE, 0, tagList);
+	}
+
+	private static byte[] readFileWithoutDate(File file) throws IOException {
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		for (int i = OFFSET_DATE_OF_CREATION; i < OFFSET_DATE_OF_CREATION + 8; i++) {
+			bytes[i] = 0;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Moves the coordinate to the middle of its microdegree, so that it is not changed by the limited precision of the
+	 * osmosis stores in the HD data processor.
+	 */
+	private static double snap(double coordinate) {
+		return (Math.floor(coordinate * 1000000) + 0.5) / 1000000;
+	}
+
+	@BeforeClass
+	public static void setUpClass() {
+		configuration = new MapWriterConfiguration();
+		// configuration.addOutputFile(getStringArgument(taskConfig, PARAM_OUTFILE,
+		// Constants.DEFAULT_PARAM_OUTFILE));
+		configuration.setWriterVersion("test");
+		configuration.loadTagMappingFile("src/test/resources/tag-mapping.xml");
+		configuration.addMapStartPosition("52.455882,13.297244");
+		configuration.addMapStartZoom("14");
+		configuration.addBboxConfiguration("52,13,53,14");
+		configuration.addZoomIntervalConfiguration("5,0,7,10,8,11,14,12,18");
+		configuration.setComment("i love mapsforge");
+		configuration.setDebugStrings(false);
+		configuration.setPolygonClipping(true);
+		configuration.setWayClipping(true);
+		configuration.setSimplification(0.00001);
+		configuration.setDataProcessorType("ram");
+		configuration.setBboxEnlargement(10);
+		configuration.setPreferredLanguage("de");
+		configuration.addEncodingChoice("auto");
+		configuration.validate();
+	}
+
 	private TileBasedDataProcessor dataProcessor;
 
 	@Before
 	public void setUp() {
-		this.configuration = new MapWriterConfiguration();
-		// this.configuration.addOutputFile(getStringArgument(taskConfig, PARAM_OUTFILE,
-		// Constants.DEFAULT_PARAM_OUTFILE));
-		this.configuration.setWriterVersion("test");
-		this.configuration.loadTagMappingFile("src/test/resources/tag-mapping.xml");
-		this.configuration.addMapStartPosition("52.455882,13.297244");
-		this.configuration.addMapStartZoom("14");
-		this.configuration.addBboxConfiguration("52,13,53,14");
-		this.configuration.addZoomIntervalConfiguration("5,0,7,10,8,11,14,12,18");
-		this.configuration.setComment("i love mapsforge");
-		this.configuration.setDebugStrings(false);
-		this.configuration.setPolygonClipping(true);
-		this.configuration.setWayClipping(true);
-		this.configuration.setSimplification(0.00001);
-		this.configuration.setDataProcessorType("ram");
-		this.configuration.setBboxEnlargement(10);
-		this.configuration.setPreferredLanguage("de");
-		this.configuration.addEncodingChoice("auto");
-		this.configuration.validate();
-
-		this.dataProcessor = RAMTileBasedDataProcessor.newInstance(this.configuration);
+		this.dataProcessor = RAMTileBasedDataProcessor.newInstance(configuration);
+	}
+
+	@Test
+	public void testOffHeapDataProcessor() throws IOException {
+		// the HD data processor adds the ways to the tiles in the same order
+		TileBasedDataProcessor hdDataProcessor = HDTileBasedDataProcessor.newInstance(configuration);
+		addRandomData(hdDataProcessor, new Random(42));
+		hdDataProcessor.complete();
+		TileBasedDataProcessor offHeapDataProcessor = OffHeapTileBasedDataProcessor.newInstance(configuration);
+		addRandomData(offHeapDataProcessor, new Random(42));
+		offHeapDataProcessor.complete();
+
+		File hdFile = File.createTempFile("hdfile", ".map");
+		File offHeapFile = File.createTempFile("offheap", ".map");
+		hdFile.deleteOnExit();
+		offHeapFile.deleteOnExit();
+
+		configuration.setOutputFile(hdFile);
+		MapFileWriter.writeFile(configuration, hdDataProcessor);
+		configuration.setOutputFile(offHeapFile);
+		MapFileWriter.writeFile(configuration, offHeapDataProcessor);
+		hdDataProcessor.release();
+		offHeapDataProcessor.release();
+
+		Assert.assertArrayEquals(readFileWithoutDate(hdFile), readFileWithoutDate(offHeapFile));
+	}
+
+	@Test
+	public void testParallelEncoding() throws IOException {
+		addRandomData(this.dataProcessor, new Random(42));
+		this.dataProcessor.complete();
+
+		File serialFile = File.createTempFile("serial", ".map");
+		File parallelFile = File.createTempFile("parallel", ".map");
+		serialFile.deleteOnExit();
+		parallelFile.deleteOnExit();
+
+		configuration.setOutputFile(serialFile);
+		configuration.setThreads(1);
+		MapFileWriter.writeFile(configuration, this.dataProcessor);
+
+		configuration.setOutputFile(parallelFile);
+		configuration.setThreads(4);
+		MapFileWriter.writeFile(configuration, this.dataProcessor);
+
+		byte[] serialBytes = readFileWithoutDate(serialFile);
+		byte[] parallelBytes = readFileWithoutDate(parallelFile);
+		// the header alone is 219 bytes
+		Assert.assertTrue(serialBytes.length > 1000);
+		Assert.assertArrayEquals(serialBytes, parallelBytes);
 	}
 
 	@Test
 	public void testWriteHeaderBuffer() {
 		ByteBuffer headerBuffer = ByteBuffer.allocate(MapFileWriter.HEADER_BUFFER_SIZE);
-		int headerLength = MapFileWriter.writeHeaderBuffer(this.configuration, this.dataProcessor, headerBuffer);
+		int headerLength = MapFileWriter.writeHeaderBuffer(configuration, this.dataProcessor, headerBuffer);
 
 		// expected header length
 		// 20 + 4 + 4 + 8 + 8 + 16 + 2
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.writer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedIdTableTest {
+	private static final int NUMBER_OF_IDS = 10000;
+
+	private static void verify(MappedIdTable mappedIdTable, List<Long> ids) {
+		Assert.assertEquals(ids.size(), mappedIdTable.size());
+		for (Long id : ids) {
+			long index = mappedIdTable.find(id.longValue());
+			Assert.assertTrue(index >= 0);
+			Assert.assertEquals(-id.longValue(), mappedIdTable.getValue(index));
+		}
+		Assert.assertEquals(-1, mappedIdTable.find(-1));
+		Assert.assertEquals(-1, mappedIdTable.find(3 * NUMBER_OF_IDS + 1));
+	}
+
+	@Test
+	public void sortedTest() {
+		List<Long> ids = new ArrayList<>();
+		MappedIdTable mappedIdTable = new MappedIdTable("test");
+		for (long id = 0; id < NUMBER_OF_IDS; ++id) {
+			ids.add(Long.valueOf(3 * id));
+			mappedIdTable.add(3 * id, -3 * id);
+		}
+
+		verify(mappedIdTable, ids);
+		Assert.assertEquals(-1, mappedIdTable.find(1));
+		mappedIdTable.release();
+	}
+
+	@Test
+	public void unsortedTest() {
+		List<Long> ids = new ArrayList<>();
+		for (long id = 0; id < NUMBER_OF_IDS; ++id) {
+			ids.add(Long.valueOf(3 * id));
+		}
+		Collections.shuffle(ids, new Random(42));
+
+		MappedIdTable mappedIdTable = new MappedIdTable("test");
+		for (Long id : ids) {
+			mappedIdTable.add(id.longValue(), -id.longValue());
+		}
+
+		verify(mappedIdTable, ids);
+		mappedIdTable.release();
+	}
+}
@@ -19,11 +19,13 @@ import org.mapsforge.core.graphics.Canvas;
 import org.mapsforge.core.model.BoundingBox;
 import org.mapsforge.core.model.LatLong;
 import org.mapsforge.core.model.Point;
+import org.mapsforge.core.model.Rectangle;
 import org.mapsforge.map.model.DisplayModel;
 
 public abstract class Layer {
 	protected DisplayModel displayModel;
 	private Redrawer assignedRedrawer;
+	private boolean dirty;
 	private boolean visible = true;
 
 	/**
@@ -40,6 +42,30 @@ public abstract class Layer {
 	 */
 	public abstract void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint);
 
+	/**
+	 * Draws the part of this {@code Layer} which lies within the given area of the canvas, the rest of the canvas must
+	 * not be changed. This is used to draw only the newly exposed parts of a {@link #isStatic() static} layer after the
+	 * map has been moved.
+	 * <p>
+	 * The default implementation restricts the clip of the canvas to the area and draws the whole layer.
+	 * 
+	 * @param boundingBox
+	 *            the geographical area which is visible on the whole canvas.
+	 * @param zoomLevel
+	 *            the zoom level at which this {@code Layer} should draw itself.
+	 * @param canvas
+	 *            the canvas on which this {@code Layer} should draw itself.
+	 * @param topLeftPoint
+	 *            the top-left pixel position of the canvas relative to the top-left map position.
+	 * @param area
+	 *            the area of the canvas in pixels which should be drawn.
+	 */
+	public void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint, Rectangle area) {
+		canvas.setClip((int) area.left, (int) area.top, (int) area.getWidth(), (int) area.getHeight());
+		draw(boundingBox, zoomLevel, canvas, topLeftPoint);
+		canvas.resetClip();
+	}
+
 	/**
 	 * Gets the geographic position of this layer element, if it exists.
 	 * <p>
@@ -51,6 +77,21 @@ public abstract class Layer {
 		return null;
 	}
 
+	/**
+	 * Returns if the output of this {@code Layer} only changes with the map position and after a call of
+	 * {@link #requestRedraw()}. The {@link LayerManager} keeps the output of the static layers at the bottom of the
+	 * layer list in a bitmap, which is reused until one of them requests a redraw. After the map has been moved only
+	 * the newly exposed parts are drawn, so a static layer must draw its elements at whole pixels relative to the
+	 * rounded top-left point, like the tiles of a {@link TileLayer}.
+	 * <p>
+	 * The default implementation of this method returns false, such a layer is drawn for every frame.
+	 * 
+	 * @return true if this {@code Layer} is static, false otherwise.
+	 */
+	public boolean isStatic() {
+		return false;
+	}
+
 	/**
 	 * @return true if this {@code Layer} is currently visible, false otherwise. The default value is true.
 	 */
@@ -100,9 +141,10 @@ public abstract class Layer {
 	}
 
 	/**
-	 * Requests an asynchronous redrawing of all layers.
+	 * Requests an asynchronous redrawing of all layers and marks the output of this {@code Layer} as changed.
 	 */
 	public final synchronized void requestRedraw() {
+		this.dirty = true;
 		if (this.assignedRedrawer != null) {
 			this.assignedRedrawer.redrawLayers();
 		}
@@ -149,6 +191,15 @@ public abstract class Layer {
 		onAdd();
 	}
 
+	/**
+	 * @return true if a redraw has been requested since the last call of this method, false otherwise.
+	 */
+	final synchronized boolean resetDirty() {
+		boolean result = this.dirty;
+		this.dirty = false;
+		return result;
+	}
+
 	final synchronized void unassign() {
 		if (this.assignedRedrawer == null) {
 			throw new IllegalStateException("layer is not assigned");
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mapsforge.core.graphics.Bitmap;
+import org.mapsforge.core.graphics.Canvas;
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.Dimension;
+import org.mapsforge.core.model.Point;
+import org.mapsforge.core.model.Rectangle;
+
+/**
+ * Keeps the output of the static layers at the bottom of the layer list in a bitmap.
+ * <p>
+ * The bitmap is reused as long as the same layers are drawn at the same position and none of them has requested a
+ * redraw. If the map has only been moved at the same zoom level, the previous output is shifted by the change of the
+ * rounded top-left point and only the newly exposed strips are drawn, see
+ * {@link Layer#draw(BoundingBox, byte, Canvas, Point, Rectangle)}. Everything else redraws all static layers.
+ * <p>
+ * This class is not thread-safe.
+ */
+class LayerCache {
+	private int backgroundColor;
+	private Bitmap bitmap;
+	private final Canvas canvas;
+	private final GraphicFactory graphicFactory;
+	private final List<Layer> layers;
+	private Bitmap spareBitmap;
+	private int tileSize;
+	private Point topLeftPoint;
+	private byte zoomLevel;
+
+	LayerCache(GraphicFactory graphicFactory) {
+		this.graphicFactory = graphicFactory;
+		this.canvas = graphicFactory.createCanvas();
+		this.layers = new ArrayList<Layer>();
+	}
+
+	/**
+	 * Releases the bitmaps of this cache, the next call of {@link #draw} redraws all layers.
+	 */
+	void clear() {
+		if (this.bitmap != null) {
+			this.bitmap.decrementRefCount();
+			this.bitmap = null;
+		}
+		if (this.spareBitmap != null) {
+			this.spareBitmap.decrementRefCount();
+			this.spareBitmap = null;
+		}
+		this.layers.clear();
+		this.topLeftPoint = null;
+	}
+
+	/**
+	 * Releases the bitmaps and the canvas of this cache, it must not be used afterwards.
+	 */
+	void destroy() {
+		clear();
+		this.canvas.destroy();
+	}
+
+	/**
+	 * Returns the output of the given static layers, which is only drawn as far as it has changed.
+	 * 
+	 * @param layers
+	 *            the static layers from bottom to top.
+	 * @param dirty
+	 *            true if one of the layers has requested a redraw.
+	 * @param boundingBox
+	 *            the geographical area which is visible on the canvas.
+	 * @param zoomLevel
+	 *            the current zoom level.
+	 * @param topLeftPoint
+	 *            the top-left pixel position of the canvas relative to the top-left map position.
+	 * @param dimension
+	 *            the dimension of the canvas.
+	 * @param tileSize
+	 *            the current tile size.
+	 * @param backgroundColor
+	 *            the color of the map background.
+	 * @return the bitmap which contains the output of all layers, it is owned by this cache.
+	 */
+	Bitmap draw(List<Layer> layers, boolean dirty, BoundingBox boundingBox, byte zoomLevel, Point topLeftPoint,
+			Dimension dimension, int tileSize, int backgroundColor) {
+		if (this.bitmap == null || this.bitmap.getWidth() != dimension.width
+				|| this.bitmap.getHeight() != dimension.height) {
+			clear();
+			this.bitmap = this.graphicFactory.createBitmap(dimension.width, dimension.height, false);
+		}
+
+		if (!dirty && this.topLeftPoint != null && zoomLevel == this.zoomLevel && tileSize == this.tileSize
+				&& backgroundColor == this.backgroundColor && layers.equals(this.layers)) {
+			// the content moves by the change of the rounded top-left point, like the tiles
+			int shiftX = (int) (Math.round(this.topLeftPoint.x) - Math.round(topLeftPoint.x));
+			int shiftY = (int) (Math.round(this.topLeftPoint.y) - Math.round(topLeftPoint.y));
+			if (shiftX == 0 && shiftY == 0) {
+				this.topLeftPoint = topLeftPoint;
+				return this.bitmap;
+			} else if (Math.abs(shiftX) < dimension.width && Math.abs(shiftY) < dimension.height) {
+				translate(layers, boundingBox, zoomLevel, topLeftPoint, dimension, shiftX, shiftY);
+				this.topLeftPoint = topLeftPoint;
+				return this.bitmap;
+			}
+		}
+
+		this.bitmap.setBackgroundColor(backgroundColor);
+		this.canvas.setBitmap(this.bitmap);
+		this.canvas.resetClip();
+		for (Layer layer : layers) {
+			layer.draw(boundingBox, zoomLevel, this.canvas, topLeftPoint);
+		}
+
+		this.layers.clear();
+		this.layers.addAll(layers);
+		this.backgroundColor = backgroundColor;
+		this.tileSize = tileSize;
+		this.topLeftPoint = topLeftPoint;
+		this.zoomLevel = zoomLevel;
+		return this.bitmap;
+	}
+
+	private void translate(List<Layer> layers, BoundingBox boundingBox, byte zoomLevel, Point topLeftPoint,
+			Dimension dimension, int shiftX, int shiftY) {
+		if (this.spareBitmap == null) {
+			this.spareBitmap = this.graphicFactory.createBitmap(dimension.width, dimension.height, false);
+		}
+		this.spareBitmap.setBackgroundColor(this.backgroundColor);
+		this.canvas.setBitmap(this.spareBitmap);
+		this.canvas.resetClip();
+		this.canvas.drawBitmap(this.bitmap, shiftX, shiftY);
+
+		// the exposed columns over the full height and the exposed rows between them
+		int width = dimension.width;
+		int height = dimension.height;
+		List<Rectangle> areas = new ArrayList<Rectangle>(2);
+		if (shiftX != 0) {
+			areas.add(shiftX > 0 ? new Rectangle(0, 0, shiftX, height) : new Rectangle(width + shiftX, 0, width,
+					height));
+		}
+		if (shiftY != 0) {
+			int left = Math.max(shiftX, 0);
+			int right = width + Math.min(shiftX, 0);
+			areas.add(shiftY > 0 ? new Rectangle(left, 0, right, shiftY) : new Rectangle(left, height + shiftY, right,
+					height));
+		}
+		for (Rectangle area : areas) {
+			for (Layer layer : layers) {
+				layer.draw(boundingBox, zoomLevel, this.canvas, topLeftPoint, area);
+			}
+		}
+		this.canvas.resetClip();
+
+		Bitmap bitmapTemp = this.bitmap;
+		this.bitmap = this.spareBitmap;
+		this.spareBitmap = bitmapTemp;
+	}
+}
@@ -16,6 +16,9 @@
  */
 package org.mapsforge.map.layer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.mapsforge.core.graphics.Bitmap;
 import org.mapsforge.core.graphics.Canvas;
 import org.mapsforge.core.graphics.GraphicFactory;
@@ -23,16 +26,25 @@ import org.mapsforge.core.model.BoundingBox;
 import org.mapsforge.core.model.Dimension;
 import org.mapsforge.core.model.MapPosition;
 import org.mapsforge.core.model.Point;
+import org.mapsforge.map.model.DisplayModel;
 import org.mapsforge.map.model.MapViewPosition;
 import org.mapsforge.map.util.MapPositionUtil;
 import org.mapsforge.map.util.PausableThread;
 import org.mapsforge.map.view.FrameBuffer;
 import org.mapsforge.map.view.MapView;
 
+/**
+ * Draws the visible layers into the frame buffer whenever a redraw has been requested.
+ * <p>
+ * The {@link Layer#isStatic() static} layers at the bottom of the layer list, usually the tile layers, are kept in a
+ * {@link LayerCache}. A frame in which only other layers have changed, e.g. a position marker, reuses their output, and
+ * after a move of the map only the newly exposed parts are drawn. All other layers are drawn on top for every frame.
+ */
 public class LayerManager extends PausableThread implements Redrawer {
 	private static final int MILLISECONDS_PER_FRAME = 30;
 
 	private final Canvas drawingCanvas;
+	private final LayerCache layerCache;
 	private final Layers layers;
 	private final MapView mapView;
 	private final MapViewPosition mapViewPosition;
@@ -46,6 +58,7 @@ public class LayerManager extends PausableThread implements Redrawer {
 		this.mapViewPosition = mapViewPosition;
 
 		this.drawingCanvas = graphicFactory.createCanvas();
+		this.layerCache = new LayerCache(graphicFactory);
 		this.layers = new Layers(this, mapView.getModel().displayModel);
 	}
 
@@ -67,6 +80,7 @@ public class LayerManager extends PausableThread implements Redrawer {
 			layer.onDestroy();
 		}
 		this.drawingCanvas.destroy();
+		this.layerCache.destroy();
 	}
 
 	@Override
@@ -78,19 +92,42 @@ public class LayerManager extends PausableThread implements Redrawer {
 		Bitmap bitmap = frameBuffer.getDrawingBitmap();
 		if (bitmap != null) {
 			this.drawingCanvas.setBitmap(bitmap);
+			this.drawingCanvas.resetClip();
 
 			MapPosition mapPosition = this.mapViewPosition.getMapPosition();
 			Dimension canvasDimension = this.drawingCanvas.getDimension();
-			int tileSize = this.mapView.getModel().displayModel.getTileSize();
+			DisplayModel displayModel = this.mapView.getModel().displayModel;
+			int tileSize = displayModel.getTileSize();
 			BoundingBox boundingBox = MapPositionUtil.getBoundingBox(mapPosition, canvasDimension, tileSize);
 			Point topLeftPoint = MapPositionUtil.getTopLeftPoint(mapPosition, canvasDimension, tileSize);
 
+			// the static layers below the first other visible layer are cached
+			List<Layer> staticLayers = new ArrayList<Layer>();
+			List<Layer> otherLayers = new ArrayList<Layer>();
+			boolean dirty = false;
 			for (Layer layer : this.layers) {
-				if (layer.isVisible()) {
-					layer.draw(boundingBox, mapPosition.zoomLevel, this.drawingCanvas, topLeftPoint);
+				boolean layerDirty = layer.resetDirty();
+				if (!layer.isVisible()) {
+					continue;
+				} else if (otherLayers.isEmpty() && layer.isStatic()) {
+					staticLayers.add(layer);
+					dirty |= layerDirty;
+				} else {
+					otherLayers.add(layer);
 				}
 			}
 
+			if (staticLayers.isEmpty()) {
+				this.layerCache.clear();
+			} else {
+				Bitmap staticBitmap = this.layerCache.draw(staticLayers, dirty, boundingBox, mapPosition.zoomLevel,
+						topLeftPoint, canvasDimension, tileSize, displayModel.getBackgroundColor());
+				this.drawingCanvas.drawBitmap(staticBitmap, 0, 0);
+			}
+			for (Layer layer : otherLayers) {
+				layer.draw(boundingBox, mapPosition.zoomLevel, this.drawingCanvas, topLeftPoint);
+			}
+
 			if (!mapViewPosition.animationInProgress()) {
 				// this causes a lot of flickering when an animation
 				// is in progress
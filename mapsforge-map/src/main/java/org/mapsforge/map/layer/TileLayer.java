@@ -16,6 +16,7 @@
 package org.mapsforge.map.layer;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -24,21 +25,44 @@ import org.mapsforge.core.graphics.Canvas;
 import org.mapsforge.core.graphics.Matrix;
 import org.mapsforge.core.model.BoundingBox;
 import org.mapsforge.core.model.Point;
+import org.mapsforge.core.model.Rectangle;
 import org.mapsforge.core.model.Tile;
 import org.mapsforge.map.layer.cache.TileCache;
 import org.mapsforge.map.layer.queue.Job;
 import org.mapsforge.map.layer.queue.JobQueue;
 import org.mapsforge.map.model.DisplayModel;
 import org.mapsforge.map.model.MapViewPosition;
+import org.mapsforge.map.model.common.Observable;
+import org.mapsforge.map.model.common.Observer;
 import org.mapsforge.map.util.LayerUtil;
 
 public abstract class TileLayer<T extends Job> extends Layer {
+	/**
+	 * Restricts the clip of the canvas to the intersection of the given rectangles, a null rectangle does not restrict
+	 * the clip.
+	 */
+	private static void setClip(Canvas canvas, Rectangle area, Rectangle rectangle) {
+		double left = area == null ? rectangle.left : area.left;
+		double top = area == null ? rectangle.top : area.top;
+		double right = area == null ? rectangle.right : area.right;
+		double bottom = area == null ? rectangle.bottom : area.bottom;
+		if (area != null && rectangle != null) {
+			left = Math.max(left, rectangle.left);
+			top = Math.max(top, rectangle.top);
+			right = Math.min(right, rectangle.right);
+			bottom = Math.min(bottom, rectangle.bottom);
+		}
+		canvas.setClip((int) left, (int) top, (int) Math.max(0, right - left), (int) Math.max(0, bottom - top));
+	}
+
 	protected final boolean hasJobQueue;
 	protected final boolean isTransparent;
 	protected JobQueue<T> jobQueue;
 	protected final TileCache tileCache;
 	private final MapViewPosition mapViewPosition;
 	private final Matrix matrix;
+	private final Observer tileCacheObserver;
+	private final TilePrefetcher tilePrefetcher;
 
 	public TileLayer(TileCache tileCache, MapViewPosition mapViewPosition, Matrix matrix, boolean isTransparent) {
 		this(tileCache, mapViewPosition, matrix, isTransparent, true);
@@ -58,13 +82,18 @@ public abstract class TileLayer<T extends Job> extends Layer {
 		this.mapViewPosition = mapViewPosition;
 		this.matrix = matrix;
 		this.isTransparent = isTransparent;
+		this.tilePrefetcher = new TilePrefetcher(mapViewPosition);
+		this.tileCacheObserver = new Observer() {
+			@Override
+			public void onChange() {
+				// a cached tile has become available without blocking
+				requestRedraw();
+			}
+		};
 	}
 
 	@Override
 	public void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint) {
-		List<TilePosition> tilePositions = LayerUtil.getTilePositions(boundingBox, zoomLevel, topLeftPoint,
-				this.displayModel.getTileSize());
-
 		// In a rotation situation it is possible that drawParentTileBitmap sets the
 		// clipping bounds to portrait, while the device is just being rotated into
 		// landscape: the result is a partially painted screen that only goes away
@@ -74,6 +103,99 @@ public abstract class TileLayer<T extends Job> extends Layer {
 		// I assume that this is a pretty cheap operation, otherwise it would be better
 		// to hook this into the onConfigurationChanged call chain.
 		canvas.resetClip();
+		drawTiles(boundingBox, zoomLevel, canvas, topLeftPoint, null);
+	}
+
+	/**
+	 * Only the tiles which intersect the area are drawn, all visible tiles are still requested from the tile cache and
+	 * the job queue.
+	 */
+	@Override
+	public void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint, Rectangle area) {
+		setClip(canvas, area, null);
+		drawTiles(boundingBox, zoomLevel, canvas, topLeftPoint, area);
+		canvas.resetClip();
+	}
+
+	/**
+	 * @return the prefetcher which predicts the tiles that will become visible next, its budget can be set to zero to
+	 *         disable prefetching.
+	 */
+	public TilePrefetcher getTilePrefetcher() {
+		return this.tilePrefetcher;
+	}
+
+	/**
+	 * A tile layer is static, it requests a redraw whenever a tile becomes available.
+	 */
+	@Override
+	public boolean isStatic() {
+		return true;
+	}
+
+	@Override
+	public synchronized void setDisplayModel(DisplayModel displayModel) {
+		super.setDisplayModel(displayModel);
+		if (displayModel != null && this.hasJobQueue) {
+			this.jobQueue = new JobQueue<T>(this.mapViewPosition, this.displayModel);
+		} else {
+			this.jobQueue = null;
+		}
+	}
+
+	@Override
+	protected void onAdd() {
+		if (this.tileCache instanceof Observable) {
+			((Observable) this.tileCache).addObserver(this.tileCacheObserver);
+		}
+		super.onAdd();
+	}
+
+	@Override
+	protected void onRemove() {
+		if (this.tileCache instanceof Observable) {
+			((Observable) this.tileCache).removeObserver(this.tileCacheObserver);
+		}
+		super.onRemove();
+	}
+
+	protected abstract T createJob(Tile tile);
+	protected void retrieveLabelsOnly(T job) {}
+
+	private void drawParentTileBitmap(Canvas canvas, Point point, Tile tile, Rectangle area) {
+		Tile cachedParentTile = getCachedParentTile(tile, 4);
+		if (cachedParentTile != null) {
+			Bitmap bitmap = this.tileCache.getImmediately(createJob(cachedParentTile));
+			if (bitmap != null) {
+				int tileSize = this.displayModel.getTileSize();
+				long translateX = tile.getShiftX(cachedParentTile) * tileSize;
+				long translateY = tile.getShiftY(cachedParentTile) * tileSize;
+				byte zoomLevelDiff = (byte) (tile.zoomLevel - cachedParentTile.zoomLevel);
+				float scaleFactor = (float) Math.pow(2, zoomLevelDiff);
+
+				int x = (int) Math.round(point.x);
+				int y = (int) Math.round(point.y);
+
+				this.matrix.reset();
+				this.matrix.translate(x - translateX, y - translateY);
+				this.matrix.scale(scaleFactor, scaleFactor);
+
+				setClip(canvas, area, new Rectangle(x, y, x + tileSize, y + tileSize));
+				canvas.drawBitmap(bitmap, this.matrix);
+				if (area == null) {
+					canvas.resetClip();
+				} else {
+					setClip(canvas, area, null);
+				}
+				bitmap.decrementRefCount();
+			}
+		}
+	}
+
+	private void drawTiles(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint,
+			Rectangle area) {
+		int tileSize = this.displayModel.getTileSize();
+		List<TilePosition> tilePositions = LayerUtil.getTilePositions(boundingBox, zoomLevel, topLeftPoint, tileSize);
 
 		if (!isTransparent) {
 			canvas.fillColor(this.displayModel.getBackgroundColor());
@@ -84,6 +206,9 @@ public abstract class TileLayer<T extends Job> extends Layer {
 			jobs.add(createJob(tilePosition.tile));
 		}
 		this.tileCache.setWorkingSet(jobs);
+		if (this.hasJobQueue) {
+			this.jobQueue.setWorkingSet(jobs);
+		}
 
 		boolean waitingForCachedTiles = false;
 
@@ -92,6 +217,22 @@ public abstract class TileLayer<T extends Job> extends Layer {
 			Point point = tilePosition.point;
 			Tile tile = tilePosition.tile;
 			T job = createJob(tile);
+
+			int x = (int) Math.round(point.x);
+			int y = (int) Math.round(point.y);
+			if (area != null && (x + tileSize <= area.left || x >= area.right || y + tileSize <= area.top
+					|| y >= area.bottom)) {
+				// the tile is not drawn, but it must be rendered if it is still missing
+				if (!this.tileCache.containsKey(job)) {
+					if (this.hasJobQueue) {
+						this.jobQueue.add(job);
+					}
+				} else {
+					retrieveLabelsOnly(job);
+				}
+				continue;
+			}
+
 			Bitmap bitmap = this.tileCache.getImmediately(job);
 
 			if (bitmap == null) {
@@ -100,59 +241,39 @@ public abstract class TileLayer<T extends Job> extends Layer {
 				} else {
 					waitingForCachedTiles = true;
 				}
-				drawParentTileBitmap(canvas, point, tile);
+				drawParentTileBitmap(canvas, point, tile, area);
 			} else {
 				retrieveLabelsOnly(job);
-				canvas.drawBitmap(bitmap, (int) Math.round(point.x), (int) Math.round(point.y));
+				canvas.drawBitmap(bitmap, x, y);
 				bitmap.decrementRefCount();
 			}
 		}
 		if (this.hasJobQueue) {
+			prefetchTiles(boundingBox, zoomLevel);
 			this.jobQueue.notifyWorkers();
 		}
 
-		if (waitingForCachedTiles) {
+		if (waitingForCachedTiles && !(this.tileCache instanceof Observable)) {
+			// an observable cache requests the redraw itself once the tiles are available
 			this.requestRedraw();
 		}
 	}
 
-	@Override
-	public synchronized void setDisplayModel(DisplayModel displayModel) {
-		super.setDisplayModel(displayModel);
-		if (displayModel != null && this.hasJobQueue) {
-			this.jobQueue = new JobQueue<T>(this.mapViewPosition, this.displayModel);
-		} else {
-			this.jobQueue = null;
-		}
-	}
+	private void prefetchTiles(BoundingBox boundingBox, byte zoomLevel) {
+		List<Tile> tiles = this.tilePrefetcher.getPrefetchTiles(boundingBox, zoomLevel,
+				this.displayModel.getTileSize(), System.currentTimeMillis());
 
-	protected abstract T createJob(Tile tile);
-	protected void retrieveLabelsOnly(T job) {}
-
-	private void drawParentTileBitmap(Canvas canvas, Point point, Tile tile) {
-		Tile cachedParentTile = getCachedParentTile(tile, 4);
-		if (cachedParentTile != null) {
-			Bitmap bitmap = this.tileCache.getImmediately(createJob(cachedParentTile));
-			if (bitmap != null) {
-				int tileSize = this.displayModel.getTileSize();
-				long translateX = tile.getShiftX(cachedParentTile) * tileSize;
-				long translateY = tile.getShiftY(cachedParentTile) * tileSize;
-				byte zoomLevelDiff = (byte) (tile.zoomLevel - cachedParentTile.zoomLevel);
-				float scaleFactor = (float) Math.pow(2, zoomLevelDiff);
-
-				int x = (int) Math.round(point.x);
-				int y = (int) Math.round(point.y);
-
-				this.matrix.reset();
-				this.matrix.translate(x - translateX, y - translateY);
-				this.matrix.scale(scaleFactor, scaleFactor);
-
-				canvas.setClip(x, y, this.displayModel.getTileSize(), this.displayModel.getTileSize());
-				canvas.drawBitmap(bitmap, this.matrix);
-				canvas.resetClip();
-				bitmap.decrementRefCount();
+		Set<T> prefetchJobs = new LinkedHashSet<>();
+		for (Tile tile : tiles) {
+			T job = createJob(tile);
+			if (!this.tileCache.containsKey(job)) {
+				prefetchJobs.add(job);
 			}
 		}
+		this.jobQueue.setPrefetchSet(prefetchJobs);
+		for (T job : prefetchJobs) {
+			this.jobQueue.addPrefetch(job);
+		}
 	}
 
 	/**
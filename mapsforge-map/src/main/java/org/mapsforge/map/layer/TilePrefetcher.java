@@ -0,0 +1,263 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.MapPosition;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.model.MapViewPosition;
+
+/**
+ * Predicts the tiles which will become visible next from the recent movement of the map.
+ * <p>
+ * The velocity of the map center is estimated from the positions of the {@link MapViewPosition} on consecutive
+ * redraws. While the map is moving, the tiles which the visible area will cover after {@link #LOOK_AHEAD_TIME}
+ * milliseconds are predicted, which is the ring of tiles at the leading edge. After a change of the zoom level the
+ * tiles of the next zoom level in the same direction are predicted as well. The number of predicted tiles is limited
+ * by a budget.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class TilePrefetcher {
+	/**
+	 * A range of tile numbers.
+	 */
+	private static final class TileRange {
+		final int bottom;
+		final int left;
+		final int right;
+		final int top;
+
+		TileRange(double left, double top, double right, double bottom, byte zoomLevel, int tileSize) {
+			this.left = MercatorProjection.pixelXToTileX(left, zoomLevel, tileSize);
+			this.top = MercatorProjection.pixelYToTileY(top, zoomLevel, tileSize);
+			this.right = MercatorProjection.pixelXToTileX(right, zoomLevel, tileSize);
+			this.bottom = MercatorProjection.pixelYToTileY(bottom, zoomLevel, tileSize);
+		}
+
+		boolean contains(int tileX, int tileY) {
+			return tileX >= this.left && tileX <= this.right && tileY >= this.top && tileY <= this.bottom;
+		}
+	}
+
+	/**
+	 * Default maximum number of predicted tiles per redraw.
+	 */
+	public static final int DEFAULT_BUDGET = 8;
+
+	/**
+	 * Time in milliseconds after which the map is considered to stand still if its position has not changed.
+	 */
+	static final long IDLE_TIME = 250;
+
+	/**
+	 * Time in milliseconds for which the visible area is predicted.
+	 */
+	static final long LOOK_AHEAD_TIME = 500;
+
+	/**
+	 * Minimum speed of the map center in pixels per millisecond for a prediction of the movement.
+	 */
+	static final double MINIMUM_SPEED = 0.05;
+
+	/**
+	 * Time in milliseconds after a change of the zoom level in which another change in the same direction is expected.
+	 */
+	static final long ZOOM_TIME = 1000;
+
+	/**
+	 * Weight of a new velocity measurement in the estimated velocity.
+	 */
+	private static final double SMOOTHING = 0.5;
+
+	private static void addTiles(List<Tile> tiles, double left, double top, double right, double bottom,
+			byte zoomLevel, int tileSize, TileRange excluded) {
+		final double centerX = (left + right) / 2;
+		final double centerY = (top + bottom) / 2;
+		TileRange tileRange = new TileRange(left, top, right, bottom, zoomLevel, tileSize);
+
+		List<Tile> predictedTiles = new ArrayList<Tile>();
+		for (int tileY = tileRange.top; tileY <= tileRange.bottom; ++tileY) {
+			for (int tileX = tileRange.left; tileX <= tileRange.right; ++tileX) {
+				if (excluded == null || !excluded.contains(tileX, tileY)) {
+					predictedTiles.add(new Tile(tileX, tileY, zoomLevel, tileSize));
+				}
+			}
+		}
+
+		// the tiles closest to the center of the predicted area are needed first
+		Collections.sort(predictedTiles, new Comparator<Tile>() {
+			@Override
+			public int compare(Tile tile1, Tile tile2) {
+				return Double.compare(getDistance(tile1), getDistance(tile2));
+			}
+
+			private double getDistance(Tile tile) {
+				double tileCenterX = (tile.tileX + 0.5) * tile.tileSize;
+				double tileCenterY = (tile.tileY + 0.5) * tile.tileSize;
+				return Math.hypot(tileCenterX - centerX, tileCenterY - centerY);
+			}
+		});
+		tiles.addAll(predictedTiles);
+	}
+
+	private int budget = DEFAULT_BUDGET;
+	private double lastPixelX;
+	private double lastPixelY;
+	private long lastTime;
+	private byte lastZoomLevel = -1;
+	private final MapViewPosition mapViewPosition;
+	private double velocityX;
+	private double velocityY;
+	private int zoomDirection;
+	private long zoomTime;
+
+	/**
+	 * @param mapViewPosition
+	 *            the position whose movement should be tracked.
+	 */
+	public TilePrefetcher(MapViewPosition mapViewPosition) {
+		this.mapViewPosition = mapViewPosition;
+	}
+
+	/**
+	 * @return the maximum number of predicted tiles per redraw.
+	 */
+	public int getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * Updates the estimated movement with the current map position and predicts the tiles which will become visible
+	 * next.
+	 *
+	 * @param boundingBox
+	 *            the currently visible area.
+	 * @param zoomLevel
+	 *            the zoom level of the visible tiles.
+	 * @param tileSize
+	 *            the size of the tiles in pixels.
+	 * @param time
+	 *            the current time in milliseconds.
+	 * @return the predicted tiles which are not visible yet, most urgent first and at most {@link #getBudget()}.
+	 */
+	public List<Tile> getPrefetchTiles(BoundingBox boundingBox, byte zoomLevel, int tileSize, long time) {
+		update(this.mapViewPosition.getMapPosition(), tileSize, time);
+		if (this.budget == 0 || zoomLevel != this.lastZoomLevel) {
+			return Collections.emptyList();
+		}
+
+		long mapSize = MercatorProjection.getMapSize(zoomLevel, tileSize);
+		double left = MercatorProjection.longitudeToPixelX(boundingBox.minLongitude, mapSize);
+		double top = MercatorProjection.latitudeToPixelY(boundingBox.maxLatitude, mapSize);
+		double right = MercatorProjection.longitudeToPixelX(boundingBox.maxLongitude, mapSize);
+		double bottom = MercatorProjection.latitudeToPixelY(boundingBox.minLatitude, mapSize);
+		TileRange visibleTiles = new TileRange(left, top, right, bottom, zoomLevel, tileSize);
+
+		List<Tile> tiles = new ArrayList<Tile>();
+		double speed = Math.hypot(this.velocityX, this.velocityY);
+		if (time - this.lastTime <= IDLE_TIME && speed >= MINIMUM_SPEED) {
+			// the area covered after the look ahead time, but at most one screen ahead
+			double width = right - left;
+			double height = bottom - top;
+			double moveX = Math.max(Math.min(this.velocityX * LOOK_AHEAD_TIME, width), -width);
+			double moveY = Math.max(Math.min(this.velocityY * LOOK_AHEAD_TIME, height), -height);
+			addTiles(tiles, left + moveX, top + moveY, right + moveX, bottom + moveY, zoomLevel, tileSize,
+					visibleTiles);
+		}
+
+		int nextZoomLevel = zoomLevel + this.zoomDirection;
+		if (this.zoomDirection != 0 && time - this.zoomTime <= ZOOM_TIME
+				&& nextZoomLevel >= this.mapViewPosition.getZoomLevelMin()
+				&& nextZoomLevel <= this.mapViewPosition.getZoomLevelMax()) {
+			// the visible area at the next zoom level has the same size in pixels around the scaled center
+			double scale = Math.pow(2, this.zoomDirection);
+			double halfWidth = (right - left) / 2;
+			double halfHeight = (bottom - top) / 2;
+			double centerX = (left + halfWidth) * scale;
+			double centerY = (top + halfHeight) * scale;
+			addTiles(tiles, centerX - halfWidth, centerY - halfHeight, centerX + halfWidth, centerY + halfHeight,
+					(byte) nextZoomLevel, tileSize, null);
+		}
+
+		if (tiles.size() > this.budget) {
+			return new ArrayList<Tile>(tiles.subList(0, this.budget));
+		}
+		return tiles;
+	}
+
+	/**
+	 * @param budget
+	 *            the maximum number of predicted tiles per redraw, zero disables the prediction.
+	 * @throws IllegalArgumentException
+	 *             if the budget is negative.
+	 */
+	public void setBudget(int budget) {
+		if (budget < 0) {
+			throw new IllegalArgumentException("budget must not be negative: " + budget);
+		}
+		this.budget = budget;
+	}
+
+	private void update(MapPosition mapPosition, int tileSize, long time) {
+		long mapSize = MercatorProjection.getMapSize(mapPosition.zoomLevel, tileSize);
+		double pixelX = MercatorProjection.longitudeToPixelX(mapPosition.latLong.longitude, mapSize);
+		double pixelY = MercatorProjection.latitudeToPixelY(mapPosition.latLong.latitude, mapSize);
+
+		if (this.lastZoomLevel < 0) {
+			this.lastZoomLevel = mapPosition.zoomLevel;
+		} else if (mapPosition.zoomLevel != this.lastZoomLevel) {
+			this.zoomDirection = mapPosition.zoomLevel > this.lastZoomLevel ? 1 : -1;
+			this.zoomTime = time;
+
+			// keep the movement, the velocity is measured in pixels of the current zoom level
+			double scale = Math.pow(2, mapPosition.zoomLevel - this.lastZoomLevel);
+			this.velocityX *= scale;
+			this.velocityY *= scale;
+			this.lastZoomLevel = mapPosition.zoomLevel;
+		} else if (pixelX == this.lastPixelX && pixelY == this.lastPixelY) {
+			// redraws without movement do not change the velocity until the map is considered idle
+			if (time - this.lastTime > IDLE_TIME) {
+				this.velocityX = 0;
+				this.velocityY = 0;
+			}
+			return;
+		} else if (time > this.lastTime) {
+			long elapsedTime = time - this.lastTime;
+			double currentVelocityX = (pixelX - this.lastPixelX) / elapsedTime;
+			double currentVelocityY = (pixelY - this.lastPixelY) / elapsedTime;
+			if (elapsedTime > IDLE_TIME) {
+				// the map starts moving again
+				this.velocityX = currentVelocityX;
+				this.velocityY = currentVelocityY;
+			} else {
+				this.velocityX = this.velocityX * (1 - SMOOTHING) + currentVelocityX * SMOOTHING;
+				this.velocityY = this.velocityY * (1 - SMOOTHING) + currentVelocityY * SMOOTHING;
+			}
+		} else {
+			return;
+		}
+
+		this.lastPixelX = pixelX;
+		this.lastPixelY = pixelY;
+		this.lastTime = time;
+	}
+}
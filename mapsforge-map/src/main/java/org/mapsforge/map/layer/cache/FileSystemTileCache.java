@@ -17,13 +17,22 @@
  */
 package org.mapsforge.map.layer.cache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -75,9 +84,21 @@ class StorageJob {
  * A thread-safe cache for image files with a fixed size and LRU policy. The cache writes
  * the data on a separate thread, i.e. when the call to put a job/tile into the cache returns
  * the data is not actually written to disk.
+ * <p>
+ * A persistent cache keeps its tiles when it is destroyed. It writes an index with the key and size of each tile in
+ * LRU order, together with the fingerprint of the jobs, and restores its state from this index when it is created
+ * again. If a job with a different {@link Job#getFingerprint() fingerprint} is requested, e.g. for a different map
+ * file, render theme or scale, all cached tiles are invalidated. A cache directory must therefore only be used for one
+ * tile source at a time. A threaded cache deletes the files of invalidated tiles on a separate thread.
  */
 public class FileSystemTileCache extends PausableThread implements TileCache {
 	static final String FILE_EXTENSION = ".tile";
+	static final String INDEX_FILE_NAME = "tiles.index";
+	private static final int INDEX_VERSION = 1;
+	/**
+	 * The minimum time in milliseconds between two index writes by the storage thread.
+	 */
+	private static final long INDEX_WRITE_INTERVAL = 10000;
 	private static final Logger LOGGER = Logger.getLogger(FileSystemTileCache.class.getName());
 
 	private static boolean isValidCacheDirectory(File file) {
@@ -112,15 +133,21 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
     }
 
 	private final File cacheDirectory;
+	private volatile int fingerprint;
 	private final GraphicFactory graphicFactory;
+	private final Object indexLock = new Object();
+	private volatile long indexWriteTime;
 	private final AtomicInteger jobs;
 	private FileWorkingSetCache<String> lruCache;
 	private final ReentrantReadWriteLock lock;
+	private final boolean persistent;
+	private final Map<String, File> staleFiles;
 
 	// if threaded is true, the bitmap writing is executed on a separate thread,
 	// and jobs are stored in the jobStack. The false option remains for testing.
 	private final boolean threaded;
 	private final LinkedBlockingQueue<StorageJob> storageJobs;
+	private final TileCodec tileCodec;
 
 
 	/**
@@ -151,6 +178,48 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 	 *             if the capacity is negative.
 	 */
 	public FileSystemTileCache(int capacity, File cacheDirectory, GraphicFactory graphicFactory, boolean threaded, int queueSize) {
+		this(capacity, cacheDirectory, graphicFactory, threaded, queueSize, false);
+	}
+
+	/**
+	 * @param capacity
+	 *            the maximum number of entries in this cache.
+	 * @param cacheDirectory
+	 *            the directory where cached tiles will be stored.
+	 * @param graphicFactory
+	 *            the graphicFactory implementation to use.
+	 * @param threaded
+	 *            if cache will use background thread to store data (more responsive).
+	 * @param persistent
+	 *            if the cached tiles are kept when this cache is destroyed and restored when it is created again.
+	 * @throws IllegalArgumentException
+	 *             if the capacity is negative.
+	 */
+	public FileSystemTileCache(int capacity, File cacheDirectory, GraphicFactory graphicFactory, boolean threaded,
+			int queueSize, boolean persistent) {
+		this(capacity, cacheDirectory, graphicFactory, threaded, queueSize, persistent, PngTileCodec.INSTANCE);
+	}
+
+	/**
+	 * @param capacity
+	 *            the maximum number of entries in this cache.
+	 * @param cacheDirectory
+	 *            the directory where cached tiles will be stored.
+	 * @param graphicFactory
+	 *            the graphicFactory implementation to use.
+	 * @param threaded
+	 *            if cache will use background thread to store data (more responsive).
+	 * @param persistent
+	 *            if the cached tiles are kept when this cache is destroyed and restored when it is created again.
+	 * @param tileCodec
+	 *            the codec which converts the tiles to files, a persistent cache must always use the same codec.
+	 * @throws IllegalArgumentException
+	 *             if the capacity is negative.
+	 */
+	public FileSystemTileCache(int capacity, File cacheDirectory, GraphicFactory graphicFactory, boolean threaded,
+			int queueSize, boolean persistent, TileCodec tileCodec) {
+		this.persistent = persistent;
+		this.tileCodec = tileCodec;
 		this.jobs = new AtomicInteger(0);
 		this.threaded = threaded;
 		if (threaded) {
@@ -159,6 +228,7 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 			this.storageJobs = null;
 		}
 		this.lruCache = new FileWorkingSetCache<>(capacity);
+		this.staleFiles = new HashMap<String, File>();
 		if (isValidCacheDirectory(cacheDirectory)) {
 			this.cacheDirectory = cacheDirectory;
 		} else {
@@ -166,6 +236,9 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 		}
 		this.graphicFactory = graphicFactory;
 		this.lock = new ReentrantReadWriteLock();
+		if (this.persistent && this.cacheDirectory != null) {
+			readIndex();
+		}
 		if (this.threaded) {
 			this.start();
 		}
@@ -173,6 +246,7 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 
 	@Override
 	public boolean containsKey(Job key) {
+		checkFingerprint(key);
 		try {
 			lock.readLock().lock();
 			// if we are using a threaded cache we return true if the tile is still in the
@@ -185,6 +259,9 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 
 	@Override
 	public void destroy() {
+		if (this.persistent) {
+			writeIndex();
+		}
 		try {
 			lock.writeLock().lock();
 			this.lruCache.clear();
@@ -195,11 +272,14 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 			lock.writeLock().unlock();
 		}
 
-		deleteDirectory(this.cacheDirectory);
+		if (!this.persistent) {
+			deleteDirectory(this.cacheDirectory);
+		}
 	}
 
 	@Override
 	public TileBitmap get(Job key) {
+		checkFingerprint(key);
 
 		File file;
 		try {
@@ -215,7 +295,7 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 		InputStream inputStream = null;
 		try {
 			inputStream = new FileInputStream(file);
-			return this.graphicFactory.createTileBitmap(inputStream, key.tile.tileSize, key.hasAlpha);
+			return this.tileCodec.decode(inputStream, key.tile.tileSize, key.hasAlpha, this.graphicFactory);
 		} catch (CorruptedInputStreamException e) {
 			// this can happen, at least on Android, when the input stream
 			// is somehow corrupted, returning null ensures it will be loaded
@@ -271,6 +351,7 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 		if (getCapacity() == 0) {
 			return;
 		}
+		checkFingerprint(key);
 
 		jobs.incrementAndGet();
 		if (this.threaded) {
@@ -289,6 +370,133 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 		this.lruCache.setWorkingSet(workingSetInteger);
 	}
 
+	/**
+	 * Writes the index of a persistent cache, so that its tiles are found again after a restart. The index is written
+	 * when the cache is destroyed and at most every few seconds while tiles are stored. Applications that may be
+	 * killed without destroying the cache should call this method when they are paused.
+	 */
+	public void writeIndex() {
+		if (!this.persistent || this.cacheDirectory == null) {
+			return;
+		}
+
+		List<String> keys;
+		List<File> files;
+		int currentFingerprint;
+		try {
+			// the write lock is needed to iterate, reading the access ordered map modifies it
+			lock.writeLock().lock();
+			keys = new ArrayList<String>(this.lruCache.size());
+			files = new ArrayList<File>(this.lruCache.size());
+			for (Map.Entry<String, File> entry : this.lruCache.entrySet()) {
+				keys.add(entry.getKey());
+				files.add(entry.getValue());
+			}
+			currentFingerprint = this.fingerprint;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		synchronized (this.indexLock) {
+			this.indexWriteTime = System.currentTimeMillis();
+			File indexFile = new File(this.cacheDirectory, INDEX_FILE_NAME);
+			File temporaryFile = new File(this.cacheDirectory, INDEX_FILE_NAME + ".tmp");
+			DataOutputStream dataOutputStream = null;
+			try {
+				dataOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+				dataOutputStream.writeInt(INDEX_VERSION);
+				dataOutputStream.writeInt(currentFingerprint);
+				dataOutputStream.writeInt(keys.size());
+				// the least recently used entry comes first
+				for (int i = 0; i < keys.size(); ++i) {
+					dataOutputStream.writeUTF(keys.get(i));
+					dataOutputStream.writeLong(files.get(i).length());
+				}
+				dataOutputStream.close();
+				dataOutputStream = null;
+
+				// renaming onto an existing file fails on some platforms
+				if ((indexFile.exists() && !indexFile.delete()) || !temporaryFile.renameTo(indexFile)) {
+					LOGGER.warning("could not replace tile cache index: " + indexFile);
+				}
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "could not write tile cache index: " + indexFile, e);
+			} finally {
+				IOUtils.closeQuietly(dataOutputStream);
+			}
+		}
+	}
+
+	/**
+	 * Invalidates all cached tiles if the job has a different fingerprint than the cached tiles. The entries are only
+	 * moved out of the cache under the lock, their files are deleted afterwards.
+	 */
+	private void checkFingerprint(Job job) {
+		if (!this.persistent) {
+			return;
+		}
+		int jobFingerprint = job.getFingerprint();
+		if (jobFingerprint == 0 || jobFingerprint == this.fingerprint) {
+			return;
+		}
+
+		boolean invalidated = false;
+		try {
+			lock.writeLock().lock();
+			if (jobFingerprint == this.fingerprint) {
+				return;
+			}
+			if (this.fingerprint != 0 && !this.lruCache.isEmpty()) {
+				LOGGER.info("map file or render theme changed, invalidating " + this.lruCache.size() + " tiles in "
+						+ this.cacheDirectory);
+				synchronized (this.staleFiles) {
+					this.staleFiles.putAll(this.lruCache);
+				}
+				this.lruCache.clear();
+				invalidated = true;
+			}
+			this.fingerprint = jobFingerprint;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		if (!invalidated) {
+			return;
+		}
+		if (this.threaded) {
+			Thread thread = new Thread(FileSystemTileCache.class.getSimpleName() + "-purge") {
+				@Override
+				public void run() {
+					deleteStaleFiles();
+				}
+			};
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			thread.start();
+		} else {
+			deleteStaleFiles();
+		}
+	}
+
+	/**
+	 * Deletes the files of invalidated tiles one by one, unless a new tile has been stored under the same key since.
+	 */
+	private void deleteStaleFiles() {
+		while (true) {
+			synchronized (this.staleFiles) {
+				Iterator<File> iterator = this.staleFiles.values().iterator();
+				if (!iterator.hasNext()) {
+					return;
+				}
+				File file = iterator.next();
+				iterator.remove();
+				if (file.exists() && !file.delete()) {
+					LOGGER.severe("could not delete file: " + file);
+				}
+			}
+		}
+	}
+
 	private File getOutputFile(Job job) {
 		String file = this.cacheDirectory + File.separator + job.getKey();
 		String dir = file.substring(0, file.lastIndexOf(File.separatorChar));
@@ -298,6 +506,59 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
         return null;
 	}
 
+	/**
+	 * Restores the tiles of a persistent cache from its index. Without a readable index the tiles in the cache
+	 * directory cannot be accounted for, so they are deleted.
+	 */
+	private void readIndex() {
+		File indexFile = new File(this.cacheDirectory, INDEX_FILE_NAME);
+		if (!indexFile.exists()) {
+			clearCacheDirectory();
+			return;
+		}
+
+		DataInputStream dataInputStream = null;
+		boolean valid = false;
+		try {
+			dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			int version = dataInputStream.readInt();
+			if (version != INDEX_VERSION) {
+				throw new IOException("unsupported tile cache index version: " + version);
+			}
+			this.fingerprint = dataInputStream.readInt();
+			int numberOfEntries = dataInputStream.readInt();
+			// inserting in LRU order restores the access order, entries beyond the capacity are evicted
+			for (int i = 0; i < numberOfEntries; ++i) {
+				String key = dataInputStream.readUTF();
+				long size = dataInputStream.readLong();
+				File file = new File(this.cacheDirectory, key + FILE_EXTENSION);
+				// skips tiles which have been deleted or not completely written
+				if (size > 0 && file.length() == size) {
+					this.lruCache.put(key, file);
+				}
+			}
+			valid = true;
+			LOGGER.fine("restored " + this.lruCache.size() + " tiles from " + indexFile);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "could not read tile cache index: " + indexFile, e);
+		} finally {
+			IOUtils.closeQuietly(dataInputStream);
+		}
+
+		if (!valid) {
+			this.lruCache.clear();
+			this.fingerprint = 0;
+			clearCacheDirectory();
+		}
+	}
+
+	private void clearCacheDirectory() {
+		deleteDirectory(this.cacheDirectory);
+		if (!isValidCacheDirectory(this.cacheDirectory)) {
+			LOGGER.severe("could not recreate cache directory: " + this.cacheDirectory);
+		}
+	}
+
 	private void remove(Job key) {
 		try {
 			lock.writeLock().lock();
@@ -340,8 +601,12 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 				// if the file cannot be written, silently return
 				return;
 			}
-			outputStream = new FileOutputStream(file);
-			bitmap.compress(outputStream);
+			synchronized (this.staleFiles) {
+				// the new tile replaces the file of an invalidated tile, which must not be deleted any more
+				this.staleFiles.remove(key.getKey());
+				outputStream = new FileOutputStream(file);
+			}
+			this.tileCodec.encode(bitmap, outputStream);
 			try {
 				lock.writeLock().lock();
 				if (this.lruCache.put(key.getKey(), file) != null) {
@@ -350,6 +615,9 @@ public class FileSystemTileCache extends PausableThread implements TileCache {
 			} finally {
 				lock.writeLock().unlock();
 			}
+			if (this.persistent && System.currentTimeMillis() - this.indexWriteTime > INDEX_WRITE_INTERVAL) {
+				writeIndex();
+			}
 		} catch (Exception e) {
 			// we are catching now any exception and then disable the file cache
 			// this should ensure that no exception in the storage thread will
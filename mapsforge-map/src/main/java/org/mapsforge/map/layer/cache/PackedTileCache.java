@@ -0,0 +1,665 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ * Copyright 2014 Ludwig M Brinckmann
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.mapsforge.core.graphics.CorruptedInputStreamException;
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.TileBitmap;
+import org.mapsforge.core.util.IOUtils;
+import org.mapsforge.core.util.WorkingSetCache;
+import org.mapsforge.map.layer.queue.Job;
+
+/**
+ * A thread-safe cache for tile images with a fixed size and LRU policy, which stores the tiles in a few large pack
+ * files instead of one file per tile. This avoids the per-file overhead of file systems like FAT, which are very slow
+ * with tens of thousands of small files.
+ * <p>
+ * Tiles are appended to the newest pack file and an index in memory maps each key to the position of its tile.
+ * Evicted tiles are recorded by appending a tombstone. The space of evicted and replaced tiles is reclaimed by
+ * compaction, which copies the live tiles of the oldest pack file to the newest one as soon as more than half of all
+ * pack data is garbage. A pack file is closed and a new one started when it reaches {@link #MAXIMUM_PACK_SIZE}.
+ * <p>
+ * When the cache is created, the index is rebuilt by scanning the record headers of the existing pack files, the
+ * order of the records restores the LRU order approximately. A record which has not been written completely is cut
+ * off, a tile whose checksum does not match is dropped when it is read.
+ * <p>
+ * Like the {@link FileSystemTileCache}, a persistent cache keeps its tiles when it is destroyed and invalidates them
+ * when a job with a different {@link Job#getFingerprint() fingerprint} is requested.
+ */
+public class PackedTileCache implements TileCache {
+	static final String FILE_EXTENSION = ".pack";
+	static final String FILE_PREFIX = "tiles-";
+	/**
+	 * The maximum size of a pack file in bytes, well below the file size limit of FAT32.
+	 */
+	static final long MAXIMUM_PACK_SIZE = 0x10000000; // 256MB
+	private static final Charset CHARSET_UTF8 = Charset.forName("UTF-8");
+	/**
+	 * The size of the header of a pack file: magic number, version and fingerprint.
+	 */
+	private static final int HEADER_SIZE = 12;
+	private static final Logger LOGGER = Logger.getLogger(PackedTileCache.class.getName());
+	private static final int MAGIC = 0x4d465450;
+	private static final int MAXIMUM_KEY_LENGTH = 256;
+	/**
+	 * The minimum amount of garbage in bytes before the packs are compacted.
+	 */
+	private static final long MINIMUM_GARBAGE = 0x400000; // 4MB
+	/**
+	 * The size of the header of a record without its key: key length, data length and checksum.
+	 */
+	private static final int RECORD_HEADER_SIZE = 12;
+	private static final int TOMBSTONE = -1;
+	private static final int VERSION = 1;
+
+	private static int getChecksum(byte[] data) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(data);
+		return (int) crc32.getValue();
+	}
+
+	private static int getGeneration(File file) {
+		String name = file.getName();
+		if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_EXTENSION)) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_EXTENSION.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	private final File cacheDirectory;
+	private int fingerprint;
+	private final GraphicFactory graphicFactory;
+	private PackIndex index;
+	private final long minimumGarbage;
+	private final List<Pack> packs = new ArrayList<Pack>();
+	private final boolean persistent;
+	private final TileCodec tileCodec;
+
+	/**
+	 * @param capacity
+	 *            the maximum number of entries in this cache.
+	 * @param cacheDirectory
+	 *            the directory where the pack files will be stored.
+	 * @param graphicFactory
+	 *            the graphicFactory implementation to use.
+	 * @param persistent
+	 *            if the cached tiles are kept when this cache is destroyed and restored when it is created again.
+	 * @throws IllegalArgumentException
+	 *             if the capacity is negative or the cache directory cannot be used.
+	 */
+	public PackedTileCache(int capacity, File cacheDirectory, GraphicFactory graphicFactory, boolean persistent) {
+		this(capacity, cacheDirectory, graphicFactory, persistent, PngTileCodec.INSTANCE);
+	}
+
+	/**
+	 * @param capacity
+	 *            the maximum number of entries in this cache.
+	 * @param cacheDirectory
+	 *            the directory where the pack files will be stored.
+	 * @param graphicFactory
+	 *            the graphicFactory implementation to use.
+	 * @param persistent
+	 *            if the cached tiles are kept when this cache is destroyed and restored when it is created again.
+	 * @param tileCodec
+	 *            the codec which converts the tiles to records, a persistent cache must always use the same codec.
+	 * @throws IllegalArgumentException
+	 *             if the capacity is negative or the cache directory cannot be used.
+	 */
+	public PackedTileCache(int capacity, File cacheDirectory, GraphicFactory graphicFactory, boolean persistent,
+			TileCodec tileCodec) {
+		this(capacity, cacheDirectory, graphicFactory, persistent, tileCodec, MINIMUM_GARBAGE);
+	}
+
+	PackedTileCache(int capacity, File cacheDirectory, GraphicFactory graphicFactory, boolean persistent,
+			TileCodec tileCodec, long minimumGarbage) {
+		if ((!cacheDirectory.exists() && !cacheDirectory.mkdirs()) || !cacheDirectory.isDirectory()
+				|| !cacheDirectory.canWrite()) {
+			throw new IllegalArgumentException("cache directory must be writable: " + cacheDirectory);
+		}
+		this.index = new PackIndex(capacity);
+		this.cacheDirectory = cacheDirectory;
+		this.graphicFactory = graphicFactory;
+		this.persistent = persistent;
+		this.minimumGarbage = minimumGarbage;
+		this.tileCodec = tileCodec;
+
+		try {
+			if (persistent) {
+				readPacks();
+			} else {
+				deletePacks();
+				startPack(0);
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "could not read pack files in " + cacheDirectory, e);
+			invalidate();
+		}
+	}
+
+	@Override
+	public synchronized boolean containsKey(Job key) {
+		checkFingerprint(key);
+		return this.index.containsKey(key.getKey());
+	}
+
+	@Override
+	public synchronized void destroy() {
+		for (Pack pack : this.packs) {
+			IOUtils.closeQuietly(pack.randomAccessFile);
+		}
+		this.packs.clear();
+		this.index.clear();
+
+		if (!this.persistent) {
+			deletePacks();
+			if (!this.cacheDirectory.delete()) {
+				LOGGER.fine("could not delete cache directory: " + this.cacheDirectory);
+			}
+		}
+	}
+
+	@Override
+	public TileBitmap get(Job key) {
+		byte[] data = read(key);
+		if (data == null) {
+			return null;
+		}
+
+		try {
+			return this.tileCodec.decode(new ByteArrayInputStream(data), key.tile.tileSize, key.hasAlpha,
+					this.graphicFactory);
+		} catch (CorruptedInputStreamException e) {
+			// this can happen, at least on Android, when the input stream
+			// is somehow corrupted, returning null ensures it will be loaded
+			// from another source
+			remove(key);
+			LOGGER.log(Level.WARNING, "input stream from pack tile cache invalid", e);
+			return null;
+		} catch (IOException e) {
+			remove(key);
+			LOGGER.log(Level.SEVERE, null, e);
+			return null;
+		}
+	}
+
+	@Override
+	public synchronized int getCapacity() {
+		return this.index.capacity;
+	}
+
+	@Override
+	public int getCapacityFirstLevel() {
+		return getCapacity();
+	}
+
+	@Override
+	public TileBitmap getImmediately(Job key) {
+		return get(key);
+	}
+
+	/**
+	 * @return the number of pack files of this cache.
+	 */
+	public synchronized int getNumberOfPacks() {
+		return this.packs.size();
+	}
+
+	@Override
+	public void put(Job key, TileBitmap bitmap) {
+		if (key == null) {
+			throw new IllegalArgumentException("key must not be null");
+		} else if (bitmap == null) {
+			throw new IllegalArgumentException("bitmap must not be null");
+		}
+
+		if (getCapacity() == 0) {
+			return;
+		}
+
+		// compressing is done outside of the lock, it takes much longer than appending
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try {
+			this.tileCodec.encode(bitmap, outputStream);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "could not compress tile", e);
+			return;
+		}
+		store(key, outputStream.toByteArray());
+	}
+
+	@Override
+	public synchronized void setWorkingSet(Set<Job> workingSet) {
+		Set<String> keys = new HashSet<String>();
+		for (Job job : workingSet) {
+			keys.add(job.getKey());
+		}
+		this.index.setWorkingSet(keys);
+	}
+
+	private byte[] createRecord(String key, int checksum, byte[] data) {
+		byte[] keyBytes = key.getBytes(CHARSET_UTF8);
+		int dataLength = data == null ? 0 : data.length;
+		byte[] record = new byte[RECORD_HEADER_SIZE + keyBytes.length + dataLength];
+		putInt(record, 0, keyBytes.length);
+		System.arraycopy(keyBytes, 0, record, 4, keyBytes.length);
+		putInt(record, 4 + keyBytes.length, data == null ? TOMBSTONE : data.length);
+		putInt(record, 8 + keyBytes.length, checksum);
+		if (data != null) {
+			System.arraycopy(data, 0, record, RECORD_HEADER_SIZE + keyBytes.length, data.length);
+		}
+		return record;
+	}
+
+	/**
+	 * Invalidates all cached tiles if the job has a different fingerprint than the cached tiles.
+	 */
+	private void checkFingerprint(Job job) {
+		if (!this.persistent) {
+			return;
+		}
+		int jobFingerprint = job.getFingerprint();
+		if (jobFingerprint == 0 || jobFingerprint == this.fingerprint) {
+			return;
+		}
+
+		if (this.fingerprint != 0 && !this.index.isEmpty()) {
+			LOGGER.info("map file or render theme changed, invalidating " + this.index.size() + " tiles in "
+					+ this.cacheDirectory);
+			this.fingerprint = jobFingerprint;
+			invalidate();
+			return;
+		}
+
+		this.fingerprint = jobFingerprint;
+		try {
+			for (Pack pack : this.packs) {
+				pack.randomAccessFile.seek(8);
+				pack.randomAccessFile.writeInt(this.fingerprint);
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "could not write pack file header", e);
+		}
+	}
+
+	/**
+	 * Copies the live tiles of the oldest pack to the newest one and deletes the oldest pack, while more than half of
+	 * the pack data is garbage. Only the oldest pack is compacted, as its tombstones cannot refer to older records.
+	 */
+	private void compact() throws IOException {
+		while (true) {
+			long garbage = 0;
+			long size = 0;
+			for (Pack pack : this.packs) {
+				garbage += pack.garbage;
+				size += pack.size;
+			}
+			if (garbage < this.minimumGarbage || garbage * 2 < size) {
+				return;
+			}
+
+			Pack oldest = this.packs.get(0);
+			if (oldest == getNewestPack()) {
+				startPack(oldest.generation + 1);
+			}
+			for (PackEntry entry : this.index.values()) {
+				if (entry.pack == oldest) {
+					byte[] data = new byte[entry.length];
+					oldest.randomAccessFile.seek(entry.position);
+					oldest.randomAccessFile.readFully(data);
+					Pack newest = getNewestPack();
+					long position = write(newest, createRecord(entry.key, entry.checksum, data));
+					entry.pack = newest;
+					entry.position = position + entry.recordSize - entry.length;
+				}
+			}
+
+			LOGGER.fine("compacted pack file " + oldest.file + " with " + oldest.garbage + " bytes of garbage");
+			this.packs.remove(0);
+			IOUtils.closeQuietly(oldest.randomAccessFile);
+			if (!oldest.file.delete()) {
+				LOGGER.severe("could not delete pack file: " + oldest.file);
+			}
+		}
+	}
+
+	private void deletePacks() {
+		File[] files = this.cacheDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (getGeneration(file) >= 0 && !file.delete()) {
+				LOGGER.severe("could not delete pack file: " + file);
+			}
+		}
+	}
+
+	private Pack getNewestPack() {
+		return this.packs.get(this.packs.size() - 1);
+	}
+
+	/**
+	 * Deletes all pack files and starts with an empty pack.
+	 */
+	private void invalidate() {
+		for (Pack pack : this.packs) {
+			IOUtils.closeQuietly(pack.randomAccessFile);
+		}
+		this.packs.clear();
+		this.index.clear();
+		deletePacks();
+		try {
+			startPack(0);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "disabling pack tile cache", e);
+			this.index = new PackIndex(0);
+		}
+	}
+
+	private synchronized byte[] read(Job key) {
+		checkFingerprint(key);
+		PackEntry entry = this.index.get(key.getKey());
+		if (entry == null) {
+			return null;
+		}
+
+		byte[] data = new byte[entry.length];
+		try {
+			entry.pack.randomAccessFile.seek(entry.position);
+			entry.pack.randomAccessFile.readFully(data);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "could not read tile from pack file " + entry.pack.file, e);
+			remove(key);
+			return null;
+		}
+		if (getChecksum(data) != entry.checksum) {
+			LOGGER.warning("checksum mismatch for tile " + entry.key + " in pack file " + entry.pack.file);
+			remove(key);
+			return null;
+		}
+		return data;
+	}
+
+	/**
+	 * Scans one pack file and applies its records to the index. The file is truncated at the first record which has
+	 * not been written completely.
+	 */
+	private void readPack(Pack pack) throws IOException {
+		RandomAccessFile randomAccessFile = pack.randomAccessFile;
+		long length = randomAccessFile.length();
+		long position = HEADER_SIZE;
+		while (position < length) {
+			if (position + RECORD_HEADER_SIZE > length) {
+				break;
+			}
+			randomAccessFile.seek(position);
+			int keyLength = randomAccessFile.readInt();
+			if (keyLength <= 0 || keyLength > MAXIMUM_KEY_LENGTH || position + RECORD_HEADER_SIZE + keyLength > length) {
+				break;
+			}
+			byte[] keyBytes = new byte[keyLength];
+			randomAccessFile.readFully(keyBytes);
+			int dataLength = randomAccessFile.readInt();
+			int checksum = randomAccessFile.readInt();
+			if (dataLength < TOMBSTONE || position + RECORD_HEADER_SIZE + keyLength + Math.max(dataLength, 0) > length) {
+				break;
+			}
+
+			String key = new String(keyBytes, CHARSET_UTF8);
+			long recordSize = RECORD_HEADER_SIZE + keyLength + Math.max(dataLength, 0);
+			PackEntry old;
+			if (dataLength == TOMBSTONE) {
+				old = this.index.remove(key);
+				pack.garbage += recordSize;
+			} else {
+				old = this.index.put(key, new PackEntry(key, pack, position + RECORD_HEADER_SIZE + keyLength, dataLength, checksum,
+						recordSize));
+			}
+			if (old == null) {
+				// the entry may have been evicted before, it must not get a tombstone anymore
+				old = this.index.evicted.remove(key);
+			}
+			if (old != null) {
+				old.pack.garbage += old.recordSize;
+			}
+			position += recordSize;
+		}
+
+		if (position < length) {
+			LOGGER.warning("truncating incomplete record at " + position + " in pack file " + pack.file);
+			randomAccessFile.setLength(position);
+		}
+		pack.size = position;
+	}
+
+	private void readPacks() throws IOException {
+		File[] files = this.cacheDirectory.listFiles();
+		List<File> packFiles = new ArrayList<File>();
+		if (files != null) {
+			for (File file : files) {
+				if (getGeneration(file) >= 0) {
+					packFiles.add(file);
+				}
+			}
+		}
+		Collections.sort(packFiles, new Comparator<File>() {
+			@Override
+			public int compare(File file1, File file2) {
+				return Integer.valueOf(getGeneration(file1)).compareTo(Integer.valueOf(getGeneration(file2)));
+			}
+		});
+
+		for (File file : packFiles) {
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			if (randomAccessFile.length() < HEADER_SIZE || randomAccessFile.readInt() != MAGIC
+					|| randomAccessFile.readInt() != VERSION) {
+				LOGGER.warning("deleting invalid pack file: " + file);
+				IOUtils.closeQuietly(randomAccessFile);
+				if (!file.delete()) {
+					throw new IOException("could not delete pack file: " + file);
+				}
+				continue;
+			}
+			int packFingerprint = randomAccessFile.readInt();
+			if (!this.packs.isEmpty() && packFingerprint != this.fingerprint) {
+				// only possible after a crash while the cache was invalidated
+				throw new IOException("pack files with different fingerprints");
+			}
+			this.fingerprint = packFingerprint;
+
+			Pack pack = new Pack(file, getGeneration(file), randomAccessFile);
+			this.packs.add(pack);
+			readPack(pack);
+		}
+
+		if (this.packs.isEmpty()) {
+			startPack(0);
+		}
+		writeTombstones();
+		LOGGER.fine("restored " + this.index.size() + " tiles from " + this.packs.size() + " pack files");
+	}
+
+	private synchronized void remove(Job key) {
+		PackEntry entry = this.index.remove(key.getKey());
+		if (entry != null) {
+			this.index.evicted.put(entry.key, entry);
+			try {
+				writeTombstones();
+			} catch (IOException e) {
+				LOGGER.log(Level.SEVERE, "could not write to pack file", e);
+			}
+		}
+	}
+
+	private Pack startPack(int generation) throws IOException {
+		File file = new File(this.cacheDirectory, FILE_PREFIX + generation + FILE_EXTENSION);
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		randomAccessFile.setLength(0);
+		randomAccessFile.writeInt(MAGIC);
+		randomAccessFile.writeInt(VERSION);
+		randomAccessFile.writeInt(this.fingerprint);
+		Pack pack = new Pack(file, generation, randomAccessFile);
+		pack.size = HEADER_SIZE;
+		this.packs.add(pack);
+		return pack;
+	}
+
+	private synchronized void store(Job key, byte[] data) {
+		if (this.index.capacity == 0 || this.packs.isEmpty()) {
+			// disabled or destroyed
+			return;
+		}
+		checkFingerprint(key);
+
+		try {
+			Pack pack = getNewestPack();
+			if (pack.size >= MAXIMUM_PACK_SIZE) {
+				pack = startPack(pack.generation + 1);
+			}
+			byte[] record = createRecord(key.getKey(), getChecksum(data), data);
+			long position = write(pack, record);
+			PackEntry old = this.index.put(key.getKey(), new PackEntry(key.getKey(), pack, position + record.length
+					- data.length, data.length, getChecksum(data), record.length));
+			if (old != null) {
+				LOGGER.warning("overwriting cached entry: " + key.getKey());
+				old.pack.garbage += old.recordSize;
+			}
+			writeTombstones();
+			compact();
+		} catch (IOException e) {
+			// most likely cause is that the disk is full, the cache is disabled,
+			// otherwise more and more exceptions will be thrown.
+			LOGGER.log(Level.SEVERE, "disabling pack tile cache", e);
+			destroy();
+			this.index = new PackIndex(0);
+		}
+	}
+
+	/**
+	 * @return the position of the record in the pack file
+	 */
+	private long write(Pack pack, byte[] record) throws IOException {
+		long position = pack.size;
+		pack.randomAccessFile.seek(position);
+		pack.randomAccessFile.write(record);
+		pack.size += record.length;
+		return position;
+	}
+
+	/**
+	 * Appends a tombstone for each evicted entry, so that the entries are not restored when the packs are read again.
+	 */
+	private void writeTombstones() throws IOException {
+		if (this.index.evicted.isEmpty()) {
+			return;
+		}
+		Pack pack = getNewestPack();
+		for (PackEntry entry : this.index.evicted.values()) {
+			entry.pack.garbage += entry.recordSize;
+			byte[] record = createRecord(entry.key, 0, null);
+			write(pack, record);
+			// the tombstone is only needed until the tile record has been compacted
+			pack.garbage += record.length;
+		}
+		this.index.evicted.clear();
+	}
+
+	private static final class Pack {
+		final File file;
+		long garbage;
+		final int generation;
+		final RandomAccessFile randomAccessFile;
+		long size;
+
+		Pack(File file, int generation, RandomAccessFile randomAccessFile) {
+			this.file = file;
+			this.generation = generation;
+			this.randomAccessFile = randomAccessFile;
+		}
+	}
+
+	/**
+	 * The position of a cached tile in a pack file.
+	 */
+	private static final class PackEntry {
+		final int checksum;
+		final String key;
+		final int length;
+		Pack pack;
+		long position;
+		final long recordSize;
+
+		PackEntry(String key, Pack pack, long position, int length, int checksum, long recordSize) {
+			this.key = key;
+			this.pack = pack;
+			this.position = position;
+			this.length = length;
+			this.checksum = checksum;
+			this.recordSize = recordSize;
+		}
+	}
+
+	private static final class PackIndex extends WorkingSetCache<String, PackEntry> {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The entries removed since the last tombstones were written.
+		 */
+		final Map<String, PackEntry> evicted = new LinkedHashMap<String, PackEntry>();
+
+		PackIndex(int capacity) {
+			super(capacity);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PackEntry> eldest) {
+			if (size() > this.capacity) {
+				this.evicted.put(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.TileBitmap;
+
+/**
+ * The default {@link TileCodec}, which stores tiles in the compressed image format of the platform, i.e. PNG.
+ * <p>
+ * The files are small and can be opened with any image viewer, but encoding and decoding is slow.
+ */
+public final class PngTileCodec implements TileCodec {
+	/**
+	 * The shared instance of this stateless codec.
+	 */
+	public static final PngTileCodec INSTANCE = new PngTileCodec();
+
+	private PngTileCodec() {
+		// use the shared instance
+	}
+
+	@Override
+	public TileBitmap decode(InputStream inputStream, int tileSize, boolean isTransparent,
+			GraphicFactory graphicFactory) throws IOException {
+		return graphicFactory.createTileBitmap(inputStream, tileSize, isTransparent);
+	}
+
+	@Override
+	public void encode(TileBitmap bitmap, OutputStream outputStream) throws IOException {
+		bitmap.compress(outputStream);
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.cache;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.TileBitmap;
+
+/**
+ * A {@link TileCodec} which stores the raw pixels of a tile with a fast general purpose compression.
+ * <p>
+ * The pixels are written as RGB bytes, or ARGB bytes if the tile has a transparent pixel, and compressed with the
+ * fastest level of the deflate algorithm. Typical map tiles take about as much space as PNG files, but encoding and
+ * decoding avoids the image filters of PNG and the color conversions of the platform image libraries and takes about
+ * half the time. This is the better choice for a cache on local flash storage, where the time to read a file is much
+ * shorter than the time to decode a PNG.
+ * <p>
+ * The format starts with a header of ten bytes: the magic number "MFRT", a version, the flags and the width and height
+ * as unsigned shorts, followed by the zlib stream of the pixels.
+ */
+public final class RawTileCodec implements TileCodec {
+	/**
+	 * The shared instance of this stateless codec.
+	 */
+	public static final RawTileCodec INSTANCE = new RawTileCodec();
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int FLAG_ALPHA = 1;
+	private static final int HEADER_SIZE = 10;
+	private static final int MAGIC = 0x4d465254;
+	private static final int VERSION = 1;
+
+	private static boolean hasAlpha(int[] pixels) {
+		for (int pixel : pixels) {
+			if ((pixel >>> 24) != 0xff) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private RawTileCodec() {
+		// use the shared instance
+	}
+
+	@Override
+	public TileBitmap decode(InputStream inputStream, int tileSize, boolean isTransparent,
+			GraphicFactory graphicFactory) throws IOException {
+		DataInputStream dataInputStream = new DataInputStream(inputStream);
+		if (dataInputStream.readInt() != MAGIC) {
+			throw new IOException("invalid raw tile header");
+		}
+		int version = dataInputStream.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("unsupported raw tile version: " + version);
+		}
+		boolean hasAlpha = (dataInputStream.readUnsignedByte() & FLAG_ALPHA) != 0;
+		int width = dataInputStream.readUnsignedShort();
+		int height = dataInputStream.readUnsignedShort();
+		if (width != tileSize || height != tileSize) {
+			throw new IOException("invalid raw tile size: " + width + 'x' + height);
+		}
+
+		byte[] data = new byte[width * height * (hasAlpha ? 4 : 3)];
+		Inflater inflater = new Inflater();
+		try {
+			// the data input stream does not buffer, so the zlib stream starts right after the header
+			new DataInputStream(new InflaterInputStream(inputStream, inflater, BUFFER_SIZE)).readFully(data);
+		} finally {
+			inflater.end();
+		}
+
+		int[] pixels = new int[width * height];
+		if (hasAlpha) {
+			for (int i = 0, j = 0; i < pixels.length; ++i, j += 4) {
+				pixels[i] = (data[j] & 0xff) << 24 | (data[j + 1] & 0xff) << 16 | (data[j + 2] & 0xff) << 8
+						| (data[j + 3] & 0xff);
+			}
+		} else {
+			for (int i = 0, j = 0; i < pixels.length; ++i, j += 3) {
+				pixels[i] = 0xff000000 | (data[j] & 0xff) << 16 | (data[j + 1] & 0xff) << 8 | (data[j + 2] & 0xff);
+			}
+		}
+
+		TileBitmap bitmap = graphicFactory.createTileBitmap(tileSize, isTransparent);
+		bitmap.setPixels(pixels);
+		return bitmap;
+	}
+
+	@Override
+	public void encode(TileBitmap bitmap, OutputStream outputStream) throws IOException {
+		int width = bitmap.getWidth();
+		int height = bitmap.getHeight();
+		int[] pixels = new int[width * height];
+		bitmap.getPixels(pixels);
+		boolean hasAlpha = hasAlpha(pixels);
+
+		byte[] data = new byte[pixels.length * (hasAlpha ? 4 : 3)];
+		if (hasAlpha) {
+			for (int i = 0, j = 0; i < pixels.length; ++i, j += 4) {
+				int pixel = pixels[i];
+				data[j] = (byte) (pixel >>> 24);
+				data[j + 1] = (byte) (pixel >>> 16);
+				data[j + 2] = (byte) (pixel >>> 8);
+				data[j + 3] = (byte) pixel;
+			}
+		} else {
+			for (int i = 0, j = 0; i < pixels.length; ++i, j += 3) {
+				int pixel = pixels[i];
+				data[j] = (byte) (pixel >>> 16);
+				data[j + 1] = (byte) (pixel >>> 8);
+				data[j + 2] = (byte) pixel;
+			}
+		}
+
+		byte[] header = new byte[HEADER_SIZE];
+		header[0] = (byte) (MAGIC >>> 24);
+		header[1] = (byte) (MAGIC >>> 16);
+		header[2] = (byte) (MAGIC >>> 8);
+		header[3] = (byte) MAGIC;
+		header[4] = VERSION;
+		header[5] = (byte) (hasAlpha ? FLAG_ALPHA : 0);
+		header[6] = (byte) (width >>> 8);
+		header[7] = (byte) width;
+		header[8] = (byte) (height >>> 8);
+		header[9] = (byte) height;
+		outputStream.write(header);
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(outputStream, deflater, BUFFER_SIZE);
+			deflaterOutputStream.write(data);
+			deflaterOutputStream.finish();
+		} finally {
+			deflater.end();
+		}
+	}
+}
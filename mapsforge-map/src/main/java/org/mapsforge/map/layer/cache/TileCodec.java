@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.TileBitmap;
+
+/**
+ * Converts tile bitmaps to the bytes which a {@link TileCache} stores on disk and back.
+ * <p>
+ * Implementations must be thread-safe, the same codec is used by all threads of a cache.
+ */
+public interface TileCodec {
+	/**
+	 * Reads a tile bitmap from the given stream.
+	 *
+	 * @param inputStream
+	 *            the stream with the encoded tile.
+	 * @param tileSize
+	 *            the size of the tile in pixels.
+	 * @param isTransparent
+	 *            if the tile may have transparent pixels.
+	 * @param graphicFactory
+	 *            the graphicFactory implementation to create the bitmap with.
+	 * @return the decoded bitmap.
+	 * @throws IOException
+	 *             if the stream cannot be read or does not contain a tile of this codec.
+	 */
+	TileBitmap decode(InputStream inputStream, int tileSize, boolean isTransparent, GraphicFactory graphicFactory)
+			throws IOException;
+
+	/**
+	 * Writes the given tile bitmap to the given stream, the stream is not closed.
+	 *
+	 * @param bitmap
+	 *            the bitmap to encode.
+	 * @param outputStream
+	 *            the stream to write to.
+	 * @throws IOException
+	 *             if the stream cannot be written.
+	 */
+	void encode(TileBitmap bitmap, OutputStream outputStream) throws IOException;
+}
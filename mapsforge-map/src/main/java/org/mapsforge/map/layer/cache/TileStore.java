@@ -116,24 +116,23 @@ public class TileStore implements TileCache {
 	}
 
 	protected File findFile(Job key) {
-		// slow descent at the moment, better for debugging.
-		File l1 = new File(this.rootDirectory, Byte.toString(key.tile.zoomLevel));
-		if (l1 == null || !l1.isDirectory() || !l1.canRead()) {
-			LOGGER.info("Failed to find directory " + l1.getAbsolutePath());
+		// a single check of the tile file, a missing directory fails it as well
+		File file = getFile(key);
+		if (!file.isFile()) {
+			LOGGER.fine("Failed to find file " + file.getAbsolutePath());
 			return null;
 		}
-		File l2 = new File(l1, Long.toString(key.tile.tileX));
-		if (l2 == null || !l2.isDirectory() || !l2.canRead()) {
-			LOGGER.info("Failed to find directory " + l2.getAbsolutePath());
-			return null;
-		}
-		File l3 = new File(l2, Long.toString(key.tile.tileY) + this.suffix);
-		if (l3 == null || !l3.isFile() || !l3.canRead()) {
-			LOGGER.info("Failed to find file " + l3.getAbsolutePath());
-			return null;
-		}
-		LOGGER.info("Found file " + l3.getAbsolutePath());
-		return l3;
+		return file;
+	}
+
+	/**
+	 * @param key
+	 *            the key of the tile.
+	 * @return the file of the tile in the directory layout of this store, the file does not need to exist.
+	 */
+	protected File getFile(Job key) {
+		return new File(this.rootDirectory, key.tile.zoomLevel + File.separator + key.tile.tileX + File.separator
+				+ key.tile.tileY + this.suffix);
 	}
 
 	@Override
@@ -15,24 +15,65 @@
  */
 package org.mapsforge.map.layer.cache;
 
-import org.mapsforge.core.graphics.TileBitmap;
-import org.mapsforge.map.layer.queue.Job;
-
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
-public class TwoLevelTileCache implements TileCache {
+import org.mapsforge.core.graphics.TileBitmap;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.map.layer.queue.Job;
+import org.mapsforge.map.model.common.Observable;
+import org.mapsforge.map.util.PausableThread;
+
+/**
+ * A tile cache which combines a fast first level cache, usually in memory, with a slower second level cache.
+ * <p>
+ * The tiles of the working set are promoted from the second level to the first level by a background thread, closest
+ * to the center of the working set first, so that {@link #setWorkingSet(Set)} and {@link #getImmediately(Job)} never
+ * block on the second level. Observers are notified whenever a promoted tile becomes available.
+ * <p>
+ * The background thread is only started when the first tile has to be promoted. {@link #destroy()} must be called
+ * when the cache is no longer used, otherwise the thread keeps running.
+ */
+public class TwoLevelTileCache extends Observable implements TileCache {
+	private class PromotionWorker extends PausableThread {
+		@Override
+		protected void doWork() {
+			Job job = takePendingJob();
+			if (job != null) {
+				promote(job);
+			}
+		}
+
+		@Override
+		protected ThreadPriority getThreadPriority() {
+			return ThreadPriority.BELOW_NORMAL;
+		}
 
+		@Override
+		protected boolean hasWork() {
+			synchronized (TwoLevelTileCache.this.pendingJobs) {
+				return !TwoLevelTileCache.this.pendingJobs.isEmpty();
+			}
+		}
+	}
 
+	private double centerX;
+	private double centerY;
+	private boolean destroyed;
 	private final TileCache firstLevelTileCache;
+	private final Set<Job> pendingJobs;
+	private PromotionWorker promotionWorker;
 	private final TileCache secondLevelTileCache;
 	private final Set<Job> workingSet;
 
 	public TwoLevelTileCache(TileCache firstLevelTileCache, TileCache secondLevelTileCache) {
+		super();
 		this.firstLevelTileCache = firstLevelTileCache;
 		this.secondLevelTileCache = secondLevelTileCache;
 		this.workingSet = Collections.synchronizedSet(new HashSet<Job>());
+		this.pendingJobs = new LinkedHashSet<Job>();
 	}
 
 	@Override
@@ -45,6 +86,14 @@ public class TwoLevelTileCache implements TileCache {
 
 	@Override
 	public void destroy() {
+		synchronized (this.pendingJobs) {
+			this.destroyed = true;
+			if (this.promotionWorker != null) {
+				this.promotionWorker.interrupt();
+				this.promotionWorker = null;
+			}
+			this.pendingJobs.clear();
+		}
 		this.firstLevelTileCache.destroy();
 		this.secondLevelTileCache.destroy();
 	}
@@ -75,7 +124,16 @@ public class TwoLevelTileCache implements TileCache {
 
 	@Override
 	public TileBitmap getImmediately(Job key) {
-		return firstLevelTileCache.get(key);
+		return this.firstLevelTileCache.get(key);
+	}
+
+	/**
+	 * @return the number of tiles which are waiting to be promoted to the first level cache.
+	 */
+	public int getNumberOfPendingJobs() {
+		synchronized (this.pendingJobs) {
+			return this.pendingJobs.size();
+		}
 	}
 
 	@Override
@@ -92,14 +150,73 @@ public class TwoLevelTileCache implements TileCache {
 		this.workingSet.addAll(newWorkingSet);
 		this.firstLevelTileCache.setWorkingSet(this.workingSet);
 		this.secondLevelTileCache.setWorkingSet(this.workingSet);
-		for (Job job : workingSet) {
-			if (!firstLevelTileCache.containsKey(job) && secondLevelTileCache.containsKey(job)) {
-				TileBitmap tileBitmap = secondLevelTileCache.get(job);
-				if (tileBitmap != null) {
-					firstLevelTileCache.put(job, tileBitmap);
+
+		double sumX = 0;
+		double sumY = 0;
+		boolean added = false;
+		PromotionWorker worker;
+		synchronized (this.pendingJobs) {
+			// tiles which have left the working set are not promoted any more
+			this.pendingJobs.retainAll(newWorkingSet);
+			for (Job job : newWorkingSet) {
+				sumX += job.tile.tileX;
+				sumY += job.tile.tileY;
+				if (!this.firstLevelTileCache.containsKey(job)) {
+					added |= this.pendingJobs.add(job);
 				}
 			}
+			if (!newWorkingSet.isEmpty()) {
+				this.centerX = sumX / newWorkingSet.size();
+				this.centerY = sumY / newWorkingSet.size();
+			}
+
+			worker = this.promotionWorker;
+			if (added && worker == null && !this.destroyed) {
+				// a new worker finds the pending jobs by itself
+				this.promotionWorker = new PromotionWorker();
+				this.promotionWorker.start();
+			}
+		}
+
+		if (added && worker != null) {
+			synchronized (worker) {
+				worker.notify();
+			}
 		}
 	}
 
+	private void promote(Job job) {
+		// a tile which is not in the second level cache is simply not found, no extra lookup is needed
+		TileBitmap bitmap = this.secondLevelTileCache.get(job);
+		if (bitmap == null) {
+			return;
+		}
+		try {
+			if (!this.workingSet.contains(job) || this.firstLevelTileCache.containsKey(job)) {
+				return;
+			}
+			this.firstLevelTileCache.put(job, bitmap);
+		} finally {
+			bitmap.decrementRefCount();
+		}
+		notifyObservers();
+	}
+
+	private Job takePendingJob() {
+		synchronized (this.pendingJobs) {
+			// like rendering jobs, the tiles closest to the center are promoted first
+			Job closestJob = null;
+			double closestDistance = Double.MAX_VALUE;
+			for (Job job : this.pendingJobs) {
+				Tile tile = job.tile;
+				double distance = Math.hypot(tile.tileX - this.centerX, tile.tileY - this.centerY);
+				if (distance < closestDistance) {
+					closestJob = job;
+					closestDistance = distance;
+				}
+			}
+			this.pendingJobs.remove(closestJob);
+			return closestJob;
+		}
+	}
 }
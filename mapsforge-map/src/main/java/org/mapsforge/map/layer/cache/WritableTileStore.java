@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.TileBitmap;
+import org.mapsforge.core.util.IOUtils;
+import org.mapsforge.map.layer.queue.Job;
+
+/**
+ * A {@link TileStore} which also stores new tiles, e.g. to create a tile store with the
+ * {@link org.mapsforge.map.layer.renderer.TileSeeder TileSeeder}. Like the tile store, it never removes any files.
+ * <p>
+ * A tile is written to a temporary file first and renamed when it is complete, so an interrupted write never leaves
+ * an incomplete tile in the store.
+ */
+public class WritableTileStore extends TileStore {
+	private static final Logger LOGGER = Logger.getLogger(WritableTileStore.class.getName());
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * @param rootDirectory
+	 *            the directory where the tiles will be stored.
+	 * @param suffix
+	 *            the suffix for stored tiles.
+	 * @param graphicFactory
+	 *            the mapsforge graphic factory to create tile data instances.
+	 * @throws IllegalArgumentException
+	 *             if the root directory cannot be a tile store
+	 */
+	public WritableTileStore(File rootDirectory, String suffix, GraphicFactory graphicFactory) {
+		super(rootDirectory, suffix, graphicFactory);
+		if (!rootDirectory.canWrite()) {
+			throw new IllegalArgumentException("Root directory must be writable");
+		}
+	}
+
+	@Override
+	public void put(Job key, TileBitmap bitmap) {
+		if (key == null) {
+			throw new IllegalArgumentException("key must not be null");
+		} else if (bitmap == null) {
+			throw new IllegalArgumentException("bitmap must not be null");
+		}
+
+		File file = getFile(key);
+		File directory = file.getParentFile();
+		if (!directory.mkdirs() && !directory.isDirectory()) {
+			LOGGER.severe("could not create directory: " + directory);
+			return;
+		}
+
+		File temporaryFile = new File(directory, file.getName() + TEMPORARY_SUFFIX);
+		OutputStream outputStream = null;
+		try {
+			outputStream = new FileOutputStream(temporaryFile);
+			bitmap.compress(outputStream);
+			outputStream.close();
+			outputStream = null;
+			// renaming fails on some platforms if the target exists
+			if (file.exists() && !file.delete()) {
+				throw new IOException("could not replace tile: " + file);
+			} else if (!temporaryFile.renameTo(file)) {
+				throw new IOException("could not rename tile: " + temporaryFile);
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "could not store tile: " + file, e);
+			if (temporaryFile.exists() && !temporaryFile.delete()) {
+				LOGGER.fine("could not delete temporary file: " + temporaryFile);
+			}
+		} finally {
+			IOUtils.closeQuietly(outputStream);
+		}
+	}
+}
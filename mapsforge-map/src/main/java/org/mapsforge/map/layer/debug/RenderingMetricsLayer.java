@@ -0,0 +1,145 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.debug;
+
+import java.util.Locale;
+
+import org.mapsforge.core.graphics.Canvas;
+import org.mapsforge.core.graphics.Color;
+import org.mapsforge.core.graphics.FontFamily;
+import org.mapsforge.core.graphics.FontStyle;
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.Paint;
+import org.mapsforge.core.graphics.Style;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.Dimension;
+import org.mapsforge.core.model.Point;
+import org.mapsforge.map.layer.Layer;
+import org.mapsforge.map.layer.renderer.RenderingMetrics;
+import org.mapsforge.map.layer.renderer.RenderingPhase;
+import org.mapsforge.map.model.DisplayModel;
+import org.mapsforge.map.model.MapViewDimension;
+import org.mapsforge.map.util.LatencyHistogram;
+
+/**
+ * Shows the {@link RenderingMetrics} of a tile renderer in the top left corner of the map view, below the frames per
+ * second counter.
+ */
+public class RenderingMetricsLayer extends Layer {
+	private static final double NANOSECONDS_PER_MILLISECOND = 1000000d;
+
+	private static Paint createPaint(GraphicFactory graphicFactory, DisplayModel displayModel) {
+		Paint paint = graphicFactory.createPaint();
+		paint.setColor(Color.BLACK);
+		paint.setTypeface(FontFamily.MONOSPACE, FontStyle.BOLD);
+		paint.setTextSize(12 * displayModel.getScaleFactor());
+		return paint;
+	}
+
+	private static Paint createPaintStroke(GraphicFactory graphicFactory, DisplayModel displayModel) {
+		Paint paint = graphicFactory.createPaint();
+		paint.setColor(Color.WHITE);
+		paint.setTypeface(FontFamily.MONOSPACE, FontStyle.BOLD);
+		paint.setTextSize(12 * displayModel.getScaleFactor());
+		paint.setStrokeWidth(2 * displayModel.getScaleFactor());
+		paint.setStyle(Style.STROKE);
+		return paint;
+	}
+
+	private static String formatHitRate(double hitRate) {
+		if (Double.isNaN(hitRate)) {
+			return "-";
+		}
+		return String.format(Locale.US, "%.0f%%", hitRate * 100);
+	}
+
+	private static String formatMilliseconds(long nanoseconds) {
+		return String.format(Locale.US, "%.1f", nanoseconds / NANOSECONDS_PER_MILLISECOND);
+	}
+
+	private final DisplayModel displayModel;
+	private final MapViewDimension mapViewDimension;
+	private final Paint paint, paintStroke;
+	private final RenderingMetrics renderingMetrics;
+
+	/**
+	 * @param graphicFactory
+	 *            the graphic factory for the paints.
+	 * @param displayModel
+	 *            the display model of the map view.
+	 * @param mapViewDimension
+	 *            the dimension of the map view, which locates the visible area on the canvas.
+	 * @param renderingMetrics
+	 *            the metrics to show, e.g. from {@code TileRendererLayer.getRenderingMetrics()}.
+	 */
+	public RenderingMetricsLayer(GraphicFactory graphicFactory, DisplayModel displayModel,
+			MapViewDimension mapViewDimension, RenderingMetrics renderingMetrics) {
+		super();
+
+		this.displayModel = displayModel;
+		this.mapViewDimension = mapViewDimension;
+		this.renderingMetrics = renderingMetrics;
+		this.paint = createPaint(graphicFactory, displayModel);
+		this.paintStroke = createPaintStroke(graphicFactory, displayModel);
+	}
+
+	@Override
+	public void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint) {
+		// the canvas is larger than the map view, the visible area is in its center
+		int left = 0;
+		int top = 0;
+		Dimension dimension = this.mapViewDimension.getDimension();
+		if (dimension != null) {
+			left = Math.max(0, (canvas.getWidth() - dimension.width) / 2);
+			top = Math.max(0, (canvas.getHeight() - dimension.height) / 2);
+		}
+
+		float scaleFactor = this.displayModel.getScaleFactor();
+		int x = left + (int) (20 * scaleFactor);
+		int y = top + (int) (70 * scaleFactor);
+		int lineHeight = (int) (16 * scaleFactor);
+
+		long tiles = this.renderingMetrics.getNumberOfTiles();
+		LatencyHistogram tileHistogram = this.renderingMetrics.getTileHistogram();
+		drawLine(canvas, x, y, "tiles: " + tiles + "  queue: " + this.renderingMetrics.getQueueSize() + "  p50/p95: "
+				+ formatMilliseconds(tileHistogram.getPercentile(0.5)) + "/"
+				+ formatMilliseconds(tileHistogram.getPercentile(0.95)) + " ms");
+
+		for (RenderingPhase phase : RenderingPhase.values()) {
+			y += lineHeight;
+			LatencyHistogram histogram = this.renderingMetrics.getHistogram(phase);
+			drawLine(canvas, x, y, phase.name().toLowerCase(Locale.US) + ": "
+					+ formatMilliseconds(histogram.getPercentile(0.5)) + "/"
+					+ formatMilliseconds(histogram.getPercentile(0.95)) + " ms");
+		}
+
+		if (tiles > 0) {
+			y += lineHeight;
+			drawLine(canvas, x, y, "per tile: " + this.renderingMetrics.getNumberOfPois() / tiles + " pois  "
+					+ this.renderingMetrics.getNumberOfWays() / tiles + " ways  "
+					+ this.renderingMetrics.getNumberOfLabels() / tiles + " labels");
+		}
+
+		y += lineHeight;
+		drawLine(canvas, x, y, "hit rates: index " + formatHitRate(this.renderingMetrics.getIndexCacheHitRate())
+				+ "  block " + formatHitRate(this.renderingMetrics.getBlockCacheHitRate()) + "  theme "
+				+ formatHitRate(this.renderingMetrics.getMatchingCacheHitRate()));
+	}
+
+	private void drawLine(Canvas canvas, int x, int y, String text) {
+		canvas.drawText(text, x, y, this.paintStroke);
+		canvas.drawText(text, x, y, this.paint);
+	}
+}
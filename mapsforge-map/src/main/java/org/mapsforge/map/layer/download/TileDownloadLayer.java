@@ -19,6 +19,7 @@ import org.mapsforge.core.graphics.Canvas;
 import org.mapsforge.core.graphics.GraphicFactory;
 import org.mapsforge.core.model.BoundingBox;
 import org.mapsforge.core.model.Point;
+import org.mapsforge.core.model.Rectangle;
 import org.mapsforge.core.model.Tile;
 import org.mapsforge.map.layer.TileLayer;
 import org.mapsforge.map.layer.cache.TileCache;
@@ -53,6 +54,15 @@ public class TileDownloadLayer extends TileLayer<DownloadJob> {
 		super.draw(boundingBox, zoomLevel, canvas, topLeftPoint);
 	}
 
+	@Override
+	public void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint, Rectangle area) {
+		if (zoomLevel < this.tileSource.getZoomLevelMin() || zoomLevel > this.tileSource.getZoomLevelMax()) {
+			return;
+		}
+
+		super.draw(boundingBox, zoomLevel, canvas, topLeftPoint, area);
+	}
+
 	@Override
 	public void onDestroy() {
 		for (TileDownloadThread tileDownloadThread : this.tileDownloadThreads) {
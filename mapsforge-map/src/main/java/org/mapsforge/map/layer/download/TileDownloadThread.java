@@ -56,11 +56,13 @@ class TileDownloadThread extends PausableThread {
 		DownloadJob downloadJob = this.jobQueue.get();
 
 		try {
-			if (!this.tileCache.containsKey(downloadJob)) {
+			if (!downloadJob.isCancelled() && !this.tileCache.containsKey(downloadJob)) {
 				downloadTile(downloadJob);
 			}
 		} catch (IOException e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			if (!downloadJob.isCancelled()) {
+				LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			}
 		} finally {
 			this.jobQueue.remove(downloadJob);
 		}
@@ -80,7 +82,7 @@ class TileDownloadThread extends PausableThread {
 		TileDownloader tileDownloader = new TileDownloader(downloadJob, this.graphicFactory);
 		TileBitmap bitmap = tileDownloader.downloadImage();
 
-		if (!isInterrupted() && bitmap != null) {
+		if (!isInterrupted() && !downloadJob.isCancelled() && bitmap != null) {
 			bitmap.scaleTo(this.displayModel.getTileSize(), this.displayModel.getTileSize());
 			this.tileCache.put(downloadJob, bitmap);
 			this.layer.requestRedraw();
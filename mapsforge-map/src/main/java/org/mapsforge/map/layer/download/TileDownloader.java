@@ -15,8 +15,11 @@
  */
 package org.mapsforge.map.layer.download;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.zip.GZIPInputStream;
@@ -27,6 +30,36 @@ import org.mapsforge.core.graphics.TileBitmap;
 import org.mapsforge.core.util.IOUtils;
 
 class TileDownloader {
+	/**
+	 * Stops reading as soon as the download job has been cancelled.
+	 */
+	private static final class CancellableInputStream extends FilterInputStream {
+		private final DownloadJob downloadJob;
+
+		CancellableInputStream(InputStream inputStream, DownloadJob downloadJob) {
+			super(inputStream);
+			this.downloadJob = downloadJob;
+		}
+
+		@Override
+		public int read() throws IOException {
+			checkCancelled();
+			return super.read();
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			checkCancelled();
+			return super.read(buffer, offset, length);
+		}
+
+		private void checkCancelled() throws InterruptedIOException {
+			if (this.downloadJob.isCancelled()) {
+				throw new InterruptedIOException("download cancelled: " + this.downloadJob.getKey());
+			}
+		}
+	}
+
 	private static final int TIMEOUT_CONNECT = 5000;
 	private static final int TIMEOUT_READ = 10000;
 
@@ -61,7 +94,7 @@ class TileDownloader {
 	TileBitmap downloadImage() throws IOException {
 		URL url = this.downloadJob.tileSource.getTileUrl(this.downloadJob.tile);
 		URLConnection urlConnection = getURLConnection(url);
-		InputStream inputStream = getInputStream(urlConnection);
+		InputStream inputStream = new CancellableInputStream(getInputStream(urlConnection), this.downloadJob);
 
 		try {
 			return this.graphicFactory.createTileBitmap(inputStream, this.downloadJob.tile.tileSize,
@@ -73,6 +106,10 @@ class TileDownloader {
 			return null;
 		} finally {
 			IOUtils.closeQuietly(inputStream);
+			if (this.downloadJob.isCancelled() && urlConnection instanceof HttpURLConnection) {
+				// do not keep the connection alive for a response which has not been read completely
+				((HttpURLConnection) urlConnection).disconnect();
+			}
 		}
 	}
 }
@@ -0,0 +1,651 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.overlay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.mapsforge.core.graphics.Bitmap;
+import org.mapsforge.core.graphics.Canvas;
+import org.mapsforge.core.graphics.Paint;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.LatLong;
+import org.mapsforge.core.model.Point;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.layer.Layer;
+
+/**
+ * A {@code MarkerLayer} draws a {@link Bitmap} at the position of each of a large number of items.
+ * <p>
+ * Unlike a {@link Marker}, which is a layer of its own, all items share one layer and a spatial index: the items are
+ * sorted along a Z-order curve, so the items in any cell of a quadtree over the map are a contiguous range which is
+ * found by a binary search. Each redraw only visits the cells of the visible area and a tap only searches the cells
+ * around its position, independent of the number of items.
+ * <p>
+ * Items which would overlap are combined into a cluster: the map is divided into cells of at least
+ * {@link #getClusterSize()} pixels, a cell with several items is drawn as a single cluster at the mean position of its
+ * items. The cluster size defaults to the size of the bitmap, zero draws all items.
+ * <p>
+ * Items can be added from any thread, the layer is not redrawn automatically. The methods
+ * {@link #drawItem(Object, Canvas, int, int)} and {@link #drawCluster(int, Canvas, int, int)} can be overridden to
+ * draw the items differently, the margin set by {@link #setMargin(int)} must then cover the drawn items. The methods
+ * {@link #onItemTap(Object)} and {@link #onClusterTap(List)} can be overridden to handle taps.
+ *
+ * @param <T>
+ *            the type of the items.
+ */
+public class MarkerLayer<T> extends Layer {
+	private static final class Entry<T> {
+		final long code;
+		final T item;
+		final LatLong latLong;
+		final double x;
+		final double y;
+
+		Entry(LatLong latLong, T item) {
+			this.latLong = latLong;
+			this.item = item;
+			this.x = MercatorProjection.longitudeToPixelX(latLong.longitude, 1);
+			this.y = MercatorProjection.latitudeToPixelY(latLong.latitude, 1);
+			this.code = getCode(this.x, this.y);
+		}
+	}
+
+	/**
+	 * Number of levels of the quadtree whose cells are encoded in the Z-order curve.
+	 */
+	static final int LEVELS = 30;
+
+	private static final Comparator<Entry<?>> COMPARATOR = new Comparator<Entry<?>>() {
+		@Override
+		public int compare(Entry<?> entry1, Entry<?> entry2) {
+			return entry1.code < entry2.code ? -1 : (entry1.code == entry2.code ? 0 : 1);
+		}
+	};
+
+	/**
+	 * Minimum size of the cluster cells in pixels, which limits the number of cells of the visible area.
+	 */
+	private static final int MINIMUM_CLUSTER_SIZE = 16;
+
+	/**
+	 * Maximum number of cells per axis which are searched for the items in an area.
+	 */
+	private static final int QUERY_CELLS = 8;
+
+	/**
+	 * @return the position of the given relative coordinates on the Z-order curve.
+	 */
+	static long getCode(double x, double y) {
+		long maximum = (1L << LEVELS) - 1;
+		long cellX = Math.max(0, Math.min(maximum, (long) (x * (1L << LEVELS))));
+		long cellY = Math.max(0, Math.min(maximum, (long) (y * (1L << LEVELS))));
+		return interleave(cellX) | (interleave(cellY) << 1);
+	}
+
+	private static int getCell(double coordinate, int level) {
+		return (int) Math.max(0, Math.min((1L << level) - 1, (long) Math.floor(coordinate * (1L << level))));
+	}
+
+	/**
+	 * @return the first code of the given cell on the Z-order curve.
+	 */
+	private static long getFirstCode(int cellX, int cellY, int level) {
+		int shift = LEVELS - level;
+		return interleave((long) cellX << shift) | (interleave((long) cellY << shift) << 1);
+	}
+
+	/**
+	 * Spreads the lower 32 bits of the given value to the even bits of the result.
+	 */
+	private static long interleave(long value) {
+		long result = value & 0xffffffffL;
+		result = (result | (result << 16)) & 0x0000ffff0000ffffL;
+		result = (result | (result << 8)) & 0x00ff00ff00ff00ffL;
+		result = (result | (result << 4)) & 0x0f0f0f0f0f0f0f0fL;
+		result = (result | (result << 2)) & 0x3333333333333333L;
+		return (result | (result << 1)) & 0x5555555555555555L;
+	}
+
+	private static int lowerBound(long[] codes, int from, int to, long code) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (codes[middle] < code) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private final List<Entry<T>> added = new ArrayList<Entry<T>>();
+	private Bitmap bitmap;
+	private Bitmap clusterBitmap;
+	private Paint clusterPaint;
+	private int clusterSize = -1;
+	private long[] codes = new long[0];
+	private List<Entry<T>> entries = new ArrayList<Entry<T>>();
+	private final int horizontalOffset;
+	private long mapSize;
+	private int margin;
+	private double[] sumsX = new double[1];
+	private double[] sumsY = new double[1];
+	private final int verticalOffset;
+
+	/**
+	 * @param bitmap
+	 *            the {@code Bitmap} of the items (may be null if {@link #getBitmap(Object)} is overridden).
+	 * @param horizontalOffset
+	 *            the horizontal offset of the item bitmaps.
+	 * @param verticalOffset
+	 *            the vertical offset of the item bitmaps.
+	 */
+	public MarkerLayer(Bitmap bitmap, int horizontalOffset, int verticalOffset) {
+		super();
+
+		this.bitmap = bitmap;
+		this.horizontalOffset = horizontalOffset;
+		this.verticalOffset = verticalOffset;
+	}
+
+	/**
+	 * Adds an item to this layer.
+	 *
+	 * @param latLong
+	 *            the geographical position of the item.
+	 * @param item
+	 *            the item.
+	 */
+	public synchronized void add(LatLong latLong, T item) {
+		this.added.add(new Entry<T>(latLong, item));
+	}
+
+	/**
+	 * Removes all items from this layer.
+	 */
+	public synchronized void clear() {
+		this.added.clear();
+		this.entries = new ArrayList<Entry<T>>();
+		this.codes = new long[0];
+		this.sumsX = new double[1];
+		this.sumsY = new double[1];
+	}
+
+	@Override
+	public synchronized void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint) {
+		flush();
+		this.mapSize = MercatorProjection.getMapSize(zoomLevel, this.displayModel.getTileSize());
+		int margin = getMargin();
+		double left = (topLeftPoint.x - margin) / this.mapSize;
+		double top = (topLeftPoint.y - margin) / this.mapSize;
+		double right = (topLeftPoint.x + canvas.getWidth() + margin) / this.mapSize;
+		double bottom = (topLeftPoint.y + canvas.getHeight() + margin) / this.mapSize;
+
+		if (getClusterSize() <= 0) {
+			List<Entry<T>> visibleEntries = new ArrayList<Entry<T>>();
+			collect(left, top, right, bottom, visibleEntries);
+			for (int i = 0, n = visibleEntries.size(); i < n; ++i) {
+				Entry<T> entry = visibleEntries.get(i);
+				drawItem(entry.item, canvas, getPixel(entry.x, topLeftPoint.x), getPixel(entry.y, topLeftPoint.y));
+			}
+			return;
+		}
+
+		int level = getClusterLevel();
+		long cellSpan = 1L << (2 * (LEVELS - level));
+		int size = this.entries.size();
+		for (int cellY = getCell(top, level), maxCellY = getCell(bottom, level); cellY <= maxCellY; ++cellY) {
+			for (int cellX = getCell(left, level), maxCellX = getCell(right, level); cellX <= maxCellX; ++cellX) {
+				long firstCode = getFirstCode(cellX, cellY, level);
+				int from = lowerBound(this.codes, 0, size, firstCode);
+				if (from == size || this.codes[from] >= firstCode + cellSpan) {
+					continue;
+				}
+				int to = lowerBound(this.codes, from, size, firstCode + cellSpan);
+				if (to - from == 1) {
+					Entry<T> entry = this.entries.get(from);
+					drawItem(entry.item, canvas, getPixel(entry.x, topLeftPoint.x), getPixel(entry.y, topLeftPoint.y));
+				} else {
+					int count = to - from;
+					double x = (this.sumsX[to] - this.sumsX[from]) / count;
+					double y = (this.sumsY[to] - this.sumsY[from]) / count;
+					drawCluster(count, canvas, getPixel(x, topLeftPoint.x), getPixel(y, topLeftPoint.y));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the {@code Bitmap} of the items (may be null).
+	 */
+	public synchronized Bitmap getBitmap() {
+		return this.bitmap;
+	}
+
+	/**
+	 * @return the size of the cells in pixels in which the items are combined to clusters, zero if the items are not
+	 *         clustered.
+	 */
+	public synchronized int getClusterSize() {
+		if (this.clusterSize >= 0) {
+			return this.clusterSize;
+		} else if (this.bitmap == null) {
+			return 0;
+		}
+		return Math.max(this.bitmap.getWidth(), this.bitmap.getHeight());
+	}
+
+	/**
+	 * Returns the items in the given area, in no particular order.
+	 *
+	 * @param boundingBox
+	 *            the area to search.
+	 * @return a new list of the items within the bounding box.
+	 */
+	public synchronized List<T> getItems(BoundingBox boundingBox) {
+		flush();
+		double left = MercatorProjection.longitudeToPixelX(boundingBox.minLongitude, 1);
+		double top = MercatorProjection.latitudeToPixelY(boundingBox.maxLatitude, 1);
+		double right = MercatorProjection.longitudeToPixelX(boundingBox.maxLongitude, 1);
+		double bottom = MercatorProjection.latitudeToPixelY(boundingBox.minLatitude, 1);
+
+		List<Entry<T>> foundEntries = new ArrayList<Entry<T>>();
+		collect(left, top, right, bottom, foundEntries);
+		List<T> items = new ArrayList<T>(foundEntries.size());
+		for (int i = 0, n = foundEntries.size(); i < n; ++i) {
+			Entry<T> entry = foundEntries.get(i);
+			// the cells are aligned to the projected coordinates, the bounding box decides at its edges
+			if (boundingBox.contains(entry.latLong)) {
+				items.add(entry.item);
+			}
+		}
+		return items;
+	}
+
+	@Override
+	public synchronized void onDestroy() {
+		if (this.bitmap != null) {
+			this.bitmap.decrementRefCount();
+		}
+		if (this.clusterBitmap != null) {
+			this.clusterBitmap.decrementRefCount();
+		}
+	}
+
+	@Override
+	public boolean onTap(LatLong tapLatLong, Point layerXY, Point tapXY) {
+		T item = null;
+		List<T> clusterItems = null;
+		synchronized (this) {
+			flush();
+			if (this.mapSize == 0 || this.entries.isEmpty()) {
+				return false;
+			}
+			double tapX = MercatorProjection.longitudeToPixelX(tapLatLong.longitude, this.mapSize);
+			double tapY = MercatorProjection.latitudeToPixelY(tapLatLong.latitude, this.mapSize);
+
+			int[] range = findTapped(tapX, tapY);
+			if (range == null) {
+				return false;
+			} else if (range[1] - range[0] == 1) {
+				item = this.entries.get(range[0]).item;
+			} else {
+				clusterItems = new ArrayList<T>(range[1] - range[0]);
+				for (int i = range[0]; i < range[1]; ++i) {
+					clusterItems.add(this.entries.get(i).item);
+				}
+			}
+		}
+		// the handlers are called without the lock, they may show a dialog or change this layer
+		return item != null ? onItemTap(item) : onClusterTap(clusterItems);
+	}
+
+	/**
+	 * Removes the first item which is equal to the given item.
+	 *
+	 * @param item
+	 *            the item to remove.
+	 * @return true if the item was removed, false otherwise.
+	 */
+	public synchronized boolean remove(T item) {
+		flush();
+		for (int i = 0, n = this.entries.size(); i < n; ++i) {
+			T other = this.entries.get(i).item;
+			if (other == null ? item == null : other.equals(item)) {
+				List<Entry<T>> remaining = new ArrayList<Entry<T>>(this.entries);
+				remaining.remove(i);
+				setEntries(remaining);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param clusterBitmap
+	 *            the {@code Bitmap} of the clusters, the bitmap of the items is used if null.
+	 * @param clusterPaint
+	 *            the {@code Paint} for the number of items of a cluster (may be null).
+	 */
+	public synchronized void setClusterBitmap(Bitmap clusterBitmap, Paint clusterPaint) {
+		if (this.clusterBitmap != null && !this.clusterBitmap.equals(clusterBitmap)) {
+			this.clusterBitmap.decrementRefCount();
+		}
+		this.clusterBitmap = clusterBitmap;
+		this.clusterPaint = clusterPaint;
+	}
+
+	/**
+	 * @param clusterSize
+	 *            the minimum size of the cells in pixels in which the items are combined to clusters, zero disables the
+	 *            clustering.
+	 * @throws IllegalArgumentException
+	 *             if the cluster size is negative.
+	 */
+	public synchronized void setClusterSize(int clusterSize) {
+		if (clusterSize < 0) {
+			throw new IllegalArgumentException("clusterSize must not be negative: " + clusterSize);
+		}
+		this.clusterSize = clusterSize;
+	}
+
+	/**
+	 * @param margin
+	 *            the minimum distance in pixels by which the visible area is extended, so that items which are drawn
+	 *            without a bitmap are not cut off at its edges.
+	 * @throws IllegalArgumentException
+	 *             if the margin is negative.
+	 */
+	public synchronized void setMargin(int margin) {
+		if (margin < 0) {
+			throw new IllegalArgumentException("margin must not be negative: " + margin);
+		}
+		this.margin = margin;
+	}
+
+	/**
+	 * @return the number of items in this layer.
+	 */
+	public synchronized int size() {
+		return this.entries.size() + this.added.size();
+	}
+
+	/**
+	 * Draws a cluster of items. The default implementation draws the cluster bitmap and the number of items.
+	 *
+	 * @param count
+	 *            the number of items in the cluster.
+	 * @param canvas
+	 *            the canvas to draw on.
+	 * @param x
+	 *            the horizontal pixel position of the cluster on the canvas.
+	 * @param y
+	 *            the vertical pixel position of the cluster on the canvas.
+	 */
+	protected void drawCluster(int count, Canvas canvas, int x, int y) {
+		Bitmap drawnBitmap = this.clusterBitmap != null ? this.clusterBitmap : this.bitmap;
+		if (drawnBitmap != null) {
+			canvas.drawBitmap(drawnBitmap, x - drawnBitmap.getWidth() / 2, y - drawnBitmap.getHeight() / 2);
+		}
+		if (this.clusterPaint != null) {
+			String text = Integer.toString(count);
+			canvas.drawText(text, x - this.clusterPaint.getTextWidth(text) / 2,
+					y + this.clusterPaint.getTextHeight(text) / 2, this.clusterPaint);
+		}
+	}
+
+	/**
+	 * Draws a single item. The default implementation draws the bitmap of the item.
+	 *
+	 * @param item
+	 *            the item to draw.
+	 * @param canvas
+	 *            the canvas to draw on.
+	 * @param x
+	 *            the horizontal pixel position of the item on the canvas.
+	 * @param y
+	 *            the vertical pixel position of the item on the canvas.
+	 */
+	protected void drawItem(T item, Canvas canvas, int x, int y) {
+		Bitmap itemBitmap = getBitmap(item);
+		if (itemBitmap != null) {
+			canvas.drawBitmap(itemBitmap, x - itemBitmap.getWidth() / 2 + this.horizontalOffset,
+					y - itemBitmap.getHeight() / 2 + this.verticalOffset);
+		}
+	}
+
+	/**
+	 * Returns the {@code Bitmap} of the given item. The bitmap must not be larger than the bitmap of this layer,
+	 * otherwise it may be clipped at the edges of the visible area.
+	 *
+	 * @param item
+	 *            the item.
+	 * @return the {@code Bitmap} of the item (may be null).
+	 */
+	protected Bitmap getBitmap(T item) {
+		return this.bitmap;
+	}
+
+	/**
+	 * Handles a tap on a cluster. The default implementation does nothing and returns false.
+	 *
+	 * @param items
+	 *            the items of the cluster.
+	 * @return true if the tap was handled, false otherwise.
+	 */
+	protected boolean onClusterTap(List<T> items) {
+		return false;
+	}
+
+	/**
+	 * Handles a tap on a single item. The default implementation does nothing and returns false.
+	 *
+	 * @param item
+	 *            the tapped item.
+	 * @return true if the tap was handled, false otherwise.
+	 */
+	protected boolean onItemTap(T item) {
+		return false;
+	}
+
+	/**
+	 * Adds the entries within the given relative coordinates to the result, the area may be larger by a few cells.
+	 */
+	private void collect(double left, double top, double right, double bottom, List<Entry<T>> result) {
+		double extent = Math.max(right - left, bottom - top);
+		int level = 0;
+		while (level < LEVELS && extent * (1L << (level + 1)) <= QUERY_CELLS) {
+			++level;
+		}
+
+		long cellSpan = 1L << (2 * (LEVELS - level));
+		int size = this.entries.size();
+		for (int cellY = getCell(top, level), maxCellY = getCell(bottom, level); cellY <= maxCellY; ++cellY) {
+			for (int cellX = getCell(left, level), maxCellX = getCell(right, level); cellX <= maxCellX; ++cellX) {
+				long firstCode = getFirstCode(cellX, cellY, level);
+				for (int i = lowerBound(this.codes, 0, size, firstCode); i < size && this.codes[i] < firstCode
+						+ cellSpan; ++i) {
+					Entry<T> entry = this.entries.get(i);
+					if (entry.x >= left && entry.x <= right && entry.y >= top && entry.y <= bottom) {
+						result.add(entry);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the range of entries of the tapped item or cluster which is closest to the tap, null if nothing has been
+	 *         tapped.
+	 */
+	private int[] findTapped(double tapX, double tapY) {
+		int[] tapped = null;
+		double tappedDistance = Double.MAX_VALUE;
+		int size = this.entries.size();
+
+		if (getClusterSize() <= 0) {
+			int margin = getMargin();
+			List<Entry<T>> candidates = new ArrayList<Entry<T>>();
+			collect((tapX - margin) / this.mapSize, (tapY - margin) / this.mapSize, (tapX + margin) / this.mapSize,
+					(tapY + margin) / this.mapSize, candidates);
+			for (int i = 0, n = candidates.size(); i < n; ++i) {
+				Entry<T> entry = candidates.get(i);
+				double distance = getTapDistance(getBitmap(entry.item), entry.x, entry.y, tapX, tapY, true);
+				if (distance < tappedDistance) {
+					int index = indexOf(entry);
+					tapped = new int[] { index, index + 1 };
+					tappedDistance = distance;
+				}
+			}
+			return tapped;
+		}
+
+		// the cluster or item of a neighbouring cell may also cover the tap
+		int level = getClusterLevel();
+		long cellSpan = 1L << (2 * (LEVELS - level));
+		int tapCellX = getCell(tapX / this.mapSize, level);
+		int tapCellY = getCell(tapY / this.mapSize, level);
+		int maxCell = (int) ((1L << level) - 1);
+		for (int cellY = Math.max(0, tapCellY - 1); cellY <= Math.min(maxCell, tapCellY + 1); ++cellY) {
+			for (int cellX = Math.max(0, tapCellX - 1); cellX <= Math.min(maxCell, tapCellX + 1); ++cellX) {
+				long firstCode = getFirstCode(cellX, cellY, level);
+				int from = lowerBound(this.codes, 0, size, firstCode);
+				int to = lowerBound(this.codes, from, size, firstCode + cellSpan);
+				if (from == to) {
+					continue;
+				}
+
+				double distance;
+				if (to - from == 1) {
+					Entry<T> entry = this.entries.get(from);
+					distance = getTapDistance(getBitmap(entry.item), entry.x, entry.y, tapX, tapY, true);
+				} else {
+					int count = to - from;
+					double x = (this.sumsX[to] - this.sumsX[from]) / count;
+					double y = (this.sumsY[to] - this.sumsY[from]) / count;
+					distance = getTapDistance(this.clusterBitmap != null ? this.clusterBitmap : this.bitmap, x, y,
+							tapX, tapY, false);
+				}
+				if (distance < tappedDistance) {
+					tapped = new int[] { from, to };
+					tappedDistance = distance;
+				}
+			}
+		}
+		return tapped;
+	}
+
+	private void flush() {
+		if (this.added.isEmpty()) {
+			return;
+		}
+
+		Collections.sort(this.added, COMPARATOR);
+		List<Entry<T>> merged = new ArrayList<Entry<T>>(this.entries.size() + this.added.size());
+		int i = 0;
+		int j = 0;
+		while (i < this.entries.size() || j < this.added.size()) {
+			if (j == this.added.size()
+					|| (i < this.entries.size() && this.entries.get(i).code <= this.added.get(j).code)) {
+				merged.add(this.entries.get(i++));
+			} else {
+				merged.add(this.added.get(j++));
+			}
+		}
+		this.added.clear();
+		setEntries(merged);
+	}
+
+	/**
+	 * @return the level of the quadtree whose cells are the clusters at the current map size.
+	 */
+	private int getClusterLevel() {
+		int size = Math.max(MINIMUM_CLUSTER_SIZE, getClusterSize());
+		int level = 0;
+		while (level < LEVELS && (this.mapSize >> (level + 1)) >= size) {
+			++level;
+		}
+		return level;
+	}
+
+	/**
+	 * @return the distance in pixels by which the visible area is extended for items outside of it.
+	 */
+	private int getMargin() {
+		int margin = Math.max(this.margin, getClusterSize());
+		if (this.bitmap != null) {
+			margin = Math.max(margin, Math.max(this.bitmap.getWidth() + Math.abs(this.horizontalOffset),
+					this.bitmap.getHeight() + Math.abs(this.verticalOffset)));
+		}
+		if (this.clusterBitmap != null) {
+			margin = Math.max(margin, Math.max(this.clusterBitmap.getWidth(), this.clusterBitmap.getHeight()));
+		}
+		return margin;
+	}
+
+	private int getPixel(double coordinate, double origin) {
+		return (int) (coordinate * this.mapSize - origin);
+	}
+
+	/**
+	 * @return the distance in pixels between the tap and the given position, or the maximum value if the tap is not
+	 *         within the bitmap.
+	 */
+	private double getTapDistance(Bitmap tappedBitmap, double x, double y, double tapX, double tapY, boolean offsets) {
+		if (tappedBitmap == null) {
+			return Double.MAX_VALUE;
+		}
+		double centerX = x * this.mapSize + (offsets ? this.horizontalOffset : 0);
+		double centerY = y * this.mapSize + (offsets ? this.verticalOffset : 0);
+		if (Math.abs(tapX - centerX) > tappedBitmap.getWidth() / 2d
+				|| Math.abs(tapY - centerY) > tappedBitmap.getHeight() / 2d) {
+			return Double.MAX_VALUE;
+		}
+		return Math.hypot(tapX - centerX, tapY - centerY);
+	}
+
+	/**
+	 * @return the index of the given entry, which is found by its code.
+	 */
+	private int indexOf(Entry<T> entry) {
+		int index = lowerBound(this.codes, 0, this.entries.size(), entry.code);
+		while (this.entries.get(index) != entry) {
+			++index;
+		}
+		return index;
+	}
+
+	private void setEntries(List<Entry<T>> sortedEntries) {
+		int size = sortedEntries.size();
+		long[] newCodes = new long[size];
+		double[] newSumsX = new double[size + 1];
+		double[] newSumsY = new double[size + 1];
+		for (int i = 0; i < size; ++i) {
+			Entry<T> entry = sortedEntries.get(i);
+			newCodes[i] = entry.code;
+			newSumsX[i + 1] = newSumsX[i] + entry.x;
+			newSumsY[i + 1] = newSumsY[i] + entry.y;
+		}
+		this.entries = sortedEntries;
+		this.codes = newCodes;
+		this.sumsX = newSumsX;
+		this.sumsY = newSumsY;
+	}
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.overlay;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.mapsforge.core.graphics.Path;
+import org.mapsforge.core.model.LatLong;
+import org.mapsforge.core.model.Point;
+import org.mapsforge.core.util.LRUCache;
+import org.mapsforge.core.util.MercatorProjection;
+
+/**
+ * The projected and simplified geometry of a {@link Polyline} or {@link Polygon}.
+ * <p>
+ * Each {@link LatLong} is projected only once into coordinates relative to the size of the map, the pixel coordinates
+ * at any zoom level are obtained by a multiplication. For each map size the line is simplified with the
+ * Douglas-Peucker algorithm, which removes all points that deviate less than {@link #TOLERANCE} pixels from the
+ * simplified line. The simplified points are grouped into chunks with a bounding box, so that the chunks outside of the
+ * visible area can be skipped.
+ * <p>
+ * The geometry is compared with the list of {@code LatLongs} before each use. Points which have been appended are
+ * projected and simplified without touching the existing points, so a growing live track stays cheap. Any other change
+ * only keeps the unchanged points at the start of the list.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class OverlayGeometry {
+	/**
+	 * The simplified line for one map size.
+	 */
+	private static final class Simplification {
+		/**
+		 * Bounding box of each chunk as minimum x, minimum y, maximum x and maximum y.
+		 */
+		double[] chunkBounds = new double[4];
+		int[] indices = new int[16];
+		/**
+		 * Number of points which have been simplified.
+		 */
+		int points;
+		int size;
+
+		int getNumberOfChunks() {
+			return this.size < 2 ? this.size : (this.size - 2) / CHUNK_SIZE + 1;
+		}
+	}
+
+	/**
+	 * Number of simplified segments in a chunk.
+	 */
+	static final int CHUNK_SIZE = 32;
+
+	/**
+	 * Distance in pixels by which the visible area is extended, so that the strokes of culled segments cannot reach
+	 * into the visible area.
+	 */
+	static final int MARGIN = 32;
+
+	/**
+	 * Maximum distance in pixels between a removed point and the simplified line.
+	 */
+	static final double TOLERANCE = 0.5;
+
+	/**
+	 * Number of map sizes for which the simplified line is kept.
+	 */
+	private static final int SIMPLIFICATIONS = 8;
+
+	private static double getDistanceSquared(double x, double y, double x1, double y1, double x2, double y2) {
+		double dx = x2 - x1;
+		double dy = y2 - y1;
+		double lengthSquared = dx * dx + dy * dy;
+		double t = 0;
+		if (lengthSquared > 0) {
+			t = Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / lengthSquared));
+		}
+		double distanceX = x - (x1 + t * dx);
+		double distanceY = y - (y1 + t * dy);
+		return distanceX * distanceX + distanceY * distanceY;
+	}
+
+	private static boolean intersects(double[] bounds, int offset, double left, double top, double right,
+			double bottom) {
+		return bounds[offset] <= right && bounds[offset + 2] >= left && bounds[offset + 1] <= bottom
+				&& bounds[offset + 3] >= top;
+	}
+
+	private double maxX;
+	private double maxY;
+	private double minX;
+	private double minY;
+	private final Map<Long, Simplification> simplifications = new LRUCache<Long, Simplification>(SIMPLIFICATIONS);
+	private LatLong[] latLongs = new LatLong[16];
+	private int size;
+	private double[] xs = new double[16];
+	private double[] ys = new double[16];
+
+	/**
+	 * Adds all simplified points to the given path.
+	 *
+	 * @return the number of added points.
+	 */
+	int addToPath(Path path, long mapSize, Point topLeftPoint) {
+		Simplification simplification = getSimplification(mapSize);
+		for (int i = 0; i < simplification.size; ++i) {
+			addToPath(path, simplification.indices[i], mapSize, topLeftPoint, i == 0);
+		}
+		return simplification.size;
+	}
+
+	/**
+	 * Adds the simplified points of all chunks which intersect the visible area to the given path. The path is
+	 * interrupted where chunks have been skipped.
+	 *
+	 * @return the number of added points.
+	 */
+	int addToPath(Path path, long mapSize, Point topLeftPoint, int width, int height) {
+		Simplification simplification = getSimplification(mapSize);
+		double left = (topLeftPoint.x - MARGIN) / mapSize;
+		double top = (topLeftPoint.y - MARGIN) / mapSize;
+		double right = (topLeftPoint.x + width + MARGIN) / mapSize;
+		double bottom = (topLeftPoint.y + height + MARGIN) / mapSize;
+
+		int points = 0;
+		boolean connected = false;
+		for (int chunk = 0, chunks = simplification.getNumberOfChunks(); chunk < chunks; ++chunk) {
+			if (!intersects(simplification.chunkBounds, chunk * 4, left, top, right, bottom)) {
+				connected = false;
+				continue;
+			}
+
+			int end = Math.min((chunk + 1) * CHUNK_SIZE, simplification.size - 1);
+			for (int i = connected ? chunk * CHUNK_SIZE + 1 : chunk * CHUNK_SIZE; i <= end; ++i) {
+				addToPath(path, simplification.indices[i], mapSize, topLeftPoint, !connected);
+				connected = true;
+				++points;
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * @return the number of simplified points for the given map size.
+	 */
+	int getNumberOfPoints(long mapSize) {
+		return getSimplification(mapSize).size;
+	}
+
+	/**
+	 * @return true if the bounding box of all points intersects the visible area, false otherwise.
+	 */
+	boolean intersects(long mapSize, Point topLeftPoint, int width, int height) {
+		if (this.size == 0) {
+			return false;
+		}
+		return this.minX * mapSize <= topLeftPoint.x + width + MARGIN
+				&& this.maxX * mapSize >= topLeftPoint.x - MARGIN
+				&& this.minY * mapSize <= topLeftPoint.y + height + MARGIN
+				&& this.maxY * mapSize >= topLeftPoint.y - MARGIN;
+	}
+
+	/**
+	 * Synchronizes this geometry with the given points.
+	 *
+	 * @return the number of points.
+	 */
+	int update(List<LatLong> latLongList) {
+		Object[] snapshot = latLongList.toArray();
+		int unchanged = 0;
+		int length = Math.min(snapshot.length, this.size);
+		while (unchanged < length && this.latLongs[unchanged].equals(snapshot[unchanged])) {
+			++unchanged;
+		}
+
+		if (unchanged < this.size) {
+			// points have been removed or replaced, only the points before the first change are kept
+			this.size = unchanged;
+			this.simplifications.clear();
+			updateBounds(0);
+		}
+		if (snapshot.length > this.size) {
+			append(snapshot);
+		}
+		return this.size;
+	}
+
+	private void addToPath(Path path, int index, long mapSize, Point topLeftPoint, boolean move) {
+		float x = (float) (this.xs[index] * mapSize - topLeftPoint.x);
+		float y = (float) (this.ys[index] * mapSize - topLeftPoint.y);
+		if (move) {
+			path.moveTo(x, y);
+		} else {
+			path.lineTo(x, y);
+		}
+	}
+
+	private void append(Object[] snapshot) {
+		if (snapshot.length > this.xs.length) {
+			int capacity = Math.max(snapshot.length, this.xs.length * 2);
+			this.latLongs = Arrays.copyOf(this.latLongs, capacity);
+			this.xs = Arrays.copyOf(this.xs, capacity);
+			this.ys = Arrays.copyOf(this.ys, capacity);
+		}
+
+		int first = this.size;
+		for (int i = first; i < snapshot.length; ++i) {
+			LatLong latLong = (LatLong) snapshot[i];
+			this.latLongs[i] = latLong;
+			this.xs[i] = MercatorProjection.longitudeToPixelX(latLong.longitude, 1);
+			this.ys[i] = MercatorProjection.latitudeToPixelY(latLong.latitude, 1);
+		}
+		this.size = snapshot.length;
+		updateBounds(first);
+	}
+
+	private Simplification getSimplification(long mapSize) {
+		Simplification simplification = this.simplifications.get(mapSize);
+		if (simplification == null) {
+			simplification = new Simplification();
+			this.simplifications.put(mapSize, simplification);
+		}
+		if (simplification.points < this.size) {
+			simplify(simplification, TOLERANCE / mapSize);
+		}
+		return simplification;
+	}
+
+	/**
+	 * Simplifies the points which have been appended since the last call. The last simplified point is always the
+	 * last point, so the new points are simplified as a separate line which starts there.
+	 */
+	private void simplify(Simplification simplification, double tolerance) {
+		int oldSize = simplification.size;
+		int first = Math.max(0, simplification.points - 1);
+		int last = this.size - 1;
+
+		boolean[] keep = new boolean[last - first + 1];
+		keep[0] = true;
+		keep[last - first] = true;
+		double toleranceSquared = tolerance * tolerance;
+
+		// an explicit stack of ranges avoids a deep recursion on long lines
+		int[] stack = new int[16];
+		int stackSize = 0;
+		stack[stackSize++] = first;
+		stack[stackSize++] = last;
+		while (stackSize > 0) {
+			int end = stack[--stackSize];
+			int start = stack[--stackSize];
+
+			double maximumDistance = toleranceSquared;
+			int farthest = -1;
+			for (int i = start + 1; i < end; ++i) {
+				double distance = getDistanceSquared(this.xs[i], this.ys[i], this.xs[start], this.ys[start],
+						this.xs[end], this.ys[end]);
+				if (distance > maximumDistance) {
+					maximumDistance = distance;
+					farthest = i;
+				}
+			}
+
+			if (farthest >= 0) {
+				keep[farthest - first] = true;
+				if (stackSize + 4 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[stackSize++] = start;
+				stack[stackSize++] = farthest;
+				stack[stackSize++] = farthest;
+				stack[stackSize++] = end;
+			}
+		}
+
+		// the first point has already been added by the previous simplification
+		for (int i = simplification.points == 0 ? first : first + 1; i <= last; ++i) {
+			if (keep[i - first]) {
+				if (simplification.size == simplification.indices.length) {
+					simplification.indices = Arrays.copyOf(simplification.indices, simplification.size * 2);
+				}
+				simplification.indices[simplification.size++] = i;
+			}
+		}
+		simplification.points = this.size;
+		updateChunkBounds(simplification, oldSize < 2 ? 0 : (oldSize - 2) / CHUNK_SIZE);
+	}
+
+	private void updateBounds(int first) {
+		if (first == 0) {
+			this.minX = Double.POSITIVE_INFINITY;
+			this.minY = Double.POSITIVE_INFINITY;
+			this.maxX = Double.NEGATIVE_INFINITY;
+			this.maxY = Double.NEGATIVE_INFINITY;
+		}
+		for (int i = first; i < this.size; ++i) {
+			this.minX = Math.min(this.minX, this.xs[i]);
+			this.minY = Math.min(this.minY, this.ys[i]);
+			this.maxX = Math.max(this.maxX, this.xs[i]);
+			this.maxY = Math.max(this.maxY, this.ys[i]);
+		}
+	}
+
+	private void updateChunkBounds(Simplification simplification, int firstChunk) {
+		int chunks = simplification.getNumberOfChunks();
+		if (chunks * 4 > simplification.chunkBounds.length) {
+			simplification.chunkBounds = Arrays.copyOf(simplification.chunkBounds,
+					Math.max(chunks * 4, simplification.chunkBounds.length * 2));
+		}
+
+		for (int chunk = firstChunk; chunk < chunks; ++chunk) {
+			double chunkMinX = Double.POSITIVE_INFINITY;
+			double chunkMinY = Double.POSITIVE_INFINITY;
+			double chunkMaxX = Double.NEGATIVE_INFINITY;
+			double chunkMaxY = Double.NEGATIVE_INFINITY;
+			int end = Math.min((chunk + 1) * CHUNK_SIZE, simplification.size - 1);
+			for (int i = chunk * CHUNK_SIZE; i <= end; ++i) {
+				int index = simplification.indices[i];
+				chunkMinX = Math.min(chunkMinX, this.xs[index]);
+				chunkMinY = Math.min(chunkMinY, this.ys[index]);
+				chunkMaxX = Math.max(chunkMaxX, this.xs[index]);
+				chunkMaxY = Math.max(chunkMaxY, this.ys[index]);
+			}
+			simplification.chunkBounds[chunk * 4] = chunkMinX;
+			simplification.chunkBounds[chunk * 4 + 1] = chunkMinY;
+			simplification.chunkBounds[chunk * 4 + 2] = chunkMaxX;
+			simplification.chunkBounds[chunk * 4 + 3] = chunkMaxY;
+		}
+	}
+}
@@ -15,7 +15,6 @@
  */
 package org.mapsforge.map.layer.overlay;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -35,8 +34,12 @@ import org.mapsforge.map.layer.Layer;
  * <p>
  * A {@code Polygon} holds two {@link Paint} objects to allow for different outline and filling. These paints define
  * drawing parameters such as color, stroke width, pattern and transparency.
+ * <p>
+ * The projected points are cached and simplified for the current zoom level, a polygon outside of the visible area is
+ * not drawn at all.
  */
 public class Polygon extends Layer {
+	private final OverlayGeometry geometry = new OverlayGeometry();
 	private final GraphicFactory graphicFactory;
 	private final List<LatLong> latLongs = new CopyOnWriteArrayList<LatLong>();
 	private Paint paintFill;
@@ -61,23 +64,18 @@ public class Polygon extends Layer {
 		if (this.latLongs.size() < 2 || (this.paintStroke == null && this.paintFill == null)) {
 			return;
 		}
+		if (this.geometry.update(this.latLongs) < 2) {
+			return;
+		}
 
-		Iterator<LatLong> iterator = this.latLongs.iterator();
-
-		Path path = this.graphicFactory.createPath();
-		LatLong latLong = iterator.next();
 		long mapSize = MercatorProjection.getMapSize(zoomLevel, displayModel.getTileSize());
-		float x = (float) (MercatorProjection.longitudeToPixelX(latLong.longitude, mapSize) - topLeftPoint.x);
-		float y = (float) (MercatorProjection.latitudeToPixelY(latLong.latitude, mapSize) - topLeftPoint.y);
-		path.moveTo(x, y);
-
-		while (iterator.hasNext()) {
-			latLong = iterator.next();
-			x = (float) (MercatorProjection.longitudeToPixelX(latLong.longitude, mapSize) - topLeftPoint.x);
-			y = (float) (MercatorProjection.latitudeToPixelY(latLong.latitude, mapSize) - topLeftPoint.y);
-			path.lineTo(x, y);
+		if (!this.geometry.intersects(mapSize, topLeftPoint, canvas.getWidth(), canvas.getHeight())) {
+			return;
 		}
 
+		Path path = this.graphicFactory.createPath();
+		this.geometry.addToPath(path, mapSize, topLeftPoint);
+
 		if (this.paintStroke != null) {
 			canvas.drawPath(path, this.paintStroke);
 		}
@@ -15,7 +15,6 @@
  */
 package org.mapsforge.map.layer.overlay;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -34,8 +33,13 @@ import org.mapsforge.map.layer.Layer;
  * <p>
  * A {@code Polyline} holds a {@link Paint} object which defines drawing parameters such as color, stroke width, pattern
  * and transparency.
+ * <p>
+ * The projected points are cached and simplified for the current zoom level, only the parts of the line which
+ * intersect the visible area are drawn. Appending points to the end of the list, e.g. for a live track, only projects
+ * the new points.
  */
 public class Polyline extends Layer {
+	private final OverlayGeometry geometry = new OverlayGeometry();
 	private final GraphicFactory graphicFactory;
 	private final List<LatLong> latLongs = new CopyOnWriteArrayList<LatLong>();
 	private Paint paintStroke;
@@ -56,29 +60,15 @@ public class Polyline extends Layer {
 		if (this.latLongs.isEmpty() || this.paintStroke == null) {
 			return;
 		}
-
-		Iterator<LatLong> iterator = this.latLongs.iterator();
-		if (!iterator.hasNext()) {
+		if (this.geometry.update(this.latLongs) == 0) {
 			return;
 		}
 
-		LatLong latLong = iterator.next();
 		long mapSize = MercatorProjection.getMapSize(zoomLevel, displayModel.getTileSize());
-		float x = (float) (MercatorProjection.longitudeToPixelX(latLong.longitude, mapSize) - topLeftPoint.x);
-		float y = (float) (MercatorProjection.latitudeToPixelY(latLong.latitude, mapSize) - topLeftPoint.y);
-
 		Path path = this.graphicFactory.createPath();
-		path.moveTo(x, y);
-
-		while (iterator.hasNext()) {
-			latLong = iterator.next();
-			x = (float) (MercatorProjection.longitudeToPixelX(latLong.longitude, mapSize) - topLeftPoint.x);
-			y = (float) (MercatorProjection.latitudeToPixelY(latLong.latitude, mapSize) - topLeftPoint.y);
-
-			path.lineTo(x, y);
+		if (this.geometry.addToPath(path, mapSize, topLeftPoint, canvas.getWidth(), canvas.getHeight()) > 0) {
+			canvas.drawPath(path, this.paintStroke);
 		}
-
-		canvas.drawPath(path, this.paintStroke);
 	}
 
 	/**
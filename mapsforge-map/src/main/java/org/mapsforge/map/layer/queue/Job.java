@@ -24,6 +24,7 @@ public class Job {
 	public final boolean hasAlpha;
 	public final Tile tile;
 	public final String key;
+	private volatile boolean cancelled;
 
 	public Job(Tile tile, boolean hasAlpha) {
 		if (tile == null) {
@@ -50,6 +51,24 @@ public class Job {
 		return this.tile.equals(other.tile);
 	}
 
+	/**
+	 * Returns a fingerprint of the data and the parameters from which the tile of this job is created. A persistent
+	 * tile cache invalidates its tiles when a job with a different fingerprint is requested.
+	 *
+	 * @return the fingerprint of this job, zero if the tile does not depend on anything but its key.
+	 */
+	public int getFingerprint() {
+		return 0;
+	}
+
+	/**
+	 * @return true if this job has been cancelled because its tile is no longer part of the visible area, a worker
+	 *         may then stop executing it.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
 	/**
 	 * Returns a unique identifier for the tile.
 	 * <p>
@@ -66,4 +85,8 @@ public class Job {
 	public int hashCode() {
 		return this.tile.hashCode();
 	}
+
+	void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
 }
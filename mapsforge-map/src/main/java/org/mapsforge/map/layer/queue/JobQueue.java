@@ -16,82 +16,353 @@
 package org.mapsforge.map.layer.queue;
 
 import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.mapsforge.core.model.MapPosition;
 import org.mapsforge.map.model.DisplayModel;
 import org.mapsforge.map.model.MapViewPosition;
 
+/**
+ * A priority queue of jobs which are processed by one or more worker threads.
+ * <p>
+ * Queued and assigned jobs are kept in hash based sets, so duplicate jobs are rejected without locking. The queued
+ * jobs are ordered in a heap by their distance to the map position. The priorities are only recalculated when a
+ * worker takes a job after the map position has changed, jobs added in between are inserted with the priority for
+ * the current schedule.
+ * <p>
+ * The jobs of the visible tiles are passed in with {@link #setWorkingSet(Set)}. Queued jobs which have left the
+ * working set are dropped when a worker would take them and assigned jobs are cancelled, see
+ * {@link Job#isCancelled()}.
+ * <p>
+ * Jobs for tiles which are expected to become visible soon can be added with {@link #addPrefetch(Job)}. They are only
+ * taken when no job for a visible tile is queued, their number is limited and they are dropped once they are neither
+ * part of the working set nor of the set passed in with {@link #setPrefetchSet(Set)}.
+ */
 public class JobQueue<T extends Job> {
-	private static final int QUEUE_CAPACITY = 128;
+	/**
+	 * Maximum number of queued prefetch jobs.
+	 */
+	public static final int PREFETCH_CAPACITY = 32;
+
+	/**
+	 * Maximum number of queued jobs, the least important jobs are dropped when more jobs are added.
+	 */
+	static final int QUEUE_CAPACITY = 128;
 
-	private final List<T> assignedJobs = new LinkedList<T>();
+	private final Set<T> assignedJobs = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
 	private final DisplayModel displayModel;
+	private final ReentrantLock lock = new ReentrantLock();
 	private final MapViewPosition mapViewPosition;
-	private final List<QueueItem<T>> queueItems = new LinkedList<QueueItem<T>>();
-	private boolean scheduleNeeded;
+	private final AtomicLong maximumWaitTime = new AtomicLong();
+	private final Condition notEmpty = this.lock.newCondition();
+	private final AtomicLong numberOfCancelledJobs = new AtomicLong();
+	private final AtomicLong numberOfDroppedJobs = new AtomicLong();
+	private int numberOfPrefetchJobs;
+	private final AtomicLong numberOfTakenJobs = new AtomicLong();
+	private volatile Set<? extends Job> prefetchSet = Collections.emptySet();
+	private final QueueItemHeap<T> priorityQueue;
+	private final ConcurrentMap<T, QueueItem<T>> queueItems = new ConcurrentHashMap<T, QueueItem<T>>();
+	private MapPosition scheduledMapPosition;
+	private int scheduledTileSize;
+	private final AtomicLong totalWaitTime = new AtomicLong();
+	private volatile Set<? extends Job> workingSet;
 
 	public JobQueue(MapViewPosition mapViewPosition, DisplayModel displayModel) {
 		this.mapViewPosition = mapViewPosition;
 		this.displayModel = displayModel;
+		this.priorityQueue = new QueueItemHeap<T>(QUEUE_CAPACITY);
+	}
+
+	public void add(T job) {
+		QueueItem<T> queuedItem = this.queueItems.get(job);
+		if ((queuedItem != null && !queuedItem.prefetch) || this.assignedJobs.contains(job)) {
+			// fast path for jobs which are requested again on every redraw
+			return;
+		}
+
+		this.lock.lock();
+		try {
+			if (this.assignedJobs.contains(job)) {
+				return;
+			}
+			queuedItem = this.queueItems.get(job);
+			if (queuedItem != null) {
+				if (queuedItem.prefetch) {
+					// the prefetched tile has become visible, it is no longer scheduled after the visible tiles
+					this.priorityQueue.remove(queuedItem);
+					queuedItem.prefetch = false;
+					--this.numberOfPrefetchJobs;
+					this.priorityQueue.add(queuedItem);
+				}
+				return;
+			}
+			QueueItem<T> queueItem = new QueueItem<T>(job);
+			if (this.queueItems.putIfAbsent(job, queueItem) == null) {
+				if (this.scheduledMapPosition != null) {
+					QueueItemScheduler.schedule(queueItem, this.scheduledMapPosition, this.scheduledTileSize);
+				}
+				while (this.priorityQueue.size() >= QUEUE_CAPACITY) {
+					// only the least important job is dropped, which may be the new one
+					if (QueueItemComparator.INSTANCE.compare(queueItem, this.priorityQueue.peekWorst()) >= 0) {
+						dropQueueItem(queueItem);
+						return;
+					}
+					dropQueueItem(this.priorityQueue.pollWorst());
+				}
+				this.priorityQueue.add(queueItem);
+			}
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void add(T job) {
-		if (!this.assignedJobs.contains(job)) {
+	/**
+	 * Adds a job for a tile which is not visible yet but is expected to become visible soon. The job is scheduled after
+	 * all jobs for visible tiles and is rejected if {@value #PREFETCH_CAPACITY} prefetch jobs are already queued.
+	 * 
+	 * @param job
+	 *            the job to add, it must be part of the current prefetch set.
+	 * @return true if the job has been queued, false otherwise.
+	 */
+	public boolean addPrefetch(T job) {
+		if (this.queueItems.containsKey(job) || this.assignedJobs.contains(job)) {
+			return false;
+		}
+
+		this.lock.lock();
+		try {
+			if (this.assignedJobs.contains(job) || this.numberOfPrefetchJobs >= PREFETCH_CAPACITY) {
+				return false;
+			}
 			QueueItem<T> queueItem = new QueueItem<T>(job);
-			if (!this.queueItems.contains(queueItem)) {
-				this.queueItems.add(queueItem);
-				this.scheduleNeeded = true;
+			queueItem.prefetch = true;
+			if (this.queueItems.putIfAbsent(job, queueItem) != null) {
+				return false;
 			}
+			if (this.scheduledMapPosition != null) {
+				QueueItemScheduler.schedule(queueItem, this.scheduledMapPosition, this.scheduledTileSize);
+			}
+			this.priorityQueue.add(queueItem);
+			++this.numberOfPrefetchJobs;
+			return true;
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
 	/**
 	 * Returns the most important entry from this queue. The method blocks while this queue is empty.
 	 */
-	public synchronized T get() throws InterruptedException {
-		while (this.queueItems.isEmpty()) {
-			this.wait();
+	public T get() throws InterruptedException {
+		this.lock.lockInterruptibly();
+		try {
+			while (true) {
+				while (this.priorityQueue.isEmpty()) {
+					this.notEmpty.await();
+				}
+
+				MapPosition mapPosition = this.mapViewPosition.getMapPosition();
+				int tileSize = this.displayModel.getTileSize();
+				if (!mapPosition.equals(this.scheduledMapPosition) || tileSize != this.scheduledTileSize) {
+					schedule(mapPosition, tileSize);
+				}
+
+				QueueItem<T> queueItem = this.priorityQueue.poll();
+				if (isStale(queueItem.object)) {
+					// the tile is no longer visible, it will be queued again when it becomes visible
+					removeQueueItem(queueItem);
+					this.numberOfCancelledJobs.incrementAndGet();
+					continue;
+				}
+
+				// the job must be assigned before it is removed from the queued jobs, otherwise add could accept it
+				// again
+				this.assignedJobs.add(queueItem.object);
+				removeQueueItem(queueItem);
+				updateWaitTime(System.nanoTime() - queueItem.creationTime);
+				return queueItem.object;
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the average time in milliseconds which the jobs taken from this queue have been waiting.
+	 */
+	public double getAverageWaitTime() {
+		long numberOfJobs = this.numberOfTakenJobs.get();
+		if (numberOfJobs == 0) {
+			return 0;
 		}
+		return this.totalWaitTime.get() / (numberOfJobs * 1000000d);
+	}
+
+	/**
+	 * @return the longest time in milliseconds which a job taken from this queue has been waiting.
+	 */
+	public double getMaximumWaitTime() {
+		return this.maximumWaitTime.get() / 1000000d;
+	}
+
+	/**
+	 * @return the number of jobs which are currently assigned to a worker.
+	 */
+	public int getNumberOfAssignedJobs() {
+		return this.assignedJobs.size();
+	}
+
+	/**
+	 * @return the number of jobs which have been dropped or cancelled because their tile left the working set.
+	 */
+	public long getNumberOfCancelledJobs() {
+		return this.numberOfCancelledJobs.get();
+	}
+
+	/**
+	 * @return the number of jobs which have been dropped because this queue was full.
+	 */
+	public long getNumberOfDroppedJobs() {
+		return this.numberOfDroppedJobs.get();
+	}
 
-		if (this.scheduleNeeded) {
-			this.scheduleNeeded = false;
-			schedule(displayModel.getTileSize());
+	/**
+	 * @return the number of queued prefetch jobs.
+	 */
+	public int getNumberOfPrefetchJobs() {
+		this.lock.lock();
+		try {
+			return this.numberOfPrefetchJobs;
+		} finally {
+			this.lock.unlock();
 		}
+	}
 
-		T job = this.queueItems.remove(0).object;
-		this.assignedJobs.add(job);
-		return job;
+	/**
+	 * @return the number of jobs which have been taken from this queue.
+	 */
+	public long getNumberOfTakenJobs() {
+		return this.numberOfTakenJobs.get();
 	}
 
-	public synchronized void notifyWorkers() {
-		this.notifyAll();
+	public void notifyWorkers() {
+		this.lock.lock();
+		try {
+			this.notEmpty.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void remove(T job) {
+	public void remove(T job) {
 		if (!this.assignedJobs.remove(job)) {
 			throw new IllegalArgumentException("job not assigned: " + job);
 		}
+
+		if (job.isCancelled()) {
+			job.setCancelled(false);
+			if (!isStale(job)) {
+				// the tile has become visible again while its cancelled job was still being executed
+				if (isVisible(job)) {
+					add(job);
+				} else {
+					addPrefetch(job);
+				}
+				notifyWorkers();
+			}
+		}
+	}
+
+	/**
+	 * Sets the jobs for the tiles which are expected to become visible soon. Queued prefetch jobs for other tiles are
+	 * dropped and the assigned jobs which are neither part of the working set nor of the prefetch set are cancelled.
+	 * 
+	 * @param prefetchSet
+	 *            the jobs for the predicted tiles, must not be modified afterwards.
+	 */
+	public void setPrefetchSet(Set<? extends Job> prefetchSet) {
+		if (prefetchSet.equals(this.prefetchSet)) {
+			return;
+		}
+		this.prefetchSet = prefetchSet;
+		cancelStaleJobs();
+	}
+
+	/**
+	 * Sets the jobs for the tiles which are currently visible. Queued jobs for other tiles are dropped and the assigned
+	 * jobs for other tiles are cancelled.
+	 * 
+	 * @param workingSet
+	 *            the jobs for the visible tiles, must not be modified afterwards.
+	 */
+	public void setWorkingSet(Set<? extends Job> workingSet) {
+		if (workingSet.equals(this.workingSet)) {
+			return;
+		}
+		this.workingSet = workingSet;
+		cancelStaleJobs();
 	}
 
 	/**
 	 * @return the current number of entries in this queue.
 	 */
-	public synchronized int size() {
+	public int size() {
 		return this.queueItems.size();
 	}
 
-	private void schedule(int tileSize) {
-		QueueItemScheduler.schedule(this.queueItems, this.mapViewPosition.getMapPosition(), tileSize);
-		Collections.sort(this.queueItems, QueueItemComparator.INSTANCE);
-		trimToSize();
+	private void cancelStaleJobs() {
+		for (T job : this.assignedJobs) {
+			if (isStale(job) && !job.isCancelled()) {
+				job.setCancelled(true);
+				this.numberOfCancelledJobs.incrementAndGet();
+			}
+		}
+	}
+
+	private void dropQueueItem(QueueItem<T> queueItem) {
+		removeQueueItem(queueItem);
+		this.numberOfDroppedJobs.incrementAndGet();
 	}
 
-	private void trimToSize() {
-		int queueSize = this.queueItems.size();
+	private boolean isStale(T job) {
+		return !isVisible(job) && !this.prefetchSet.contains(job);
+	}
+
+	private boolean isVisible(T job) {
+		Set<? extends Job> currentWorkingSet = this.workingSet;
+		return currentWorkingSet == null || currentWorkingSet.contains(job);
+	}
+
+	private void removeQueueItem(QueueItem<T> queueItem) {
+		this.queueItems.remove(queueItem.object);
+		if (queueItem.prefetch) {
+			--this.numberOfPrefetchJobs;
+		}
+	}
+
+	private void schedule(MapPosition mapPosition, int tileSize) {
+		// the priorities are recalculated and the heap order is restored in place
+		QueueItemScheduler.schedule(this.priorityQueue.getItems(), mapPosition, tileSize);
+		this.priorityQueue.heapify();
+		this.scheduledMapPosition = mapPosition;
+		this.scheduledTileSize = tileSize;
+
+		while (this.priorityQueue.size() > QUEUE_CAPACITY) {
+			dropQueueItem(this.priorityQueue.pollWorst());
+		}
+	}
 
-		while (queueSize > QUEUE_CAPACITY) {
-			this.queueItems.remove(--queueSize);
+	private void updateWaitTime(long waitTime) {
+		this.numberOfTakenJobs.incrementAndGet();
+		this.totalWaitTime.addAndGet(waitTime);
+		long maximum = this.maximumWaitTime.get();
+		while (waitTime > maximum && !this.maximumWaitTime.compareAndSet(maximum, waitTime)) {
+			maximum = this.maximumWaitTime.get();
 		}
 	}
 }
@@ -15,11 +15,18 @@
 package org.mapsforge.map.layer.queue;
 
 class QueueItem<T extends Job> {
+	final long creationTime;
 	final T object;
+
+	/**
+	 * True if the job is for a tile which is not visible yet, only modified while holding the lock of the queue.
+	 */
+	boolean prefetch;
 	private double priority;
 
 	QueueItem(T object) {
 		this.object = object;
+		this.creationTime = System.nanoTime();
 	}
 
 	@Override
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A binary heap of queue items ordered by the {@link QueueItemComparator}, the most important item is at the top. In
+ * contrast to a {@link java.util.PriorityQueue}, the heap order can be restored in place after the priorities of all
+ * items have changed and the least important item can be removed without sorting.
+ */
+final class QueueItemHeap<T extends Job> {
+	private final List<QueueItem<T>> items;
+
+	QueueItemHeap(int initialCapacity) {
+		this.items = new ArrayList<QueueItem<T>>(initialCapacity);
+	}
+
+	void add(QueueItem<T> queueItem) {
+		this.items.add(queueItem);
+		siftUp(this.items.size() - 1);
+	}
+
+	/**
+	 * @return an unmodifiable view of the items in heap order.
+	 */
+	Collection<QueueItem<T>> getItems() {
+		return Collections.unmodifiableList(this.items);
+	}
+
+	/**
+	 * Restores the heap order in linear time after the priorities of the items have changed.
+	 */
+	void heapify() {
+		for (int i = this.items.size() / 2 - 1; i >= 0; --i) {
+			siftDown(i);
+		}
+	}
+
+	boolean isEmpty() {
+		return this.items.isEmpty();
+	}
+
+	/**
+	 * @return the least important item, null if this heap is empty.
+	 */
+	QueueItem<T> peekWorst() {
+		return this.items.isEmpty() ? null : this.items.get(indexOfWorst());
+	}
+
+	/**
+	 * @return the most important item which is removed from this heap, null if this heap is empty.
+	 */
+	QueueItem<T> poll() {
+		return this.items.isEmpty() ? null : removeAt(0);
+	}
+
+	/**
+	 * @return the least important item which is removed from this heap, null if this heap is empty.
+	 */
+	QueueItem<T> pollWorst() {
+		return this.items.isEmpty() ? null : removeAt(indexOfWorst());
+	}
+
+	/**
+	 * @return true if the given item has been removed, false if it is not part of this heap.
+	 */
+	boolean remove(QueueItem<T> queueItem) {
+		for (int i = 0; i < this.items.size(); ++i) {
+			if (this.items.get(i) == queueItem) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int size() {
+		return this.items.size();
+	}
+
+	private int compare(int index1, int index2) {
+		return QueueItemComparator.INSTANCE.compare(this.items.get(index1), this.items.get(index2));
+	}
+
+	/**
+	 * The least important item is one of the leaves, which form the second half of the heap.
+	 */
+	private int indexOfWorst() {
+		int worst = this.items.size() - 1;
+		for (int i = this.items.size() / 2; i < this.items.size() - 1; ++i) {
+			if (compare(i, worst) > 0) {
+				worst = i;
+			}
+		}
+		return worst;
+	}
+
+	private QueueItem<T> removeAt(int index) {
+		QueueItem<T> queueItem = this.items.get(index);
+		QueueItem<T> last = this.items.remove(this.items.size() - 1);
+		if (index < this.items.size()) {
+			this.items.set(index, last);
+			siftDown(index);
+			if (this.items.get(index) == last) {
+				siftUp(index);
+			}
+		}
+		return queueItem;
+	}
+
+	private void siftDown(int index) {
+		int size = this.items.size();
+		int current = index;
+		while (true) {
+			int child = 2 * current + 1;
+			if (child >= size) {
+				return;
+			}
+			if (child + 1 < size && compare(child + 1, child) < 0) {
+				++child;
+			}
+			if (compare(child, current) >= 0) {
+				return;
+			}
+			swap(current, child);
+			current = child;
+		}
+	}
+
+	private void siftUp(int index) {
+		int current = index;
+		while (current > 0) {
+			int parent = (current - 1) / 2;
+			if (compare(current, parent) >= 0) {
+				return;
+			}
+			swap(current, parent);
+			current = parent;
+		}
+	}
+
+	private void swap(int index1, int index2) {
+		QueueItem<T> queueItem = this.items.get(index1);
+		this.items.set(index1, this.items.get(index2));
+		this.items.set(index2, queueItem);
+	}
+}
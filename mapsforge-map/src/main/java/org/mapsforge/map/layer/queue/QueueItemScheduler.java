@@ -31,6 +31,10 @@ final class QueueItemScheduler {
 		}
 	}
 
+	static <T extends Job> void schedule(QueueItem<T> queueItem, MapPosition mapPosition, int tileSize) {
+		queueItem.setPriority(calculatePriority(queueItem.object.tile, mapPosition, tileSize));
+	}
+
 	private static double calculatePriority(Tile tile, MapPosition mapPosition, int tileSize) {
 		double tileLatitude = MercatorProjection.tileYToLatitude(tile.tileY, tile.zoomLevel);
 		double tileLongitude = MercatorProjection.tileXToLongitude(tile.tileX, tile.zoomLevel);
@@ -81,22 +81,20 @@ class CanvasRasterer {
 		this.canvas.drawCircle((int) point.x, (int) point.y, (int) circleContainer.radius, shapePaintContainer.paint);
 	}
 
-	private void drawPath(ShapePaintContainer shapePaintContainer, Point[][] coordinates, float dy) {
+	private void drawPath(ShapePaintContainer shapePaintContainer, double[][] coordinates, Point origin, float dy) {
 		this.path.clear();
 
-		for (Point[] innerList : coordinates) {
-			Point[] points;
+		for (double[] innerList : coordinates) {
+			double[] points;
 			if (dy != 0f) {
 				points = RendererUtils.parallelPath(innerList, dy);
 			} else {
 				points = innerList;
 			}
-			if (points.length >= 2) {
-				Point point = points[0];
-				this.path.moveTo((float) point.x, (float) point.y);
-				for (int i = 1; i < points.length; ++i) {
-					point = points[i];
-					this.path.lineTo((int) point.x, (int) point.y);
+			if (points.length >= 4) {
+				this.path.moveTo((float) (points[0] - origin.x), (float) (points[1] - origin.y));
+				for (int i = 2; i < points.length; i += 2) {
+					this.path.lineTo((int) (points[i] - origin.x), (int) (points[i + 1] - origin.y));
 				}
 			}
 		}
@@ -113,7 +111,8 @@ class CanvasRasterer {
 
 			case POLYLINE:
 				PolylineContainer polylineContainer = (PolylineContainer) shapePaintContainer.shapeContainer;
-				drawPath(shapePaintContainer, polylineContainer.getCoordinatesRelativeToTile(), shapePaintContainer.dy);
+				drawPath(shapePaintContainer, polylineContainer.getPackedCoordinatesAbsolute(),
+						polylineContainer.getTile().getOrigin(), shapePaintContainer.dy);
 				return;
 		}
 	}
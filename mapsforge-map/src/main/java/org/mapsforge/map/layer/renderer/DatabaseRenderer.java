@@ -29,6 +29,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.mapsforge.core.graphics.Bitmap;
+import org.mapsforge.core.mapelements.CollisionGrid;
 import org.mapsforge.core.mapelements.MapElementContainer;
 import org.mapsforge.core.graphics.Position;
 import org.mapsforge.core.graphics.GraphicFactory;
@@ -85,6 +86,19 @@ public class DatabaseRenderer implements RenderCallback {
 		return result;
 	}
 
+	/**
+	 * Adds the time since the given start time to the given phase of the tile metrics.
+	 * 
+	 * @return the current time, which is the start time of the next phase.
+	 */
+	private static long recordTime(TileMetrics tileMetrics, RenderingPhase phase, long startTime) {
+		long time = System.nanoTime();
+		if (tileMetrics != null) {
+			tileMetrics.addTime(phase, time - startTime);
+		}
+		return time;
+	}
+
 	private static byte getValidLayer(byte layer) {
 		if (layer < 0) {
 			return 0;
@@ -135,6 +149,20 @@ public class DatabaseRenderer implements RenderCallback {
 	 */
 	public DatabaseRenderer(MapDatabase mapDatabase, GraphicFactory graphicFactory,
 	                        TileCache tileCache) {
+		this(mapDatabase, graphicFactory, tileCache, new TileDependencies());
+	}
+
+	/**
+	 * Constructs a new DatabaseRenderer that will draw labels onto the tiles and shares its
+	 * label dependencies with other renderers working on the same TileCache.
+	 *
+	 * @param mapDatabase
+	 *            the MapDatabase from which the map data will be read.
+	 * @param tileDependencies
+	 *            the label dependencies shared by all renderers.
+	 */
+	DatabaseRenderer(MapDatabase mapDatabase, GraphicFactory graphicFactory,
+	                 TileCache tileCache, TileDependencies tileDependencies) {
 		this.mapDatabase = mapDatabase;
 		this.graphicFactory = graphicFactory;
 
@@ -142,7 +170,7 @@ public class DatabaseRenderer implements RenderCallback {
 		this.labelStore = null;
 		this.renderLabels = true;
 		this.tileCache = tileCache;
-		this.tileDependencies = new TileDependencies();
+		this.tileDependencies = tileDependencies;
 	}
 
 
@@ -167,6 +195,18 @@ public class DatabaseRenderer implements RenderCallback {
 	 *            the job that should be executed.
 	 */
 	public TileBitmap executeJob(RendererJob rendererJob) {
+		return executeJob(rendererJob, null);
+	}
+
+	/**
+	 * Called when a job needs to be executed.
+	 * 
+	 * @param rendererJob
+	 *            the job that should be executed.
+	 * @param tileMetrics
+	 *            the metrics which record the rendering phases of the job, may be null.
+	 */
+	TileBitmap executeJob(RendererJob rendererJob, TileMetrics tileMetrics) {
 		final int tileSize = rendererJob.tile.tileSize;
 		final byte zoomLevel = rendererJob.tile.zoomLevel;
 
@@ -184,11 +224,27 @@ public class DatabaseRenderer implements RenderCallback {
 		}
 
 		setScaleStrokeWidth(zoomLevel);
-		this.renderTheme.scaleTextSize(rendererJob.textScale);
+		this.renderTheme.scaleTextSize(rendererJob.textScale, zoomLevel);
 
+		long time = System.nanoTime();
 		if (this.mapDatabase != null) {
 			MapReadResult mapReadResult = this.mapDatabase.readMapData(rendererJob.tile);
+			time = recordTime(tileMetrics, RenderingPhase.READ_MAP_DATA, time);
+
+			long matchingCacheHits = this.renderTheme.getMatchingCacheHits();
+			long matchingCacheMisses = this.renderTheme.getMatchingCacheMisses();
 			processReadMapData(ways, mapReadResult, rendererJob.tile);
+			time = recordTime(tileMetrics, RenderingPhase.MATCH_THEME, time);
+			if (tileMetrics != null && mapReadResult != null) {
+				tileMetrics.setElements(mapReadResult.pointOfInterests.size(), mapReadResult.ways.size());
+				tileMetrics.setMatchingCache((int) (this.renderTheme.getMatchingCacheHits() - matchingCacheHits),
+						(int) (this.renderTheme.getMatchingCacheMisses() - matchingCacheMisses));
+			}
+		}
+
+		if (rendererJob.isCancelled()) {
+			clearWays();
+			return null;
 		}
 
 		TileBitmap bitmap = null;
@@ -200,6 +256,16 @@ public class DatabaseRenderer implements RenderCallback {
 				this.canvasRasterer.fill(this.renderTheme.getMapBackground());
 			}
 			this.canvasRasterer.drawWays(ways, rendererJob.tile);
+			time = recordTime(tileMetrics, RenderingPhase.DRAW_WAYS, time);
+		}
+
+		if (rendererJob.isCancelled()) {
+			// the label placement has not changed the tile dependencies yet, so the job can still be dropped
+			if (bitmap != null) {
+				bitmap.decrementRefCount();
+			}
+			clearWays();
+			return null;
 		}
 
 		if (renderLabels) {
@@ -207,83 +273,88 @@ public class DatabaseRenderer implements RenderCallback {
 			// elements need to be drawn.
 
 			Set<MapElementContainer> labelsToDraw = new HashSet<MapElementContainer>();
-			// first we need to get the labels from the adjacent tiles if they have already been drawn
-			// as those overlapping items must also be drawn on the current tile. They must be drawn regardless
-			// of priority clashes as a part of them has alread been drawn.
-			Set<Tile> neighbours = rendererJob.tile.getNeighbours();
-			Iterator<Tile> tileIterator = neighbours.iterator();
-			Set<MapElementContainer> undrawableElements = new HashSet<MapElementContainer>();
-			while (tileIterator.hasNext()) {
-				Tile neighbour = tileIterator.next();
-				if (tileCache.containsKey(rendererJob.otherTile(neighbour))) {
-					// if a tile has already been drawn, the elements drawn that overlap onto the
-					// current tile should be in the tile dependencies, we add them to the labels that
-					// need to be drawn onto this tile.
-					labelsToDraw.addAll(tileDependencies.getOverlappingElements(neighbour, rendererJob.tile));
-
-					// but we need to remove the labels for this tile that overlap onto a tile that has been drawn
-					for (MapElementContainer current : currentLabels) {
-						if (current.intersects(neighbour.getBoundaryAbsolute())) {
-							undrawableElements.add(current);
+			// the label placement must see the effects of all renderers that placed their labels
+			// before, so it is serialized on the shared tile dependencies.
+			synchronized (this.tileDependencies) {
+				// first we need to get the labels from the adjacent tiles if they have already been drawn
+				// as those overlapping items must also be drawn on the current tile. They must be drawn regardless
+				// of priority clashes as a part of them has alread been drawn.
+				Set<Tile> neighbours = rendererJob.tile.getNeighbours();
+				Iterator<Tile> tileIterator = neighbours.iterator();
+				Set<MapElementContainer> undrawableElements = new HashSet<MapElementContainer>();
+				while (tileIterator.hasNext()) {
+					Tile neighbour = tileIterator.next();
+					if (tileCache.containsKey(rendererJob.otherTile(neighbour))
+						|| tileDependencies.isPendingTile(neighbour)) {
+						// if a tile has already been drawn, the elements drawn that overlap onto the
+						// current tile should be in the tile dependencies, we add them to the labels that
+						// need to be drawn onto this tile.
+						labelsToDraw.addAll(tileDependencies.getOverlappingElements(neighbour, rendererJob.tile));
+
+						// but we need to remove the labels for this tile that overlap onto a tile that has been drawn
+						for (MapElementContainer current : currentLabels) {
+							if (current.intersects(neighbour.getBoundaryAbsolute())) {
+								undrawableElements.add(current);
+							}
 						}
+						// since we already have the data from that tile, we do not need to get the data for
+						// it, so remove it from the neighbours list.
+						tileIterator.remove();
+					} else {
+						tileDependencies.removeTileData(neighbour);
 					}
-					// since we already have the data from that tile, we do not need to get the data for
-					// it, so remove it from the neighbours list.
-					tileIterator.remove();
-				} else {
-					tileDependencies.removeTileData(neighbour);
 				}
-			}
 
-			// now we remove the elements that overlap onto a drawn tile from the list of labels
-			// for this tile
-			currentLabels.removeAll(undrawableElements);
-
-			// at this point we have two lists: one is the list of labels that must be drawn because
-			// they already overlap from other tiles. The second one is currentLabels that contains
-			// the elements on this tile that do not overlap onto a drawn tile. Now we sort this list and
-			// remove those elements that clash in this list already.
-			List<MapElementContainer> currentElementsOrdered = LayerUtil.collisionFreeOrdered(currentLabels);
-
-			// now we go through this list, ordered by priority, to see which can be drawn without clashing.
-			Iterator<MapElementContainer> currentMapElementsIterator = currentElementsOrdered.iterator();
-			while (currentMapElementsIterator.hasNext()) {
-				MapElementContainer current = currentMapElementsIterator.next();
-				for (MapElementContainer label : labelsToDraw) {
-					if (label.clashesWith(current)) {
-						currentMapElementsIterator.remove();
-						break;
+				// now we remove the elements that overlap onto a drawn tile from the list of labels
+				// for this tile
+				currentLabels.removeAll(undrawableElements);
+
+				// at this point we have two lists: one is the list of labels that must be drawn because
+				// they already overlap from other tiles. The second one is currentLabels that contains
+				// the elements on this tile that do not overlap onto a drawn tile. Now we sort this list and
+				// remove those elements that clash in this list already.
+				List<MapElementContainer> currentElementsOrdered = LayerUtil.collisionFreeOrdered(currentLabels);
+
+				// now we go through this list, ordered by priority, to see which can be drawn without clashing.
+				CollisionGrid overlappingLabels = new CollisionGrid();
+				overlappingLabels.addAll(labelsToDraw);
+				for (MapElementContainer current : currentElementsOrdered) {
+					if (!overlappingLabels.clashesWith(current)) {
+						labelsToDraw.add(current);
 					}
 				}
-			}
 
-			labelsToDraw.addAll(currentElementsOrdered);
-
-			// update dependencies, add to the dependencies list all the elements that overlap to the
-			// neighbouring tiles, first clearing out the cache for this relation.
-			for (Tile tile : neighbours) {
-				tileDependencies.removeTileData(rendererJob.tile, tile);
-				for (MapElementContainer element : labelsToDraw) {
-					if (element.intersects(tile.getBoundaryAbsolute())) {
-						tileDependencies.addOverlappingElement(rendererJob.tile, tile, element);
+				// update dependencies, add to the dependencies list all the elements that overlap to the
+				// neighbouring tiles, first clearing out the cache for this relation.
+				for (Tile tile : neighbours) {
+					tileDependencies.removeTileData(rendererJob.tile, tile);
+					for (MapElementContainer element : labelsToDraw) {
+						if (element.intersects(tile.getBoundaryAbsolute())) {
+							tileDependencies.addOverlappingElement(rendererJob.tile, tile, element);
+						}
 					}
 				}
+				// the tile counts as drawn for the other renderers until it has been stored in the TileCache
+				tileDependencies.addPendingTile(rendererJob.tile);
 			}
+			time = recordTime(tileMetrics, RenderingPhase.PLACE_LABELS, time);
 			// now draw the ways and the labels
 			this.canvasRasterer.drawMapElements(labelsToDraw, rendererJob.tile);
+			recordTime(tileMetrics, RenderingPhase.DRAW_LABELS, time);
+			if (tileMetrics != null) {
+				tileMetrics.setLabels(labelsToDraw.size());
+			}
 		} else {
 			// store elements for this tile in the label cache
 			this.labelStore.storeMapItems(rendererJob.tile, this.currentLabels);
-		}
-
-		// clear way list
-		for (int i = this.ways.size() - 1; i >= 0; --i) {
-			List<List<ShapePaintContainer>> innerWayList = this.ways.get(i);
-			for (int j = innerWayList.size() - 1; j >= 0; --j) {
-				innerWayList.get(j).clear();
+			recordTime(tileMetrics, RenderingPhase.PLACE_LABELS, time);
+			if (tileMetrics != null) {
+				tileMetrics.setLabels(this.currentLabels.size());
 			}
 		}
 
+		clearWays();
+
 		return bitmap;
 	}
 
@@ -291,6 +362,20 @@ public class DatabaseRenderer implements RenderCallback {
 		return this.mapDatabase;
 	}
 
+	/**
+	 * Called when the result of a job has been stored in the TileCache or has been discarded.
+	 *
+	 * @param rendererJob
+	 *            the job that has been executed.
+	 */
+	void jobFinished(RendererJob rendererJob) {
+		if (this.tileDependencies != null) {
+			synchronized (this.tileDependencies) {
+				this.tileDependencies.removePendingTile(rendererJob.tile);
+			}
+		}
+	}
+
 	/**
 	 * @return the start point (may be null).
 	 */
@@ -380,12 +465,21 @@ public class DatabaseRenderer implements RenderCallback {
 	public void renderWaySymbol(PolylineContainer way, int priority, Bitmap symbol, float dy, boolean alignCenter, boolean repeat,
 	                     float repeatGap, float repeatStart, boolean rotate) {
 		WayDecorator.renderSymbol(symbol, priority, dy, alignCenter, repeat, repeatGap,
-				repeatStart, rotate, way.getCoordinatesAbsolute(), this.currentLabels);
+				repeatStart, rotate, way.getPackedCoordinatesAbsolute(), this.currentLabels);
 	}
 
 	@Override
 	public void renderWayText(PolylineContainer way, int priority, String textKey, float dy, Paint fill, Paint stroke) {
-		WayDecorator.renderText(way.getTile(), textKey, priority, dy, fill, stroke, way.getCoordinatesAbsolute(), this.currentLabels);
+		WayDecorator.renderText(way.getTile(), textKey, priority, dy, fill, stroke, way.getPackedCoordinatesAbsolute(), this.currentLabels);
+	}
+
+	private void clearWays() {
+		for (int i = this.ways.size() - 1; i >= 0; --i) {
+			List<List<ShapePaintContainer>> innerWayList = this.ways.get(i);
+			for (int j = innerWayList.size() - 1; j >= 0; --j) {
+				innerWayList.get(j).clear();
+			}
+		}
 	}
 
 	private List<List<List<ShapePaintContainer>>> createWayLists() {
@@ -461,7 +555,7 @@ public class DatabaseRenderer implements RenderCallback {
 	 */
 	private void setScaleStrokeWidth(byte zoomLevel) {
 		int zoomLevelDiff = Math.max(zoomLevel - STROKE_MIN_ZOOM_LEVEL, 0);
-		this.renderTheme.scaleStrokeWidth((float) Math.pow(STROKE_INCREASE, zoomLevelDiff));
+		this.renderTheme.scaleStrokeWidth((float) Math.pow(STROKE_INCREASE, zoomLevelDiff), zoomLevel);
 	}
 
 }
@@ -19,27 +19,38 @@ import org.mapsforge.map.reader.MapDatabase;
 class DestroyThread extends Thread {
 
 	private final MapDatabase mapDatabase;
-	private final DatabaseRenderer renderer;
-	private final Thread thread;
+	private final DatabaseRenderer[] renderers;
+	private final Thread[] threads;
 
-	DestroyThread(Thread thread, MapDatabase mapDatabase, DatabaseRenderer renderer) {
+	DestroyThread(Thread[] threads, MapDatabase mapDatabase, DatabaseRenderer[] renderers) {
 		super();
 
-		this.thread = thread;
+		this.threads = threads;
 		this.mapDatabase = mapDatabase;
-		this.renderer = renderer;
+		this.renderers = renderers;
 	}
 
 	@Override
 	public void run() {
 		try {
-			this.thread.interrupt();
-			this.thread.join();
+			for (Thread thread : this.threads) {
+				if (thread != null) {
+					thread.interrupt();
+				}
+			}
+			for (Thread thread : this.threads) {
+				if (thread != null) {
+					thread.join();
+				}
+			}
 		} catch (InterruptedException e) {
 			// restore the interrupted status
 			interrupt();
 		} finally {
-			this.renderer.destroy();
+			for (DatabaseRenderer renderer : this.renderers) {
+				renderer.destroy();
+			}
+			// the map database is shared by all renderers, so it is closed last
 			this.mapDatabase.closeFile();
 		}
 	}
@@ -18,6 +18,38 @@ import org.mapsforge.core.model.LatLong;
 import org.mapsforge.core.model.Point;
 
 final class GeometryUtils {
+	/**
+	 * Calculates the center of the minimum bounding rectangle for the given packed coordinates.
+	 * 
+	 * @param coordinates
+	 *            the coordinates as packed x/y pairs for which calculation should be done.
+	 * @return the center coordinates of the minimum bounding rectangle.
+	 */
+	static Point calculateCenterOfBoundingBox(double[] coordinates) {
+		double pointXMin = coordinates[0];
+		double pointXMax = coordinates[0];
+		double pointYMin = coordinates[1];
+		double pointYMax = coordinates[1];
+
+		for (int i = 2; i < coordinates.length; i += 2) {
+			double x = coordinates[i];
+			double y = coordinates[i + 1];
+			if (x < pointXMin) {
+				pointXMin = x;
+			} else if (x > pointXMax) {
+				pointXMax = x;
+			}
+
+			if (y < pointYMin) {
+				pointYMin = y;
+			} else if (y > pointYMax) {
+				pointYMax = y;
+			}
+		}
+
+		return new Point((pointXMin + pointXMax) / 2, (pointYMax + pointYMin) / 2);
+	}
+
 	/**
 	 * Calculates the center of the minimum bounding rectangle for the given coordinates.
 	 * 
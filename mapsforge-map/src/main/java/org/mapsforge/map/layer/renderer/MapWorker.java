@@ -15,10 +15,6 @@
  */
 package org.mapsforge.map.layer.renderer;
 
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
 import org.mapsforge.core.graphics.TileBitmap;
 import org.mapsforge.map.layer.Layer;
 import org.mapsforge.map.layer.cache.TileCache;
@@ -26,42 +22,36 @@ import org.mapsforge.map.layer.queue.JobQueue;
 import org.mapsforge.map.util.PausableThread;
 
 public class MapWorker extends PausableThread {
-
-	public static boolean DEBUG_TIMING = false;
-
-	private static final Logger LOGGER = Logger.getLogger(MapWorker.class.getName());
-
 	private final DatabaseRenderer databaseRenderer;
 	private final JobQueue<RendererJob> jobQueue;
 	private final Layer layer;
+	private final RenderingMetrics renderingMetrics;
 	private final TileCache tileCache;
 
-	private final AtomicLong totalExecutions;
-	// for timing only
-	private final AtomicLong totalTime;
-
 	public MapWorker(TileCache tileCache, JobQueue<RendererJob> jobQueue, DatabaseRenderer databaseRenderer, Layer layer) {
-		super();
+		this(tileCache, jobQueue, databaseRenderer, layer, null);
+	}
 
-		if (DEBUG_TIMING) {
-			totalTime = new AtomicLong();
-			totalExecutions = new AtomicLong();
-		} else {
-			totalTime = null;
-			totalExecutions = null;
-		}
+	/**
+	 * @param renderingMetrics
+	 *            the metrics which record every rendered tile, may be null.
+	 */
+	public MapWorker(TileCache tileCache, JobQueue<RendererJob> jobQueue, DatabaseRenderer databaseRenderer,
+			Layer layer, RenderingMetrics renderingMetrics) {
+		super();
 
 		this.tileCache = tileCache;
 		this.jobQueue = jobQueue;
 		this.databaseRenderer = databaseRenderer;
 		this.layer = layer;
+		this.renderingMetrics = renderingMetrics;
 	}
 
 	@Override
 	protected void doWork() throws InterruptedException {
 		RendererJob rendererJob = this.jobQueue.get();
 		try {
-			if (!this.tileCache.containsKey(rendererJob) || rendererJob.labelsOnly) {
+			if (!rendererJob.isCancelled() && (!this.tileCache.containsKey(rendererJob) || rendererJob.labelsOnly)) {
 				renderTile(rendererJob);
 			}
 		} finally {
@@ -80,29 +70,30 @@ public class MapWorker extends PausableThread {
 	}
 
 	private void renderTile(RendererJob rendererJob) {
-		long start = 0;
-		if (DEBUG_TIMING) {
-			start = System.currentTimeMillis();
-		}
-
-		TileBitmap bitmap = this.databaseRenderer.executeJob(rendererJob);
-
-		if (!isInterrupted() && bitmap != null) {
-			this.tileCache.put(rendererJob, bitmap);
-			this.layer.requestRedraw();
-		}
-		if (bitmap != null) {
-			bitmap.decrementRefCount();
-		}
-
-		if (DEBUG_TIMING) {
-			long end = System.currentTimeMillis();
-			long te = this.totalExecutions.incrementAndGet();
-			long tt = this.totalTime.addAndGet(end - start);
-			if (te % 10 == 0) {
-				LOGGER.log(Level.INFO, "TIMING " + Long.toString(te) + " " + Double.toString(tt / te));
+		TileMetrics tileMetrics = this.renderingMetrics == null ? null : new TileMetrics(rendererJob.tile);
+		TileBitmap bitmap = null;
+		try {
+			bitmap = this.databaseRenderer.executeJob(rendererJob, tileMetrics);
+
+			if (!isInterrupted() && bitmap != null) {
+				long startTime = System.nanoTime();
+				this.tileCache.put(rendererJob, bitmap);
+				if (tileMetrics != null) {
+					tileMetrics.addTime(RenderingPhase.STORE_TILE, System.nanoTime() - startTime);
+				}
+				this.layer.requestRedraw();
+			}
+			if (bitmap != null) {
+				bitmap.decrementRefCount();
 			}
+		} finally {
+			this.databaseRenderer.jobFinished(rendererJob);
 		}
 
+		// cancelled jobs and jobs which only retrieve labels would distort the tile histograms
+		if (tileMetrics != null && bitmap != null) {
+			tileMetrics.setQueueSize(this.jobQueue.size());
+			this.renderingMetrics.record(tileMetrics);
+		}
 	}
 }
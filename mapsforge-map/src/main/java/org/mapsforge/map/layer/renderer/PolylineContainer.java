@@ -17,7 +17,6 @@ package org.mapsforge.map.layer.renderer;
 
 import java.util.List;
 
-import org.mapsforge.core.model.LatLong;
 import org.mapsforge.core.model.Point;
 import org.mapsforge.core.model.Tag;
 import org.mapsforge.core.model.Tile;
@@ -27,16 +26,18 @@ import org.mapsforge.map.reader.Way;
 /**
  * A PolylineContainer encapsulates the way data retrieved from a map file.
  *
- * The class uses deferred evaluation for computing the absolute and relative
- * pixel coordinates of the way as many ways will not actually be rendered on a
+ * The class uses deferred evaluation for computing the absolute pixel
+ * coordinates of the way as many ways will not actually be rendered on a
  * map. In order to save memory, after evaluation, the internally stored way is
- * released.
+ * released. The coordinates are kept as packed x/y pairs, one array per way
+ * segment; the Point arrays are only created when they are explicitly requested.
  */
 
 public class PolylineContainer implements ShapeContainer {
 
 	private Point center;
-	private Point[][] coordinatesAbsolute;
+	private double[][] coordinatesAbsolute;
+	private Point[][] coordinatesAbsolutePoints;
 	private Point[][] coordinatesRelativeToTile;
 	private final List<Tag> tags;
 	private final byte layer;
@@ -51,14 +52,16 @@ public class PolylineContainer implements ShapeContainer {
 		this.tile = tile;
 		layer = way.layer;
 		this.way = way;
-		this.isClosedWay = isClosedWay(way.latLongs[0]);
+		this.isClosedWay = isClosedWay(way.coordinates[0]);
 	}
 
 	PolylineContainer(Point[] coordinates, Tile tile, List tags) {
-		this.coordinatesAbsolute = new Point[1][];
+		this.coordinatesAbsolute = new double[1][coordinates.length * 2];
 		this.coordinatesRelativeToTile = null;
-		this.coordinatesAbsolute[0] = new Point[coordinates.length];
-		System.arraycopy(coordinates, 0, coordinatesAbsolute[0], 0, coordinates.length);
+		for (int i = 0; i < coordinates.length; ++i) {
+			this.coordinatesAbsolute[0][2 * i] = coordinates[i].x;
+			this.coordinatesAbsolute[0][2 * i + 1] = coordinates[i].y;
+		}
 		this.tags = tags;
 		this.tile = tile;
 		this.layer = 0;
@@ -67,37 +70,29 @@ public class PolylineContainer implements ShapeContainer {
 
 	public Point getCenterAbsolute() {
 		if (null == center) {
-			this.center = GeometryUtils.calculateCenterOfBoundingBox(getCoordinatesAbsolute()[0]);
+			this.center = GeometryUtils.calculateCenterOfBoundingBox(getPackedCoordinatesAbsolute()[0]);
 		}
 		return this.center;
 	}
 
+	/**
+	 * @return the absolute pixel coordinates of this way as Point objects, created on the first call.
+	 * @see #getPackedCoordinatesAbsolute()
+	 */
 	public Point[][] getCoordinatesAbsolute() {
-		// deferred evaluation as some PolyLineContainers will never be drawn. However,
-		// to save memory, after computing the absolute coordinates, the way is released.
-		if (coordinatesAbsolute == null) {
-			coordinatesAbsolute = new Point[way.latLongs.length][];
-			for (int i = 0; i < way.latLongs.length; ++i) {
-				coordinatesAbsolute[i] = new Point[way.latLongs[i].length];
-				for (int j = 0; j < way.latLongs[i].length; ++j) {
-					coordinatesAbsolute[i][j] = MercatorProjection.getPixelAbsolute(way.latLongs[i][j], tile.mapSize);
-				}
-			}
-			this.way = null;
+		if (coordinatesAbsolutePoints == null) {
+			coordinatesAbsolutePoints = toPoints(getPackedCoordinatesAbsolute(), 0, 0);
 		}
-		return coordinatesAbsolute;
+		return coordinatesAbsolutePoints;
 	}
 
+	/**
+	 * @return the pixel coordinates of this way relative to the tile origin as Point objects, created on the first call.
+	 */
 	public Point[][] getCoordinatesRelativeToTile() {
 		if (coordinatesRelativeToTile == null) {
 			Point tileOrigin = tile.getOrigin();
-			coordinatesRelativeToTile = new Point[getCoordinatesAbsolute().length][];
-			for (int i = 0; i < coordinatesRelativeToTile.length; ++ i) {
-				coordinatesRelativeToTile[i] = new Point[coordinatesAbsolute[i].length];
-				for (int j = 0; j < coordinatesRelativeToTile[i].length; ++j) {
-					coordinatesRelativeToTile[i][j] = coordinatesAbsolute[i][j].offset(-tileOrigin.x, -tileOrigin.y);
-				}
-			}
+			coordinatesRelativeToTile = toPoints(getPackedCoordinatesAbsolute(), tileOrigin.x, tileOrigin.y);
 		}
 		return coordinatesRelativeToTile;
 	}
@@ -106,6 +101,30 @@ public class PolylineContainer implements ShapeContainer {
 		return layer;
 	}
 
+	/**
+	 * @return the absolute pixel coordinates of this way as packed x/y pairs, one array per way segment:
+	 *         {@code {x0, y0, x1, y1, ...}}.
+	 */
+	public double[][] getPackedCoordinatesAbsolute() {
+		// deferred evaluation as some PolyLineContainers will never be drawn. However,
+		// to save memory, after computing the absolute coordinates, the way is released.
+		if (coordinatesAbsolute == null) {
+			long mapSize = tile.mapSize;
+			coordinatesAbsolute = new double[way.coordinates.length][];
+			for (int i = 0; i < way.coordinates.length; ++i) {
+				double[] segment = way.coordinates[i];
+				double[] pixels = new double[segment.length];
+				for (int j = 0; j < segment.length; j += 2) {
+					pixels[j] = MercatorProjection.longitudeToPixelX(segment[j + 1], mapSize);
+					pixels[j + 1] = MercatorProjection.latitudeToPixelY(segment[j], mapSize);
+				}
+				coordinatesAbsolute[i] = pixels;
+			}
+			this.way = null;
+		}
+		return coordinatesAbsolute;
+	}
+
 	@Override
 	public ShapeType getShapeType() {
 		return ShapeType.POLYLINE;
@@ -123,8 +142,21 @@ public class PolylineContainer implements ShapeContainer {
 		return tile;
 	}
 
-	private boolean isClosedWay(LatLong[] latLongs) {
-		return latLongs[0].distance(latLongs[latLongs.length -1]) < 0.000000001;
+	private static boolean isClosedWay(double[] coordinates) {
+		double latitudeDifference = coordinates[0] - coordinates[coordinates.length - 2];
+		double longitudeDifference = coordinates[1] - coordinates[coordinates.length - 1];
+		return Math.sqrt(latitudeDifference * latitudeDifference + longitudeDifference * longitudeDifference) < 0.000000001;
+	}
+
+	private static Point[][] toPoints(double[][] coordinates, double originX, double originY) {
+		Point[][] points = new Point[coordinates.length][];
+		for (int i = 0; i < coordinates.length; ++i) {
+			points[i] = new Point[coordinates[i].length / 2];
+			for (int j = 0; j < points[i].length; ++j) {
+				points[i][j] = new Point(coordinates[i][2 * j] - originX, coordinates[i][2 * j + 1] - originY);
+			}
+		}
+		return points;
 	}
 
 }
@@ -16,26 +16,91 @@
 package org.mapsforge.map.layer.renderer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.mapsforge.core.model.Tile;
 import org.mapsforge.map.layer.queue.Job;
 import org.mapsforge.map.model.DisplayModel;
+import org.mapsforge.map.rendertheme.ExternalRenderTheme;
+import org.mapsforge.map.rendertheme.InternalRenderTheme;
 import org.mapsforge.map.rendertheme.XmlRenderTheme;
 
 public class RendererJob extends Job {
+	/**
+	 * Calculates the fingerprint of the map files and the render theme from which tiles are rendered. As it needs to
+	 * look at the map files, callers which create many jobs should calculate it once and pass it to the jobs.
+	 *
+	 * @param mapFiles
+	 *            the map files which are rendered together.
+	 * @param xmlRenderTheme
+	 *            the render theme.
+	 * @return the fingerprint of the map files and the render theme, never zero.
+	 */
+	public static int calculateFingerprint(List<File> mapFiles, XmlRenderTheme xmlRenderTheme) {
+		final int prime = 31;
+		int result = 1;
+		for (File file : mapFiles) {
+			result = prime * result + file.getAbsolutePath().hashCode();
+			long length = file.length();
+			result = prime * result + (int) (length ^ (length >>> 32));
+			long lastModified = file.lastModified();
+			result = prime * result + (int) (lastModified ^ (lastModified >>> 32));
+		}
+		result = prime * result + getFingerprint(xmlRenderTheme);
+		// zero is reserved for jobs without a fingerprint
+		return result == 0 ? 1 : result;
+	}
+
+	private static int getFingerprint(XmlRenderTheme xmlRenderTheme) {
+		if (xmlRenderTheme instanceof InternalRenderTheme) {
+			return ((InternalRenderTheme) xmlRenderTheme).name().hashCode();
+		} else if (xmlRenderTheme instanceof ExternalRenderTheme) {
+			// includes the path and the last modified time of the file
+			return xmlRenderTheme.hashCode();
+		}
+		return 31 * xmlRenderTheme.getClass().getName().hashCode()
+				+ String.valueOf(xmlRenderTheme.getRelativePathPrefix()).hashCode();
+	}
+
 	public final DisplayModel displayModel;
 	public boolean labelsOnly;
+	/**
+	 * The first map file, see {@link #mapFiles} for all map files of this job.
+	 */
 	public final File mapFile;
+	/**
+	 * The map files which are rendered together, an unmodifiable list.
+	 */
+	public final List<File> mapFiles;
 	public final float textScale;
 	public final XmlRenderTheme xmlRenderTheme;
 	private final int hashCodeValue;
+	private volatile int sourceFingerprint;
 
 	public RendererJob(Tile tile, File mapFile, XmlRenderTheme xmlRenderTheme, DisplayModel displayModel,
 			float textScale, boolean isTransparent, boolean labelsOnly) {
+		this(tile, Collections.singletonList(mapFile), xmlRenderTheme, displayModel, textScale, isTransparent,
+				labelsOnly);
+	}
+
+	public RendererJob(Tile tile, List<File> mapFiles, XmlRenderTheme xmlRenderTheme, DisplayModel displayModel,
+			float textScale, boolean isTransparent, boolean labelsOnly) {
+		this(tile, mapFiles, xmlRenderTheme, displayModel, textScale, isTransparent, labelsOnly, 0);
+	}
+
+	/**
+	 * @param sourceFingerprint
+	 *            the {@link #calculateFingerprint(List, XmlRenderTheme) fingerprint} of the map files and the render
+	 *            theme, zero to calculate it when it is first requested.
+	 */
+	public RendererJob(Tile tile, List<File> mapFiles, XmlRenderTheme xmlRenderTheme, DisplayModel displayModel,
+			float textScale, boolean isTransparent, boolean labelsOnly, int sourceFingerprint) {
 		super(tile, isTransparent);
 
-		if (mapFile == null) {
-			throw new IllegalArgumentException("mapFile must not be null");
+		if (mapFiles == null || mapFiles.isEmpty() || mapFiles.contains(null)) {
+			throw new IllegalArgumentException("mapFiles must not be null or empty: " + mapFiles);
 		} else if (xmlRenderTheme == null) {
 			throw new IllegalArgumentException("xmlRenderTheme must not be null");
 		} else if (textScale <= 0 || Float.isNaN(textScale)) {
@@ -44,9 +109,12 @@ public class RendererJob extends Job {
 
 		this.labelsOnly = labelsOnly;
 		this.displayModel = displayModel;
-		this.mapFile = mapFile;
+		this.mapFiles = mapFiles.size() == 1 ? Collections.singletonList(mapFiles.get(0)) : Collections
+				.unmodifiableList(new ArrayList<File>(mapFiles));
+		this.mapFile = this.mapFiles.get(0);
 		this.xmlRenderTheme = xmlRenderTheme;
 		this.textScale = textScale;
+		this.sourceFingerprint = sourceFingerprint;
 
 		this.hashCodeValue = calculateHashCode();
 	}
@@ -61,7 +129,7 @@ public class RendererJob extends Job {
 			return false;
 		}
 		RendererJob other = (RendererJob) obj;
-		if (!this.mapFile.equals(other.mapFile)) {
+		if (!this.mapFiles.equals(other.mapFiles)) {
 			return false;
 		} else if (Float.floatToIntBits(this.textScale) != Float.floatToIntBits(other.textScale)) {
 			return false;
@@ -75,6 +143,26 @@ public class RendererJob extends Job {
 		return true;
 	}
 
+	/**
+	 * The fingerprint covers all map files, the render theme and the scale. The part of the map files and the render
+	 * theme is passed to the job or calculated when it is first requested, as it needs to look at the map files.
+	 */
+	@Override
+	public int getFingerprint() {
+		int source = this.sourceFingerprint;
+		if (source == 0) {
+			source = calculateFingerprint(this.mapFiles, this.xmlRenderTheme);
+			this.sourceFingerprint = source;
+		}
+		final int prime = 31;
+		int result = source;
+		result = prime * result + Float.floatToIntBits(this.textScale);
+		result = prime * result + this.tile.tileSize;
+		result = prime * result + Float.floatToIntBits(this.displayModel.getScaleFactor());
+		// zero is reserved for jobs without a fingerprint
+		return result == 0 ? 1 : result;
+	}
+
 	@Override
 	public int hashCode() {
 		return this.hashCodeValue;
@@ -86,7 +174,8 @@ public class RendererJob extends Job {
 	 * @return a RendererJob based on the current one, only tile changes
 	 */
 	public RendererJob otherTile(Tile tile) {
-		return new RendererJob(tile, this.mapFile, this.xmlRenderTheme, this.displayModel, this.textScale, this.hasAlpha, this.labelsOnly);
+		return new RendererJob(tile, this.mapFiles, this.xmlRenderTheme, this.displayModel, this.textScale, this.hasAlpha, this.labelsOnly,
+				this.sourceFingerprint);
 	}
 
 	/**
@@ -99,7 +188,7 @@ public class RendererJob extends Job {
 	private int calculateHashCode() {
 		final int prime = 31;
 		int result = super.hashCode();
-		result = prime * result + this.mapFile.hashCode();
+		result = prime * result + this.mapFiles.hashCode();
 		result = prime * result + Float.floatToIntBits(this.textScale);
 		result = prime * result + this.xmlRenderTheme.hashCode();
 		return result;
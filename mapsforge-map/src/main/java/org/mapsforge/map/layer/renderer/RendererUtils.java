@@ -14,38 +14,44 @@ package org.mapsforge.map.layer.renderer;
  * You should have received a copy of the GNU Lesser General Public License along with
  * this program. If not, see <http://www.gnu.org/licenses/>.
  */
-import org.mapsforge.core.model.Point;
-
 class RendererUtils {
 
 	/**
 	 * Computes a polyline with distance dy parallel to given coordinates.
 	 * http://objectmix.com/graphics/132987-draw-parallel-polyline-algorithm-needed.html
+	 *
+	 * @param p the coordinates as packed x/y pairs: {@code {x0, y0, x1, y1, ...}}.
+	 * @param dy the distance of the parallel polyline.
+	 * @return the coordinates of the parallel polyline as packed x/y pairs.
 	 */
-	static Point[] parallelPath(Point[] p, double dy) {
-		int n = p.length - 1;
-		Point[] u = new Point[n];
-		Point[] h = new Point[p.length];
+	static double[] parallelPath(double[] p, double dy) {
+		int n = p.length / 2 - 1;
+		double[] u = new double[2 * n];
+		double[] h = new double[p.length];
 
 		// Generate an array U[] of unity vectors of each direction
 		for (int k = 0; k < n; ++k) {
-			double c = p[k + 1].x - p[k].x;
-			double s = p[k + 1].y - p[k].y;
+			double c = p[2 * k + 2] - p[2 * k];
+			double s = p[2 * k + 3] - p[2 * k + 1];
 			double l = Math.sqrt(c * c + s * s);
-			u[k] = new Point(c / l, s / l);
+			u[2 * k] = c / l;
+			u[2 * k + 1] = s / l;
 		}
 
 		// For the start point calculate the normal
-		h[0] = new Point(p[0].x - dy * u[0].y, p[0].y + dy * u[0].x);
+		h[0] = p[0] - dy * u[1];
+		h[1] = p[1] + dy * u[0];
 
 		// For 1 to N-1 calculate the intersection of the offset lines
 		for (int k = 1; k < n; k++) {
-			double l = dy / (1 + u[k].x * u[k - 1].x + u[k].y * u[k - 1].y);
-			h[k] = new Point(p[k].x - l * (u[k].y + u[k - 1].y), p[k].y + l * (u[k].x + u[k - 1].x));
+			double l = dy / (1 + u[2 * k] * u[2 * k - 2] + u[2 * k + 1] * u[2 * k - 1]);
+			h[2 * k] = p[2 * k] - l * (u[2 * k + 1] + u[2 * k - 1]);
+			h[2 * k + 1] = p[2 * k + 1] + l * (u[2 * k] + u[2 * k - 2]);
 		}
 
 		// For the end point use the normal
-		h[n] = new Point(p[n].x - dy * u[n - 1].y, p[n].y + dy * u[n - 1].x);
+		h[2 * n] = p[2 * n] - dy * u[2 * n - 1];
+		h[2 * n + 1] = p[2 * n + 1] + dy * u[2 * n - 2];
 
 		return h;
 	}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.renderer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mapsforge.map.reader.MapDatabase;
+import org.mapsforge.map.util.LatencyHistogram;
+
+/**
+ * Collects the {@link TileMetrics} of all rendered tiles: a latency histogram for each {@link RenderingPhase} and the
+ * whole tile, the number of map elements and labels, the hit rates of the caches and the size of the job queue.
+ * <p>
+ * Recording a tile only takes a few atomic operations, so the metrics are always collected. They can be read at any
+ * time, e.g. by the {@link org.mapsforge.map.layer.debug.RenderingMetricsLayer RenderingMetricsLayer}, or observed tile
+ * by tile with a {@link RenderingMetricsListener}. This class is thread-safe.
+ */
+public class RenderingMetrics {
+	private static final RenderingPhase[] PHASES = RenderingPhase.values();
+
+	private static double getHitRate(long hits, long misses) {
+		if (hits + misses == 0) {
+			return Double.NaN;
+		}
+		return (double) hits / (hits + misses);
+	}
+
+	private volatile long blockCacheHitsReset;
+	private volatile long blockCacheMissesReset;
+	private volatile long indexCacheHitsReset;
+	private volatile long indexCacheMissesReset;
+	private final AtomicLong labels = new AtomicLong();
+	private final List<RenderingMetricsListener> listeners = new CopyOnWriteArrayList<RenderingMetricsListener>();
+	private final MapDatabase mapDatabase;
+	private final AtomicLong matchingCacheHits = new AtomicLong();
+	private final AtomicLong matchingCacheMisses = new AtomicLong();
+	private final LatencyHistogram[] phaseHistograms;
+	private final AtomicLong pois = new AtomicLong();
+	private volatile int queueSize;
+	private final LatencyHistogram tileHistogram = new LatencyHistogram();
+	private final AtomicLong ways = new AtomicLong();
+
+	/**
+	 * @param mapDatabase
+	 *            the map database whose cache hit rates are reported, may be null.
+	 */
+	public RenderingMetrics(MapDatabase mapDatabase) {
+		this.mapDatabase = mapDatabase;
+		this.phaseHistograms = new LatencyHistogram[PHASES.length];
+		for (int i = 0; i < PHASES.length; ++i) {
+			this.phaseHistograms[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * @param listener
+	 *            the listener which should be notified of every rendered tile.
+	 */
+	public void addListener(RenderingMetricsListener listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * @return the fraction of decoded blocks which were reused from the block cache of the map database or NaN, if no
+	 *         block has been read.
+	 */
+	public double getBlockCacheHitRate() {
+		if (this.mapDatabase == null) {
+			return Double.NaN;
+		}
+		return getHitRate(this.mapDatabase.getBlockCacheHits() - this.blockCacheHitsReset,
+				this.mapDatabase.getBlockCacheMisses() - this.blockCacheMissesReset);
+	}
+
+	/**
+	 * @param phase
+	 *            the rendering phase.
+	 * @return the histogram of the durations of the given phase.
+	 */
+	public LatencyHistogram getHistogram(RenderingPhase phase) {
+		return this.phaseHistograms[phase.ordinal()];
+	}
+
+	/**
+	 * @return the fraction of index lookups which were served from the index cache of the map database or NaN, if the
+	 *         index cache has not been used.
+	 */
+	public double getIndexCacheHitRate() {
+		if (this.mapDatabase == null) {
+			return Double.NaN;
+		}
+		return getHitRate(this.mapDatabase.getIndexCacheHits() - this.indexCacheHitsReset,
+				this.mapDatabase.getIndexCacheMisses() - this.indexCacheMissesReset);
+	}
+
+	/**
+	 * @return the fraction of map elements whose render instructions were found in the matching caches of the render
+	 *         theme or NaN, if no element has been matched.
+	 */
+	public double getMatchingCacheHitRate() {
+		return getHitRate(this.matchingCacheHits.get(), this.matchingCacheMisses.get());
+	}
+
+	/**
+	 * @return the total number of labels of all rendered tiles.
+	 */
+	public long getNumberOfLabels() {
+		return this.labels.get();
+	}
+
+	/**
+	 * @return the total number of points of interest of all rendered tiles.
+	 */
+	public long getNumberOfPois() {
+		return this.pois.get();
+	}
+
+	/**
+	 * @return the number of rendered tiles.
+	 */
+	public long getNumberOfTiles() {
+		return this.tileHistogram.getCount();
+	}
+
+	/**
+	 * @return the total number of ways of all rendered tiles.
+	 */
+	public long getNumberOfWays() {
+		return this.ways.get();
+	}
+
+	/**
+	 * @return the number of jobs waiting in the job queue when the last tile was finished.
+	 */
+	public int getQueueSize() {
+		return this.queueSize;
+	}
+
+	/**
+	 * @return the histogram of the total rendering time of the tiles.
+	 */
+	public LatencyHistogram getTileHistogram() {
+		return this.tileHistogram;
+	}
+
+	/**
+	 * @param listener
+	 *            the listener which should not be notified any more.
+	 */
+	public void removeListener(RenderingMetricsListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Removes all collected metrics, the cache hit rates of the map database are counted from now on.
+	 */
+	public void reset() {
+		for (LatencyHistogram phaseHistogram : this.phaseHistograms) {
+			phaseHistogram.reset();
+		}
+		this.tileHistogram.reset();
+		this.labels.set(0);
+		this.matchingCacheHits.set(0);
+		this.matchingCacheMisses.set(0);
+		this.pois.set(0);
+		this.ways.set(0);
+		if (this.mapDatabase != null) {
+			this.blockCacheHitsReset = this.mapDatabase.getBlockCacheHits();
+			this.blockCacheMissesReset = this.mapDatabase.getBlockCacheMisses();
+			this.indexCacheHitsReset = this.mapDatabase.getIndexCacheHits();
+			this.indexCacheMissesReset = this.mapDatabase.getIndexCacheMisses();
+		}
+	}
+
+	/**
+	 * Adds the measurements of a rendered tile and notifies the listeners.
+	 * 
+	 * @param tileMetrics
+	 *            the measurements of the rendered tile.
+	 */
+	void record(TileMetrics tileMetrics) {
+		for (int i = 0; i < PHASES.length; ++i) {
+			long time = tileMetrics.getTime(PHASES[i]);
+			if (time > 0) {
+				this.phaseHistograms[i].record(time);
+			}
+		}
+		this.tileHistogram.record(tileMetrics.getTotalTime());
+		this.labels.addAndGet(tileMetrics.getLabels());
+		this.matchingCacheHits.addAndGet(tileMetrics.getMatchingCacheHits());
+		this.matchingCacheMisses.addAndGet(tileMetrics.getMatchingCacheMisses());
+		this.pois.addAndGet(tileMetrics.getPois());
+		this.ways.addAndGet(tileMetrics.getWays());
+		this.queueSize = tileMetrics.getQueueSize();
+
+		for (RenderingMetricsListener listener : this.listeners) {
+			listener.onTileRendered(tileMetrics);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.renderer;
+
+/**
+ * The phases of rendering a tile, whose durations are measured by the {@link RenderingMetrics}.
+ */
+public enum RenderingPhase {
+	/**
+	 * Reading the map data of the tile from the map file.
+	 */
+	READ_MAP_DATA,
+
+	/**
+	 * Matching the map data against the render theme, which creates the shapes and labels.
+	 */
+	MATCH_THEME,
+
+	/**
+	 * Drawing the ways and areas onto the tile bitmap.
+	 */
+	DRAW_WAYS,
+
+	/**
+	 * Placing the labels, including the wait for the other renderers.
+	 */
+	PLACE_LABELS,
+
+	/**
+	 * Drawing the labels onto the tile bitmap.
+	 */
+	DRAW_LABELS,
+
+	/**
+	 * Storing the tile bitmap in the tile cache.
+	 */
+	STORE_TILE;
+}
@@ -18,12 +18,40 @@ import java.util.Set;
  * For every tile drawn we must therefore enquire which labels from neighbouring tiles
  * overlap onto it and these labels must be drawn regardless of priority as part of the
  * label has already been drawn.
+ * When several renderers share one instance, all access must be synchronized on it.
  */
 public class TileDependencies {
 	Map<Tile, Map<Tile, Set<MapElementContainer>>> overlapData;
+	Set<Tile> pendingTiles;
 
 	TileDependencies() {
 		overlapData = new HashMap<Tile, Map<Tile, Set<MapElementContainer>>>();
+		pendingTiles = new HashSet<Tile>();
+	}
+
+	/**
+	 * Marks a tile whose labels have been placed, but which has not been stored in the TileCache yet.
+	 * Other renderers must treat such a tile as already drawn.
+	 * @param tile the tile being drawn
+	 */
+	void addPendingTile(Tile tile) {
+		pendingTiles.add(tile);
+	}
+
+	/**
+	 * @param tile the tile in question
+	 * @return true if the labels of the tile have been placed, but the tile is not yet in the TileCache
+	 */
+	boolean isPendingTile(Tile tile) {
+		return pendingTiles.contains(tile);
+	}
+
+	/**
+	 * Removes the pending mark once the tile has been stored in the TileCache (or was discarded).
+	 * @param tile the tile that was drawn
+	 */
+	void removePendingTile(Tile tile) {
+		pendingTiles.remove(tile);
 	}
 
 	/**
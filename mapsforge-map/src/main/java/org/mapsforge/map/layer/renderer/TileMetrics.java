@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.renderer;
+
+import org.mapsforge.core.model.Tile;
+
+/**
+ * The measurements of rendering a single tile: the duration of each {@link RenderingPhase}, the number of map elements
+ * and labels and the hits of the render theme matching cache.
+ * <p>
+ * A tile metrics object is filled by the rendering thread and must not be modified by a listener.
+ */
+public final class TileMetrics {
+	private static final RenderingPhase[] PHASES = RenderingPhase.values();
+
+	private int labels;
+	private int matchingCacheHits;
+	private int matchingCacheMisses;
+	private int pois;
+	private int queueSize;
+	private final Tile tile;
+	private final long[] times;
+	private int ways;
+
+	TileMetrics(Tile tile) {
+		this.tile = tile;
+		this.times = new long[PHASES.length];
+	}
+
+	/**
+	 * @return the number of labels drawn onto the tile or stored for the label layer.
+	 */
+	public int getLabels() {
+		return this.labels;
+	}
+
+	/**
+	 * @return the number of map elements whose render instructions were found in the matching cache.
+	 */
+	public int getMatchingCacheHits() {
+		return this.matchingCacheHits;
+	}
+
+	/**
+	 * @return the number of map elements which had to be matched against the rules of the render theme.
+	 */
+	public int getMatchingCacheMisses() {
+		return this.matchingCacheMisses;
+	}
+
+	/**
+	 * @return the number of points of interest read for the tile.
+	 */
+	public int getPois() {
+		return this.pois;
+	}
+
+	/**
+	 * @return the number of jobs waiting in the job queue when the tile was finished.
+	 */
+	public int getQueueSize() {
+		return this.queueSize;
+	}
+
+	/**
+	 * @return the rendered tile.
+	 */
+	public Tile getTile() {
+		return this.tile;
+	}
+
+	/**
+	 * @param phase
+	 *            the rendering phase.
+	 * @return the duration of the given phase in nanoseconds, zero if the phase was skipped.
+	 */
+	public long getTime(RenderingPhase phase) {
+		return this.times[phase.ordinal()];
+	}
+
+	/**
+	 * @return the sum of the durations of all phases in nanoseconds.
+	 */
+	public long getTotalTime() {
+		long totalTime = 0;
+		for (long time : this.times) {
+			totalTime += time;
+		}
+		return totalTime;
+	}
+
+	/**
+	 * @return the number of ways read for the tile.
+	 */
+	public int getWays() {
+		return this.ways;
+	}
+
+	void addTime(RenderingPhase phase, long nanoseconds) {
+		this.times[phase.ordinal()] += nanoseconds;
+	}
+
+	void setElements(int pois, int ways) {
+		this.pois = pois;
+		this.ways = ways;
+	}
+
+	void setLabels(int labels) {
+		this.labels = labels;
+	}
+
+	void setMatchingCache(int hits, int misses) {
+		this.matchingCacheHits = hits;
+		this.matchingCacheMisses = misses;
+	}
+
+	void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+}
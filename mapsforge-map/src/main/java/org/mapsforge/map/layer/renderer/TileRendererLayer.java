@@ -17,6 +17,9 @@
 package org.mapsforge.map.layer.renderer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.mapsforge.core.graphics.GraphicFactory;
 import org.mapsforge.core.model.Tile;
@@ -26,15 +29,17 @@ import org.mapsforge.map.layer.labels.LabelStore;
 import org.mapsforge.map.layer.labels.TileBasedLabelStore;
 import org.mapsforge.map.model.DisplayModel;
 import org.mapsforge.map.model.MapViewPosition;
-import org.mapsforge.map.reader.MapDatabase;
+import org.mapsforge.map.reader.MultiMapDatabase;
 import org.mapsforge.map.reader.header.FileOpenResult;
 import org.mapsforge.map.rendertheme.XmlRenderTheme;
 
 public class TileRendererLayer extends TileLayer<RendererJob> {
-	private final DatabaseRenderer databaseRenderer;
-	private final MapDatabase mapDatabase;
-	private File mapFile;
-	private MapWorker mapWorker;
+	private final DatabaseRenderer[] databaseRenderers;
+	private final MultiMapDatabase mapDatabase;
+	private List<File> mapFiles;
+	private final MapWorker[] mapWorkers;
+	private final RenderingMetrics renderingMetrics;
+	private volatile int sourceFingerprint;
 	private float textScale;
 	private final TileBasedLabelStore tileBasedLabelStore;
 	private XmlRenderTheme xmlRenderTheme;
@@ -49,15 +54,45 @@ public class TileRendererLayer extends TileLayer<RendererJob> {
 	 */
 	public TileRendererLayer(TileCache tileCache, MapViewPosition mapViewPosition, boolean isTransparent,
 	                         boolean renderLabels, GraphicFactory graphicFactory) {
+		this(tileCache, mapViewPosition, isTransparent, renderLabels, graphicFactory, 1);
+	}
+
+	/**
+	 * Creates a TileRendererLayer that renders tiles with several threads.
+	 * Every worker thread has its own renderer and render theme, the map file is shared.
+	 * @param tileCache cache where tiles are stored
+	 * @param mapViewPosition the mapViewPosition to know which tiles to render
+	 * @param isTransparent true if the tile should have an alpha/transparency
+	 * @param renderLabels true if labels should be rendered onto tiles
+	 * @param graphicFactory the graphicFactory to carry out platform specific operations
+	 * @param numberOfWorkers the number of threads rendering tiles, e.g. the number of available processors
+	 */
+	public TileRendererLayer(TileCache tileCache, MapViewPosition mapViewPosition, boolean isTransparent,
+	                         boolean renderLabels, GraphicFactory graphicFactory, int numberOfWorkers) {
 		super(tileCache, mapViewPosition, graphicFactory.createMatrix(), isTransparent);
 
-		this.mapDatabase = new MapDatabase();
+		if (numberOfWorkers < 1) {
+			throw new IllegalArgumentException("numberOfWorkers must be positive: " + numberOfWorkers);
+		}
+
+		// a memory-mapped map file can be read by all workers at the same time
+		this.mapDatabase = new MultiMapDatabase(numberOfWorkers > 1);
+		this.renderingMetrics = new RenderingMetrics(this.mapDatabase);
+		this.databaseRenderers = new DatabaseRenderer[numberOfWorkers];
+		this.mapWorkers = new MapWorker[numberOfWorkers];
 		if (renderLabels) {
 			this.tileBasedLabelStore = null;
-			this.databaseRenderer = new DatabaseRenderer(this.mapDatabase, graphicFactory, tileCache);
+			TileDependencies tileDependencies = new TileDependencies();
+			for (int i = 0; i < numberOfWorkers; ++i) {
+				this.databaseRenderers[i] = new DatabaseRenderer(this.mapDatabase, graphicFactory, tileCache,
+						tileDependencies);
+			}
 		} else {
 			this.tileBasedLabelStore = new TileBasedLabelStore(tileCache.getCapacityFirstLevel());
-			this.databaseRenderer = new DatabaseRenderer(this.mapDatabase, graphicFactory, tileBasedLabelStore);
+			for (int i = 0; i < numberOfWorkers; ++i) {
+				this.databaseRenderers[i] = new DatabaseRenderer(this.mapDatabase, graphicFactory,
+						this.tileBasedLabelStore);
+			}
 		}
 		this.textScale = 1;
 	}
@@ -71,12 +106,33 @@ public class TileRendererLayer extends TileLayer<RendererJob> {
 		return tileBasedLabelStore;
 	}
 
-	public MapDatabase getMapDatabase() {
+	/**
+	 * @return the map database which reads all map files of this layer.
+	 */
+	public MultiMapDatabase getMapDatabase() {
 		return mapDatabase;
 	}
 
+	/**
+	 * @return the map file, the first map file if several map files are rendered.
+	 */
 	public File getMapFile() {
-		return this.mapFile;
+		List<File> files = this.mapFiles;
+		return files != null ? files.get(0) : null;
+	}
+
+	/**
+	 * @return an unmodifiable list of the map files, null if no map file has been set.
+	 */
+	public List<File> getMapFiles() {
+		return this.mapFiles;
+	}
+
+	/**
+	 * @return the metrics of the tiles rendered by this layer.
+	 */
+	public RenderingMetrics getRenderingMetrics() {
+		return this.renderingMetrics;
 	}
 
 	public float getTextScale() {
@@ -89,7 +145,7 @@ public class TileRendererLayer extends TileLayer<RendererJob> {
 
 	@Override
 	public void onDestroy() {
-		new DestroyThread(this.mapWorker, this.mapDatabase, this.databaseRenderer).start();
+		new DestroyThread(this.mapWorkers, this.mapDatabase, this.databaseRenderers).start();
 		super.onDestroy();
 	}
 
@@ -97,47 +153,76 @@ public class TileRendererLayer extends TileLayer<RendererJob> {
 	public synchronized void setDisplayModel(DisplayModel displayModel) {
 		super.setDisplayModel(displayModel);
 		if (displayModel != null) {
-			this.mapWorker = new MapWorker(this.tileCache, this.jobQueue, this.databaseRenderer, this);
-			this.mapWorker.start();
+			for (int i = 0; i < this.mapWorkers.length; ++i) {
+				this.mapWorkers[i] = new MapWorker(this.tileCache, this.jobQueue, this.databaseRenderers[i], this,
+						this.renderingMetrics);
+				this.mapWorkers[i].start();
+			}
 		} else {
 			// if we do not have a displayModel any more we can stop rendering.
-			if (this.mapWorker != null) {
-				this.mapWorker.interrupt();
+			for (MapWorker mapWorker : this.mapWorkers) {
+				if (mapWorker != null) {
+					mapWorker.interrupt();
+				}
 			}
 		}
 	}
 
 	public void setMapFile(File mapFile) {
-		this.mapFile = mapFile;
-		FileOpenResult result = this.mapDatabase.openFile(mapFile);
+		setMapFiles(Collections.singletonList(mapFile));
+	}
+
+	/**
+	 * Sets several map files which are rendered together, e.g. adjacent regions. Each tile is rendered in a single
+	 * pass from the map files which intersect it, so labels avoid each other across the map files. The current map
+	 * files are only replaced if all given map files can be opened.
+	 * 
+	 * @param mapFiles
+	 *            the map files to render.
+	 * @throws IllegalArgumentException
+	 *             if the list is empty or a map file cannot be opened.
+	 */
+	public void setMapFiles(List<File> mapFiles) {
+		List<File> files = Collections.unmodifiableList(new ArrayList<File>(mapFiles));
+		FileOpenResult result = this.mapDatabase.openFiles(files);
 		if (!result.isSuccess()) {
 			throw new IllegalArgumentException(result.getErrorMessage());
 		}
+		this.mapFiles = files;
+		updateSourceFingerprint();
+		requestRedraw();
 	}
 
 	public void setTextScale(float textScale) {
 		this.textScale = textScale;
+		requestRedraw();
 	}
 
 	public void setXmlRenderTheme(XmlRenderTheme xmlRenderTheme) {
 		this.xmlRenderTheme = xmlRenderTheme;
+		updateSourceFingerprint();
+		requestRedraw();
 	}
 
 	@Override
 	protected RendererJob createJob(Tile tile) {
-		return new RendererJob(tile, this.mapFile, this.xmlRenderTheme, this.displayModel, this.textScale,
-				this.isTransparent, false);
+		return new RendererJob(tile, this.mapFiles, this.xmlRenderTheme, this.displayModel, this.textScale,
+				this.isTransparent, false, this.sourceFingerprint);
 	}
 
 	@Override
 	protected void onAdd() {
-		this.mapWorker.proceed();
+		for (MapWorker mapWorker : this.mapWorkers) {
+			mapWorker.proceed();
+		}
 		super.onAdd();
 	}
 
 	@Override
 	protected void onRemove() {
-		this.mapWorker.pause();
+		for (MapWorker mapWorker : this.mapWorkers) {
+			mapWorker.pause();
+		}
 		super.onRemove();
 	}
 
@@ -149,4 +234,14 @@ public class TileRendererLayer extends TileLayer<RendererJob> {
 		}
 	}
 
+	/**
+	 * Calculates the fingerprint of the map files and the render theme once, instead of every job looking at the map
+	 * files again when a tile cache asks for its fingerprint.
+	 */
+	private void updateSourceFingerprint() {
+		List<File> files = this.mapFiles;
+		XmlRenderTheme theme = this.xmlRenderTheme;
+		this.sourceFingerprint = files != null && theme != null ? RendererJob.calculateFingerprint(files, theme) : 0;
+	}
+
 }
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.renderer;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.TileBitmap;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.layer.cache.TileCache;
+import org.mapsforge.map.model.DisplayModel;
+import org.mapsforge.map.reader.MapDatabase;
+import org.mapsforge.map.reader.header.FileOpenResult;
+import org.mapsforge.map.rendertheme.XmlRenderTheme;
+
+/**
+ * Renders all tiles of an area and a range of zoom levels into a {@link TileCache} without a map view, e.g. to prepare
+ * the tiles of a trip in advance.
+ * <p>
+ * Several workers render the tiles in parallel, each with its own {@link DatabaseRenderer}. Like in the
+ * {@link TileRendererLayer}, the labels are rendered onto the tiles and the workers share the label dependencies, so
+ * labels across tile borders are consistent. Tiles which are already in the cache are skipped, so an interrupted run
+ * can be continued by seeding the same area into the same persistent cache again. The progress is logged with the
+ * throughput in tiles per second, in total and per worker.
+ * <p>
+ * This class is not thread-safe, seeding runs must not overlap.
+ */
+public class TileSeeder {
+	/**
+	 * The tiles of one zoom level in the seeded area.
+	 */
+	private static final class TileRange {
+		final int bottom;
+		final int left;
+		final int right;
+		final int top;
+		final byte zoomLevel;
+
+		TileRange(BoundingBox boundingBox, byte zoomLevel) {
+			this.left = MercatorProjection.longitudeToTileX(boundingBox.minLongitude, zoomLevel);
+			this.top = MercatorProjection.latitudeToTileY(boundingBox.maxLatitude, zoomLevel);
+			this.right = MercatorProjection.longitudeToTileX(boundingBox.maxLongitude, zoomLevel);
+			this.bottom = MercatorProjection.latitudeToTileY(boundingBox.minLatitude, zoomLevel);
+			this.zoomLevel = zoomLevel;
+		}
+
+		long size() {
+			return (long) (this.right - this.left + 1) * (this.bottom - this.top + 1);
+		}
+	}
+
+	private final class Worker extends Thread {
+		private final DatabaseRenderer databaseRenderer;
+
+		Worker(DatabaseRenderer databaseRenderer) {
+			super();
+			this.databaseRenderer = databaseRenderer;
+		}
+
+		@Override
+		public void run() {
+			Tile tile = nextTile();
+			while (tile != null && !isInterrupted()) {
+				renderTile(tile);
+				tile = nextTile();
+			}
+		}
+
+		private void renderTile(Tile tile) {
+			RendererJob rendererJob = new RendererJob(tile, Collections.singletonList(TileSeeder.this.mapFile),
+					TileSeeder.this.xmlRenderTheme, TileSeeder.this.displayModel, 1, false, false,
+					TileSeeder.this.sourceFingerprint);
+			if (TileSeeder.this.tileCache.containsKey(rendererJob)) {
+				TileSeeder.this.skippedTiles.incrementAndGet();
+				return;
+			}
+
+			try {
+				TileBitmap bitmap = this.databaseRenderer.executeJob(rendererJob);
+				if (bitmap == null) {
+					TileSeeder.this.failedTiles.incrementAndGet();
+					return;
+				}
+				TileSeeder.this.tileCache.put(rendererJob, bitmap);
+				bitmap.decrementRefCount();
+				TileSeeder.this.renderedTiles.incrementAndGet();
+			} catch (RuntimeException e) {
+				// a single broken tile must not stop a long seeding run
+				LOGGER.log(Level.SEVERE, "could not render tile " + tile, e);
+				TileSeeder.this.failedTiles.incrementAndGet();
+			} finally {
+				this.databaseRenderer.jobFinished(rendererJob);
+			}
+		}
+	}
+
+	/**
+	 * Interval in milliseconds in which the progress is logged.
+	 */
+	private static final long LOG_INTERVAL = 10000;
+
+	private static final Logger LOGGER = Logger.getLogger(TileSeeder.class.getName());
+
+	private static TileRange[] getTileRanges(BoundingBox boundingBox, byte zoomLevelMin, byte zoomLevelMax) {
+		if (zoomLevelMin < 0 || zoomLevelMin > zoomLevelMax) {
+			throw new IllegalArgumentException("invalid zoom levels: " + zoomLevelMin + '-' + zoomLevelMax);
+		}
+		TileRange[] tileRanges = new TileRange[zoomLevelMax - zoomLevelMin + 1];
+		for (int i = 0; i < tileRanges.length; ++i) {
+			tileRanges[i] = new TileRange(boundingBox, (byte) (zoomLevelMin + i));
+		}
+		return tileRanges;
+	}
+
+	/**
+	 * @param boundingBox
+	 *            the area to seed.
+	 * @param zoomLevelMin
+	 *            the lowest zoom level to seed.
+	 * @param zoomLevelMax
+	 *            the highest zoom level to seed.
+	 * @return the number of tiles of the area in the given zoom levels.
+	 * @throws IllegalArgumentException
+	 *             if the zoom levels are invalid.
+	 */
+	public static long getNumberOfTiles(BoundingBox boundingBox, byte zoomLevelMin, byte zoomLevelMax) {
+		long numberOfTiles = 0;
+		for (TileRange tileRange : getTileRanges(boundingBox, zoomLevelMin, zoomLevelMax)) {
+			numberOfTiles += tileRange.size();
+		}
+		return numberOfTiles;
+	}
+
+	private final DatabaseRenderer[] databaseRenderers;
+	private final DisplayModel displayModel;
+	private long elapsedTime;
+	private final AtomicInteger failedTiles;
+	private final MapDatabase mapDatabase;
+	private final File mapFile;
+	private long nextTile;
+	private final AtomicInteger renderedTiles;
+	private final AtomicInteger skippedTiles;
+	private final int sourceFingerprint;
+	private final TileCache tileCache;
+	private TileRange[] tileRanges;
+	private final XmlRenderTheme xmlRenderTheme;
+
+	/**
+	 * @param mapFile
+	 *            the map file to render.
+	 * @param xmlRenderTheme
+	 *            the render theme to render with.
+	 * @param tileCache
+	 *            the cache where the rendered tiles are stored, e.g. a persistent cache or a tile store.
+	 * @param graphicFactory
+	 *            the graphicFactory to carry out platform specific operations.
+	 * @param numberOfWorkers
+	 *            the number of threads rendering tiles, e.g. the number of available processors.
+	 * @throws IllegalArgumentException
+	 *             if the map file cannot be opened or the number of workers is not positive.
+	 */
+	public TileSeeder(File mapFile, XmlRenderTheme xmlRenderTheme, TileCache tileCache, GraphicFactory graphicFactory,
+			int numberOfWorkers) {
+		if (numberOfWorkers < 1) {
+			throw new IllegalArgumentException("numberOfWorkers must be positive: " + numberOfWorkers);
+		}
+
+		// a memory-mapped map file can be read by all workers at the same time
+		this.mapDatabase = new MapDatabase(numberOfWorkers > 1);
+		FileOpenResult result = this.mapDatabase.openFile(mapFile);
+		if (!result.isSuccess()) {
+			throw new IllegalArgumentException(result.getErrorMessage());
+		}
+
+		this.mapFile = mapFile;
+		this.xmlRenderTheme = xmlRenderTheme;
+		this.sourceFingerprint = RendererJob.calculateFingerprint(Collections.singletonList(mapFile), xmlRenderTheme);
+		this.tileCache = tileCache;
+		this.displayModel = new DisplayModel();
+		this.databaseRenderers = new DatabaseRenderer[numberOfWorkers];
+		TileDependencies tileDependencies = new TileDependencies();
+		for (int i = 0; i < numberOfWorkers; ++i) {
+			this.databaseRenderers[i] = new DatabaseRenderer(this.mapDatabase, graphicFactory, tileCache,
+					tileDependencies);
+		}
+		this.failedTiles = new AtomicInteger();
+		this.renderedTiles = new AtomicInteger();
+		this.skippedTiles = new AtomicInteger();
+	}
+
+	/**
+	 * Releases the renderers and closes the map file, this seeder cannot be used any more.
+	 */
+	public void destroy() {
+		for (DatabaseRenderer databaseRenderer : this.databaseRenderers) {
+			databaseRenderer.destroy();
+		}
+		this.mapDatabase.closeFile();
+	}
+
+	/**
+	 * @return the display model of the rendered tiles, e.g. to change the tile size before seeding.
+	 */
+	public DisplayModel getDisplayModel() {
+		return this.displayModel;
+	}
+
+	/**
+	 * @return the number of tiles of the last run which could not be rendered.
+	 */
+	public int getNumberOfFailedTiles() {
+		return this.failedTiles.get();
+	}
+
+	/**
+	 * @return the number of tiles rendered in the last run.
+	 */
+	public int getNumberOfRenderedTiles() {
+		return this.renderedTiles.get();
+	}
+
+	/**
+	 * @return the number of tiles of the last run which were already in the cache.
+	 */
+	public int getNumberOfSkippedTiles() {
+		return this.skippedTiles.get();
+	}
+
+	/**
+	 * @return the number of rendered tiles per second of the last run.
+	 */
+	public double getTilesPerSecond() {
+		if (this.elapsedTime == 0) {
+			return 0;
+		}
+		return this.renderedTiles.get() * 1000d / this.elapsedTime;
+	}
+
+	/**
+	 * @return the number of rendered tiles per second and worker of the last run, i.e. per processor if there is a
+	 *         worker for every processor.
+	 */
+	public double getTilesPerSecondPerWorker() {
+		return getTilesPerSecond() / this.databaseRenderers.length;
+	}
+
+	/**
+	 * Renders all tiles of the given area and zoom levels which are not in the cache yet and returns when all tiles
+	 * have been processed.
+	 * 
+	 * @param boundingBox
+	 *            the area to seed.
+	 * @param zoomLevelMin
+	 *            the lowest zoom level to seed.
+	 * @param zoomLevelMax
+	 *            the highest zoom level to seed.
+	 * @throws IllegalArgumentException
+	 *             if the zoom levels are invalid.
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted, the workers are stopped before.
+	 */
+	public void seed(BoundingBox boundingBox, byte zoomLevelMin, byte zoomLevelMax) throws InterruptedException {
+		synchronized (this) {
+			this.tileRanges = getTileRanges(boundingBox, zoomLevelMin, zoomLevelMax);
+			this.nextTile = 0;
+		}
+		long numberOfTiles = getNumberOfTiles(boundingBox, zoomLevelMin, zoomLevelMax);
+		this.failedTiles.set(0);
+		this.renderedTiles.set(0);
+		this.skippedTiles.set(0);
+		this.elapsedTime = 0;
+
+		long startTime = System.currentTimeMillis();
+		Worker[] workers = new Worker[this.databaseRenderers.length];
+		for (int i = 0; i < workers.length; ++i) {
+			workers[i] = new Worker(this.databaseRenderers[i]);
+			workers[i].start();
+		}
+
+		try {
+			for (Worker worker : workers) {
+				worker.join(LOG_INTERVAL);
+				while (worker.isAlive()) {
+					this.elapsedTime = System.currentTimeMillis() - startTime;
+					logProgress(numberOfTiles);
+					worker.join(LOG_INTERVAL);
+				}
+			}
+		} finally {
+			for (Worker worker : workers) {
+				worker.interrupt();
+			}
+			for (Worker worker : workers) {
+				worker.join();
+			}
+			this.elapsedTime = System.currentTimeMillis() - startTime;
+		}
+		logProgress(numberOfTiles);
+	}
+
+	private void logProgress(long numberOfTiles) {
+		int processedTiles = this.renderedTiles.get() + this.skippedTiles.get() + this.failedTiles.get();
+		LOGGER.info(processedTiles + " of " + numberOfTiles + " tiles, " + this.renderedTiles.get() + " rendered, "
+				+ this.skippedTiles.get() + " skipped, " + this.failedTiles.get() + " failed, "
+				+ String.format("%.1f", getTilesPerSecond()) + " tiles/s, "
+				+ String.format("%.1f", getTilesPerSecondPerWorker()) + " tiles/s per worker");
+	}
+
+	/**
+	 * @return the next tile to render or null, if all tiles have been taken.
+	 */
+	private synchronized Tile nextTile() {
+		long index = this.nextTile;
+		for (TileRange tileRange : this.tileRanges) {
+			long size = tileRange.size();
+			if (index < size) {
+				++this.nextTile;
+				// row by row, so neighbouring tiles are rendered close together
+				int width = tileRange.right - tileRange.left + 1;
+				int tileX = tileRange.left + (int) (index % width);
+				int tileY = tileRange.top + (int) (index / width);
+				return new Tile(tileX, tileY, tileRange.zoomLevel, this.displayModel.getTileSize());
+			}
+			index -= size;
+		}
+		return null;
+	}
+}
@@ -35,11 +35,11 @@ final class WayDecorator {
 
 	static void renderSymbol(Bitmap symbolBitmap, int priority, float dy, boolean alignCenter,
 	                         boolean repeatSymbol, float repeatGap, float repeatStart,
-	                         boolean rotate, Point[][] coordinates,
+	                         boolean rotate, double[][] coordinates,
 			List<MapElementContainer> currentItems) {
 		int skipPixels = (int)repeatStart;
 
-		Point[] c;
+		double[] c;
 		if (dy == 0f) {
 			c = coordinates[0];
 		} else {
@@ -47,8 +47,8 @@ final class WayDecorator {
 		}
 
 		// get the first way point coordinates
-		double previousX = c[0].x;
-		double previousY = c[0].y;
+		double previousX = c[0];
+		double previousY = c[1];
 
 		// draw the symbolContainer on each way segment
 		float segmentLengthRemaining;
@@ -56,10 +56,10 @@ final class WayDecorator {
 		float theta = 0;
 
 
-		for (int i = 1; i < c.length; ++i) {
+		for (int i = 2; i < c.length; i += 2) {
 			// get the current way point coordinates
-			double currentX = c[i].x;
-			double currentY = c[i].y;
+			double currentX = c[i];
+			double currentY = c[i + 1];
 
 			// calculate the length of the current segment (Euclidian distance)
 			double diffX = currentX - previousX;
@@ -120,10 +120,10 @@ final class WayDecorator {
 	 * @param dy if 0, then a line  parallel to the coordinates will be calculated first
 	 * @param fill fill paint for text
 	 * @param stroke stroke paint for text
-	 * @param coordinates the list of way coordinates
+	 * @param coordinates the way coordinates as packed x/y pairs, one array per way segment
 	 * @param currentLabels the list of labels to which a new WayTextContainer will be added
 	 */
-	static void renderText(Tile tile, String text, int priority, float dy, Paint fill, Paint stroke, Point[][] coordinates,
+	static void renderText(Tile tile, String text, int priority, float dy, Paint fill, Paint stroke, double[][] coordinates,
 			List<MapElementContainer> currentLabels) {
 
 		// Calculate the way name length plus some margin of safety
@@ -137,7 +137,7 @@ final class WayDecorator {
 
 		int skipPixels = 0;
 
-		Point[] c;
+		double[] c;
 		if (dy == 0f) {
 			c = coordinates[0];
 		} else {
@@ -145,10 +145,11 @@ final class WayDecorator {
 		}
 
 		// iterate through the segments to find those long enough to draw the way name on them
-		for (int i = 1; i < c.length; ++i) {
+		for (int i = 2; i < c.length; i += 2) {
 
-			LineSegment currentSegment = new LineSegment(c[i-1], c[i]);
-			double currentLength = currentSegment.length();
+			double diffX = c[i] - c[i - 2];
+			double diffY = c[i + 1] - c[i - 1];
+			double currentLength = Math.sqrt(diffX * diffX + diffY * diffY);
 
 			skipPixels -= currentLength;
 
@@ -166,6 +167,7 @@ final class WayDecorator {
 
 			// clip the current segment to the tile, so that we never overlap tile boundaries
 			// with the way name
+			LineSegment currentSegment = new LineSegment(new Point(c[i - 2], c[i - 1]), new Point(c[i], c[i + 1]));
 			LineSegment drawableSegment = currentSegment.clipToRectangle(tileBoundary);
 
 			if (drawableSegment == null) {
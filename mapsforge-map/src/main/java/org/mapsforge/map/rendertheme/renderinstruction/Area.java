@@ -17,6 +17,8 @@
 package org.mapsforge.map.rendertheme.renderinstruction;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mapsforge.core.graphics.Bitmap;
 import org.mapsforge.core.graphics.Cap;
@@ -38,13 +40,14 @@ import org.xmlpull.v1.XmlPullParserException;
  * Represents a closed polygon on the map.
  */
 public class Area extends RenderInstruction {
-	private boolean bitmapInvalid;
+	private volatile boolean bitmapCreated;
 	private final Paint fill;
+	private boolean hasBitmapShader;
 	private final int level;
 	private final String relativePathPrefix;
-	private Bitmap shaderBitmap;
 	private String src;
 	private final Paint stroke;
+	private final Map<Byte, Paint> strokes;
 	private float strokeWidth;
 
 	public Area(GraphicFactory graphicFactory, DisplayModel displayModel, String elementName,
@@ -64,6 +67,8 @@ public class Area extends RenderInstruction {
 		this.stroke.setStyle(Style.STROKE);
 		this.stroke.setStrokeCap(Cap.ROUND);
 
+		this.strokes = new ConcurrentHashMap<>();
+
 		extractValues(elementName, pullParser);
 	}
 
@@ -111,33 +116,52 @@ public class Area extends RenderInstruction {
 
 	@Override
 	public void renderWay(RenderCallback renderCallback, PolylineContainer way) {
-		if (shaderBitmap == null && !bitmapInvalid) {
-			try {
-				shaderBitmap = createBitmap(relativePathPrefix, src);
-				if (shaderBitmap != null) {
-					this.fill.setBitmapShader(shaderBitmap);
-					shaderBitmap.decrementRefCount();
-				}
-			} catch (IOException ioException) {
-				bitmapInvalid = true;
-			}
+		if (!this.bitmapCreated) {
+			createBitmapShader();
 		}
 
-		this.fill.setBitmapShaderShift(way.getTile().getOrigin());
+		Paint fillPaint = this.fill;
+		if (this.hasBitmapShader) {
+			fillPaint = getShiftedPaint(this.fill, way.getTile());
+		}
 
-		renderCallback.renderArea(way, this.fill, this.stroke, this.level);
+		renderCallback.renderArea(way, fillPaint, getStrokePaint(way.getTile().zoomLevel), this.level);
 	}
 
 	@Override
-	public void scaleStrokeWidth(float scaleFactor) {
+	public void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
 		if (this.stroke != null) {
-			this.stroke.setStrokeWidth(this.strokeWidth * scaleFactor);
+			Paint paint = this.graphicFactory.createPaint(this.stroke);
+			paint.setStrokeWidth(this.strokeWidth * scaleFactor);
+			this.strokes.put(zoomLevel, paint);
 		}
 	}
 
 	@Override
-	public void scaleTextSize(float scaleFactor) {
+	public void scaleTextSize(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
 
+	private synchronized void createBitmapShader() {
+		if (this.bitmapCreated) {
+			return;
+		}
+		try {
+			Bitmap shaderBitmap = createBitmap(relativePathPrefix, src);
+			if (shaderBitmap != null) {
+				this.fill.setBitmapShader(shaderBitmap);
+				this.hasBitmapShader = true;
+				shaderBitmap.decrementRefCount();
+			}
+		} catch (IOException ioException) {
+			// no-op
+		}
+		this.bitmapCreated = true;
+	}
+
+	private Paint getStrokePaint(byte zoomLevel) {
+		Paint paint = this.strokes.get(zoomLevel);
+		return paint != null ? paint : this.stroke;
+	}
+
 }
@@ -35,6 +35,7 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a text label on the map.
@@ -50,11 +51,13 @@ public class Caption extends RenderInstruction {
 	private Position position;
 	private float dy;
 	private final Paint fill;
+	private final Map<Byte, Paint> fills;
 	private float fontSize;
 	private final float gap;
 	private final int maxTextWidth;
 	private int priority;
 	private final Paint stroke;
+	private final Map<Byte, Paint> strokes;
 	private TextKey textKey;
 	public static final float DEFAULT_GAP = 5f;
 
@@ -72,6 +75,9 @@ public class Caption extends RenderInstruction {
 		this.stroke.setColor(Color.BLACK);
 		this.stroke.setStyle(Style.STROKE);
 
+		this.fills = new ConcurrentHashMap<>();
+		this.strokes = new ConcurrentHashMap<>();
+
 		this.gap = DEFAULT_GAP * displayModel.getScaleFactor();
 
 		extractValues(graphicFactory, displayModel, elementName, pullParser);
@@ -140,7 +146,7 @@ public class Caption extends RenderInstruction {
 		}
 
 		renderCallback.renderPointOfInterestCaption(poi, this.priority, caption, horizontalOffset, verticalOffset,
-				this.fill, this.stroke, this.position, this.maxTextWidth, tile);
+				getFillPaint(tile.zoomLevel), getStrokePaint(tile.zoomLevel), this.position, this.maxTextWidth, tile);
 	}
 
 	@Override
@@ -158,19 +164,25 @@ public class Caption extends RenderInstruction {
 			verticalOffset = computeVerticalOffset();
 		}
 
+		byte zoomLevel = way.getTile().zoomLevel;
 		renderCallback.renderAreaCaption(way, this.priority, caption, horizontalOffset, verticalOffset,
-				this.fill, this.stroke, this.position, this.maxTextWidth);
+				getFillPaint(zoomLevel), getStrokePaint(zoomLevel), this.position, this.maxTextWidth);
 	}
 
 	@Override
-	public void scaleStrokeWidth(float scaleFactor) {
+	public void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
 
 	@Override
-	public void scaleTextSize(float scaleFactor) {
-		this.fill.setTextSize(this.fontSize * scaleFactor);
-		this.stroke.setTextSize(this.fontSize * scaleFactor);
+	public void scaleTextSize(float scaleFactor, byte zoomLevel) {
+		Paint paint = this.graphicFactory.createPaint(this.fill);
+		paint.setTextSize(this.fontSize * scaleFactor);
+		this.fills.put(zoomLevel, paint);
+
+		paint = this.graphicFactory.createPaint(this.stroke);
+		paint.setTextSize(this.fontSize * scaleFactor);
+		this.strokes.put(zoomLevel, paint);
 	}
 
 	private float computeHorizontalOffset() {
@@ -190,6 +202,16 @@ public class Caption extends RenderInstruction {
 		return 0;
 	}
 
+	private Paint getFillPaint(byte zoomLevel) {
+		Paint paint = this.fills.get(zoomLevel);
+		return paint != null ? paint : this.fill;
+	}
+
+	private Paint getStrokePaint(byte zoomLevel) {
+		Paint paint = this.strokes.get(zoomLevel);
+		return paint != null ? paint : this.stroke;
+	}
+
 	private float computeVerticalOffset() {
 		float verticalOffset = this.dy;
 
@@ -15,6 +15,9 @@
  */
 package org.mapsforge.map.rendertheme.renderinstruction;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.mapsforge.core.graphics.Color;
 import org.mapsforge.core.graphics.GraphicFactory;
 import org.mapsforge.core.graphics.Paint;
@@ -36,8 +39,10 @@ public class Circle extends RenderInstruction {
 	private final int level;
 	private float radius;
 	private float renderRadius;
+	private final Map<Byte, Float> renderRadiusScaled;
 	private boolean scaleRadius;
 	private final Paint stroke;
+	private final Map<Byte, Paint> strokes;
 	private float strokeWidth;
 
 	public Circle(GraphicFactory graphicFactory, DisplayModel displayModel, String elementName,
@@ -53,6 +58,9 @@ public class Circle extends RenderInstruction {
 		this.stroke.setColor(Color.TRANSPARENT);
 		this.stroke.setStyle(Style.STROKE);
 
+		this.renderRadiusScaled = new ConcurrentHashMap<>();
+		this.strokes = new ConcurrentHashMap<>();
+
 		extractValues(graphicFactory, displayModel, elementName, pullParser);
 
 
@@ -69,7 +77,8 @@ public class Circle extends RenderInstruction {
 
 	@Override
 	public void renderNode(RenderCallback renderCallback, PointOfInterest poi, Tile tile) {
-		renderCallback.renderPointOfInterestCircle(poi, this.renderRadius, this.fill, this.stroke, this.level, tile);
+		renderCallback.renderPointOfInterestCircle(poi, getRenderRadius(tile.zoomLevel), this.fill,
+				getStrokePaint(tile.zoomLevel), this.level, tile);
 	}
 
 	@Override
@@ -78,20 +87,32 @@ public class Circle extends RenderInstruction {
 	}
 
 	@Override
-	public void scaleStrokeWidth(float scaleFactor) {
+	public void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
 		if (this.scaleRadius) {
-			this.renderRadius = this.radius * scaleFactor;
+			this.renderRadiusScaled.put(zoomLevel, this.radius * scaleFactor);
 			if (this.stroke != null) {
-				this.stroke.setStrokeWidth(this.strokeWidth * scaleFactor);
+				Paint paint = this.graphicFactory.createPaint(this.stroke);
+				paint.setStrokeWidth(this.strokeWidth * scaleFactor);
+				this.strokes.put(zoomLevel, paint);
 			}
 		}
 	}
 
 	@Override
-	public void scaleTextSize(float scaleFactor) {
+	public void scaleTextSize(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
 
+	private float getRenderRadius(byte zoomLevel) {
+		Float radius = this.renderRadiusScaled.get(zoomLevel);
+		return radius != null ? radius : this.renderRadius;
+	}
+
+	private Paint getStrokePaint(byte zoomLevel) {
+		Paint paint = this.strokes.get(zoomLevel);
+		return paint != null ? paint : this.stroke;
+	}
+
 	private void extractValues(GraphicFactory graphicFactory, DisplayModel displayModel, String elementName,
 	                           XmlPullParser pullParser) throws XmlPullParserException {
 		for (int i = 0; i < pullParser.getAttributeCount(); ++i) {
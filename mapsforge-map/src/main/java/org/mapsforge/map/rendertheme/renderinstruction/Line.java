@@ -17,6 +17,8 @@
 package org.mapsforge.map.rendertheme.renderinstruction;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.mapsforge.core.graphics.Bitmap;
@@ -42,12 +44,14 @@ public class Line extends RenderInstruction {
 
 	private static final Pattern SPLIT_PATTERN = Pattern.compile(",");
 
-	private boolean bitmapCreated;
+	private volatile boolean bitmapCreated;
 	private float dy;
+	private boolean hasBitmapShader;
 	private final int level;
 	private final String relativePathPrefix;
 	private String src;
 	private final Paint stroke;
+	private final Map<Byte, Paint> strokes;
 	private float strokeWidth;
 
 	public Line(GraphicFactory graphicFactory, DisplayModel displayModel, String elementName,
@@ -62,6 +66,8 @@ public class Line extends RenderInstruction {
 		this.stroke.setStrokeCap(Cap.ROUND);
 		this.stroke.setStrokeJoin(Join.ROUND);
 
+		this.strokes = new ConcurrentHashMap<>();
+
 		extractValues(graphicFactory, displayModel, elementName, pullParser, relativePathPrefix);
 	}
 
@@ -77,33 +83,58 @@ public class Line extends RenderInstruction {
 
 	@Override
 	public void renderWay(RenderCallback renderCallback, PolylineContainer way) {
-		if (!bitmapCreated) {
-			try {
-				Bitmap shaderBitmap = createBitmap(relativePathPrefix, src);
-				if (shaderBitmap != null) {
-					this.stroke.setBitmapShader(shaderBitmap);
-					shaderBitmap.decrementRefCount();
-				}
-			} catch (IOException ioException) {
-				// no-op
-			}
-			bitmapCreated = true;
+		if (!this.bitmapCreated) {
+			createBitmapShader();
 		}
 
-		this.stroke.setBitmapShaderShift(way.getTile().getOrigin());
+		Paint strokePaint = getStrokePaint(way.getTile().zoomLevel);
+		if (this.hasBitmapShader) {
+			strokePaint = getShiftedPaint(strokePaint, way.getTile());
+		}
 
-		renderCallback.renderWay(way, this.stroke, this.dy, this.level);
+		renderCallback.renderWay(way, strokePaint, this.dy, this.level);
 	}
 
 	@Override
-	public void scaleStrokeWidth(float scaleFactor) {
-		this.stroke.setStrokeWidth(this.strokeWidth * scaleFactor);
+	public synchronized void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
+		Paint paint = this.graphicFactory.createPaint(this.stroke);
+		paint.setStrokeWidth(this.strokeWidth * scaleFactor);
+		this.strokes.put(zoomLevel, paint);
 	}
 
 	@Override
-	public void scaleTextSize(float scaleFactor) {
+	public void scaleTextSize(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
+
+	private synchronized void createBitmapShader() {
+		if (this.bitmapCreated) {
+			return;
+		}
+		try {
+			Bitmap shaderBitmap = createBitmap(relativePathPrefix, src);
+			if (shaderBitmap != null) {
+				this.stroke.setBitmapShader(shaderBitmap);
+				// the scaled paints have been copied before the shader was known
+				for (Map.Entry<Byte, Paint> entry : this.strokes.entrySet()) {
+					Paint paint = this.graphicFactory.createPaint(entry.getValue());
+					paint.setBitmapShader(shaderBitmap);
+					this.strokes.put(entry.getKey(), paint);
+				}
+				this.hasBitmapShader = true;
+				shaderBitmap.decrementRefCount();
+			}
+		} catch (IOException ioException) {
+			// no-op
+		}
+		this.bitmapCreated = true;
+	}
+
+	private Paint getStrokePaint(byte zoomLevel) {
+		Paint paint = this.strokes.get(zoomLevel);
+		return paint != null ? paint : this.stroke;
+	}
+
 	private void extractValues(GraphicFactory graphicFactory, DisplayModel displayModel, String elementName,
 	                           XmlPullParser pullParser, String relativePathPrefix) throws IOException, XmlPullParserException {
 		for (int i = 0; i < pullParser.getAttributeCount(); ++i) {
@@ -38,8 +38,8 @@ public class LineSymbol extends RenderInstruction {
 	private static final float REPEAT_START_DEFAULT = 30f;
 
 	private boolean alignCenter;
-	private Bitmap bitmap;
-	private boolean bitmapInvalid;
+	private volatile Bitmap bitmap;
+	private volatile boolean bitmapInvalid;
 	private float dy;
 	private int priority;
 	private final String relativePathPrefix;
@@ -74,11 +74,7 @@ public class LineSymbol extends RenderInstruction {
 	@Override
 	public void renderWay(RenderCallback renderCallback, PolylineContainer way) {
 		if (this.bitmap == null && !this.bitmapInvalid) {
-			try {
-				this.bitmap = createBitmap(relativePathPrefix, src);
-			} catch (IOException ioException) {
-				this.bitmapInvalid = true;
-			}
+			createSymbolBitmap();
 		}
 		if (this.bitmap != null) {
 			renderCallback.renderWaySymbol(way, this.priority, this.bitmap, this.dy, this.alignCenter,
@@ -87,15 +83,26 @@ public class LineSymbol extends RenderInstruction {
 	}
 
 	@Override
-	public void scaleStrokeWidth(float scaleFactor) {
+	public void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
 
 	@Override
-	public void scaleTextSize(float scaleFactor) {
+	public void scaleTextSize(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
 
+	private synchronized void createSymbolBitmap() {
+		// the bitmap may have been created by another rendering thread in the meantime
+		if (this.bitmap == null && !this.bitmapInvalid) {
+			try {
+				this.bitmap = createBitmap(relativePathPrefix, src);
+			} catch (IOException ioException) {
+				this.bitmapInvalid = true;
+			}
+		}
+	}
+
 	private void extractValues(String elementName, XmlPullParser pullParser) throws IOException, XmlPullParserException {
 
 		this.repeatGap = REPEAT_GAP_DEFAULT * displayModel.getScaleFactor();
@@ -15,6 +15,9 @@
  */
 package org.mapsforge.map.rendertheme.renderinstruction;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.mapsforge.core.graphics.Align;
 import org.mapsforge.core.graphics.Color;
 import org.mapsforge.core.graphics.FontFamily;
@@ -37,9 +40,11 @@ import org.xmlpull.v1.XmlPullParserException;
 public class PathText extends RenderInstruction {
 	private float dy;
 	private final Paint fill;
+	private final Map<Byte, Paint> fills;
 	private float fontSize;
 	private int priority;
 	private final Paint stroke;
+	private final Map<Byte, Paint> strokes;
 	private TextKey textKey;
 
 	public PathText(GraphicFactory graphicFactory, DisplayModel displayModel, String elementName,
@@ -55,6 +60,9 @@ public class PathText extends RenderInstruction {
 		this.stroke.setStyle(Style.STROKE);
 		this.stroke.setTextAlign(Align.CENTER);
 
+		this.fills = new ConcurrentHashMap<>();
+		this.strokes = new ConcurrentHashMap<>();
+
 		extractValues(graphicFactory, displayModel, elementName, pullParser);
 	}
 
@@ -74,18 +82,35 @@ public class PathText extends RenderInstruction {
 		if (caption == null) {
 			return;
 		}
-		renderCallback.renderWayText(way, priority, caption, this.dy, this.fill, this.stroke);
+		byte zoomLevel = way.getTile().zoomLevel;
+		renderCallback.renderWayText(way, priority, caption, this.dy, getFillPaint(zoomLevel),
+				getStrokePaint(zoomLevel));
 	}
 
 	@Override
-	public void scaleStrokeWidth(float scaleFactor) {
+	public void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
 
 	@Override
-	public void scaleTextSize(float scaleFactor) {
-		this.fill.setTextSize(this.fontSize * scaleFactor);
-		this.stroke.setTextSize(this.fontSize * scaleFactor);
+	public void scaleTextSize(float scaleFactor, byte zoomLevel) {
+		Paint paint = this.graphicFactory.createPaint(this.fill);
+		paint.setTextSize(this.fontSize * scaleFactor);
+		this.fills.put(zoomLevel, paint);
+
+		paint = this.graphicFactory.createPaint(this.stroke);
+		paint.setTextSize(this.fontSize * scaleFactor);
+		this.strokes.put(zoomLevel, paint);
+	}
+
+	private Paint getFillPaint(byte zoomLevel) {
+		Paint paint = this.fills.get(zoomLevel);
+		return paint != null ? paint : this.fill;
+	}
+
+	private Paint getStrokePaint(byte zoomLevel) {
+		Paint paint = this.strokes.get(zoomLevel);
+		return paint != null ? paint : this.stroke;
 	}
 
 	private void extractValues(GraphicFactory graphicFactory, DisplayModel displayModel, String elementName,
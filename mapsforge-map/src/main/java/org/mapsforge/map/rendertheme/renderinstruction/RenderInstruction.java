@@ -16,9 +16,12 @@
 package org.mapsforge.map.rendertheme.renderinstruction;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.mapsforge.core.graphics.Bitmap;
 import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.Paint;
 import org.mapsforge.core.model.Tile;
 import org.mapsforge.map.layer.renderer.PolylineContainer;
 import org.mapsforge.map.model.DisplayModel;
@@ -28,6 +31,10 @@ import org.mapsforge.map.rendertheme.XmlUtils;
 
 /**
  * A RenderInstruction is a basic graphical primitive to draw a map.
+ * <p>
+ * Scaled paints are derived once per zoom level and are never modified afterwards, so a RenderInstruction can be
+ * used by several rendering threads at the same time. A bitmap shader is shifted for every tile on a copy of the
+ * paint which belongs to the rendering thread, see {@link #getShiftedPaint(Paint, Tile)}.
  */
 public abstract class RenderInstruction {
 
@@ -75,6 +82,16 @@ public abstract class RenderInstruction {
 	protected float height;
 	protected int percent = 100;
 	protected float width;
+
+	/**
+	 * The copies of the shared paints for each rendering thread, a copy is dropped with the paint it was made from.
+	 */
+	private final ThreadLocal<Map<Paint, Paint>> shiftedPaints = new ThreadLocal<Map<Paint, Paint>>() {
+		@Override
+		protected Map<Paint, Paint> initialValue() {
+			return new WeakHashMap<Paint, Paint>();
+		}
+	};
 	ResourceScaling scaling;
 
 
@@ -106,20 +123,24 @@ public abstract class RenderInstruction {
 	public abstract void renderWay(RenderCallback renderCallback, PolylineContainer way);
 
 	/**
-	 * Scales the stroke width of this RenderInstruction by the given factor.
+	 * Scales the stroke width of this RenderInstruction by the given factor for the given zoom level.
 	 * 
 	 * @param scaleFactor
 	 *            the factor by which the stroke width should be scaled.
+	 * @param zoomLevel
+	 *            the zoom level for which the scaled paints are used.
 	 */
-	public abstract void scaleStrokeWidth(float scaleFactor);
+	public abstract void scaleStrokeWidth(float scaleFactor, byte zoomLevel);
 
 	/**
-	 * Scales the text size of this RenderInstruction by the given factor.
+	 * Scales the text size of this RenderInstruction by the given factor for the given zoom level.
 	 * 
 	 * @param scaleFactor
 	 *            the factor by which the text size should be scaled.
+	 * @param zoomLevel
+	 *            the zoom level for which the scaled paints are used.
 	 */
-	public abstract void scaleTextSize(float scaleFactor);
+	public abstract void scaleTextSize(float scaleFactor, byte zoomLevel);
 
 
 	protected Bitmap createBitmap(String relativePathPrefix, String src)
@@ -131,6 +152,27 @@ public abstract class RenderInstruction {
 		return XmlUtils.createBitmap(graphicFactory, displayModel, relativePathPrefix, src, (int) width, (int) height, percent);
 	}
 
+	/**
+	 * Returns a copy of the given shared paint whose bitmap shader is shifted to the origin of the given tile. The copy
+	 * belongs to the calling thread and is reused for every tile it renders, the shared paint is never modified.
+	 *
+	 * @param paint
+	 *            the shared paint with a bitmap shader.
+	 * @param tile
+	 *            the tile which is rendered.
+	 * @return the shifted copy of the paint.
+	 */
+	protected Paint getShiftedPaint(Paint paint, Tile tile) {
+		Map<Paint, Paint> copies = this.shiftedPaints.get();
+		Paint copy = copies.get(paint);
+		if (copy == null) {
+			copy = this.graphicFactory.createPaint(paint);
+			copies.put(paint, copy);
+		}
+		copy.setBitmapShaderShift(tile.getOrigin());
+		return copy;
+	}
+
 	protected ResourceScaling fromValue(String value) {
 		if (value.equals(SIZE)) {
 			return ResourceScaling.SIZE;
@@ -33,8 +33,8 @@ import org.xmlpull.v1.XmlPullParserException;
  * Represents an icon on the map.
  */
 public class Symbol extends RenderInstruction {
-	private Bitmap bitmap;
-	private boolean bitmapInvalid;
+	private volatile Bitmap bitmap;
+	private volatile boolean bitmapInvalid;
 	private String id;
 	private int priority;
 	private final String relativePathPrefix;
@@ -56,11 +56,7 @@ public class Symbol extends RenderInstruction {
 
 	public Bitmap getBitmap() {
 		if (this.bitmap == null && !bitmapInvalid) {
-			try {
-				this.bitmap = createBitmap(relativePathPrefix, src);
-			} catch (IOException ioException) {
-				this.bitmapInvalid = true;
-			}
+			createSymbolBitmap();
 		}
 		return this.bitmap;
 	}
@@ -84,14 +80,25 @@ public class Symbol extends RenderInstruction {
 	}
 
 	@Override
-	public void scaleStrokeWidth(float scaleFactor) {
+	public void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
 
 	@Override
-	public void scaleTextSize(float scaleFactor) {
+	public void scaleTextSize(float scaleFactor, byte zoomLevel) {
 		// do nothing
 	}
+	private synchronized void createSymbolBitmap() {
+		// the bitmap may have been created by another rendering thread in the meantime
+		if (this.bitmap == null && !this.bitmapInvalid) {
+			try {
+				this.bitmap = createBitmap(relativePathPrefix, src);
+			} catch (IOException ioException) {
+				this.bitmapInvalid = true;
+			}
+		}
+	}
+
 	private void extractValues(String elementName, XmlPullParser pullParser) throws IOException, XmlPullParserException {
 
 		for (int i = 0; i < pullParser.getAttributeCount(); ++i) {
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.rendertheme.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mapsforge.core.model.Tag;
+import org.mapsforge.map.rendertheme.renderinstruction.RenderInstruction;
+
+/**
+ * The rules of a {@link RenderTheme} compiled into flat arrays.
+ * <p>
+ * All keys and values referenced by the rules are interned to integer IDs, the rule tree is stored in pre-order
+ * with the end index of each subtree and the zoom range of each rule is a bit mask. The top-level rules are indexed
+ * by the IDs of their keys, so only rules which can match a given {@link TagSet} are evaluated.
+ * <p>
+ * Instances are immutable after construction and can be used by several threads at the same time.
+ */
+final class CompiledRules {
+	private static final int FLAG_CLOSED_WAY = 2;
+	private static final int FLAG_LINEAR_WAY = 4;
+	private static final int FLAG_NODE = 1;
+	private static final int[] NO_RULES = new int[0];
+
+	/**
+	 * Zoom levels from this value on are not part of the zoom mask and are compared against the zoom range.
+	 */
+	private static final int ZOOM_MASK_SIZE = 63;
+
+	private static int[] toDistinctSortedArray(int[] ids, int length) {
+		Arrays.sort(ids, 0, length);
+		int distinct = 0;
+		for (int i = 0; i < length; ++i) {
+			if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+				ids[distinct++] = ids[i];
+			}
+		}
+		return Arrays.copyOf(ids, distinct);
+	}
+
+	private static int[] toIntArray(List<Integer> list) {
+		if (list.isEmpty()) {
+			return NO_RULES;
+		}
+		int[] result = new int[list.size()];
+		for (int i = 0, n = list.size(); i < n; ++i) {
+			result[i] = list.get(i).intValue();
+		}
+		return result;
+	}
+
+	private static long toZoomMask(byte zoomMin, byte zoomMax) {
+		long zoomMask = 0;
+		for (int zoomLevel = Math.max(zoomMin, 0); zoomLevel <= Math.min(zoomMax, ZOOM_MASK_SIZE - 1); ++zoomLevel) {
+			zoomMask |= 1L << zoomLevel;
+		}
+		return zoomMask;
+	}
+
+	private final int[] flags;
+	private final RenderInstruction[][] instructions;
+	private final Map<String, Integer> keyIds = new HashMap<>();
+	private final boolean[] negative;
+	private final int[][] ruleKeyIds;
+	private final int[][] ruleValueIds;
+	private final int[] subtreeEnds;
+	private final int[] topLevelNodes;
+	private final int[][] topLevelRulesByKey;
+	private final int[] unconditionalTopLevelRules;
+	private final Map<String, Integer> valueIds = new HashMap<>();
+	private final byte[] zoomMaxs;
+	private final byte[] zoomMins;
+	private final long[] zoomMasks;
+
+	CompiledRules(List<Rule> rules) {
+		List<Rule> nodes = new ArrayList<>();
+		List<Integer> subtreeEndList = new ArrayList<>();
+		this.topLevelNodes = new int[rules.size()];
+		for (int i = 0, n = rules.size(); i < n; ++i) {
+			this.topLevelNodes[i] = nodes.size();
+			flatten(rules.get(i), nodes, subtreeEndList);
+		}
+
+		int numberOfNodes = nodes.size();
+		this.flags = new int[numberOfNodes];
+		this.instructions = new RenderInstruction[numberOfNodes][];
+		this.negative = new boolean[numberOfNodes];
+		this.ruleKeyIds = new int[numberOfNodes][];
+		this.ruleValueIds = new int[numberOfNodes][];
+		this.subtreeEnds = new int[numberOfNodes];
+		this.zoomMasks = new long[numberOfNodes];
+		this.zoomMaxs = new byte[numberOfNodes];
+		this.zoomMins = new byte[numberOfNodes];
+
+		for (int i = 0; i < numberOfNodes; ++i) {
+			Rule rule = nodes.get(i);
+			this.subtreeEnds[i] = subtreeEndList.get(i);
+			this.instructions[i] = rule.renderInstructions.toArray(new RenderInstruction[rule.renderInstructions.size()]);
+			this.zoomMasks[i] = toZoomMask(rule.zoomMin, rule.zoomMax);
+			this.zoomMaxs[i] = rule.zoomMax;
+			this.zoomMins[i] = rule.zoomMin;
+
+			if (rule.elementMatcher.matches(Element.NODE)) {
+				this.flags[i] |= FLAG_NODE;
+			}
+			if (rule.elementMatcher.matches(Element.WAY)) {
+				if (rule.closedMatcher.matches(Closed.YES)) {
+					this.flags[i] |= FLAG_CLOSED_WAY;
+				}
+				if (rule.closedMatcher.matches(Closed.NO)) {
+					this.flags[i] |= FLAG_LINEAR_WAY;
+				}
+			}
+
+			if (rule instanceof PositiveRule) {
+				PositiveRule positiveRule = (PositiveRule) rule;
+				this.ruleKeyIds[i] = internKeys(positiveRule.keyMatcher);
+				this.ruleValueIds[i] = internValues(positiveRule.valueMatcher);
+			} else if (rule instanceof NegativeRule) {
+				NegativeMatcher negativeMatcher = (NegativeMatcher) ((NegativeRule) rule).attributeMatcher;
+				this.negative[i] = true;
+				this.ruleKeyIds[i] = intern(negativeMatcher.keyList, this.keyIds);
+				this.ruleValueIds[i] = intern(negativeMatcher.valueList, this.valueIds);
+			} else {
+				throw new IllegalArgumentException("unknown Rule: " + rule);
+			}
+		}
+
+		List<List<Integer>> rulesByKey = new ArrayList<>(this.keyIds.size());
+		for (int i = 0, n = this.keyIds.size(); i < n; ++i) {
+			rulesByKey.add(new ArrayList<Integer>());
+		}
+		List<Integer> unconditionalRules = new ArrayList<>();
+		for (int i = 0; i < this.topLevelNodes.length; ++i) {
+			int node = this.topLevelNodes[i];
+			if (this.negative[node] || this.ruleKeyIds[node] == null) {
+				unconditionalRules.add(i);
+			} else {
+				for (int keyId : this.ruleKeyIds[node]) {
+					rulesByKey.get(keyId).add(i);
+				}
+			}
+		}
+		this.topLevelRulesByKey = new int[rulesByKey.size()][];
+		for (int i = 0, n = rulesByKey.size(); i < n; ++i) {
+			this.topLevelRulesByKey[i] = toIntArray(rulesByKey.get(i));
+		}
+		this.unconditionalTopLevelRules = toIntArray(unconditionalRules);
+	}
+
+	/**
+	 * @return the IDs of the keys and values of the given tags.
+	 */
+	TagSet getTagSet(List<Tag> tags) {
+		int n = tags.size();
+		int[] tagKeyIds = new int[n];
+		int[] tagValueIds = new int[n];
+		int numberOfKeys = 0;
+		int numberOfValues = 0;
+		for (int i = 0; i < n; ++i) {
+			Tag tag = tags.get(i);
+			Integer keyId = this.keyIds.get(tag.key);
+			if (keyId != null) {
+				tagKeyIds[numberOfKeys++] = keyId.intValue();
+			}
+			Integer valueId = this.valueIds.get(tag.value);
+			if (valueId != null) {
+				tagValueIds[numberOfValues++] = valueId.intValue();
+			}
+		}
+		return new TagSet(toDistinctSortedArray(tagKeyIds, numberOfKeys),
+				toDistinctSortedArray(tagValueIds, numberOfValues));
+	}
+
+	List<RenderInstruction> matchNode(TagSet tagSet, byte zoomLevel) {
+		return match(tagSet, zoomLevel, FLAG_NODE);
+	}
+
+	List<RenderInstruction> matchWay(TagSet tagSet, byte zoomLevel, Closed closed) {
+		return match(tagSet, zoomLevel, closed == Closed.YES ? FLAG_CLOSED_WAY : FLAG_LINEAR_WAY);
+	}
+
+	private void flatten(Rule rule, List<Rule> nodes, List<Integer> subtreeEndList) {
+		int index = nodes.size();
+		nodes.add(rule);
+		subtreeEndList.add(null);
+		for (int i = 0, n = rule.subRules.size(); i < n; ++i) {
+			flatten(rule.subRules.get(i), nodes, subtreeEndList);
+		}
+		subtreeEndList.set(index, nodes.size());
+	}
+
+	private int[] intern(List<String> strings, Map<String, Integer> ids) {
+		int[] result = new int[strings.size()];
+		for (int i = 0, n = strings.size(); i < n; ++i) {
+			Integer id = ids.get(strings.get(i));
+			if (id == null) {
+				id = Integer.valueOf(ids.size());
+				ids.put(strings.get(i), id);
+			}
+			result[i] = id.intValue();
+		}
+		return toDistinctSortedArray(result, result.length);
+	}
+
+	private int[] internKeys(AttributeMatcher attributeMatcher) {
+		if (attributeMatcher instanceof AnyMatcher) {
+			return null;
+		} else if (attributeMatcher instanceof KeyMatcher) {
+			return intern(((KeyMatcher) attributeMatcher).keys, this.keyIds);
+		}
+		throw new IllegalArgumentException("unknown AttributeMatcher: " + attributeMatcher);
+	}
+
+	private int[] internValues(AttributeMatcher attributeMatcher) {
+		if (attributeMatcher instanceof AnyMatcher) {
+			return null;
+		} else if (attributeMatcher instanceof ValueMatcher) {
+			return intern(((ValueMatcher) attributeMatcher).values, this.valueIds);
+		}
+		throw new IllegalArgumentException("unknown AttributeMatcher: " + attributeMatcher);
+	}
+
+	private List<RenderInstruction> match(TagSet tagSet, byte zoomLevel, int flag) {
+		BitSet candidates = new BitSet(this.topLevelNodes.length);
+		for (int keyId : tagSet.keyIds) {
+			for (int rule : this.topLevelRulesByKey[keyId]) {
+				candidates.set(rule);
+			}
+		}
+		for (int rule : this.unconditionalTopLevelRules) {
+			candidates.set(rule);
+		}
+
+		List<RenderInstruction> matchingList = new ArrayList<>();
+		for (int rule = candidates.nextSetBit(0); rule >= 0; rule = candidates.nextSetBit(rule + 1)) {
+			int node = this.topLevelNodes[rule];
+			int end = this.subtreeEnds[node];
+			while (node < end) {
+				if (matches(node, tagSet, zoomLevel, flag)) {
+					for (RenderInstruction renderInstruction : this.instructions[node]) {
+						matchingList.add(renderInstruction);
+					}
+					++node;
+				} else {
+					// skip all sub-rules
+					node = this.subtreeEnds[node];
+				}
+			}
+		}
+		return matchingList;
+	}
+
+	private boolean matches(int node, TagSet tagSet, byte zoomLevel, int flag) {
+		if ((this.flags[node] & flag) == 0) {
+			return false;
+		}
+		if (zoomLevel < ZOOM_MASK_SIZE) {
+			if ((this.zoomMasks[node] & (1L << zoomLevel)) == 0) {
+				return false;
+			}
+		} else if (this.zoomMins[node] > zoomLevel || this.zoomMaxs[node] < zoomLevel) {
+			return false;
+		}
+
+		if (this.negative[node]) {
+			return !tagSet.containsAnyKey(this.ruleKeyIds[node]) || tagSet.containsAnyValue(this.ruleValueIds[node]);
+		}
+		return (this.ruleKeyIds[node] == null || tagSet.containsAnyKey(this.ruleKeyIds[node]))
+				&& (this.ruleValueIds[node] == null || tagSet.containsAnyValue(this.ruleValueIds[node]));
+	}
+}
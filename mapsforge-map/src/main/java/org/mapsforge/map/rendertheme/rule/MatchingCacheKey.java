@@ -15,30 +15,15 @@
  */
 package org.mapsforge.map.rendertheme.rule;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
-import org.mapsforge.core.model.Tag;
-
 class MatchingCacheKey {
 	private final Closed closed;
-	private final List<Tag> tags;
-	private final Set<Tag> tagsWithoutName;
+	private final int tagSetId;
 	private final byte zoomLevel;
 
-	MatchingCacheKey(List<Tag> tags, byte zoomLevel, Closed closed) {
-		this.tags = tags;
+	MatchingCacheKey(int tagSetId, byte zoomLevel, Closed closed) {
+		this.tagSetId = tagSetId;
 		this.zoomLevel = zoomLevel;
 		this.closed = closed;
-		this.tagsWithoutName = new HashSet<Tag>();
-		if (this.tags != null) {
-			for (Tag tag : tags) {
-				if (!"name".equals(tag.key)) {
-					this.tagsWithoutName.add(tag);
-				}
-			}
-		}
 	}
 
 	@Override
@@ -52,9 +37,7 @@ class MatchingCacheKey {
 		if (this.closed != other.closed) {
 			return false;
 		}
-		if (this.tagsWithoutName == null && other.tagsWithoutName != null) {
-			return false;
-		} else if (!this.tagsWithoutName.equals(other.tagsWithoutName)) {
+		if (this.tagSetId != other.tagSetId) {
 			return false;
 		}
 		if (this.zoomLevel != other.zoomLevel) {
@@ -68,7 +51,7 @@ class MatchingCacheKey {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((this.closed == null) ? 0 : this.closed.hashCode());
-		result = prime * result + this.tagsWithoutName.hashCode();
+		result = prime * result + this.tagSetId;
 		result = prime * result + this.zoomLevel;
 		return result;
 	}
@@ -19,7 +19,7 @@ import java.util.List;
 import org.mapsforge.core.model.Tag;
 
 class NegativeRule extends Rule {
-	private final AttributeMatcher attributeMatcher;
+	final AttributeMatcher attributeMatcher;
 
 	NegativeRule(RuleBuilder ruleBuilder, AttributeMatcher attributeMatcher) {
 		super(ruleBuilder);
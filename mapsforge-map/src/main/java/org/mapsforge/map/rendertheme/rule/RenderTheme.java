@@ -15,11 +15,15 @@
 package org.mapsforge.map.rendertheme.rule;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.mapsforge.core.model.Tile;
-import org.mapsforge.core.util.LRUCache;
 import org.mapsforge.map.layer.renderer.PolylineContainer;
 import org.mapsforge.map.reader.PointOfInterest;
 import org.mapsforge.map.rendertheme.RenderCallback;
@@ -27,6 +31,10 @@ import org.mapsforge.map.rendertheme.renderinstruction.RenderInstruction;
 
 /**
  * A RenderTheme defines how ways and nodes are drawn.
+ * <p>
+ * The paints for a zoom level are derived once by {@link #scaleStrokeWidth(float, byte)} and
+ * {@link #scaleTextSize(float, byte)} and are not modified while rendering, so one RenderTheme can be used by
+ * several rendering threads at the same time.
  */
 public class RenderTheme {
 	private static final int MATCHING_CACHE_SIZE = 1024;
@@ -35,20 +43,35 @@ public class RenderTheme {
 	private final float baseTextSize;
 	private int levels;
 	private final int mapBackground;
-	private final LRUCache<MatchingCacheKey, List<RenderInstruction>> wayMatchingCache;
-	private final LRUCache<MatchingCacheKey, List<RenderInstruction>> poiMatchingCache;
+	private final AtomicLong matchingCacheHits = new AtomicLong();
+	private final AtomicLong matchingCacheMisses = new AtomicLong();
+	private final ConcurrentMap<MatchingCacheKey, List<RenderInstruction>> wayMatchingCache;
+	private final ConcurrentMap<MatchingCacheKey, List<RenderInstruction>> poiMatchingCache;
+	private final ConcurrentMap<TagSet, Integer> tagSetIds;
 	private final AtomicInteger refCount = new AtomicInteger();
+	private CompiledRules compiledRules;
+	private final AtomicInteger nextTagSetId = new AtomicInteger();
 	private final ArrayList<Rule> rulesList; // NOPMD we need specific interface
-	private float textScale;
-	private float strokeWidthScale;
+	private final Map<Byte, Float> strokeScales = new HashMap<>();
+	private final Map<Byte, Float> textScales = new HashMap<>();
 
 	RenderTheme(RenderThemeBuilder renderThemeBuilder) {
 		this.baseStrokeWidth = renderThemeBuilder.baseStrokeWidth;
 		this.baseTextSize = renderThemeBuilder.baseTextSize;
 		this.mapBackground = renderThemeBuilder.mapBackground;
 		this.rulesList = new ArrayList<>();
-		this.poiMatchingCache = new LRUCache<>(MATCHING_CACHE_SIZE);
-		this.wayMatchingCache = new LRUCache<>(MATCHING_CACHE_SIZE);
+		this.poiMatchingCache = new ConcurrentHashMap<>();
+		this.tagSetIds = new ConcurrentHashMap<>();
+		this.wayMatchingCache = new ConcurrentHashMap<>();
+	}
+
+	private static void putMatchingList(ConcurrentMap<MatchingCacheKey, List<RenderInstruction>> matchingCache,
+			MatchingCacheKey matchingCacheKey, List<RenderInstruction> matchingList) {
+		if (matchingCache.size() >= MATCHING_CACHE_SIZE) {
+			// there is no LRU bookkeeping on the lock-free read path, a full cache simply starts over
+			matchingCache.clear();
+		}
+		matchingCache.put(matchingCacheKey, matchingList);
 	}
 
 	/**
@@ -57,6 +80,7 @@ public class RenderTheme {
 	public void destroy() {
 		if (this.refCount.decrementAndGet() < 0) {
 			this.poiMatchingCache.clear();
+			this.tagSetIds.clear();
 			this.wayMatchingCache.clear();
 			for (Rule r : this.rulesList) {
 				r.destroy();
@@ -78,6 +102,20 @@ public class RenderTheme {
 		return this.mapBackground;
 	}
 
+	/**
+	 * @return the number of matched map elements whose render instructions were found in the matching caches.
+	 */
+	public long getMatchingCacheHits() {
+		return this.matchingCacheHits.get();
+	}
+
+	/**
+	 * @return the number of matched map elements which had to be matched against the rules.
+	 */
+	public long getMatchingCacheMisses() {
+		return this.matchingCacheMisses.get();
+	}
+
 	public void incrementRefCount() {
 		this.refCount.incrementAndGet();
 	}
@@ -117,53 +155,59 @@ public class RenderTheme {
 	 *            the zoom level at which the node should be matched.
 	 */
 	public void matchNode(RenderCallback renderCallback, PointOfInterest poi, Tile tile) {
-		MatchingCacheKey matchingCacheKey = new MatchingCacheKey(poi.tags, tile.zoomLevel, Closed.NO);
+		TagSet tagSet = this.compiledRules.getTagSet(poi.tags);
+		MatchingCacheKey matchingCacheKey = new MatchingCacheKey(getTagSetId(tagSet), tile.zoomLevel, Closed.NO);
 
 		List<RenderInstruction> matchingList = this.poiMatchingCache.get(matchingCacheKey);
-		if (matchingList != null) {
-			// cache hit
-			for (int i = 0, n = matchingList.size(); i < n; ++i) {
-				matchingList.get(i).renderNode(renderCallback, poi, tile);
-			}
-			return;
+		if (matchingList == null) {
+			// cache miss
+			this.matchingCacheMisses.incrementAndGet();
+			matchingList = this.compiledRules.matchNode(tagSet, tile.zoomLevel);
+			putMatchingList(this.poiMatchingCache, matchingCacheKey, matchingList);
+		} else {
+			this.matchingCacheHits.incrementAndGet();
 		}
 
-		// cache miss
-		matchingList = new ArrayList<RenderInstruction>();
-
-		for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
-			this.rulesList.get(i).matchNode(renderCallback, poi, tile, matchingList);
+		for (int i = 0, n = matchingList.size(); i < n; ++i) {
+			matchingList.get(i).renderNode(renderCallback, poi, tile);
 		}
-		this.poiMatchingCache.put(matchingCacheKey, matchingList);
 	}
 
 	/**
-	 * Scales the stroke width of this RenderTheme by the given factor.
+	 * Scales the stroke width of this RenderTheme by the given factor for the given zoom level. The paints are only
+	 * derived again if the factor for the zoom level has changed.
 	 * 
 	 * @param scaleFactor
 	 *            the factor by which the stroke width should be scaled.
+	 * @param zoomLevel
+	 *            the zoom level for which the scaled paints are used.
 	 */
-	public void scaleStrokeWidth(float scaleFactor) {
-		if (this.strokeWidthScale != scaleFactor) {
+	public synchronized void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
+		Float previousScaleFactor = this.strokeScales.get(zoomLevel);
+		if (previousScaleFactor == null || previousScaleFactor.floatValue() != scaleFactor) {
 			for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
-				this.rulesList.get(i).scaleStrokeWidth(scaleFactor * this.baseStrokeWidth);
+				this.rulesList.get(i).scaleStrokeWidth(scaleFactor * this.baseStrokeWidth, zoomLevel);
 			}
-			this.strokeWidthScale = scaleFactor;
+			this.strokeScales.put(zoomLevel, scaleFactor);
 		}
 	}
 
 	/**
-	 * Scales the text size of this RenderTheme by the given factor.
+	 * Scales the text size of this RenderTheme by the given factor for the given zoom level. The paints are only
+	 * derived again if the factor for the zoom level has changed.
 	 * 
 	 * @param scaleFactor
 	 *            the factor by which the text size should be scaled.
+	 * @param zoomLevel
+	 *            the zoom level for which the scaled paints are used.
 	 */
-	public void scaleTextSize(float scaleFactor) {
-		if (this.textScale != scaleFactor) {
+	public synchronized void scaleTextSize(float scaleFactor, byte zoomLevel) {
+		Float previousScaleFactor = this.textScales.get(zoomLevel);
+		if (previousScaleFactor == null || previousScaleFactor.floatValue() != scaleFactor) {
 			for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
-				this.rulesList.get(i).scaleTextSize(scaleFactor * this.baseTextSize);
+				this.rulesList.get(i).scaleTextSize(scaleFactor * this.baseTextSize, zoomLevel);
 			}
-			this.textScale = scaleFactor;
+			this.textScales.put(zoomLevel, scaleFactor);
 		}
 	}
 
@@ -176,30 +220,54 @@ public class RenderTheme {
 		for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
 			this.rulesList.get(i).onComplete();
 		}
+		this.compiledRules = new CompiledRules(this.rulesList);
+	}
+
+	CompiledRules getCompiledRules() {
+		return this.compiledRules;
+	}
+
+	List<Rule> getRules() {
+		return this.rulesList;
 	}
 
 	void setLevels(int levels) {
 		this.levels = levels;
 	}
 
+	private int getTagSetId(TagSet tagSet) {
+		Integer tagSetId = this.tagSetIds.get(tagSet);
+		if (tagSetId == null) {
+			if (this.tagSetIds.size() >= MATCHING_CACHE_SIZE) {
+				// IDs are never reused, so the matching caches cannot return the instructions of a dropped tag set
+				this.tagSetIds.clear();
+			}
+			tagSetId = Integer.valueOf(this.nextTagSetId.getAndIncrement());
+			Integer previousTagSetId = this.tagSetIds.putIfAbsent(tagSet, tagSetId);
+			if (previousTagSetId != null) {
+				tagSetId = previousTagSetId;
+			}
+		}
+		return tagSetId.intValue();
+	}
+
 	private void matchWay(RenderCallback renderCallback, PolylineContainer way, Closed closed) {
-		MatchingCacheKey matchingCacheKey = new MatchingCacheKey(way.getTags(), way.getTile().zoomLevel, closed);
+		TagSet tagSet = this.compiledRules.getTagSet(way.getTags());
+		byte zoomLevel = way.getTile().zoomLevel;
+		MatchingCacheKey matchingCacheKey = new MatchingCacheKey(getTagSetId(tagSet), zoomLevel, closed);
 
 		List<RenderInstruction> matchingList = this.wayMatchingCache.get(matchingCacheKey);
-		if (matchingList != null) {
-			// cache hit
-			for (int i = 0, n = matchingList.size(); i < n; ++i) {
-				matchingList.get(i).renderWay(renderCallback, way);
-			}
-			return;
+		if (matchingList == null) {
+			// cache miss
+			this.matchingCacheMisses.incrementAndGet();
+			matchingList = this.compiledRules.matchWay(tagSet, zoomLevel, closed);
+			putMatchingList(this.wayMatchingCache, matchingCacheKey, matchingList);
+		} else {
+			this.matchingCacheHits.incrementAndGet();
 		}
 
-		// cache miss
-		matchingList = new ArrayList<RenderInstruction>();
-		for (int i = 0, n = this.rulesList.size(); i < n; ++i) {
-			this.rulesList.get(i).matchWay(renderCallback, way, way.getTile(), closed, matchingList);
+		for (int i = 0, n = matchingList.size(); i < n; ++i) {
+			matchingList.get(i).renderWay(renderCallback, way);
 		}
-
-		this.wayMatchingCache.put(matchingCacheKey, matchingList);
 	}
 }
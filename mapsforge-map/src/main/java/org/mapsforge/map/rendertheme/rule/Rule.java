@@ -21,10 +21,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.mapsforge.core.model.Tag;
-import org.mapsforge.core.model.Tile;
-import org.mapsforge.map.layer.renderer.PolylineContainer;
-import org.mapsforge.map.reader.PointOfInterest;
-import org.mapsforge.map.rendertheme.RenderCallback;
 import org.mapsforge.map.rendertheme.renderinstruction.RenderInstruction;
 
 abstract class Rule {
@@ -37,8 +33,8 @@ abstract class Rule {
 	final ElementMatcher elementMatcher;
 	final byte zoomMax;
 	final byte zoomMin;
-	private final ArrayList<RenderInstruction> renderInstructions; // NOSONAR NOPMD we need specific interface
-	private final ArrayList<Rule> subRules; // NOSONAR NOPMD we need specific interface
+	final ArrayList<RenderInstruction> renderInstructions; // NOSONAR NOPMD we need specific interface
+	final ArrayList<Rule> subRules; // NOSONAR NOPMD we need specific interface
 
 	Rule(RuleBuilder ruleBuilder) {
 		this.cat = ruleBuilder.cat;
@@ -72,28 +68,28 @@ abstract class Rule {
 
 	abstract boolean matchesWay(List<Tag> tags, byte zoomLevel, Closed closed);
 
-	void matchNode(RenderCallback renderCallback, PointOfInterest pointOfInterest, Tile tile,
-	               List<RenderInstruction> matchingList ) {
-		if (matchesNode(pointOfInterest.tags, tile.zoomLevel)) {
-			for (int i = 0, n = this.renderInstructions.size(); i < n; ++i) {
-				this.renderInstructions.get(i).renderNode(renderCallback, pointOfInterest, tile);
-				matchingList.add(this.renderInstructions.get(i));
-			}
+	/**
+	 * Walks this rule and its sub-rules without the compiled index, see {@link CompiledRules} for the matching which
+	 * is used while rendering.
+	 */
+	void matchNode(List<Tag> tags, byte zoomLevel, List<RenderInstruction> matchingList) {
+		if (matchesNode(tags, zoomLevel)) {
+			matchingList.addAll(this.renderInstructions);
 			for (int i = 0, n = this.subRules.size(); i < n; ++i) {
-				this.subRules.get(i).matchNode(renderCallback, pointOfInterest, tile, matchingList);
+				this.subRules.get(i).matchNode(tags, zoomLevel, matchingList);
 			}
 		}
 	}
 
-	void matchWay(RenderCallback renderCallback, PolylineContainer way, Tile tile, Closed closed,
-			List<RenderInstruction> matchingList) {
-		if (matchesWay(way.getTags(), tile.zoomLevel, closed)) {
-			for (int i = 0, n = this.renderInstructions.size(); i < n; ++i) {
-				this.renderInstructions.get(i).renderWay(renderCallback, way);
-				matchingList.add(this.renderInstructions.get(i));
-			}
+	/**
+	 * Walks this rule and its sub-rules without the compiled index, see {@link CompiledRules} for the matching which
+	 * is used while rendering.
+	 */
+	void matchWay(List<Tag> tags, byte zoomLevel, Closed closed, List<RenderInstruction> matchingList) {
+		if (matchesWay(tags, zoomLevel, closed)) {
+			matchingList.addAll(this.renderInstructions);
 			for (int i = 0, n = this.subRules.size(); i < n; ++i) {
-				this.subRules.get(i).matchWay(renderCallback, way, tile, closed, matchingList);
+				this.subRules.get(i).matchWay(tags, zoomLevel, closed, matchingList);
 			}
 		}
 	}
@@ -109,21 +105,21 @@ abstract class Rule {
 		}
 	}
 
-	void scaleStrokeWidth(float scaleFactor) {
+	void scaleStrokeWidth(float scaleFactor, byte zoomLevel) {
 		for (int i = 0, n = this.renderInstructions.size(); i < n; ++i) {
-			this.renderInstructions.get(i).scaleStrokeWidth(scaleFactor);
+			this.renderInstructions.get(i).scaleStrokeWidth(scaleFactor, zoomLevel);
 		}
 		for (int i = 0, n = this.subRules.size(); i < n; ++i) {
-			this.subRules.get(i).scaleStrokeWidth(scaleFactor);
+			this.subRules.get(i).scaleStrokeWidth(scaleFactor, zoomLevel);
 		}
 	}
 
-	void scaleTextSize(float scaleFactor) {
+	void scaleTextSize(float scaleFactor, byte zoomLevel) {
 		for (int i = 0, n = this.renderInstructions.size(); i < n; ++i) {
-			this.renderInstructions.get(i).scaleTextSize(scaleFactor);
+			this.renderInstructions.get(i).scaleTextSize(scaleFactor, zoomLevel);
 		}
 		for (int i = 0, n = this.subRules.size(); i < n; ++i) {
-			this.subRules.get(i).scaleTextSize(scaleFactor);
+			this.subRules.get(i).scaleTextSize(scaleFactor, zoomLevel);
 		}
 	}
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.rendertheme.rule;
+
+import java.util.Arrays;
+
+/**
+ * The keys and values of a list of tags as sorted, distinct integer IDs. Keys and values which do not occur in the
+ * render theme are dropped, they can never change the result of a match.
+ */
+final class TagSet {
+	private static boolean intersects(int[] ids1, int[] ids2) {
+		int i = 0;
+		int j = 0;
+		while (i < ids1.length && j < ids2.length) {
+			if (ids1[i] < ids2[j]) {
+				++i;
+			} else if (ids1[i] > ids2[j]) {
+				++j;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private final int hashCode;
+	final int[] keyIds;
+	final int[] valueIds;
+
+	TagSet(int[] keyIds, int[] valueIds) {
+		this.keyIds = keyIds;
+		this.valueIds = valueIds;
+		this.hashCode = 31 * Arrays.hashCode(keyIds) + Arrays.hashCode(valueIds);
+	}
+
+	boolean containsAnyKey(int[] ids) {
+		return intersects(this.keyIds, ids);
+	}
+
+	boolean containsAnyValue(int[] ids) {
+		return intersects(this.valueIds, ids);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof TagSet)) {
+			return false;
+		}
+		TagSet other = (TagSet) obj;
+		return this.hashCode == other.hashCode && Arrays.equals(this.keyIds, other.keyIds)
+				&& Arrays.equals(this.valueIds, other.valueIds);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+}
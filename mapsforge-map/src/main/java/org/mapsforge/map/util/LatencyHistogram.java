@@ -0,0 +1,145 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations with one bucket for each power of two microseconds.
+ * <p>
+ * Recording a duration only takes a few atomic operations and no allocation, so a histogram can stay enabled in
+ * production. Percentiles are accurate to a factor of two, which is enough to tell the phases of a slow operation
+ * apart. This class is thread-safe.
+ */
+public class LatencyHistogram {
+	/**
+	 * Number of buckets, the last bucket holds all durations of more than 2^(BUCKETS - 2) microseconds.
+	 */
+	private static final int BUCKETS = 24;
+
+	private static final long NANOSECONDS_PER_MICROSECOND = 1000;
+
+	static int getBucket(long nanoseconds) {
+		long microseconds = nanoseconds / NANOSECONDS_PER_MICROSECOND;
+		if (microseconds <= 0) {
+			return 0;
+		}
+		// bucket i holds the durations from 2^(i - 1) to 2^i microseconds
+		return Math.min(Long.SIZE - Long.numberOfLeadingZeros(microseconds), BUCKETS - 1);
+	}
+
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong maximum = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+
+	/**
+	 * @return the number of recorded durations.
+	 */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/**
+	 * @return the longest recorded duration in nanoseconds.
+	 */
+	public long getMaximum() {
+		return this.maximum.get();
+	}
+
+	/**
+	 * @return the mean of the recorded durations in nanoseconds or zero, if no duration has been recorded.
+	 */
+	public long getMean() {
+		long currentCount = this.count.get();
+		if (currentCount == 0) {
+			return 0;
+		}
+		return this.total.get() / currentCount;
+	}
+
+	/**
+	 * Returns the duration below which the given fraction of the recorded durations lies. The result is the upper
+	 * bound of the bucket which contains the percentile, but never more than the maximum.
+	 * 
+	 * @param fraction
+	 *            the fraction of the durations, e.g. 0.95 for the 95th percentile.
+	 * @return the percentile in nanoseconds or zero, if no duration has been recorded.
+	 * @throws IllegalArgumentException
+	 *             if the fraction is not between zero and one.
+	 */
+	public long getPercentile(double fraction) {
+		if (fraction < 0 || fraction > 1) {
+			throw new IllegalArgumentException("invalid fraction: " + fraction);
+		}
+
+		long[] snapshot = new long[BUCKETS];
+		long snapshotCount = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			snapshot[i] = this.counts.get(i);
+			snapshotCount += snapshot[i];
+		}
+		if (snapshotCount == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(fraction * snapshotCount));
+		long maximumDuration = this.maximum.get();
+		for (int i = 0; i < BUCKETS - 1; ++i) {
+			rank -= snapshot[i];
+			if (rank <= 0) {
+				return Math.min((1L << i) * NANOSECONDS_PER_MICROSECOND, maximumDuration);
+			}
+		}
+		return maximumDuration;
+	}
+
+	/**
+	 * @return the sum of the recorded durations in nanoseconds.
+	 */
+	public long getTotal() {
+		return this.total.get();
+	}
+
+	/**
+	 * Records a duration.
+	 * 
+	 * @param nanoseconds
+	 *            the duration in nanoseconds.
+	 */
+	public void record(long nanoseconds) {
+		this.counts.incrementAndGet(getBucket(nanoseconds));
+		this.count.incrementAndGet();
+		this.total.addAndGet(nanoseconds);
+
+		long currentMaximum = this.maximum.get();
+		while (nanoseconds > currentMaximum && !this.maximum.compareAndSet(currentMaximum, nanoseconds)) {
+			currentMaximum = this.maximum.get();
+		}
+	}
+
+	/**
+	 * Removes all recorded durations.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; ++i) {
+			this.counts.set(i, 0);
+		}
+		this.count.set(0);
+		this.maximum.set(0);
+		this.total.set(0);
+	}
+}
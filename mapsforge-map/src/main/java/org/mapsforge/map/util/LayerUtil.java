@@ -18,10 +18,10 @@ package org.mapsforge.map.util;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import org.mapsforge.core.mapelements.CollisionGrid;
 import org.mapsforge.core.mapelements.MapElementContainer;
 import org.mapsforge.core.model.BoundingBox;
 import org.mapsforge.core.model.Point;
@@ -79,20 +79,28 @@ public final class LayerUtil {
 	 */
 
 	public static List<MapElementContainer> collisionFreeOrdered(List<MapElementContainer> input) {
+		return collisionFreeOrdered(input, new CollisionGrid());
+	}
+
+	/**
+	 * Orders a list of MapElements and removes those elements that overlap with each other or with
+	 * the elements which have already been placed in the given grid. The remaining elements are
+	 * added to the grid, so that the labels of several tiles can be placed one after another.
+	 *
+	 * @param input list of MapElements
+	 * @param placedElements grid of the elements that have already been placed
+	 * @return collision-free, ordered list, a subset of the input.
+	 */
+	public static List<MapElementContainer> collisionFreeOrdered(List<MapElementContainer> input,
+			CollisionGrid placedElements) {
 		// sort items by priority (highest first)
 		Collections.sort(input, Collections.reverseOrder());
-		// in order of priority, see if an item can be drawn, i.e. none of the items
-		// in the currentItemsToDraw list clashes with it.
-		List<MapElementContainer> output = new LinkedList<MapElementContainer>();
+		// in order of priority, see if an item can be drawn, i.e. none of the already
+		// placed items clashes with it.
+		List<MapElementContainer> output = new ArrayList<MapElementContainer>();
 		for (MapElementContainer item : input) {
-			boolean hasSpace = true;
-			for (MapElementContainer outputElement : output) {
-				if (outputElement.clashesWith(item)) {
-					hasSpace = false;
-					break;
-				}
-			}
-			if (hasSpace) {
+			if (!placedElements.clashesWith(item)) {
+				placedElements.add(item);
 				output.add(item);
 			}
 		}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.graphics.Bitmap;
+import org.mapsforge.core.graphics.Canvas;
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.Dimension;
+import org.mapsforge.core.model.Point;
+import org.mapsforge.core.model.Rectangle;
+import org.mapsforge.map.awt.AwtGraphicFactory;
+
+public class LayerCacheTest {
+	/**
+	 * A static layer which draws a checkered pattern of cells at whole pixels relative to the rounded top-left point.
+	 */
+	private static class GridLayer extends Layer {
+		private static final int CELL_SIZE = 16;
+		private static final int[] COLORS = { 0xffff0000, 0xff00ff00, 0xff0000ff, 0xffffff00 };
+
+		int areaDraws;
+		private final Bitmap[] bitmaps;
+		int draws;
+
+		GridLayer() {
+			this.bitmaps = new Bitmap[COLORS.length];
+			for (int i = 0; i < COLORS.length; ++i) {
+				this.bitmaps[i] = GRAPHIC_FACTORY.createBitmap(CELL_SIZE, CELL_SIZE, false);
+				this.bitmaps[i].setBackgroundColor(COLORS[i]);
+			}
+		}
+
+		@Override
+		public void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint) {
+			++this.draws;
+			long left = Math.round(topLeftPoint.x);
+			long top = Math.round(topLeftPoint.y);
+			for (long cellY = top / CELL_SIZE; cellY * CELL_SIZE < top + canvas.getHeight(); ++cellY) {
+				for (long cellX = left / CELL_SIZE; cellX * CELL_SIZE < left + canvas.getWidth(); ++cellX) {
+					Bitmap bitmap = this.bitmaps[(int) ((cellX * 7 + cellY * 13) % COLORS.length)];
+					canvas.drawBitmap(bitmap, (int) (cellX * CELL_SIZE - left), (int) (cellY * CELL_SIZE - top));
+				}
+			}
+		}
+
+		@Override
+		public void draw(BoundingBox boundingBox, byte zoomLevel, Canvas canvas, Point topLeftPoint, Rectangle area) {
+			++this.areaDraws;
+			super.draw(boundingBox, zoomLevel, canvas, topLeftPoint, area);
+		}
+
+		@Override
+		public boolean isStatic() {
+			return true;
+		}
+	}
+
+	private static final int BACKGROUND_COLOR = 0xffeeeeee;
+	private static final BoundingBox BOUNDING_BOX = new BoundingBox(0, 0, 1, 1);
+	private static final Dimension DIMENSION = new Dimension(200, 150);
+	private static final GraphicFactory GRAPHIC_FACTORY = AwtGraphicFactory.INSTANCE;
+	private static final int TILE_SIZE = 256;
+	private static final byte ZOOM_LEVEL = 10;
+
+	private static void assertBitmapEquals(Bitmap expected, Bitmap actual) {
+		BufferedImage expectedImage = AwtGraphicFactory.getBitmap(expected);
+		BufferedImage actualImage = AwtGraphicFactory.getBitmap(actual);
+		for (int y = 0; y < expectedImage.getHeight(); ++y) {
+			for (int x = 0; x < expectedImage.getWidth(); ++x) {
+				Assert.assertEquals(x + "," + y, expectedImage.getRGB(x, y), actualImage.getRGB(x, y));
+			}
+		}
+	}
+
+	private static Bitmap draw(LayerCache layerCache, List<Layer> layers, boolean dirty, Point topLeftPoint) {
+		return layerCache.draw(layers, dirty, BOUNDING_BOX, ZOOM_LEVEL, topLeftPoint, DIMENSION, TILE_SIZE,
+				BACKGROUND_COLOR);
+	}
+
+	@Test
+	public void redrawTest() {
+		GridLayer gridLayer = new GridLayer();
+		List<Layer> layers = Collections.<Layer> singletonList(gridLayer);
+		LayerCache layerCache = new LayerCache(GRAPHIC_FACTORY);
+		Point topLeftPoint = new Point(1000.3, 2000.7);
+
+		Bitmap bitmap = draw(layerCache, layers, false, topLeftPoint);
+		Assert.assertEquals(1, gridLayer.draws);
+
+		// the output is reused without any change
+		Assert.assertSame(bitmap, draw(layerCache, layers, false, new Point(1000.4, 2000.6)));
+		Assert.assertEquals(1, gridLayer.draws);
+
+		draw(layerCache, layers, true, topLeftPoint);
+		Assert.assertEquals(2, gridLayer.draws);
+
+		List<Layer> otherLayers = Collections.<Layer> singletonList(new GridLayer());
+		draw(layerCache, otherLayers, false, topLeftPoint);
+		Assert.assertEquals(2, gridLayer.draws);
+		draw(layerCache, layers, false, topLeftPoint);
+		Assert.assertEquals(3, gridLayer.draws);
+
+		layerCache.draw(layers, false, BOUNDING_BOX, (byte) (ZOOM_LEVEL + 1), topLeftPoint, DIMENSION, TILE_SIZE,
+				BACKGROUND_COLOR);
+		Assert.assertEquals(4, gridLayer.draws);
+
+		// a move by more than the dimension of the canvas redraws everything
+		draw(layerCache, layers, false, topLeftPoint.offset(DIMENSION.width, 0));
+		Assert.assertEquals(5, gridLayer.draws);
+		Assert.assertEquals(0, gridLayer.areaDraws);
+
+		layerCache.destroy();
+	}
+
+	@Test
+	public void translateTest() {
+		GridLayer gridLayer = new GridLayer();
+		List<Layer> layers = Collections.<Layer> singletonList(gridLayer);
+		LayerCache layerCache = new LayerCache(GRAPHIC_FACTORY);
+		LayerCache expectedLayerCache = new LayerCache(GRAPHIC_FACTORY);
+		Random random = new Random(42);
+		Point topLeftPoint = new Point(1000.3, 2000.7);
+		draw(layerCache, layers, false, topLeftPoint);
+
+		for (int i = 0; i < 50; ++i) {
+			topLeftPoint = topLeftPoint.offset(random.nextDouble() * 120 - 60, random.nextDouble() * 120 - 60);
+			Bitmap bitmap = draw(layerCache, layers, false, topLeftPoint);
+			Bitmap expected = draw(expectedLayerCache, layers, true, topLeftPoint);
+			assertBitmapEquals(expected, bitmap);
+		}
+
+		// one full draw per step for the expected output, only the exposed strips for the cache
+		Assert.assertEquals(1 + 50, gridLayer.draws - gridLayer.areaDraws);
+		Assert.assertTrue(gridLayer.areaDraws <= 2 * 50);
+
+		layerCache.destroy();
+		expectedLayerCache.destroy();
+	}
+}
@@ -18,6 +18,17 @@ import org.junit.Assert;
 import org.junit.Test;
 
 public class LayerTest {
+	@Test
+	public void requestRedrawTest() {
+		Layer layer = new DummyLayer();
+		Assert.assertFalse(layer.isStatic());
+		Assert.assertFalse(layer.resetDirty());
+
+		layer.requestRedraw();
+		Assert.assertTrue(layer.resetDirty());
+		Assert.assertFalse(layer.resetDirty());
+	}
+
 	@Test
 	public void visibleTest() {
 		Layer layer = new DummyLayer();
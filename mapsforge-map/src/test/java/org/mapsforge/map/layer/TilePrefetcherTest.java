@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.LatLong;
+import org.mapsforge.core.model.MapPosition;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.model.FixedTileSizeDisplayModel;
+import org.mapsforge.map.model.MapViewPosition;
+import org.mapsforge.map.util.LayerUtil;
+
+public class TilePrefetcherTest {
+	private static final int TILE_SIZE = 256;
+	private static final byte ZOOM_LEVEL = 10;
+
+	private static BoundingBox getBoundingBox(MapViewPosition mapViewPosition) {
+		// a visible area of 3x3 tiles around the center
+		MapPosition mapPosition = mapViewPosition.getMapPosition();
+		long mapSize = MercatorProjection.getMapSize(mapPosition.zoomLevel, TILE_SIZE);
+		double pixelX = MercatorProjection.longitudeToPixelX(mapPosition.latLong.longitude, mapSize);
+		double pixelY = MercatorProjection.latitudeToPixelY(mapPosition.latLong.latitude, mapSize);
+		double halfSize = 1.5 * TILE_SIZE - 1;
+		return new BoundingBox(MercatorProjection.pixelYToLatitude(pixelY + halfSize, mapSize),
+				MercatorProjection.pixelXToLongitude(pixelX - halfSize, mapSize),
+				MercatorProjection.pixelYToLatitude(pixelY - halfSize, mapSize),
+				MercatorProjection.pixelXToLongitude(pixelX + halfSize, mapSize));
+	}
+
+	@Test
+	public void movementTest() {
+		MapViewPosition mapViewPosition = new MapViewPosition(new FixedTileSizeDisplayModel(TILE_SIZE));
+		mapViewPosition.setMapPosition(new MapPosition(new LatLong(0.1, 0.1, true), ZOOM_LEVEL));
+		TilePrefetcher tilePrefetcher = new TilePrefetcher(mapViewPosition);
+
+		// the map stands still
+		Assert.assertTrue(tilePrefetcher.getPrefetchTiles(getBoundingBox(mapViewPosition), ZOOM_LEVEL, TILE_SIZE, 0)
+				.isEmpty());
+		Assert.assertTrue(tilePrefetcher.getPrefetchTiles(getBoundingBox(mapViewPosition), ZOOM_LEVEL, TILE_SIZE, 20)
+				.isEmpty());
+
+		// the map center moves to the east with 2.5 pixels per millisecond
+		long time = 20;
+		for (int i = 0; i < 5; ++i) {
+			time += 20;
+			mapViewPosition.moveCenter(-50, 0);
+		}
+		BoundingBox boundingBox = getBoundingBox(mapViewPosition);
+		List<Tile> tiles = tilePrefetcher.getPrefetchTiles(boundingBox, ZOOM_LEVEL, TILE_SIZE, time);
+		Assert.assertFalse(tiles.isEmpty());
+		Assert.assertTrue(tiles.size() <= TilePrefetcher.DEFAULT_BUDGET);
+
+		Set<Tile> visibleTiles = LayerUtil.getTiles(boundingBox, ZOOM_LEVEL, TILE_SIZE);
+		int tileRight = MercatorProjection.longitudeToTileX(boundingBox.maxLongitude, ZOOM_LEVEL);
+		for (Tile tile : tiles) {
+			Assert.assertFalse(visibleTiles.contains(tile));
+			Assert.assertTrue(tile.tileX > tileRight);
+			Assert.assertEquals(ZOOM_LEVEL, tile.zoomLevel);
+		}
+
+		// the map has stopped moving
+		time += TilePrefetcher.IDLE_TIME + 1;
+		Assert.assertTrue(tilePrefetcher.getPrefetchTiles(boundingBox, ZOOM_LEVEL, TILE_SIZE, time).isEmpty());
+
+		tilePrefetcher.setBudget(0);
+		mapViewPosition.moveCenter(-20, 0);
+		Assert.assertTrue(tilePrefetcher.getPrefetchTiles(getBoundingBox(mapViewPosition), ZOOM_LEVEL, TILE_SIZE,
+				time + 20).isEmpty());
+
+		try {
+			tilePrefetcher.setBudget(-1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+	}
+
+	@Test
+	public void zoomTest() {
+		MapViewPosition mapViewPosition = new MapViewPosition(new FixedTileSizeDisplayModel(TILE_SIZE));
+		mapViewPosition.setMapPosition(new MapPosition(new LatLong(0.1, 0.1, true), ZOOM_LEVEL));
+		TilePrefetcher tilePrefetcher = new TilePrefetcher(mapViewPosition);
+		tilePrefetcher.getPrefetchTiles(getBoundingBox(mapViewPosition), ZOOM_LEVEL, TILE_SIZE, 0);
+
+		byte zoomLevel = ZOOM_LEVEL + 1;
+		mapViewPosition.setZoomLevel(zoomLevel);
+		List<Tile> tiles = tilePrefetcher.getPrefetchTiles(getBoundingBox(mapViewPosition), zoomLevel, TILE_SIZE,
+				100);
+		Assert.assertEquals(TilePrefetcher.DEFAULT_BUDGET, tiles.size());
+		for (Tile tile : tiles) {
+			Assert.assertEquals(zoomLevel + 1, tile.zoomLevel);
+		}
+
+		// the next zoom level is no longer expected
+		Assert.assertTrue(tilePrefetcher.getPrefetchTiles(getBoundingBox(mapViewPosition), zoomLevel, TILE_SIZE,
+				100 + TilePrefetcher.ZOOM_TIME + 1).isEmpty());
+
+		// the zoom level cannot be increased any further
+		mapViewPosition.setZoomLevelMax(zoomLevel);
+		Assert.assertTrue(tilePrefetcher.getPrefetchTiles(getBoundingBox(mapViewPosition), zoomLevel, TILE_SIZE,
+				200).isEmpty());
+	}
+}
@@ -264,6 +264,81 @@ public class FileSystemTileCacheTest {
 		}
 	}
 
+	@Test
+	public void persistentTest() {
+		File mapFile = new File("map.file");
+		XmlRenderTheme xmlRenderTheme = InternalRenderTheme.OSMARENDER;
+		DisplayModel displayModel = new DisplayModel();
+		Job job1 = new RendererJob(new Tile(0, 0, (byte) 1, 256), mapFile, xmlRenderTheme, displayModel, 1, false, false);
+		Job job2 = new RendererJob(new Tile(0, 1, (byte) 1, 256), mapFile, xmlRenderTheme, displayModel, 1, false, false);
+		Job job3 = new RendererJob(new Tile(1, 1, (byte) 1, 256), mapFile, xmlRenderTheme, displayModel, 1, false, false);
+
+		FileSystemTileCache tileCache = new FileSystemTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY, false, 0, true);
+		tileCache.put(job1, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		tileCache.put(job2, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		Assert.assertNotNull(tileCache.get(job1));
+		tileCache.destroy();
+		Assert.assertTrue(new File(this.cacheDirectory, FileSystemTileCache.INDEX_FILE_NAME).exists());
+
+		// the tiles and their LRU order are restored, job2 is the eldest entry
+		tileCache = new FileSystemTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY, false, 0, true);
+		Assert.assertTrue(tileCache.containsKey(job1));
+		Assert.assertTrue(tileCache.containsKey(job2));
+		tileCache.put(job3, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		Assert.assertTrue(tileCache.containsKey(job1));
+		Assert.assertFalse(tileCache.containsKey(job2));
+		Assert.assertTrue(tileCache.containsKey(job3));
+		tileCache.destroy();
+
+		// a different map file invalidates the cached tiles
+		tileCache = new FileSystemTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY, false, 0, true);
+		Job otherJob = new RendererJob(job1.tile, new File("other.file"), xmlRenderTheme, displayModel, 1, false, false);
+		Assert.assertFalse(tileCache.containsKey(otherJob));
+		Assert.assertFalse(tileCache.containsKey(job1));
+		Assert.assertFalse(new File(this.cacheDirectory, job1.getKey() + FileSystemTileCache.FILE_EXTENSION).exists());
+		tileCache.destroy();
+
+		// a cache which is not persistent deletes the directory
+		new FileSystemTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY).destroy();
+		Assert.assertFalse(this.cacheDirectory.exists());
+	}
+
+	@Test
+	public void persistentThreadedTest() {
+		File mapFile = new File("map.file");
+		XmlRenderTheme xmlRenderTheme = InternalRenderTheme.OSMARENDER;
+		DisplayModel displayModel = new DisplayModel();
+		Job job = new RendererJob(new Tile(0, 0, (byte) 1, 256), mapFile, xmlRenderTheme, displayModel, 1, false, false);
+		File file = new File(this.cacheDirectory, job.getKey() + FileSystemTileCache.FILE_EXTENSION);
+
+		FileSystemTileCache tileCache = new FileSystemTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY, true, 10, true);
+		tileCache.put(job, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		while (0 != tileCache.getQueueLength()) {
+			try {
+				// wait for threaded tile cache
+				Thread.sleep(100);
+			} catch (Exception e) {
+			}
+		}
+		Assert.assertTrue(file.exists());
+
+		// the files of invalidated tiles are deleted on a separate thread
+		Job otherJob = new RendererJob(job.tile, new File("other.file"), xmlRenderTheme, displayModel, 1, false, false);
+		Assert.assertFalse(tileCache.containsKey(otherJob));
+		Assert.assertFalse(tileCache.containsKey(job));
+		for (int i = 0; i < 50 && file.exists(); ++i) {
+			try {
+				Thread.sleep(100);
+			} catch (Exception e) {
+			}
+		}
+		Assert.assertFalse(file.exists());
+		tileCache.destroy();
+
+		new FileSystemTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY).destroy();
+		Assert.assertFalse(this.cacheDirectory.exists());
+	}
+
 	@Test
 	public void invalidConstructorTest() throws IOException {
 		Assert.assertTrue(this.cacheDirectory.createNewFile());
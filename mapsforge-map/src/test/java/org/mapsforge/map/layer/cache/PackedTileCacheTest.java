@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ * Copyright 2014 Ludwig M Brinckmann
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.model.Tile;
+import org.mapsforge.map.awt.AwtGraphicFactory;
+import org.mapsforge.map.layer.download.DownloadJob;
+import org.mapsforge.map.layer.download.tilesource.OpenStreetMapMapnik;
+import org.mapsforge.map.layer.queue.Job;
+
+public class PackedTileCacheTest {
+	private static final GraphicFactory GRAPHIC_FACTORY = AwtGraphicFactory.INSTANCE;
+	private static final String TMP_DIR = System.getProperty("java.io.tmpdir");
+
+	private static Job createJob(int tileX) {
+		return new DownloadJob(new Tile(tileX, 0, (byte) 14, 256), OpenStreetMapMapnik.INSTANCE);
+	}
+
+	private final File cacheDirectory = new File(TMP_DIR, getClass().getSimpleName() + System.currentTimeMillis());
+
+	@After
+	public void afterTest() {
+		new PackedTileCache(0, this.cacheDirectory, GRAPHIC_FACTORY, false).destroy();
+		Assert.assertFalse(this.cacheDirectory.exists());
+	}
+
+	@Test
+	public void compactionTest() {
+		// compacts as soon as there are more than 10KB garbage
+		PackedTileCache tileCache = new PackedTileCache(10, this.cacheDirectory, GRAPHIC_FACTORY, true,
+				PngTileCodec.INSTANCE, 10000);
+		long maximumSize = 0;
+		for (int i = 0; i < 500; ++i) {
+			tileCache.put(createJob(i), GRAPHIC_FACTORY.createTileBitmap(256, false));
+			maximumSize = Math.max(maximumSize, getPackSize());
+		}
+		// the garbage of the evicted tiles is reclaimed, 10 tiles have less than 5KB
+		Assert.assertTrue(maximumSize < 30000);
+		Assert.assertEquals(1, tileCache.getNumberOfPacks());
+		for (int i = 490; i < 500; ++i) {
+			Assert.assertNotNull(tileCache.get(createJob(i)));
+		}
+		tileCache.destroy();
+
+		tileCache = new PackedTileCache(10, this.cacheDirectory, GRAPHIC_FACTORY, true);
+		Assert.assertFalse(tileCache.containsKey(createJob(489)));
+		for (int i = 490; i < 500; ++i) {
+			Assert.assertTrue(tileCache.containsKey(createJob(i)));
+		}
+		tileCache.destroy();
+	}
+
+	@Test
+	public void packedTileCacheTest() {
+		PackedTileCache tileCache = new PackedTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY, false);
+		Assert.assertEquals(2, tileCache.getCapacity());
+		Job job1 = createJob(1);
+		Job job2 = createJob(2);
+		Job job3 = createJob(3);
+
+		Assert.assertFalse(tileCache.containsKey(job1));
+		Assert.assertNull(tileCache.get(job1));
+
+		tileCache.put(job1, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		tileCache.put(job2, GRAPHIC_FACTORY.createTileBitmap(128, false));
+		Assert.assertTrue(tileCache.containsKey(job1));
+		Assert.assertEquals(256, tileCache.get(job1).getWidth());
+		Assert.assertEquals(128, tileCache.get(job2).getWidth());
+
+		// job1 has been used more recently than job2
+		tileCache.get(job1);
+		tileCache.put(job3, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		Assert.assertTrue(tileCache.containsKey(job1));
+		Assert.assertFalse(tileCache.containsKey(job2));
+		Assert.assertTrue(tileCache.containsKey(job3));
+
+		tileCache.destroy();
+		Assert.assertFalse(this.cacheDirectory.exists());
+	}
+
+	@Test
+	public void recoveryTest() throws IOException {
+		PackedTileCache tileCache = new PackedTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY, true);
+		Job job1 = createJob(1);
+		Job job2 = createJob(2);
+		Job job3 = createJob(3);
+		tileCache.put(job1, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		tileCache.put(job2, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		tileCache.put(job3, GRAPHIC_FACTORY.createTileBitmap(256, false));
+		tileCache.destroy();
+
+		// simulates a crash while a record was written
+		File packFile = new File(this.cacheDirectory, PackedTileCache.FILE_PREFIX + 0 + PackedTileCache.FILE_EXTENSION);
+		long length = packFile.length();
+		RandomAccessFile randomAccessFile = new RandomAccessFile(packFile, "rw");
+		randomAccessFile.seek(length);
+		randomAccessFile.writeInt(5);
+		randomAccessFile.write(new byte[] { '1', '0', '/', '4' });
+		randomAccessFile.close();
+
+		tileCache = new PackedTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY, true);
+		Assert.assertEquals(length, packFile.length());
+		Assert.assertFalse(tileCache.containsKey(job1));
+		Assert.assertNotNull(tileCache.get(job2));
+		Assert.assertNotNull(tileCache.get(job3));
+
+		// a corrupted tile is dropped when it is read
+		tileCache.destroy();
+		randomAccessFile = new RandomAccessFile(packFile, "rw");
+		// the last byte of job3 comes before the tombstone of job1
+		long position = length - 12 - job1.getKey().length() - 1;
+		randomAccessFile.seek(position);
+		int value = randomAccessFile.read();
+		randomAccessFile.seek(position);
+		randomAccessFile.write(value ^ 0xff);
+		randomAccessFile.close();
+		tileCache = new PackedTileCache(2, this.cacheDirectory, GRAPHIC_FACTORY, true);
+		Assert.assertNotNull(tileCache.get(job2));
+		Assert.assertNull(tileCache.get(job3));
+		Assert.assertFalse(tileCache.containsKey(job3));
+		tileCache.destroy();
+	}
+
+	private long getPackSize() {
+		long size = 0;
+		for (File file : this.cacheDirectory.listFiles()) {
+			size += file.length();
+		}
+		return size;
+	}
+}
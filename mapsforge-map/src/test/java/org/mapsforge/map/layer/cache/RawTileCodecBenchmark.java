@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.mapsforge.core.graphics.TileBitmap;
+
+/**
+ * Compares the size of an encoded tile and the time to encode and decode it with the raw codec and with PNG on AWT.
+ * The benchmark only logs its results, it is not part of the unit test suite and has to be run explicitly with
+ * {@code mvn test -Dtest=RawTileCodecBenchmark}.
+ */
+public class RawTileCodecBenchmark {
+	private static final Logger LOGGER = Logger.getLogger(RawTileCodecBenchmark.class.getName());
+	private static final int ROUNDS = 50;
+
+	@Test
+	public void codecBenchmark() throws IOException {
+		TileBitmap bitmap = RawTileCodecTest.createTile(false);
+		TileCodec[] tileCodecs = { PngTileCodec.INSTANCE, RawTileCodec.INSTANCE };
+		for (TileCodec tileCodec : tileCodecs) {
+			// warm up
+			byte[] data = null;
+			for (int round = 0; round < ROUNDS; ++round) {
+				data = RawTileCodecTest.encode(tileCodec, bitmap);
+				decode(tileCodec, data);
+			}
+
+			long startTime = System.nanoTime();
+			for (int round = 0; round < ROUNDS; ++round) {
+				data = RawTileCodecTest.encode(tileCodec, bitmap);
+			}
+			long encodeTime = (System.nanoTime() - startTime) / ROUNDS;
+
+			startTime = System.nanoTime();
+			for (int round = 0; round < ROUNDS; ++round) {
+				decode(tileCodec, data);
+			}
+			long decodeTime = (System.nanoTime() - startTime) / ROUNDS;
+
+			LOGGER.info(tileCodec.getClass().getSimpleName() + ": " + data.length + " bytes per tile, encode "
+					+ encodeTime / 1000 + " us, decode " + decodeTime / 1000 + " us");
+		}
+	}
+
+	private static void decode(TileCodec tileCodec, byte[] data) throws IOException {
+		tileCodec.decode(new ByteArrayInputStream(data), RawTileCodecTest.TILE_SIZE, false,
+				RawTileCodecTest.GRAPHIC_FACTORY).decrementRefCount();
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.graphics.Canvas;
+import org.mapsforge.core.graphics.Color;
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.graphics.Paint;
+import org.mapsforge.core.graphics.Style;
+import org.mapsforge.core.graphics.TileBitmap;
+import org.mapsforge.map.awt.AwtGraphicFactory;
+
+public class RawTileCodecTest {
+	static final GraphicFactory GRAPHIC_FACTORY = AwtGraphicFactory.INSTANCE;
+	static final int TILE_SIZE = 256;
+
+	/**
+	 * @return a tile with lines and labels similar to a rendered map tile.
+	 */
+	static TileBitmap createTile(boolean isTransparent) {
+		TileBitmap bitmap = GRAPHIC_FACTORY.createTileBitmap(TILE_SIZE, isTransparent);
+		Canvas canvas = GRAPHIC_FACTORY.createCanvas();
+		canvas.setBitmap(bitmap);
+		if (!isTransparent) {
+			canvas.fillColor(0xfff2efe9);
+		}
+
+		Random random = new Random(42);
+		Paint paint = GRAPHIC_FACTORY.createPaint();
+		paint.setStyle(Style.STROKE);
+		int[] colors = { 0xffffffff, 0xfff7fabf, 0xffb5d0d0, 0xffc6e4b4, 0xffa0a0a0 };
+		for (int i = 0; i < 40; ++i) {
+			paint.setColor(colors[random.nextInt(colors.length)]);
+			paint.setStrokeWidth(1 + random.nextInt(8));
+			canvas.drawLine(random.nextInt(TILE_SIZE), random.nextInt(TILE_SIZE), random.nextInt(TILE_SIZE),
+					random.nextInt(TILE_SIZE), paint);
+		}
+		paint.setColor(Color.BLACK);
+		paint.setStyle(Style.FILL);
+		paint.setTextSize(12);
+		for (int i = 0; i < 5; ++i) {
+			canvas.drawText("Hauptstraße", random.nextInt(TILE_SIZE), random.nextInt(TILE_SIZE), paint);
+		}
+		canvas.destroy();
+		return bitmap;
+	}
+
+	static byte[] encode(TileCodec tileCodec, TileBitmap bitmap) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		tileCodec.encode(bitmap, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	private static int[] getPixels(TileBitmap bitmap) {
+		int[] pixels = new int[bitmap.getWidth() * bitmap.getHeight()];
+		bitmap.getPixels(pixels);
+		return pixels;
+	}
+
+	private static void verifyRoundTrip(boolean isTransparent) throws IOException {
+		TileBitmap bitmap = createTile(isTransparent);
+		byte[] data = encode(RawTileCodec.INSTANCE, bitmap);
+		TileBitmap decoded = RawTileCodec.INSTANCE.decode(new ByteArrayInputStream(data), TILE_SIZE, isTransparent,
+				GRAPHIC_FACTORY);
+
+		Assert.assertEquals(TILE_SIZE, decoded.getWidth());
+		Assert.assertEquals(TILE_SIZE, decoded.getHeight());
+		Assert.assertTrue(Arrays.equals(getPixels(bitmap), getPixels(decoded)));
+	}
+
+	@Test
+	public void encodeDecodeTest() throws IOException {
+		verifyRoundTrip(false);
+		verifyRoundTrip(true);
+	}
+
+	@Test
+	public void invalidDataTest() throws IOException {
+		byte[] png = encode(PngTileCodec.INSTANCE, createTile(false));
+		try {
+			RawTileCodec.INSTANCE.decode(new ByteArrayInputStream(png), TILE_SIZE, false, GRAPHIC_FACTORY);
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertTrue(true);
+		}
+
+		byte[] raw = encode(RawTileCodec.INSTANCE, createTile(false));
+		try {
+			RawTileCodec.INSTANCE.decode(new ByteArrayInputStream(raw), TILE_SIZE * 2, false, GRAPHIC_FACTORY);
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertTrue(true);
+		}
+
+		byte[] truncated = Arrays.copyOf(raw, raw.length / 2);
+		try {
+			RawTileCodec.INSTANCE.decode(new ByteArrayInputStream(truncated), TILE_SIZE, false, GRAPHIC_FACTORY);
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertTrue(true);
+		}
+	}
+}
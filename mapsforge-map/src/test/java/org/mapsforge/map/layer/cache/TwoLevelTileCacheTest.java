@@ -14,6 +14,10 @@
  */
 package org.mapsforge.map.layer.cache;
 
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.mapsforge.core.graphics.GraphicFactory;
@@ -24,11 +28,40 @@ import org.mapsforge.map.layer.download.DownloadJob;
 import org.mapsforge.map.layer.download.tilesource.OpenStreetMapMapnik;
 import org.mapsforge.map.layer.download.tilesource.TileSource;
 import org.mapsforge.map.layer.queue.Job;
+import org.mapsforge.map.model.common.Observer;
 
 public class TwoLevelTileCacheTest {
 	private static final GraphicFactory GRAPHIC_FACTORY = AwtGraphicFactory.INSTANCE;
 	private static final int[] TILE_SIZES = { 256, 128, 376, 512, 100 };
 
+	@Test
+	public void promotionTest() throws InterruptedException {
+		TileCache tileCache1 = new InMemoryTileCache(1);
+		TileCache tileCache2 = new InMemoryTileCache(1);
+		TwoLevelTileCache twoLevelTileCache = new TwoLevelTileCache(tileCache1, tileCache2);
+		final CountDownLatch promoted = new CountDownLatch(1);
+		twoLevelTileCache.addObserver(new Observer() {
+			@Override
+			public void onChange() {
+				promoted.countDown();
+			}
+		});
+
+		Job job = new DownloadJob(new Tile(0, 0, (byte) 0, 256), OpenStreetMapMapnik.INSTANCE);
+		TileBitmap bitmap = GRAPHIC_FACTORY.createTileBitmap(256, false);
+		tileCache2.put(job, bitmap);
+		Assert.assertNull(twoLevelTileCache.getImmediately(job));
+
+		// the tile is promoted to the first level in the background
+		twoLevelTileCache.setWorkingSet(Collections.singleton(job));
+		Assert.assertTrue(promoted.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(tileCache1.containsKey(job));
+		Assert.assertEquals(bitmap, twoLevelTileCache.getImmediately(job));
+		Assert.assertEquals(0, twoLevelTileCache.getNumberOfPendingJobs());
+
+		twoLevelTileCache.destroy();
+	}
+
 	@Test
 	public void twoLevelTileCacheTest() {
 		for (int tileSize : TILE_SIZES) {
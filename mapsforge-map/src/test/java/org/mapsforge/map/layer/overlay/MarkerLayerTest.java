@@ -0,0 +1,265 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.overlay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.graphics.Bitmap;
+import org.mapsforge.core.graphics.Canvas;
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.core.model.LatLong;
+import org.mapsforge.core.model.Point;
+import org.mapsforge.core.util.MercatorProjection;
+import org.mapsforge.map.awt.AwtGraphicFactory;
+import org.mapsforge.map.model.FixedTileSizeDisplayModel;
+
+public class MarkerLayerTest {
+	private static class CountingMarkerLayer extends MarkerLayer<Integer> {
+		int clusteredItems;
+		int clusters;
+		final List<Integer> drawnItems = new ArrayList<Integer>();
+		Integer tappedItem;
+		List<Integer> tappedItems;
+
+		CountingMarkerLayer(Bitmap bitmap) {
+			super(bitmap, 0, 0);
+		}
+
+		@Override
+		protected void drawCluster(int count, Canvas canvas, int x, int y) {
+			++this.clusters;
+			this.clusteredItems += count;
+		}
+
+		@Override
+		protected void drawItem(Integer item, Canvas canvas, int x, int y) {
+			this.drawnItems.add(item);
+		}
+
+		@Override
+		protected boolean onClusterTap(List<Integer> items) {
+			this.tappedItems = items;
+			return true;
+		}
+
+		@Override
+		protected boolean onItemTap(Integer item) {
+			this.tappedItem = item;
+			return true;
+		}
+
+		void reset() {
+			this.clusteredItems = 0;
+			this.clusters = 0;
+			this.drawnItems.clear();
+		}
+	}
+
+	private static final GraphicFactory GRAPHIC_FACTORY = AwtGraphicFactory.INSTANCE;
+	private static final int TILE_SIZE = 256;
+
+	private static CountingMarkerLayer createMarkerLayer(List<LatLong> latLongs) {
+		CountingMarkerLayer markerLayer = new CountingMarkerLayer(GRAPHIC_FACTORY.createBitmap(20, 20));
+		markerLayer.setDisplayModel(new FixedTileSizeDisplayModel(TILE_SIZE));
+		for (int i = 0; i < latLongs.size(); ++i) {
+			markerLayer.add(latLongs.get(i), i);
+		}
+		return markerLayer;
+	}
+
+	private static List<LatLong> createRandomLatLongs(int count, Random random) {
+		List<LatLong> latLongs = new ArrayList<LatLong>(count);
+		for (int i = 0; i < count; ++i) {
+			latLongs.add(new LatLong(47 + random.nextDouble() * 8, 6 + random.nextDouble() * 9, true));
+		}
+		return latLongs;
+	}
+
+	private static Point draw(MarkerLayer<Integer> markerLayer, LatLong center, byte zoomLevel, Canvas canvas) {
+		long mapSize = MercatorProjection.getMapSize(zoomLevel, TILE_SIZE);
+		Point topLeftPoint = new Point(MercatorProjection.longitudeToPixelX(center.longitude, mapSize)
+				- canvas.getWidth() / 2, MercatorProjection.latitudeToPixelY(center.latitude, mapSize)
+				- canvas.getHeight() / 2);
+		markerLayer.draw(null, zoomLevel, canvas, topLeftPoint);
+		return topLeftPoint;
+	}
+
+	@Test
+	public void clusterTest() {
+		List<LatLong> latLongs = createRandomLatLongs(10000, new Random(42));
+		CountingMarkerLayer markerLayer = createMarkerLayer(latLongs);
+		Canvas canvas = GRAPHIC_FACTORY.createCanvas();
+		canvas.setBitmap(GRAPHIC_FACTORY.createBitmap(1024, 1024));
+		LatLong center = new LatLong(51, 10.5, true);
+
+		// all items are visible and combined into clusters which do not overlap
+		draw(markerLayer, center, (byte) 5, canvas);
+		Assert.assertEquals(10000, markerLayer.clusteredItems + markerLayer.drawnItems.size());
+		Assert.assertTrue(markerLayer.clusters > 0 && markerLayer.clusters < 1000);
+
+		// only the visible items are drawn
+		markerLayer.reset();
+		Point topLeftPoint = draw(markerLayer, center, (byte) 12, canvas);
+		long mapSize = MercatorProjection.getMapSize((byte) 12, TILE_SIZE);
+		int visible = 0;
+		for (LatLong latLong : latLongs) {
+			double x = MercatorProjection.longitudeToPixelX(latLong.longitude, mapSize) - topLeftPoint.x;
+			double y = MercatorProjection.latitudeToPixelY(latLong.latitude, mapSize) - topLeftPoint.y;
+			if (x >= 0 && x < 1024 && y >= 0 && y < 1024) {
+				++visible;
+			}
+		}
+		int drawn = markerLayer.clusteredItems + markerLayer.drawnItems.size();
+		Assert.assertTrue(drawn >= visible && drawn < visible + 20);
+
+		// without clustering all visible items are drawn, the margin around the visible area is smaller than a cell
+		markerLayer.setClusterSize(0);
+		markerLayer.reset();
+		draw(markerLayer, center, (byte) 12, canvas);
+		Assert.assertEquals(0, markerLayer.clusters);
+		Assert.assertTrue(markerLayer.drawnItems.size() >= visible && markerLayer.drawnItems.size() <= drawn);
+	}
+
+	@Test
+	public void getCodeTest() {
+		Assert.assertEquals(0, MarkerLayer.getCode(0, 0));
+		Assert.assertEquals(1, MarkerLayer.getCode(1d / (1L << MarkerLayer.LEVELS), 0));
+		Assert.assertEquals(2, MarkerLayer.getCode(0, 1d / (1L << MarkerLayer.LEVELS)));
+		Assert.assertEquals(Long.MAX_VALUE >> 3, MarkerLayer.getCode(1, 1));
+
+		// the four quadrants of the map follow each other
+		long quarter = 1L << (2 * MarkerLayer.LEVELS - 2);
+		Assert.assertEquals(quarter, MarkerLayer.getCode(0.5, 0));
+		Assert.assertEquals(2 * quarter, MarkerLayer.getCode(0, 0.5));
+		Assert.assertEquals(3 * quarter, MarkerLayer.getCode(0.5, 0.5));
+	}
+
+	@Test
+	public void getItemsTest() {
+		Random random = new Random(42);
+		List<LatLong> latLongs = createRandomLatLongs(10000, random);
+		MarkerLayer<Integer> markerLayer = createMarkerLayer(latLongs);
+
+		for (int i = 0; i < 100; ++i) {
+			double latitude = 47 + random.nextDouble() * 8;
+			double longitude = 6 + random.nextDouble() * 9;
+			double size = random.nextDouble() * random.nextDouble() * 4;
+			BoundingBox boundingBox = new BoundingBox(latitude, longitude, Math.min(latitude + size, 85),
+					longitude + size);
+
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int j = 0; j < latLongs.size(); ++j) {
+				if (boundingBox.contains(latLongs.get(j))) {
+					expected.add(j);
+				}
+			}
+			List<Integer> items = markerLayer.getItems(boundingBox);
+			Collections.sort(items);
+			Assert.assertEquals(expected, items);
+		}
+	}
+
+	@Test
+	public void marginTest() {
+		CountingMarkerLayer markerLayer = new CountingMarkerLayer(null);
+		markerLayer.setDisplayModel(new FixedTileSizeDisplayModel(TILE_SIZE));
+		Canvas canvas = GRAPHIC_FACTORY.createCanvas();
+		canvas.setBitmap(GRAPHIC_FACTORY.createBitmap(1024, 1024));
+		LatLong center = new LatLong(52, 13, true);
+
+		// the item is 10 pixels left of the visible area
+		long mapSize = MercatorProjection.getMapSize((byte) 12, TILE_SIZE);
+		double x = MercatorProjection.longitudeToPixelX(center.longitude, mapSize) - 512 - 10;
+		markerLayer.add(new LatLong(center.latitude, MercatorProjection.pixelXToLongitude(x, mapSize), true), 0);
+
+		draw(markerLayer, center, (byte) 12, canvas);
+		Assert.assertTrue(markerLayer.drawnItems.isEmpty());
+
+		markerLayer.setMargin(20);
+		draw(markerLayer, center, (byte) 12, canvas);
+		Assert.assertEquals(1, markerLayer.drawnItems.size());
+
+		try {
+			markerLayer.setMargin(-1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+	}
+
+	@Test
+	public void removeTest() {
+		List<LatLong> latLongs = createRandomLatLongs(100, new Random(42));
+		MarkerLayer<Integer> markerLayer = createMarkerLayer(latLongs);
+		BoundingBox boundingBox = new BoundingBox(47, 6, 55, 15);
+		Assert.assertEquals(100, markerLayer.size());
+
+		Assert.assertTrue(markerLayer.remove(Integer.valueOf(42)));
+		Assert.assertFalse(markerLayer.remove(Integer.valueOf(42)));
+		Assert.assertEquals(99, markerLayer.size());
+		Assert.assertFalse(markerLayer.getItems(boundingBox).contains(Integer.valueOf(42)));
+
+		markerLayer.add(latLongs.get(42), 42);
+		Assert.assertEquals(100, markerLayer.getItems(boundingBox).size());
+
+		markerLayer.clear();
+		Assert.assertEquals(0, markerLayer.size());
+		Assert.assertTrue(markerLayer.getItems(boundingBox).isEmpty());
+
+		try {
+			markerLayer.setClusterSize(-1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+	}
+
+	@Test
+	public void tapTest() {
+		List<LatLong> latLongs = new ArrayList<LatLong>();
+		latLongs.add(new LatLong(52, 13, true));
+		latLongs.add(new LatLong(52.00001, 13.00001, true));
+		latLongs.add(new LatLong(52.1, 13.1, true));
+		CountingMarkerLayer markerLayer = createMarkerLayer(latLongs);
+		Canvas canvas = GRAPHIC_FACTORY.createCanvas();
+		canvas.setBitmap(GRAPHIC_FACTORY.createBitmap(1024, 1024));
+
+		// nothing has been drawn yet
+		Assert.assertFalse(markerLayer.onTap(latLongs.get(2), null, null));
+
+		draw(markerLayer, new LatLong(52.05, 13.05, true), (byte) 13, canvas);
+		Assert.assertTrue(markerLayer.onTap(latLongs.get(2), null, null));
+		Assert.assertEquals(Integer.valueOf(2), markerLayer.tappedItem);
+		Assert.assertTrue(markerLayer.onTap(new LatLong(52.10002, 13.10002, true), null, null));
+		Assert.assertFalse(markerLayer.onTap(new LatLong(52.05, 13.05, true), null, null));
+
+		// the first two items are combined into a cluster
+		Assert.assertTrue(markerLayer.onTap(latLongs.get(0), null, null));
+		Collections.sort(markerLayer.tappedItems);
+		Assert.assertEquals(2, markerLayer.tappedItems.size());
+		Assert.assertEquals(Integer.valueOf(0), markerLayer.tappedItems.get(0));
+
+		markerLayer.setClusterSize(0);
+		markerLayer.tappedItem = null;
+		Assert.assertTrue(markerLayer.onTap(latLongs.get(1), null, null));
+		Assert.assertEquals(Integer.valueOf(1), markerLayer.tappedItem);
+	}
+}
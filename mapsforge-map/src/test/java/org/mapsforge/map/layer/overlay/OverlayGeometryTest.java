@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.overlay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.graphics.FillRule;
+import org.mapsforge.core.graphics.Path;
+import org.mapsforge.core.model.LatLong;
+import org.mapsforge.core.model.Point;
+import org.mapsforge.core.util.MercatorProjection;
+
+public class OverlayGeometryTest {
+	private static class RecordingPath implements Path {
+		int moves;
+		final List<Point> points = new ArrayList<Point>();
+
+		@Override
+		public void clear() {
+			this.moves = 0;
+			this.points.clear();
+		}
+
+		@Override
+		public void lineTo(float x, float y) {
+			this.points.add(new Point(x, y));
+		}
+
+		@Override
+		public void moveTo(float x, float y) {
+			++this.moves;
+			this.points.add(new Point(x, y));
+		}
+
+		@Override
+		public void setFillRule(FillRule fillRule) {
+			// no-op
+		}
+	}
+
+	private static final long MAP_SIZE = MercatorProjection.getMapSize((byte) 16, 256);
+
+	private static List<LatLong> createTrack(int points) {
+		Random random = new Random(42);
+		List<LatLong> track = new ArrayList<LatLong>(points);
+		double latitude = 52.5;
+		double longitude = 13.4;
+		for (int i = 0; i < points; ++i) {
+			latitude += (random.nextDouble() - 0.5) * 0.0002;
+			longitude += random.nextDouble() * 0.0001;
+			track.add(new LatLong(latitude, longitude, true));
+		}
+		return track;
+	}
+
+	private static double getDistance(Point point, Point start, Point end) {
+		double dx = end.x - start.x;
+		double dy = end.y - start.y;
+		double lengthSquared = dx * dx + dy * dy;
+		double t = 0;
+		if (lengthSquared > 0) {
+			t = Math.max(0, Math.min(1, ((point.x - start.x) * dx + (point.y - start.y) * dy) / lengthSquared));
+		}
+		return Math.hypot(point.x - (start.x + t * dx), point.y - (start.y + t * dy));
+	}
+
+	private static Point project(LatLong latLong, long mapSize) {
+		return new Point(MercatorProjection.longitudeToPixelX(latLong.longitude, mapSize),
+				MercatorProjection.latitudeToPixelY(latLong.latitude, mapSize));
+	}
+
+	private static List<Point> simplify(OverlayGeometry overlayGeometry, long mapSize, Point topLeftPoint) {
+		RecordingPath path = new RecordingPath();
+		int points = overlayGeometry.addToPath(path, mapSize, topLeftPoint);
+		Assert.assertEquals(points, path.points.size());
+		Assert.assertEquals(1, path.moves);
+		return path.points;
+	}
+
+	/**
+	 * Asserts that every point lies within the tolerance of the simplified line.
+	 */
+	private static void verifySimplification(List<LatLong> latLongs, List<Point> simplified, long mapSize,
+			Point topLeftPoint) {
+		Point first = project(latLongs.get(0), mapSize).offset(-topLeftPoint.x, -topLeftPoint.y);
+		Point last = project(latLongs.get(latLongs.size() - 1), mapSize).offset(-topLeftPoint.x, -topLeftPoint.y);
+		Assert.assertEquals(0, first.distance(simplified.get(0)), 0.05);
+		Assert.assertEquals(0, last.distance(simplified.get(simplified.size() - 1)), 0.05);
+
+		double tolerance = OverlayGeometry.TOLERANCE + 0.05;
+		int segment = 0;
+		for (LatLong latLong : latLongs) {
+			Point point = project(latLong, mapSize).offset(-topLeftPoint.x, -topLeftPoint.y);
+			// the kept points are in order, so the point is close to the current or a later segment,
+			// the slack covers the rounding of the path coordinates to floats
+			while (segment < simplified.size() - 2
+					&& getDistance(point, simplified.get(segment), simplified.get(segment + 1)) > tolerance) {
+				++segment;
+			}
+			if (simplified.size() > 1) {
+				double distance = getDistance(point, simplified.get(segment), simplified.get(segment + 1));
+				Assert.assertTrue("distance " + distance, distance <= tolerance);
+			}
+		}
+	}
+
+	@Test
+	public void appendTest() {
+		List<LatLong> track = createTrack(2000);
+		List<LatLong> latLongs = new ArrayList<LatLong>();
+		OverlayGeometry overlayGeometry = new OverlayGeometry();
+		Point topLeftPoint = project(track.get(0), MAP_SIZE);
+
+		for (int i = 0; i < track.size(); i += 97) {
+			latLongs.addAll(track.subList(i, Math.min(i + 97, track.size())));
+			Assert.assertEquals(latLongs.size(), overlayGeometry.update(latLongs));
+			verifySimplification(latLongs, simplify(overlayGeometry, MAP_SIZE, topLeftPoint), MAP_SIZE, topLeftPoint);
+		}
+
+		// a replaced point discards the geometry from there on
+		latLongs.set(1000, new LatLong(52.5, 13.5, true));
+		Assert.assertEquals(latLongs.size(), overlayGeometry.update(latLongs));
+		verifySimplification(latLongs, simplify(overlayGeometry, MAP_SIZE, topLeftPoint), MAP_SIZE, topLeftPoint);
+
+		latLongs.clear();
+		Assert.assertEquals(0, overlayGeometry.update(latLongs));
+		Assert.assertEquals(0, overlayGeometry.getNumberOfPoints(MAP_SIZE));
+	}
+
+	@Test
+	public void cullingTest() {
+		// a zigzag line along the equator which cannot be simplified
+		List<LatLong> latLongs = new ArrayList<LatLong>();
+		for (int i = 0; i < 1000; ++i) {
+			latLongs.add(new LatLong(i % 2 == 0 ? 0 : 0.001, i * 0.001, true));
+		}
+		OverlayGeometry overlayGeometry = new OverlayGeometry();
+		overlayGeometry.update(latLongs);
+		Assert.assertEquals(1000, overlayGeometry.getNumberOfPoints(MAP_SIZE));
+
+		Point start = project(latLongs.get(0), MAP_SIZE);
+		Point end = project(latLongs.get(999), MAP_SIZE);
+		Point center = new Point((start.x + end.x) / 2, (start.y + end.y) / 2);
+
+		RecordingPath path = new RecordingPath();
+		int points = overlayGeometry.addToPath(path, MAP_SIZE, new Point(center.x - 100, center.y - 100), 200, 200);
+		Assert.assertEquals(points, path.points.size());
+		Assert.assertEquals(1, path.moves);
+		Assert.assertTrue(points > 0 && points <= 2 * OverlayGeometry.CHUNK_SIZE + 1);
+
+		// a visible area which covers both ends of the line draws the whole line
+		path = new RecordingPath();
+		points = overlayGeometry.addToPath(path, MAP_SIZE, new Point(start.x - 100, start.y - 100),
+				(int) (end.x - start.x) + 200, 200);
+		Assert.assertEquals(1000, points);
+		Assert.assertEquals(1, path.moves);
+
+		path = new RecordingPath();
+		Assert.assertEquals(0, overlayGeometry.addToPath(path, MAP_SIZE, new Point(0, 0), 200, 200));
+		Assert.assertFalse(overlayGeometry.intersects(MAP_SIZE, new Point(0, 0), 200, 200));
+		Assert.assertTrue(overlayGeometry.intersects(MAP_SIZE, new Point(center.x - 100, center.y - 100), 200, 200));
+	}
+
+	@Test
+	public void simplifyTest() {
+		List<LatLong> latLongs = new ArrayList<LatLong>();
+		for (int i = 0; i <= 1000; ++i) {
+			latLongs.add(new LatLong(0, i * 0.001, true));
+		}
+		OverlayGeometry overlayGeometry = new OverlayGeometry();
+		Assert.assertEquals(1001, overlayGeometry.update(latLongs));
+		Assert.assertEquals(2, overlayGeometry.getNumberOfPoints(MAP_SIZE));
+
+		List<LatLong> track = createTrack(5000);
+		overlayGeometry.update(track);
+		for (byte zoomLevel = 4; zoomLevel <= 20; zoomLevel += 4) {
+			long mapSize = MercatorProjection.getMapSize(zoomLevel, 256);
+			Point topLeftPoint = project(track.get(0), mapSize);
+			verifySimplification(track, simplify(overlayGeometry, mapSize, topLeftPoint), mapSize, topLeftPoint);
+		}
+		// less detail is needed at lower zoom levels
+		Assert.assertTrue(overlayGeometry.getNumberOfPoints(MercatorProjection.getMapSize((byte) 8, 256)) < overlayGeometry
+				.getNumberOfPoints(MercatorProjection.getMapSize((byte) 16, 256)));
+	}
+}
@@ -15,8 +15,14 @@
  */
 package org.mapsforge.map.layer.queue;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Assert;
 import org.junit.Test;
+import org.mapsforge.core.model.LatLong;
+import org.mapsforge.core.model.MapPosition;
 import org.mapsforge.core.model.Tile;
 import org.mapsforge.map.model.FixedTileSizeDisplayModel;
 import org.mapsforge.map.model.MapViewPosition;
@@ -34,6 +40,44 @@ public class JobQueueTest {
 		}
 	}
 
+	@Test
+	public void cancelTest() throws InterruptedException {
+		MapViewPosition mapViewPosition = new MapViewPosition(new FixedTileSizeDisplayModel(TILE_SIZE));
+		JobQueue<Job> jobQueue = new JobQueue<Job>(mapViewPosition, new FixedTileSizeDisplayModel(TILE_SIZE));
+
+		Job job1 = new Job(new Tile(0, 0, (byte) 0, TILE_SIZE), false);
+		Job job2 = new Job(new Tile(0, 0, (byte) 1, TILE_SIZE), false);
+		Job job3 = new Job(new Tile(1, 1, (byte) 1, TILE_SIZE), false);
+		Set<Job> workingSet = new HashSet<Job>();
+		workingSet.add(job1);
+		workingSet.add(job2);
+		workingSet.add(job3);
+		jobQueue.setWorkingSet(workingSet);
+
+		jobQueue.add(job1);
+		jobQueue.add(job2);
+		jobQueue.add(job3);
+		Assert.assertEquals(job1, jobQueue.get());
+		Assert.assertFalse(job1.isCancelled());
+
+		// job1 is being executed and job2 is still queued when the user moves on
+		jobQueue.setWorkingSet(Collections.singleton(job3));
+		Assert.assertTrue(job1.isCancelled());
+		Assert.assertEquals(job3, jobQueue.get());
+		Assert.assertEquals(0, jobQueue.size());
+		Assert.assertEquals(2, jobQueue.getNumberOfCancelledJobs());
+
+		jobQueue.remove(job3);
+		Assert.assertFalse(job3.isCancelled());
+
+		// job1 becomes visible again before its worker has stopped, so it is queued again
+		jobQueue.setWorkingSet(workingSet);
+		jobQueue.remove(job1);
+		Assert.assertFalse(job1.isCancelled());
+		Assert.assertEquals(1, jobQueue.size());
+		Assert.assertEquals(job1, jobQueue.get());
+	}
+
 	@Test
 	public void jobQueueTest() throws InterruptedException {
 		MapViewPosition mapViewPosition = new MapViewPosition(new FixedTileSizeDisplayModel(256));
@@ -71,4 +115,119 @@ public class JobQueueTest {
 		verifyInvalidRemove(jobQueue, job2);
 		verifyInvalidRemove(jobQueue, job3);
 	}
+
+	@Test
+	public void prefetchTest() throws InterruptedException {
+		MapViewPosition mapViewPosition = new MapViewPosition(new FixedTileSizeDisplayModel(TILE_SIZE));
+		mapViewPosition.setMapPosition(new MapPosition(new LatLong(0, 0, true), (byte) 2));
+		JobQueue<Job> jobQueue = new JobQueue<Job>(mapViewPosition, new FixedTileSizeDisplayModel(TILE_SIZE));
+
+		Job visibleJob = new Job(new Tile(0, 0, (byte) 2, TILE_SIZE), false);
+		Job prefetchJob1 = new Job(new Tile(1, 1, (byte) 2, TILE_SIZE), false);
+		Job prefetchJob2 = new Job(new Tile(3, 0, (byte) 2, TILE_SIZE), false);
+		Job prefetchJob3 = new Job(new Tile(3, 3, (byte) 2, TILE_SIZE), false);
+		jobQueue.setWorkingSet(Collections.singleton(visibleJob));
+		Set<Job> prefetchSet = new HashSet<Job>();
+		prefetchSet.add(prefetchJob1);
+		prefetchSet.add(prefetchJob2);
+		prefetchSet.add(prefetchJob3);
+		jobQueue.setPrefetchSet(prefetchSet);
+
+		// prefetch jobs are taken after the visible jobs, even if they are closer to the map center
+		Assert.assertTrue(jobQueue.addPrefetch(prefetchJob1));
+		Assert.assertTrue(jobQueue.addPrefetch(prefetchJob2));
+		Assert.assertTrue(jobQueue.addPrefetch(prefetchJob3));
+		Assert.assertFalse(jobQueue.addPrefetch(prefetchJob1));
+		jobQueue.add(visibleJob);
+		Assert.assertEquals(3, jobQueue.getNumberOfPrefetchJobs());
+		Assert.assertEquals(visibleJob, jobQueue.get());
+
+		// a prefetched tile which becomes visible is scheduled like any other visible tile
+		Set<Job> workingSet = new HashSet<Job>();
+		workingSet.add(visibleJob);
+		workingSet.add(prefetchJob3);
+		jobQueue.setWorkingSet(workingSet);
+		jobQueue.add(prefetchJob3);
+		Assert.assertEquals(2, jobQueue.getNumberOfPrefetchJobs());
+		Assert.assertEquals(prefetchJob3, jobQueue.get());
+		Assert.assertEquals(prefetchJob1, jobQueue.get());
+		Assert.assertFalse(prefetchJob1.isCancelled());
+
+		// the prediction has changed, prefetch jobs for other tiles are cancelled and dropped
+		jobQueue.setPrefetchSet(Collections.<Job> emptySet());
+		Assert.assertTrue(prefetchJob1.isCancelled());
+		Assert.assertFalse(visibleJob.isCancelled());
+		Job job = new Job(new Tile(0, 1, (byte) 2, TILE_SIZE), false);
+		workingSet = new HashSet<Job>(workingSet);
+		workingSet.add(job);
+		jobQueue.setWorkingSet(workingSet);
+		jobQueue.add(job);
+		Assert.assertEquals(job, jobQueue.get());
+
+		// the queued prefetch job is only dropped when a worker would take it
+		Assert.assertEquals(1, jobQueue.getNumberOfPrefetchJobs());
+		for (int i = 1; i < JobQueue.PREFETCH_CAPACITY; ++i) {
+			Job nextJob = new Job(new Tile(i, 3, (byte) 6, TILE_SIZE), false);
+			jobQueue.setPrefetchSet(Collections.singleton(nextJob));
+			Assert.assertTrue(jobQueue.addPrefetch(nextJob));
+		}
+		Assert.assertFalse(jobQueue.addPrefetch(new Job(new Tile(0, 4, (byte) 6, TILE_SIZE), false)));
+		Assert.assertEquals(JobQueue.PREFETCH_CAPACITY, jobQueue.getNumberOfPrefetchJobs());
+	}
+
+	@Test
+	public void rescheduleTest() throws InterruptedException {
+		MapViewPosition mapViewPosition = new MapViewPosition(new FixedTileSizeDisplayModel(TILE_SIZE));
+		mapViewPosition.setMapPosition(new MapPosition(new LatLong(0, 0, true), (byte) 2));
+		JobQueue<Job> jobQueue = new JobQueue<Job>(mapViewPosition, new FixedTileSizeDisplayModel(TILE_SIZE));
+
+		Job job1 = new Job(new Tile(1, 1, (byte) 2, TILE_SIZE), false);
+		Job job2 = new Job(new Tile(2, 2, (byte) 2, TILE_SIZE), false);
+		Job job3 = new Job(new Tile(3, 3, (byte) 2, TILE_SIZE), false);
+		jobQueue.add(job3);
+		jobQueue.add(job1);
+		Assert.assertEquals(job1, jobQueue.get());
+
+		// job2 is scheduled against the current map position
+		jobQueue.add(job2);
+		Assert.assertEquals(job2, jobQueue.get());
+
+		// an assigned job must not be queued again
+		jobQueue.add(job1);
+		Assert.assertEquals(1, jobQueue.size());
+		Assert.assertEquals(2, jobQueue.getNumberOfAssignedJobs());
+		jobQueue.remove(job1);
+		jobQueue.remove(job2);
+
+		jobQueue.add(job1);
+		mapViewPosition.setMapPosition(new MapPosition(new LatLong(-80, 170, true), (byte) 2));
+		Assert.assertEquals(job3, jobQueue.get());
+		Assert.assertEquals(job1, jobQueue.get());
+
+		Assert.assertEquals(4, jobQueue.getNumberOfTakenJobs());
+		Assert.assertEquals(0, jobQueue.getNumberOfDroppedJobs());
+		Assert.assertTrue(jobQueue.getAverageWaitTime() >= 0);
+		Assert.assertTrue(jobQueue.getMaximumWaitTime() >= jobQueue.getAverageWaitTime());
+	}
+
+	@Test
+	public void trimTest() throws InterruptedException {
+		MapViewPosition mapViewPosition = new MapViewPosition(new FixedTileSizeDisplayModel(TILE_SIZE));
+		mapViewPosition.setMapPosition(new MapPosition(new LatLong(0, 0, true), (byte) 8));
+		JobQueue<Job> jobQueue = new JobQueue<Job>(mapViewPosition, new FixedTileSizeDisplayModel(TILE_SIZE));
+
+		Job nearestJob = new Job(new Tile(128, 128, (byte) 8, TILE_SIZE), false);
+		jobQueue.add(nearestJob);
+		Assert.assertEquals(nearestJob, jobQueue.get());
+		jobQueue.remove(nearestJob);
+
+		// the map position does not change, so the queue is never rescheduled while the jobs are added
+		for (int tileX = 0; tileX < 2 * JobQueue.QUEUE_CAPACITY; ++tileX) {
+			jobQueue.add(new Job(new Tile(255 - tileX, 130, (byte) 8, TILE_SIZE), false));
+		}
+		jobQueue.add(nearestJob);
+		Assert.assertEquals(JobQueue.QUEUE_CAPACITY, jobQueue.size());
+		Assert.assertEquals(JobQueue.QUEUE_CAPACITY + 1, jobQueue.getNumberOfDroppedJobs());
+		Assert.assertEquals(nearestJob, jobQueue.get());
+	}
 }
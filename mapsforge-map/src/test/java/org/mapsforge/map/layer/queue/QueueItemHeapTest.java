@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.Tile;
+
+public class QueueItemHeapTest {
+	private static final int TILE_SIZE = 256;
+
+	private static QueueItem<Job> createQueueItem(int tileX, double priority) {
+		QueueItem<Job> queueItem = new QueueItem<Job>(new Job(new Tile(tileX, 0, (byte) 8, TILE_SIZE), false));
+		queueItem.setPriority(priority);
+		return queueItem;
+	}
+
+	@Test
+	public void heapifyTest() {
+		QueueItemHeap<Job> queueItemHeap = new QueueItemHeap<Job>(4);
+		QueueItem<Job>[] queueItems = createQueueItems(queueItemHeap, 16);
+
+		// reversing the priorities reverses the order once the heap order is restored
+		for (int i = 0; i < queueItems.length; ++i) {
+			queueItems[i].setPriority(queueItems.length - i);
+		}
+		queueItemHeap.heapify();
+		for (int i = queueItems.length - 1; i >= 0; --i) {
+			Assert.assertSame(queueItems[i], queueItemHeap.poll());
+		}
+		Assert.assertTrue(queueItemHeap.isEmpty());
+		Assert.assertNull(queueItemHeap.poll());
+	}
+
+	@Test
+	public void pollTest() {
+		QueueItemHeap<Job> queueItemHeap = new QueueItemHeap<Job>(4);
+		QueueItem<Job>[] queueItems = createQueueItems(queueItemHeap, 16);
+		Assert.assertEquals(16, queueItemHeap.size());
+
+		Assert.assertSame(queueItems[15], queueItemHeap.peekWorst());
+		Assert.assertSame(queueItems[15], queueItemHeap.pollWorst());
+		Assert.assertTrue(queueItemHeap.remove(queueItems[7]));
+		Assert.assertFalse(queueItemHeap.remove(queueItems[7]));
+		Assert.assertEquals(14, queueItemHeap.size());
+
+		for (int i = 0; i < 15; ++i) {
+			if (i != 7) {
+				Assert.assertSame(queueItems[i], queueItemHeap.poll());
+			}
+		}
+		Assert.assertTrue(queueItemHeap.isEmpty());
+		Assert.assertNull(queueItemHeap.peekWorst());
+		Assert.assertNull(queueItemHeap.pollWorst());
+	}
+
+	@Test
+	public void prefetchTest() {
+		QueueItemHeap<Job> queueItemHeap = new QueueItemHeap<Job>(4);
+		QueueItem<Job> prefetchItem = createQueueItem(0, 0);
+		prefetchItem.prefetch = true;
+		QueueItem<Job> queueItem = createQueueItem(1, 100);
+		queueItemHeap.add(prefetchItem);
+		queueItemHeap.add(queueItem);
+
+		// prefetch items are less important than all other items
+		Assert.assertSame(prefetchItem, queueItemHeap.peekWorst());
+		Assert.assertSame(queueItem, queueItemHeap.poll());
+	}
+
+	@SuppressWarnings("unchecked")
+	private QueueItem<Job>[] createQueueItems(QueueItemHeap<Job> queueItemHeap, int numberOfItems) {
+		QueueItem<Job>[] queueItems = new QueueItem[numberOfItems];
+		for (int i = 0; i < numberOfItems; ++i) {
+			queueItems[i] = createQueueItem(i, i);
+		}
+		// the items are added in a mixed order
+		for (int i = 0; i < numberOfItems; ++i) {
+			queueItemHeap.add(queueItems[(i * 7) % numberOfItems]);
+		}
+		return queueItems;
+	}
+}
@@ -15,6 +15,8 @@
 package org.mapsforge.map.layer.renderer;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -63,6 +65,32 @@ public class RendererJobTest {
 		verifyInvalidConstructor(tile, mapFile, xmlRenderTheme, Float.NaN);
 	}
 
+	@Test
+	public void fingerprintTest() {
+		File mapFile = new File(MAP_FILE);
+		Tile tile = new Tile(0, 0, (byte) 0, TILE_SIZE);
+		RendererJob rendererJob = create(tile, mapFile, InternalRenderTheme.OSMARENDER, 1);
+		Assert.assertNotEquals(0, rendererJob.getFingerprint());
+		Assert.assertEquals(rendererJob.getFingerprint(),
+				create(new Tile(1, 1, (byte) 1, TILE_SIZE), mapFile, InternalRenderTheme.OSMARENDER, 1).getFingerprint());
+		Assert.assertNotEquals(rendererJob.getFingerprint(),
+				create(tile, mapFile, InternalRenderTheme.OSMARENDER, 2).getFingerprint());
+		Assert.assertNotEquals(rendererJob.getFingerprint(),
+				create(tile, new File("other.file"), InternalRenderTheme.OSMARENDER, 1).getFingerprint());
+		Assert.assertEquals(0, new DownloadJob(tile, OpenStreetMapMapnik.INSTANCE).getFingerprint());
+
+		// a fingerprint of the map files calculated once gives the same fingerprint for all jobs
+		int sourceFingerprint = RendererJob.calculateFingerprint(Collections.singletonList(mapFile),
+				InternalRenderTheme.OSMARENDER);
+		RendererJob rendererJob2 = new RendererJob(tile, Collections.singletonList(mapFile),
+				InternalRenderTheme.OSMARENDER, new DisplayModel(), 1, false, false, sourceFingerprint);
+		Assert.assertEquals(rendererJob.getFingerprint(), rendererJob2.getFingerprint());
+		Assert.assertEquals(rendererJob.getFingerprint(), rendererJob2.otherTile(tile).getFingerprint());
+		Assert.assertNotEquals(rendererJob.getFingerprint(), new RendererJob(tile, Collections.singletonList(mapFile),
+				InternalRenderTheme.OSMARENDER, new DisplayModel(), 1, false, false, sourceFingerprint + 1)
+				.getFingerprint());
+	}
+
 	@Test
 	public void equalsTest() {
 		File mapFile = new File(MAP_FILE);
@@ -83,4 +111,33 @@ public class RendererJobTest {
 		TileSource tileSource = OpenStreetMapMapnik.INSTANCE;
 		Assert.assertNotEquals(rendererJob1, new DownloadJob(tile, tileSource));
 	}
+
+	@Test
+	public void mapFilesTest() {
+		File mapFile = new File(MAP_FILE);
+		XmlRenderTheme xmlRenderTheme = InternalRenderTheme.OSMARENDER;
+		Tile tile = new Tile(0, 0, (byte) 0, TILE_SIZE);
+		DisplayModel displayModel = new DisplayModel();
+		RendererJob rendererJob1 = new RendererJob(tile, mapFile, xmlRenderTheme, displayModel, 1, false, false);
+		RendererJob rendererJob2 = new RendererJob(tile, Collections.singletonList(mapFile), xmlRenderTheme,
+				displayModel, 1, false, false);
+		RendererJob rendererJob3 = new RendererJob(tile, Arrays.asList(mapFile, new File("other.file")),
+				xmlRenderTheme, displayModel, 1, false, false);
+
+		TestUtils.equalsTest(rendererJob1, rendererJob2);
+		Assert.assertEquals(rendererJob1.getFingerprint(), rendererJob2.getFingerprint());
+
+		// jobs with the same first map file but different other map files must not share their tiles
+		Assert.assertEquals(rendererJob1.mapFile, rendererJob3.mapFile);
+		Assert.assertNotEquals(rendererJob1, rendererJob3);
+		Assert.assertNotEquals(rendererJob1.getFingerprint(), rendererJob3.getFingerprint());
+		Assert.assertEquals(rendererJob3, rendererJob3.otherTile(new Tile(1, 1, (byte) 1, TILE_SIZE)).otherTile(tile));
+
+		try {
+			new RendererJob(tile, Collections.<File> emptyList(), xmlRenderTheme, displayModel, 1, false, false);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+	}
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.renderer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RendererUtilsTest {
+	private static final double DELTA = 0.000001;
+
+	@Test
+	public void parallelPathTest() {
+		double[] straight = new double[] { 0, 0, 10, 0, 20, 0 };
+		Assert.assertArrayEquals(new double[] { 0, 5, 10, 5, 20, 5 }, RendererUtils.parallelPath(straight, 5), DELTA);
+
+		double[] corner = new double[] { 0, 0, 10, 0, 10, 10 };
+		Assert.assertArrayEquals(new double[] { 0, 2, 8, 2, 8, 10 }, RendererUtils.parallelPath(corner, 2), DELTA);
+	}
+}
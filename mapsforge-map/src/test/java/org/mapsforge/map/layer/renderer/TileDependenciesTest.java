@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.renderer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.Tile;
+
+public class TileDependenciesTest {
+	private static final int TILE_SIZE = 256;
+
+	@Test
+	public void pendingTileTest() {
+		TileDependencies tileDependencies = new TileDependencies();
+		Tile tile1 = new Tile(1, 1, (byte) 2, TILE_SIZE);
+		Tile tile2 = new Tile(2, 1, (byte) 2, TILE_SIZE);
+
+		Assert.assertFalse(tileDependencies.isPendingTile(tile1));
+
+		tileDependencies.addPendingTile(tile1);
+		Assert.assertTrue(tileDependencies.isPendingTile(tile1));
+		Assert.assertTrue(tileDependencies.isPendingTile(new Tile(1, 1, (byte) 2, TILE_SIZE)));
+		Assert.assertFalse(tileDependencies.isPendingTile(tile2));
+
+		tileDependencies.removePendingTile(tile1);
+		Assert.assertFalse(tileDependencies.isPendingTile(tile1));
+	}
+}
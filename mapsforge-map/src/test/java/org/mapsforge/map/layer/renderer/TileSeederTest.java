@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.layer.renderer;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.graphics.GraphicFactory;
+import org.mapsforge.core.model.BoundingBox;
+import org.mapsforge.map.awt.AwtGraphicFactory;
+import org.mapsforge.map.layer.cache.TileCache;
+import org.mapsforge.map.layer.cache.WritableTileStore;
+import org.mapsforge.map.rendertheme.InternalRenderTheme;
+
+public class TileSeederTest {
+	private static final BoundingBox BOUNDING_BOX = new BoundingBox(0, 0, 0.08, 0.08);
+	private static final GraphicFactory GRAPHIC_FACTORY = AwtGraphicFactory.INSTANCE;
+	private static final File MAP_FILE = new File("src/test/resources/with_data/output.map");
+	private static final String TMP_DIR = System.getProperty("java.io.tmpdir");
+	private static final byte ZOOM_LEVEL_MAX = 14;
+	private static final byte ZOOM_LEVEL_MIN = 10;
+
+	private static void verifyInvalidConstructor(File mapFile, int numberOfWorkers, TileCache tileCache) {
+		try {
+			new TileSeeder(mapFile, InternalRenderTheme.OSMARENDER, tileCache, GRAPHIC_FACTORY, numberOfWorkers);
+			Assert.fail("mapFile: " + mapFile + ", numberOfWorkers: " + numberOfWorkers);
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+	}
+
+	private final File storeDirectory = new File(TMP_DIR, getClass().getSimpleName() + System.currentTimeMillis());
+
+	@After
+	public void afterTest() throws IOException {
+		FileUtils.deleteDirectory(this.storeDirectory);
+	}
+
+	@Test
+	public void invalidConstructorTest() {
+		Assert.assertTrue(this.storeDirectory.mkdirs());
+		TileCache tileCache = new WritableTileStore(this.storeDirectory, ".png", GRAPHIC_FACTORY);
+		verifyInvalidConstructor(MAP_FILE, 0, tileCache);
+		verifyInvalidConstructor(new File("does/not/exist.map"), 1, tileCache);
+	}
+
+	@Test
+	public void seedTest() throws InterruptedException {
+		Assert.assertTrue(this.storeDirectory.mkdirs());
+		TileCache tileCache = new WritableTileStore(this.storeDirectory, ".png", GRAPHIC_FACTORY);
+		TileSeeder tileSeeder = new TileSeeder(MAP_FILE, InternalRenderTheme.OSMARENDER, tileCache, GRAPHIC_FACTORY, 2);
+		long numberOfTiles = TileSeeder.getNumberOfTiles(BOUNDING_BOX, ZOOM_LEVEL_MIN, ZOOM_LEVEL_MAX);
+		Assert.assertTrue(numberOfTiles > ZOOM_LEVEL_MAX - ZOOM_LEVEL_MIN);
+
+		tileSeeder.seed(BOUNDING_BOX, ZOOM_LEVEL_MIN, ZOOM_LEVEL_MAX);
+		Assert.assertEquals(numberOfTiles, tileSeeder.getNumberOfRenderedTiles());
+		Assert.assertEquals(0, tileSeeder.getNumberOfSkippedTiles());
+		Assert.assertEquals(0, tileSeeder.getNumberOfFailedTiles());
+		Assert.assertTrue(tileSeeder.getTilesPerSecond() > 0);
+		File zoomDirectory = new File(this.storeDirectory, Byte.toString(ZOOM_LEVEL_MAX));
+		Assert.assertTrue(zoomDirectory.isDirectory());
+
+		// a second run continues where the first one stopped
+		File[] columns = zoomDirectory.listFiles();
+		File[] tiles = columns[0].listFiles();
+		Assert.assertTrue(tiles[0].delete());
+		tileSeeder.seed(BOUNDING_BOX, ZOOM_LEVEL_MIN, ZOOM_LEVEL_MAX);
+		Assert.assertEquals(1, tileSeeder.getNumberOfRenderedTiles());
+		Assert.assertEquals(numberOfTiles - 1, tileSeeder.getNumberOfSkippedTiles());
+		Assert.assertTrue(tiles[0].isFile());
+
+		tileSeeder.destroy();
+	}
+}
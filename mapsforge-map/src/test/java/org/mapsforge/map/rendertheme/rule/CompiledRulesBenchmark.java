@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.rendertheme.rule;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.mapsforge.core.model.Tag;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Compares the time to match ways against the internal osmarender theme with the compiled rules and by walking the
+ * rule tree. The benchmark only logs its results, it is not part of the unit test suite and has to be run explicitly
+ * with {@code mvn test -Dtest=CompiledRulesBenchmark}.
+ */
+public class CompiledRulesBenchmark {
+	private static final Logger LOGGER = Logger.getLogger(CompiledRulesBenchmark.class.getName());
+	private static final int ROUNDS = 20;
+
+	@Test
+	public void matchingBenchmark() throws XmlPullParserException, IOException {
+		RenderTheme renderTheme = CompiledRulesTest.getRenderTheme();
+		List<Rule> rules = renderTheme.getRules();
+		CompiledRules compiledRules = renderTheme.getCompiledRules();
+		List<List<Tag>> tagLists = CompiledRulesTest.createTagLists();
+
+		// warm up
+		int matches = 0;
+		for (List<Tag> tags : tagLists) {
+			matches += CompiledRulesTest.walkRules(rules, tags, (byte) 16, Closed.NO).size();
+			matches += compiledRules.matchWay(compiledRules.getTagSet(tags), (byte) 16, Closed.NO).size();
+		}
+
+		long startTime = System.nanoTime();
+		for (int round = 0; round < ROUNDS; ++round) {
+			for (List<Tag> tags : tagLists) {
+				matches += CompiledRulesTest.walkRules(rules, tags, (byte) 16, Closed.NO).size();
+			}
+		}
+		long walkTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		for (int round = 0; round < ROUNDS; ++round) {
+			for (List<Tag> tags : tagLists) {
+				matches += compiledRules.matchWay(compiledRules.getTagSet(tags), (byte) 16, Closed.NO).size();
+			}
+		}
+		long compiledTime = System.nanoTime() - startTime;
+
+		LOGGER.info("rule walk: " + walkTime / 1000000 + " ms, compiled rules: " + compiledTime / 1000000 + " ms ("
+				+ matches + " matches)");
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.rendertheme.rule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapsforge.core.model.Tag;
+import org.mapsforge.map.awt.AwtGraphicFactory;
+import org.mapsforge.map.model.DisplayModel;
+import org.mapsforge.map.rendertheme.InternalRenderTheme;
+import org.mapsforge.map.rendertheme.renderinstruction.RenderInstruction;
+import org.xmlpull.v1.XmlPullParserException;
+
+public class CompiledRulesTest {
+	private static final int NUMBER_OF_TAG_LISTS = 500;
+	private static final String[] TAGS = { "highway=primary", "highway=residential", "highway=footway",
+			"highway=motorway", "highway=turning_circle", "building=yes", "natural=water", "natural=coastline",
+			"waterway=river", "landuse=forest", "landuse=residential", "leisure=park", "amenity=parking",
+			"amenity=restaurant", "place=city", "place=village", "railway=rail", "tunnel=yes", "bridge=yes",
+			"oneway=yes", "area=yes", "boundary=administrative", "admin_level=2", "tourism=hotel", "shop=bakery",
+			"name=yes", "name=Berlin", "ref=A 1", "ele=1234", "unknown=value" };
+	private static final byte ZOOM_LEVEL_MAX = 22;
+
+	static List<List<Tag>> createTagLists() {
+		Random random = new Random(42);
+		List<List<Tag>> tagLists = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_TAG_LISTS; ++i) {
+			List<Tag> tags = new ArrayList<>();
+			for (int j = 0, n = 1 + random.nextInt(4); j < n; ++j) {
+				tags.add(new Tag(TAGS[random.nextInt(TAGS.length)]));
+			}
+			tagLists.add(tags);
+		}
+		return tagLists;
+	}
+
+	static RenderTheme getRenderTheme() throws XmlPullParserException, IOException {
+		return RenderThemeHandler.getRenderTheme(AwtGraphicFactory.INSTANCE, new DisplayModel(),
+				InternalRenderTheme.OSMARENDER);
+	}
+
+	static List<RenderInstruction> walkRules(List<Rule> rules, List<Tag> tags, byte zoomLevel, Closed closed) {
+		List<RenderInstruction> matchingList = new ArrayList<>();
+		for (int i = 0, n = rules.size(); i < n; ++i) {
+			if (closed == null) {
+				rules.get(i).matchNode(tags, zoomLevel, matchingList);
+			} else {
+				rules.get(i).matchWay(tags, zoomLevel, closed, matchingList);
+			}
+		}
+		return matchingList;
+	}
+
+	@Test
+	public void matchingTest() throws XmlPullParserException, IOException {
+		RenderTheme renderTheme = getRenderTheme();
+		List<Rule> rules = renderTheme.getRules();
+		CompiledRules compiledRules = renderTheme.getCompiledRules();
+
+		for (List<Tag> tags : createTagLists()) {
+			TagSet tagSet = compiledRules.getTagSet(tags);
+			for (byte zoomLevel = 0; zoomLevel <= ZOOM_LEVEL_MAX; ++zoomLevel) {
+				Assert.assertEquals(walkRules(rules, tags, zoomLevel, null), compiledRules.matchNode(tagSet, zoomLevel));
+				Assert.assertEquals(walkRules(rules, tags, zoomLevel, Closed.NO),
+						compiledRules.matchWay(tagSet, zoomLevel, Closed.NO));
+				Assert.assertEquals(walkRules(rules, tags, zoomLevel, Closed.YES),
+						compiledRules.matchWay(tagSet, zoomLevel, Closed.YES));
+			}
+		}
+	}
+
+	@Test
+	public void tagSetTest() throws XmlPullParserException, IOException {
+		CompiledRules compiledRules = getRenderTheme().getCompiledRules();
+
+		List<Tag> tags1 = new ArrayList<>();
+		tags1.add(new Tag("highway", "primary"));
+		tags1.add(new Tag("unknown", "value"));
+		List<Tag> tags2 = new ArrayList<>();
+		tags2.add(new Tag("highway", "primary"));
+		List<Tag> tags3 = new ArrayList<>();
+		tags3.add(new Tag("highway", "residential"));
+
+		Assert.assertEquals(compiledRules.getTagSet(tags1), compiledRules.getTagSet(tags2));
+		Assert.assertEquals(compiledRules.getTagSet(tags1).hashCode(), compiledRules.getTagSet(tags2).hashCode());
+		Assert.assertNotEquals(compiledRules.getTagSet(tags1), compiledRules.getTagSet(tags3));
+	}
+}
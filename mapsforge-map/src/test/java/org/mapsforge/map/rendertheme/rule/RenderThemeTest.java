@@ -61,9 +61,6 @@ public class RenderThemeTest {
 
 		Assert.assertEquals(3, renderTheme.getLevels());
 
-		renderTheme.scaleStrokeWidth(12.34f);
-		renderTheme.scaleTextSize(56.78f);
-
 		RenderCallback renderCallback = new DummyRenderCallback();
 
 		List<Tag> closedWayTags = Arrays.asList(new Tag("amenity", "parking"));
@@ -71,6 +68,8 @@ public class RenderThemeTest {
 		List<Tag> nodeTags = Arrays.asList(new Tag("place", "city"), new Tag("highway", "turning_circle"));
 
 		for (byte zoomLevel = 0; zoomLevel < 25; ++zoomLevel) {
+			renderTheme.scaleStrokeWidth(12.34f, zoomLevel);
+			renderTheme.scaleTextSize(56.78f, zoomLevel);
 		//	renderTheme.matchClosedWay(renderCallback, closedWayTags, zoomLevel, 256);
 		//	renderTheme.matchLinearWay(renderCallback, linearWayTags, zoomLevel);
 		//	renderTheme.matchNode(renderCallback, nodeTags, zoomLevel);
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010, 2011, 2012, 2013 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mapsforge.map.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	private static final long MILLISECOND = 1000000;
+
+	@Test
+	public void getBucketTest() {
+		Assert.assertEquals(0, LatencyHistogram.getBucket(0));
+		Assert.assertEquals(0, LatencyHistogram.getBucket(999));
+		Assert.assertEquals(1, LatencyHistogram.getBucket(1000));
+		Assert.assertEquals(2, LatencyHistogram.getBucket(2000));
+		Assert.assertEquals(2, LatencyHistogram.getBucket(3999));
+		Assert.assertEquals(10, LatencyHistogram.getBucket(MILLISECOND));
+		Assert.assertEquals(23, LatencyHistogram.getBucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void percentileTest() {
+		LatencyHistogram latencyHistogram = new LatencyHistogram();
+		Assert.assertEquals(0, latencyHistogram.getPercentile(0.5));
+		Assert.assertEquals(0, latencyHistogram.getMean());
+
+		for (int i = 0; i < 90; ++i) {
+			latencyHistogram.record(MILLISECOND);
+		}
+		for (int i = 0; i < 10; ++i) {
+			latencyHistogram.record(100 * MILLISECOND);
+		}
+		Assert.assertEquals(100, latencyHistogram.getCount());
+		Assert.assertEquals(100 * MILLISECOND, latencyHistogram.getMaximum());
+		Assert.assertEquals(1090 * MILLISECOND, latencyHistogram.getTotal());
+		Assert.assertEquals(10900000, latencyHistogram.getMean());
+
+		// percentiles are accurate to a factor of two
+		long median = latencyHistogram.getPercentile(0.5);
+		Assert.assertTrue(median >= MILLISECOND && median <= 2 * MILLISECOND);
+		long p90 = latencyHistogram.getPercentile(0.9);
+		Assert.assertTrue(p90 >= MILLISECOND && p90 <= 2 * MILLISECOND);
+		long p95 = latencyHistogram.getPercentile(0.95);
+		Assert.assertTrue(p95 >= 64 * MILLISECOND && p95 <= 100 * MILLISECOND);
+		Assert.assertEquals(100 * MILLISECOND, latencyHistogram.getPercentile(1));
+
+		try {
+			latencyHistogram.getPercentile(1.5);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(true);
+		}
+	}
+
+	@Test
+	public void resetTest() {
+		LatencyHistogram latencyHistogram = new LatencyHistogram();
+		latencyHistogram.record(5 * MILLISECOND);
+		latencyHistogram.reset();
+
+		Assert.assertEquals(0, latencyHistogram.getCount());
+		Assert.assertEquals(0, latencyHistogram.getMaximum());
+		Assert.assertEquals(0, latencyHistogram.getTotal());
+		Assert.assertEquals(0, latencyHistogram.getPercentile(0.99));
+	}
+}